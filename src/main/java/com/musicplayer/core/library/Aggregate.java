@@ -0,0 +1,81 @@
+package com.musicplayer.core.library;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.musicplayer.data.models.Song;
+
+/**
+ * Running totals of a group of songs, an album or an artist, updated as
+ * songs join and leave the group. Years are counted per value so that the
+ * year range stays correct when the earliest or latest song is removed.
+ * Not thread-safe.
+ */
+final class Aggregate {
+
+    private final String name;
+    private final String artistName;
+    private final List<Song> songs = new ArrayList<>();
+    private final TreeMap<Integer, Integer> yearCounts = new TreeMap<>();
+    private final Map<String, Integer> albumCounts = new HashMap<>();
+    private long totalDuration;
+
+    /**
+     * @param name       Display name, as spelled by the first song of the group
+     * @param artistName Display artist of an album, or null for an artist
+     */
+    Aggregate(String name, String artistName) {
+        this.name = name;
+        this.artistName = artistName;
+    }
+
+    /**
+     * Adds a song with the values it was indexed with.
+     *
+     * @param albumKey Normalized key of the song's album, or null if it has none
+     */
+    void add(Song song, long duration, int year, String albumKey) {
+        songs.add(song);
+        totalDuration += duration;
+        if (year > 0) {
+            yearCounts.merge(year, 1, Integer::sum);
+        }
+        if (albumKey != null) {
+            albumCounts.merge(albumKey, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Removes a song that was added with the same values.
+     *
+     * @return true if the group is now empty
+     */
+    boolean remove(Song song, long duration, int year, String albumKey) {
+        for (int i = songs.size() - 1; i >= 0; i--) {
+            if (songs.get(i) == song) {
+                songs.remove(i);
+                break;
+            }
+        }
+        totalDuration -= duration;
+        if (year > 0) {
+            yearCounts.computeIfPresent(year, (y, n) -> n > 1 ? n - 1 : null);
+        }
+        if (albumKey != null) {
+            albumCounts.computeIfPresent(albumKey, (k, n) -> n > 1 ? n - 1 : null);
+        }
+        return songs.isEmpty();
+    }
+
+    String getName() { return name; }
+    String getArtistName() { return artistName; }
+    List<Song> getSongs() { return songs; }
+    int getTrackCount() { return songs.size(); }
+    int getAlbumCount() { return albumCounts.size(); }
+    long getTotalDuration() { return totalDuration; }
+    int getMinYear() { return yearCounts.isEmpty() ? 0 : yearCounts.firstKey(); }
+    int getMaxYear() { return yearCounts.isEmpty() ? 0 : yearCounts.lastKey(); }
+}
@@ -0,0 +1,46 @@
+package com.musicplayer.core.library;
+
+/**
+ * Totals of one album of the library, without its songs.
+ * An album is identified by its title and artist, ignoring case and accents.
+ */
+public final class AlbumSummary {
+
+    private final String title;
+    private final String artistName;
+    private final int trackCount;
+    private final long totalDuration;
+    private final int minYear;
+    private final int maxYear;
+
+    AlbumSummary(String title, String artistName, int trackCount, long totalDuration, int minYear, int maxYear) {
+        this.title = title;
+        this.artistName = artistName;
+        this.trackCount = trackCount;
+        this.totalDuration = totalDuration;
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+    }
+
+    public String getTitle() { return title; }
+    public String getArtistName() { return artistName; }
+    public int getTrackCount() { return trackCount; }
+
+    /** Sum of the track durations, in seconds. */
+    public long getTotalDuration() { return totalDuration; }
+
+    /** Earliest year of a track, or 0 if no track has one. */
+    public int getMinYear() { return minYear; }
+
+    /** Latest year of a track, or 0 if no track has one. */
+    public int getMaxYear() { return maxYear; }
+
+    @Override
+    public String toString() {
+        return "AlbumSummary{" +
+                "title='" + title + '\'' +
+                ", artistName='" + artistName + '\'' +
+                ", trackCount=" + trackCount +
+                '}';
+    }
+}
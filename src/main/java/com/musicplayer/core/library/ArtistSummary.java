@@ -0,0 +1,48 @@
+package com.musicplayer.core.library;
+
+/**
+ * Totals of one artist of the library, without their songs.
+ * Artists are identified by name, ignoring case and accents.
+ */
+public final class ArtistSummary {
+
+    private final String name;
+    private final int trackCount;
+    private final int albumCount;
+    private final long totalDuration;
+    private final int minYear;
+    private final int maxYear;
+
+    ArtistSummary(String name, int trackCount, int albumCount, long totalDuration, int minYear, int maxYear) {
+        this.name = name;
+        this.trackCount = trackCount;
+        this.albumCount = albumCount;
+        this.totalDuration = totalDuration;
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+    }
+
+    public String getName() { return name; }
+    public int getTrackCount() { return trackCount; }
+
+    /** Number of distinct albums of the artist's tracks. */
+    public int getAlbumCount() { return albumCount; }
+
+    /** Sum of the track durations, in seconds. */
+    public long getTotalDuration() { return totalDuration; }
+
+    /** Earliest year of a track, or 0 if no track has one. */
+    public int getMinYear() { return minYear; }
+
+    /** Latest year of a track, or 0 if no track has one. */
+    public int getMaxYear() { return maxYear; }
+
+    @Override
+    public String toString() {
+        return "ArtistSummary{" +
+                "name='" + name + '\'' +
+                ", trackCount=" + trackCount +
+                ", albumCount=" + albumCount +
+                '}';
+    }
+}
@@ -1,158 +1,369 @@
 package com.musicplayer.core.library;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import com.musicplayer.data.models.Album;
 import com.musicplayer.data.models.Artist;
+import com.musicplayer.data.models.MetadataDictionary;
 import com.musicplayer.data.models.Song;
+import com.musicplayer.data.repositories.SongRegistry;
 
 /**
  * In-memory implementation of LibraryEngine.
- * Provides fast search and indexing capabilities using HashMap-based indexes.
+ * Provides fast search and indexing capabilities using posting-list indexes.
+ * <p>
+ * Every song gets a document number in insertion order, found from its ID
+ * through a primitive {@link LongIntMap}. Titles, artists and albums are
+ * tokenized into {@link TokenIndex} posting lists, and whole lower-case
+ * artist, album and genre names are kept the same way, so the indexes hold
+ * sorted {@code int} arrays rather than sets of songs. A query is
+ * answered by intersecting the documents of its words, each word matching as
+ * a prefix so that results appear while the user is still typing. A
+ * {@link TrigramIndex} over the distinct tokens lets fuzzy searches map
+ * mistyped words to the words that are actually in the library.
+ * <p>
+ * Albums and artists are kept as running aggregates, updated as songs are
+ * added and removed, so listing them costs one entry per album or artist
+ * and counting them is constant time.
+ * <p>
+ * Songs are interned through the {@link SongRegistry} of the song repository
+ * when one is given, so the engine indexes the same instances the repository,
+ * albums and playlists hold. Tag values, index keys and tokens are pooled in
+ * the shared
+ * {@link MetadataDictionary}, so the indexes hold one string per distinct
+ * value rather than one per song.
+ * <p>
+ * All public methods synchronize on the engine, so searches may run on a
+ * background thread while the library is updated.
  */
 public class InMemoryLibraryEngine implements LibraryEngine {
     
-    private final Set<Song> songs = new LinkedHashSet<>();
-    private final Map<String, Set<Song>> titleIndex = new HashMap<>();
-    private final Map<String, Set<Song>> artistIndex = new HashMap<>();
-    private final Map<String, Set<Song>> albumIndex = new HashMap<>();
-    private final Map<String, Set<Song>> genreIndex = new HashMap<>();
+    /** Score weights of a word matching the title, artist and album. */
+    private static final int[] FIELD_WEIGHTS = {3, 2, 1};
+    /** Similar vocabulary tokens tried per word of a fuzzy query. */
+    private static final int FUZZY_EXPANSIONS = 16;
+    private static final MetadataDictionary DICTIONARY = MetadataDictionary.shared();
+
+    private final LongIntMap docIds = new LongIntMap(); // song ID to document
+    private final List<Song> docs = new ArrayList<>(); // null where a song was removed
+    private final List<IndexedFields> docFields = new ArrayList<>(); // parallel to docs
+    private final TokenIndex titleTokens = new TokenIndex();
+    private final TokenIndex artistTokens = new TokenIndex();
+    private final TokenIndex albumTokens = new TokenIndex();
+    private final TrigramIndex vocabulary = new TrigramIndex();
+    // Whole lower-case artist, album and genre names, each a single term
+    private final TokenIndex artistIndex = new TokenIndex();
+    private final TokenIndex albumIndex = new TokenIndex();
+    private final TokenIndex genreIndex = new TokenIndex();
+    private final Map<String, Aggregate> albums = new LinkedHashMap<>();
+    private final Map<String, Aggregate> artists = new LinkedHashMap<>();
+    private final SongRegistry registry;
+    
+    public InMemoryLibraryEngine() {
+        this(null);
+    }
+    
+    /**
+     * @param registry Registry to resolve added songs through, or null to index them as given
+     */
+    public InMemoryLibraryEngine(SongRegistry registry) {
+        this.registry = registry;
+    }
     
     @Override
-    public void addSongs(List<Song> songsToAdd) {
-        for (Song song : songsToAdd) {
-            if (songs.add(song)) {
-                indexSong(song);
+    public synchronized void addSongs(List<Song> songsToAdd) {
+        for (Song added : songsToAdd) {
+            Song song = registry != null ? registry.intern(added) : added;
+            if (!docIds.containsKey(song.getId())) {
+                docIds.put(song.getId(), docs.size());
+                docs.add(song);
+                docFields.add(indexSong(song, docs.size() - 1));
             }
         }
     }
     
     @Override
-    public boolean removeSong(Song song) {
-        if (songs.remove(song)) {
-            removeFromIndexes(song);
+    public synchronized boolean removeSong(Song song) {
+        int doc = song != null ? docIds.remove(song.getId()) : -1;
+        if (doc >= 0) {
+            Song indexed = docs.set(doc, null);
+            removeFromIndexes(indexed, doc, docFields.set(doc, null));
             return true;
         }
         return false;
     }
     
     @Override
-    public List<Song> getAllSongs() {
-        return new ArrayList<>(songs);
+    public synchronized boolean updateSong(Song updated) {
+        int doc = updated != null ? docIds.get(updated.getId()) : -1;
+        if (doc < 0) {
+            return false;
+        }
+        Song song = registry != null ? registry.intern(updated) : updated;
+        IndexedFields fields = docFields.get(doc);
+        if (song == docs.get(doc) && fields.matches(song)) {
+            return true;
+        }
+        // Postings only grow at the end, so the song moves to a new document
+        removeSong(docs.get(doc));
+        docIds.put(song.getId(), docs.size());
+        docs.add(song);
+        docFields.add(indexSong(song, docs.size() - 1));
+        return true;
     }
     
     @Override
-    public List<Album> getAllAlbums() {
-        Map<String, Album> albumMap = new HashMap<>();
-        for (Song song : songs) {
-            if (song.getAlbum() != null && !song.getAlbum().trim().isEmpty()) {
-                String artist = song.getArtist() != null ? song.getArtist() : "";
-                String key = (song.getAlbum() + "||" + artist).toLowerCase();
-                Album album = albumMap.get(key);
-                if (album == null) {
-                    album = new Album();
-                    album.setTitle(song.getAlbum());
-                    album.setArtistName(artist);
-                    albumMap.put(key, album);
-                }
-                album.addSong(song);
+    public synchronized List<Song> getAllSongs() {
+        List<Song> all = new ArrayList<>(docIds.size());
+        for (Song song : docs) {
+            if (song != null) {
+                all.add(song);
             }
         }
-        return new ArrayList<>(albumMap.values());
+        return all;
     }
     
     @Override
-    public List<Artist> getAllArtists() {
-        Map<String, Artist> artistMap = new HashMap<>();
-        
-        for (Song song : songs) {
-            if (song.getArtist() != null && !song.getArtist().trim().isEmpty()) {
-                String artistKey = song.getArtist().toLowerCase();
-                if (!artistMap.containsKey(artistKey)) {
-                    Artist artist = new Artist();
-                    artist.setName(song.getArtist());
-                    artistMap.put(artistKey, artist);
-                }
-            }
+    public synchronized List<Album> getAllAlbums() {
+        List<Album> result = new ArrayList<>(albums.size());
+        for (Aggregate aggregate : albums.values()) {
+            Album album = new Album();
+            album.setTitle(aggregate.getName());
+            album.setArtistName(aggregate.getArtistName());
+            album.setReleaseYear(aggregate.getMinYear());
+            // Callers own the album, so it gets its own track list
+            album.setSongs(new ArrayList<>(aggregate.getSongs()));
+            result.add(album);
         }
-        
-        return new ArrayList<>(artistMap.values());
+        return result;
     }
     
     @Override
-    public List<Song> searchSongsByTitle(String query) {
-        if (query == null || query.trim().isEmpty()) {
-            return new ArrayList<>();
+    public synchronized List<Artist> getAllArtists() {
+        List<Artist> result = new ArrayList<>(artists.size());
+        for (Aggregate aggregate : artists.values()) {
+            Artist artist = new Artist();
+            artist.setName(aggregate.getName());
+            result.add(artist);
         }
-        
-        String lowerQuery = query.toLowerCase();
-        return songs.stream()
-                .filter(song -> song.getTitle() != null && 
-                               song.getTitle().toLowerCase().contains(lowerQuery))
-                .collect(Collectors.toList());
+        return result;
+    }
+    
+    @Override
+    public synchronized List<AlbumSummary> getAlbumSummaries() {
+        List<AlbumSummary> result = new ArrayList<>(albums.size());
+        for (Aggregate a : albums.values()) {
+            result.add(new AlbumSummary(a.getName(), a.getArtistName(), a.getTrackCount(),
+                    a.getTotalDuration(), a.getMinYear(), a.getMaxYear()));
+        }
+        return result;
+    }
+    
+    @Override
+    public synchronized List<ArtistSummary> getArtistSummaries() {
+        List<ArtistSummary> result = new ArrayList<>(artists.size());
+        for (Aggregate a : artists.values()) {
+            result.add(new ArtistSummary(a.getName(), a.getTrackCount(), a.getAlbumCount(),
+                    a.getTotalDuration(), a.getMinYear(), a.getMaxYear()));
+        }
+        return result;
+    }
+    
+    @Override
+    public synchronized List<Song> searchSongsByTitle(String query) {
+        return songsOf(matchAllWords(TokenIndex.tokenize(query), titleTokens));
     }
     
     @Override
-    public List<Song> searchSongsByArtist(String query) {
-        if (query == null || query.trim().isEmpty()) {
+    public synchronized List<Song> searchSongsByArtist(String query) {
+        return songsOf(matchAllWords(TokenIndex.tokenize(query), artistTokens));
+    }
+    
+    @Override
+    public synchronized List<Song> searchSongsByAlbum(String query) {
+        return songsOf(matchAllWords(TokenIndex.tokenize(query), albumTokens));
+    }
+    
+    @Override
+    public synchronized List<Song> search(String query, int limit) {
+        List<String> words = TokenIndex.tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
             return new ArrayList<>();
         }
-        
-        String lowerQuery = query.toLowerCase();
-        return artistIndex.entrySet().stream()
-                .filter(entry -> entry.getKey().contains(lowerQuery))
-                .flatMap(entry -> entry.getValue().stream())
-                .collect(Collectors.toList());
+        TokenIndex[] fields = {titleTokens, artistTokens, albumTokens};
+        BitSet[][] exact = new BitSet[words.size()][fields.length];
+        BitSet[][] prefix = new BitSet[words.size()][fields.length];
+        BitSet candidates = null;
+        for (int w = 0; w < words.size(); w++) {
+            BitSet anyField = new BitSet(docs.size());
+            for (int f = 0; f < fields.length; f++) {
+                exact[w][f] = new BitSet(docs.size());
+                fields[f].collectExact(words.get(w), exact[w][f]);
+                prefix[w][f] = new BitSet(docs.size());
+                fields[f].collectPrefix(words.get(w), prefix[w][f]);
+                anyField.or(prefix[w][f]);
+            }
+            if (candidates == null) {
+                candidates = anyField;
+            } else {
+                candidates.and(anyField);
+            }
+            if (candidates.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+
+        // Score every candidate: per word, the best field it matches, doubled for a whole word
+        int count = candidates.cardinality();
+        int[] candidateDocs = new int[count];
+        int[] scores = new int[count];
+        int maxScore = 2 * FIELD_WEIGHTS[0] * words.size();
+        int[] docsWithScore = new int[maxScore + 1];
+        int i = 0;
+        for (int doc = candidates.nextSetBit(0); doc >= 0; doc = candidates.nextSetBit(doc + 1)) {
+            if (docs.get(doc) == null) {
+                continue;
+            }
+            int score = 0;
+            for (int w = 0; w < words.size(); w++) {
+                int best = 0;
+                for (int f = 0; f < fields.length; f++) {
+                    if (exact[w][f].get(doc)) {
+                        best = Math.max(best, 2 * FIELD_WEIGHTS[f]);
+                    } else if (prefix[w][f].get(doc)) {
+                        best = Math.max(best, FIELD_WEIGHTS[f]);
+                    }
+                }
+                score += best;
+            }
+            candidateDocs[i] = doc;
+            scores[i] = score;
+            docsWithScore[score]++;
+            i++;
+        }
+        count = i;
+
+        // Only the best `limit` are sorted; ties keep insertion order
+        int threshold = maxScore;
+        int above = docsWithScore[maxScore];
+        while (threshold > 0 && above < limit) {
+            threshold--;
+            above += docsWithScore[threshold];
+        }
+        long[] top = new long[Math.min(limit, count)];
+        int taken = 0;
+        int atThreshold = limit - (above - docsWithScore[threshold]);
+        for (int k = 0; k < count && taken < top.length; k++) {
+            if (scores[k] > threshold || (scores[k] == threshold && atThreshold-- > 0)) {
+                top[taken++] = ((long) (maxScore - scores[k]) << 32) | candidateDocs[k];
+            }
+        }
+        Arrays.sort(top, 0, taken);
+        List<Song> results = new ArrayList<>(taken);
+        for (int k = 0; k < taken; k++) {
+            results.add(docs.get((int) top[k]));
+        }
+        return results;
     }
     
     @Override
-    public List<Song> searchSongsByAlbum(String query) {
-        if (query == null || query.trim().isEmpty()) {
+    public synchronized List<Song> fuzzySearch(String query, int limit) {
+        List<String> words = TokenIndex.tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
             return new ArrayList<>();
         }
-        
-        String lowerQuery = query.toLowerCase();
-        return albumIndex.entrySet().stream()
-                .filter(entry -> entry.getKey().contains(lowerQuery))
-                .flatMap(entry -> entry.getValue().stream())
-                .collect(Collectors.toList());
+        TokenIndex[] fields = {titleTokens, artistTokens, albumTokens};
+        float[] scores = new float[docs.size()];
+        BitSet candidates = null;
+        for (String word : words) {
+            List<TrigramIndex.Match> matches = vocabulary.similarTokens(word, FUZZY_EXPANSIONS);
+            if (matches.isEmpty()) {
+                return new ArrayList<>();
+            }
+            // Per document, the best field and spelling this word was found with
+            float[] best = new float[docs.size()];
+            BitSet wordDocs = new BitSet(docs.size());
+            for (TrigramIndex.Match match : matches) {
+                for (int f = 0; f < fields.length; f++) {
+                    float score = (float) (match.similarity * FIELD_WEIGHTS[f]);
+                    fields[f].forEachDoc(match.token, doc -> {
+                        wordDocs.set(doc);
+                        if (score > best[doc]) {
+                            best[doc] = score;
+                        }
+                    });
+                }
+            }
+            if (candidates == null) {
+                candidates = wordDocs;
+            } else {
+                candidates.and(wordDocs);
+            }
+            if (candidates.isEmpty()) {
+                return new ArrayList<>();
+            }
+            for (int doc = candidates.nextSetBit(0); doc >= 0; doc = candidates.nextSetBit(doc + 1)) {
+                scores[doc] += best[doc];
+            }
+        }
+
+        // Bounded heap of the best `limit`; ties keep insertion order
+        PriorityQueue<Long> top = new PriorityQueue<>(limit + 1);
+        for (int doc = candidates.nextSetBit(0); doc >= 0; doc = candidates.nextSetBit(doc + 1)) {
+            if (docs.get(doc) == null) {
+                continue;
+            }
+            long key = ((long) (scores[doc] * 10_000) << 32) | (Integer.MAX_VALUE - doc);
+            if (top.size() < limit) {
+                top.add(key);
+            } else if (key > top.peek()) {
+                top.poll();
+                top.add(key);
+            }
+        }
+        List<Song> results = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            results.add(docs.get(Integer.MAX_VALUE - (int) (top.poll() & 0xFFFFFFFFL)));
+        }
+        Collections.reverse(results);
+        return results;
     }
     
     @Override
-    public List<Song> getSongsByArtist(Artist artist) {
+    public synchronized List<Song> getSongsByArtist(Artist artist) {
         if (artist == null || artist.getName() == null) {
             return new ArrayList<>();
         }
         
-        String artistKey = artist.getName().toLowerCase();
-        Set<Song> artistSongs = artistIndex.get(artistKey);
-        return artistSongs != null ? new ArrayList<>(artistSongs) : new ArrayList<>();
+        return songsWithKey(artistIndex, artist.getName());
     }
     
     @Override
-    public List<Song> getSongsByAlbum(Album album) {
+    public synchronized List<Song> getSongsByAlbum(Album album) {
         if (album == null || album.getTitle() == null) {
             return new ArrayList<>();
         }
         
-        String albumKey = album.getTitle().toLowerCase();
-        Set<Song> albumSongs = albumIndex.get(albumKey);
-        if (albumSongs == null) return new ArrayList<>();
+        List<Song> albumSongs = songsWithKey(albumIndex, album.getTitle());
         String artistFilter = album.getArtistName();
         if (artistFilter == null || artistFilter.isBlank()) {
-            return new ArrayList<>(albumSongs);
+            return albumSongs;
         }
-        String artistKey = artistFilter.toLowerCase();
+        String artistKey = artistFilter.toLowerCase(Locale.ROOT);
         List<Song> filtered = new ArrayList<>();
         for (Song s : albumSongs) {
-            if (s.getArtist() != null && s.getArtist().toLowerCase().equals(artistKey)) {
+            if (s.getArtist() != null && s.getArtist().toLowerCase(Locale.ROOT).equals(artistKey)) {
                 filtered.add(s);
             }
         }
@@ -160,142 +371,263 @@ public class InMemoryLibraryEngine implements LibraryEngine {
     }
     
     @Override
-    public List<Song> getSongsByGenre(String genre) {
+    public synchronized List<Song> getSongsByGenre(String genre) {
         if (genre == null || genre.trim().isEmpty()) {
             return new ArrayList<>();
         }
         
-        String genreKey = genre.toLowerCase();
-        Set<Song> genreSongs = genreIndex.get(genreKey);
-        return genreSongs != null ? new ArrayList<>(genreSongs) : new ArrayList<>();
+        return songsWithKey(genreIndex, genre);
     }
     
     @Override
-    public Set<String> getAllGenres() {
-        return genreIndex.keySet().stream()
+    public synchronized Set<String> getAllGenres() {
+        return genreIndex.termsWithPrefix("").stream()
                 .map(this::capitalizeFirst)
                 .collect(Collectors.toSet());
     }
     
     @Override
-    public void clearLibrary() {
-        songs.clear();
-        titleIndex.clear();
+    public synchronized void clearLibrary() {
+        docIds.clear();
+        docs.clear();
+        docFields.clear();
+        titleTokens.clear();
+        artistTokens.clear();
+        albumTokens.clear();
+        vocabulary.clear();
         artistIndex.clear();
         albumIndex.clear();
         genreIndex.clear();
+        albums.clear();
+        artists.clear();
     }
     
     @Override
-    public int getSongCount() {
-        return songs.size();
+    public synchronized int getSongCount() {
+        return docIds.size();
     }
     
     @Override
-    public int getAlbumCount() {
-        return getAllAlbums().size();
+    public synchronized int getAlbumCount() {
+        return albums.size();
     }
     
     @Override
-    public int getArtistCount() {
-        return artistIndex.size();
+    public synchronized int getArtistCount() {
+        return artists.size();
     }
     
     @Override
-    public void rebuildIndexes() {
-        titleIndex.clear();
-        artistIndex.clear();
-        albumIndex.clear();
-        genreIndex.clear();
-        
-        for (Song song : songs) {
-            indexSong(song);
+    public synchronized void rebuildIndexes() {
+        // Renumbers the songs, which also drops the slots of removed ones
+        List<Song> all = getAllSongs();
+        clearLibrary();
+        addSongs(all);
+    }
+    
+    /**
+     * Returns the documents matching every word, each as a prefix of a token
+     * of the given field. Null if there are no words.
+     */
+    private BitSet matchAllWords(List<String> words, TokenIndex field) {
+        BitSet matches = null;
+        for (String word : words) {
+            BitSet wordDocs = new BitSet(docs.size());
+            field.collectPrefix(word, wordDocs);
+            if (matches == null) {
+                matches = wordDocs;
+            } else {
+                matches.and(wordDocs);
+            }
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        return matches;
+    }
+    
+    /**
+     * Returns the songs indexed under the lower case of {@code name}.
+     */
+    private List<Song> songsWithKey(TokenIndex index, String name) {
+        List<Song> result = new ArrayList<>();
+        index.forEachDoc(name.toLowerCase(Locale.ROOT), doc -> {
+            Song song = docs.get(doc);
+            if (song != null) {
+                result.add(song);
+            }
+        });
+        return result;
+    }
+    
+    private List<Song> songsOf(BitSet matches) {
+        List<Song> result = new ArrayList<>();
+        if (matches == null) {
+            return result;
         }
+        for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+            Song song = docs.get(doc);
+            if (song != null) {
+                result.add(song);
+            }
+        }
+        return result;
     }
     
     /**
      * Indexes a song for fast searching.
      * 
      * @param song Song to index
+     * @param doc  Document number of the song
+     * @return The values the song was indexed with
      */
-    private void indexSong(Song song) {
-        // Index by title
-        if (song.getTitle() != null) {
-            String titleKey = song.getTitle().toLowerCase();
-            titleIndex.computeIfAbsent(titleKey, k -> new HashSet<>()).add(song);
+    private IndexedFields indexSong(Song song, int doc) {
+        DICTIONARY.canonicalize(song);
+        IndexedFields fields = new IndexedFields(song);
+        titleTokens.add(doc, fields.title);
+        artistTokens.add(doc, fields.artist);
+        albumTokens.add(doc, fields.album);
+        fields.title.forEach(vocabulary::addToken);
+        fields.artist.forEach(vocabulary::addToken);
+        fields.album.forEach(vocabulary::addToken);
+        
+        // Album and artist totals
+        if (fields.albumKey != null) {
+            albums.computeIfAbsent(fields.albumKey,
+                    k -> new Aggregate(song.getAlbum().trim(), song.getArtist() != null ? song.getArtist() : ""))
+                    .add(song, fields.duration, fields.year, null);
+        }
+        if (fields.artistKey != null) {
+            artists.computeIfAbsent(fields.artistKey, k -> new Aggregate(song.getArtist().trim(), null))
+                    .add(song, fields.duration, fields.year, fields.albumKey);
         }
         
         // Index by artist
-        if (song.getArtist() != null) {
-            String artistKey = song.getArtist().toLowerCase();
-            artistIndex.computeIfAbsent(artistKey, k -> new HashSet<>()).add(song);
+        if (fields.artistName != null) {
+            artistIndex.add(doc, List.of(fields.artistName));
         }
         
         // Index by album
-        if (song.getAlbum() != null) {
-            String albumKey = song.getAlbum().toLowerCase();
-            albumIndex.computeIfAbsent(albumKey, k -> new HashSet<>()).add(song);
+        if (fields.albumName != null) {
+            albumIndex.add(doc, List.of(fields.albumName));
         }
         
         // Index by genre
-        if (song.getGenre() != null) {
-            String genreKey = song.getGenre().toLowerCase();
-            genreIndex.computeIfAbsent(genreKey, k -> new HashSet<>()).add(song);
+        if (fields.genreName != null) {
+            genreIndex.add(doc, List.of(fields.genreName));
         }
+        return fields;
     }
     
     /**
      * Removes a song from all indexes.
      * 
      * @param song Song to remove from indexes
+     * @param doc    Document number the song was indexed under
+     * @param fields Values the song was indexed with
      */
-    private void removeFromIndexes(Song song) {
-        // Remove from title index
-        if (song.getTitle() != null) {
-            String titleKey = song.getTitle().toLowerCase();
-            Set<Song> titleSongs = titleIndex.get(titleKey);
-            if (titleSongs != null) {
-                titleSongs.remove(song);
-                if (titleSongs.isEmpty()) {
-                    titleIndex.remove(titleKey);
-                }
+    private void removeFromIndexes(Song song, int doc, IndexedFields fields) {
+        titleTokens.remove(doc, fields.title);
+        artistTokens.remove(doc, fields.artist);
+        albumTokens.remove(doc, fields.album);
+        fields.title.forEach(vocabulary::removeToken);
+        fields.artist.forEach(vocabulary::removeToken);
+        fields.album.forEach(vocabulary::removeToken);
+        
+        // Album and artist totals
+        if (fields.albumKey != null) {
+            Aggregate album = albums.get(fields.albumKey);
+            if (album != null && album.remove(song, fields.duration, fields.year, null)) {
+                albums.remove(fields.albumKey);
+            }
+        }
+        if (fields.artistKey != null) {
+            Aggregate artist = artists.get(fields.artistKey);
+            if (artist != null && artist.remove(song, fields.duration, fields.year, fields.albumKey)) {
+                artists.remove(fields.artistKey);
             }
         }
         
         // Remove from artist index
-        if (song.getArtist() != null) {
-            String artistKey = song.getArtist().toLowerCase();
-            Set<Song> artistSongs = artistIndex.get(artistKey);
-            if (artistSongs != null) {
-                artistSongs.remove(song);
-                if (artistSongs.isEmpty()) {
-                    artistIndex.remove(artistKey);
-                }
-            }
+        if (fields.artistName != null) {
+            artistIndex.remove(doc, List.of(fields.artistName));
         }
         
         // Remove from album index
-        if (song.getAlbum() != null) {
-            String albumKey = song.getAlbum().toLowerCase();
-            Set<Song> albumSongs = albumIndex.get(albumKey);
-            if (albumSongs != null) {
-                albumSongs.remove(song);
-                if (albumSongs.isEmpty()) {
-                    albumIndex.remove(albumKey);
-                }
-            }
+        if (fields.albumName != null) {
+            albumIndex.remove(doc, List.of(fields.albumName));
         }
         
         // Remove from genre index
-        if (song.getGenre() != null) {
-            String genreKey = song.getGenre().toLowerCase();
-            Set<Song> genreSongs = genreIndex.get(genreKey);
-            if (genreSongs != null) {
-                genreSongs.remove(song);
-                if (genreSongs.isEmpty()) {
-                    genreIndex.remove(genreKey);
-                }
-            }
+        if (fields.genreName != null) {
+            genreIndex.remove(doc, List.of(fields.genreName));
+        }
+    }
+    
+    /**
+     * Normalized key of a name, or null if it is blank.
+     */
+    private static String keyOf(String name) {
+        return name != null && !name.isBlank() ? DICTIONARY.canonical(TokenIndex.normalize(name.trim())) : null;
+    }
+    
+    /**
+     * Tokenizes a field, pooling the tokens so that documents share them with
+     * the term dictionaries of the indexes.
+     */
+    private static List<String> tokensOf(String text) {
+        List<String> tokens = TokenIndex.tokenize(text);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        String[] pooled = new String[tokens.size()];
+        for (int i = 0; i < pooled.length; i++) {
+            pooled[i] = DICTIONARY.canonical(tokens.get(i));
+        }
+        return List.of(pooled);
+    }
+    
+    /**
+     * The values a song was indexed with, so that it can be removed from the
+     * indexes and totals even after its tags were edited in place.
+     */
+    private static final class IndexedFields {
+        final List<String> title;
+        final List<String> artist;
+        final List<String> album;
+        final String artistKey;
+        final String albumKey;   // (album, artist), or null without an album title
+        final String artistName; // lower case, for the exact-name indexes
+        final String albumName;
+        final String genreName;
+        final long duration;
+        final int year;
+        
+        IndexedFields(Song song) {
+            title = tokensOf(song.getTitle());
+            artist = tokensOf(song.getArtist());
+            album = tokensOf(song.getAlbum());
+            artistKey = keyOf(song.getArtist());
+            String albumTitle = keyOf(song.getAlbum());
+            albumKey = albumTitle != null
+                    ? DICTIONARY.canonical(albumTitle + '\u0000' + (artistKey != null ? artistKey : "")) : null;
+            duration = song.getDuration();
+            year = song.getYear();
+            artistName = DICTIONARY.key(song.getArtist());
+            albumName = DICTIONARY.key(song.getAlbum());
+            genreName = DICTIONARY.key(song.getGenre());
+        }
+        
+        /**
+         * Checks whether {@code song} would still be indexed with these values.
+         */
+        boolean matches(Song song) {
+            IndexedFields now = new IndexedFields(song);
+            return title.equals(now.title) && artist.equals(now.artist) && album.equals(now.album)
+                    && Objects.equals(artistKey, now.artistKey)
+                    && Objects.equals(albumKey, now.albumKey) && Objects.equals(genreName, now.genreName)
+                    && Objects.equals(artistName, now.artistName) && Objects.equals(albumName, now.albumName)
+                    && duration == now.duration && year == now.year;
         }
     }
     
@@ -28,6 +28,15 @@ public interface LibraryEngine {
      */
     boolean removeSong(Song song);
     
+    /**
+     * Re-indexes a song that is already in the library after its tags or
+     * instance changed.
+     * 
+     * @param song Song to re-index
+     * @return true if the song was in the library, false otherwise
+     */
+    boolean updateSong(Song song);
+    
     /**
      * Gets all songs in the library.
      * 
@@ -49,6 +58,22 @@ public interface LibraryEngine {
      */
     List<Artist> getAllArtists();
     
+    /**
+     * Gets the track count, total duration and year range of every album,
+     * without building their song lists.
+     * 
+     * @return List of album totals
+     */
+    List<AlbumSummary> getAlbumSummaries();
+    
+    /**
+     * Gets the track count, album count, total duration and year range of
+     * every artist.
+     * 
+     * @return List of artist totals
+     */
+    List<ArtistSummary> getArtistSummaries();
+    
     /**
      * Searches for songs by title.
      * 
@@ -73,6 +98,28 @@ public interface LibraryEngine {
      */
     List<Song> searchSongsByAlbum(String query);
     
+    /**
+     * Searches titles, artists and albums for songs matching every word of the
+     * query. Words match as prefixes, so an unfinished last word still finds
+     * results.
+     * 
+     * @param query Search query
+     * @param limit Maximum number of results
+     * @return Matching songs, best first: title matches rank above artist and
+     *         album matches, and whole words above prefixes
+     */
+    List<Song> search(String query, int limit);
+    
+    /**
+     * Searches like {@link #search(String, int)}, but tolerates typos: every
+     * query word also matches library words that are spelled similarly.
+     * 
+     * @param query Search query
+     * @param limit Maximum number of results
+     * @return Matching songs, best first by spelling similarity and field
+     */
+    List<Song> fuzzySearch(String query, int limit);
+    
     /**
      * Gets songs by a specific artist.
      * 
@@ -0,0 +1,121 @@
+package com.musicplayer.core.library;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from {@code long} keys to non-negative {@code int}
+ * values, used to find the document number of a song ID without boxing
+ * either. Linear probing with backward-shift deletion, so removals leave no
+ * tombstones. Not thread-safe.
+ */
+final class LongIntMap {
+
+    private long[] keys = new long[16];
+    /** Value plus one, or 0 for an empty slot. */
+    private int[] values = new int[16];
+    private int size;
+
+    /**
+     * Returns the value of {@code key}, or -1 if there is none.
+     */
+    int get(long key) {
+        return values[slotOf(key)] - 1;
+    }
+
+    boolean containsKey(long key) {
+        return values[slotOf(key)] != 0;
+    }
+
+    /**
+     * Maps {@code key} to {@code value}, which must not be negative.
+     */
+    void put(long key, int value) {
+        int slot = slotOf(key);
+        if (values[slot] == 0) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = slotOf(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value + 1;
+    }
+
+    /**
+     * Removes {@code key}.
+     *
+     * @return The removed value, or -1 if there was none
+     */
+    int remove(long key) {
+        int mask = keys.length - 1;
+        int hole = slotOf(key);
+        int removed = values[hole] - 1;
+        if (removed < 0) {
+            return -1;
+        }
+        int next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            if (values[next] == 0) {
+                break;
+            }
+            int home = hash(keys[next]) & mask;
+            // Move the entry back unless its home lies cyclically in (hole, next]
+            boolean stays = hole <= next ? (home > hole && home <= next) : (home > hole || home <= next);
+            if (!stays) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        values[hole] = 0;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Keeps sequential IDs in neighbouring slots, so that walking the IDs in
+     * order touches memory in order, and folds in the high bits.
+     */
+    private static int hash(long key) {
+        int h = (int) (key ^ (key >>> 32));
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,191 @@
+package com.musicplayer.core.library;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Inverted index from normalized word tokens to the documents containing them.
+ * <p>
+ * Documents are small integers handed out by the caller in increasing order,
+ * so every posting list is a sorted {@code int[]} that only ever grows at the
+ * end. Terms are kept sorted, which turns a prefix lookup into a range scan
+ * over the terms starting with the prefix. Not thread-safe.
+ */
+final class TokenIndex {
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    /**
+     * Splits text into lower-case, accent-free word tokens. Each distinct token
+     * is returned once, in order of first appearance.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        String normalized = normalize(text);
+        Set<String> tokens = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Lower-cases text and strips accents, so that "Beyoncé" and "beyonce" match.
+     */
+    static String normalize(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) > 0x7F) {
+                return Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+            }
+        }
+        return lower;
+    }
+
+    /**
+     * Adds a document. Must be called with increasing document numbers.
+     */
+    void add(int doc, String text) {
+        add(doc, tokenize(text));
+    }
+
+    /**
+     * Adds a document by its already tokenized text.
+     */
+    void add(int doc, List<String> tokens) {
+        for (String token : tokens) {
+            terms.computeIfAbsent(token, t -> new Postings()).add(doc);
+        }
+    }
+
+    /**
+     * Removes a document that was added with the same text.
+     */
+    void remove(int doc, String text) {
+        remove(doc, tokenize(text));
+    }
+
+    /**
+     * Removes a document that was added with the same tokens.
+     */
+    void remove(int doc, List<String> tokens) {
+        for (String token : tokens) {
+            Postings postings = terms.get(token);
+            if (postings != null && postings.remove(doc) && postings.size == 0) {
+                terms.remove(token);
+            }
+        }
+    }
+
+    /**
+     * Sets the bits of all documents containing exactly {@code token}.
+     */
+    void collectExact(String token, BitSet into) {
+        Postings postings = terms.get(token);
+        if (postings != null) {
+            postings.collect(into);
+        }
+    }
+
+    /**
+     * Calls {@code action} for every document containing exactly {@code token}.
+     */
+    void forEachDoc(String token, IntConsumer action) {
+        Postings postings = terms.get(token);
+        if (postings != null) {
+            for (int i = 0; i < postings.size; i++) {
+                action.accept(postings.docs[i]);
+            }
+        }
+    }
+
+    /**
+     * Sets the bits of all documents containing a token that starts with {@code prefix}.
+     */
+    void collectPrefix(String prefix, BitSet into) {
+        for (Postings postings : prefixRange(prefix).values()) {
+            postings.collect(into);
+        }
+    }
+
+    /**
+     * Returns the terms starting with {@code prefix}, in sorted order.
+     */
+    Set<String> termsWithPrefix(String prefix) {
+        return prefixRange(prefix).keySet();
+    }
+
+    int getTermCount() {
+        return terms.size();
+    }
+
+    void clear() {
+        terms.clear();
+    }
+
+    private Map<String, Postings> prefixRange(String prefix) {
+        if (prefix.isEmpty()) {
+            return terms;
+        }
+        char last = prefix.charAt(prefix.length() - 1);
+        if (last == Character.MAX_VALUE) {
+            return terms.tailMap(prefix, true);
+        }
+        String end = prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+        return terms.subMap(prefix, true, end, false);
+    }
+
+    /** Sorted, growable list of document numbers. */
+    private static final class Postings {
+        int[] docs = new int[2];
+        int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] >= doc) {
+                if (docs[size - 1] == doc) return;
+                throw new IllegalArgumentException("Documents must be added in increasing order");
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        boolean remove(int doc) {
+            int i = Arrays.binarySearch(docs, 0, size, doc);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(docs, i + 1, docs, i, size - i - 1);
+            size--;
+            if (size > 8 && size < docs.length / 4) {
+                docs = Arrays.copyOf(docs, docs.length / 2);
+            }
+            return true;
+        }
+
+        void collect(BitSet into) {
+            for (int i = 0; i < size; i++) {
+                into.set(docs[i]);
+            }
+        }
+    }
+}
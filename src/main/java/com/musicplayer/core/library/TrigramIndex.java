@@ -0,0 +1,259 @@
+package com.musicplayer.core.library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Trigram index over the distinct tokens of the library, used to find the
+ * words a mistyped query word was meant to be.
+ * <p>
+ * Every token is padded ({@code "$beyonce$"}) and split into overlapping
+ * three-character grams; each gram maps to the tokens containing it. A query
+ * word collects the tokens sharing enough of its grams, and those are checked
+ * with a bounded edit distance. The vocabulary of a music library is far
+ * smaller than its song count, so lookups stay fast however many songs share
+ * a word. Tokens are reference counted by the caller's adds and removes.
+ * Not thread-safe.
+ */
+final class TrigramIndex {
+
+    /** A vocabulary token similar to a query word. */
+    static final class Match {
+        final String token;
+        /** Similarity between 0 (unrelated) and 1 (identical). */
+        final double similarity;
+
+        Match(String token, double similarity) {
+            this.token = token;
+            this.similarity = similarity;
+        }
+    }
+
+    /** Share of the query's grams a token must contain to be considered. */
+    private static final double MIN_GRAM_OVERLAP = 0.3;
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();      // null where removed
+    private final List<int[]> termGrams = new ArrayList<>();   // gram ids per term
+    private int[] refCounts = new int[16];
+    private final List<Integer> freeIds = new ArrayList<>();
+    private final Map<String, Integer> gramIds = new HashMap<>();
+    private final List<IntList> gramPostings = new ArrayList<>();
+
+    /**
+     * Counts one more use of a token.
+     */
+    void addToken(String token) {
+        Integer id = termIds.get(token);
+        if (id != null) {
+            refCounts[id]++;
+            return;
+        }
+        int newId;
+        int[] grams = gramIdsOf(token, true);
+        if (!freeIds.isEmpty()) {
+            newId = freeIds.remove(freeIds.size() - 1);
+            terms.set(newId, token);
+            termGrams.set(newId, grams);
+        } else {
+            newId = terms.size();
+            terms.add(token);
+            termGrams.add(grams);
+            if (newId >= refCounts.length) {
+                refCounts = Arrays.copyOf(refCounts, refCounts.length * 2);
+            }
+        }
+        refCounts[newId] = 1;
+        termIds.put(token, newId);
+        for (int gram : grams) {
+            gramPostings.get(gram).add(newId);
+        }
+    }
+
+    /**
+     * Counts one use of a token less and forgets it when it is no longer used.
+     */
+    void removeToken(String token) {
+        Integer id = termIds.get(token);
+        if (id == null || --refCounts[id] > 0) {
+            return;
+        }
+        termIds.remove(token);
+        for (int gram : termGrams.get(id)) {
+            gramPostings.get(gram).remove(id);
+        }
+        terms.set(id, null);
+        termGrams.set(id, null);
+        freeIds.add(id);
+    }
+
+    int getTokenCount() {
+        return termIds.size();
+    }
+
+    void clear() {
+        termIds.clear();
+        terms.clear();
+        termGrams.clear();
+        freeIds.clear();
+        gramIds.clear();
+        gramPostings.clear();
+        refCounts = new int[16];
+    }
+
+    /**
+     * Finds the tokens most similar to a normalized query word. A token that
+     * starts with the word counts as a match too, for words still being typed.
+     *
+     * @param word       Normalized query word
+     * @param maxMatches Maximum number of tokens returned
+     * @return Similar tokens, most similar first
+     */
+    List<Match> similarTokens(String word, int maxMatches) {
+        int[] queryGrams = gramIdsOf(word, false);
+        int queryGramCount = gramsOf(word).size();
+        int needed = Math.max(1, (int) Math.ceil(queryGramCount * MIN_GRAM_OVERLAP));
+        int[] overlap = new int[terms.size()];
+        int[] touched = new int[64];
+        int touchedCount = 0;
+        for (int gram : queryGrams) {
+            if (gram < 0) continue;
+            IntList postings = gramPostings.get(gram);
+            for (int i = 0; i < postings.size; i++) {
+                int term = postings.values[i];
+                if (overlap[term]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touched.length * 2);
+                    }
+                    touched[touchedCount++] = term;
+                }
+            }
+        }
+
+        int maxDistance = word.length() <= 4 ? 1 : word.length() <= 8 ? 2 : 3;
+        PriorityQueue<Match> best = new PriorityQueue<>(maxMatches + 1,
+                (a, b) -> Double.compare(a.similarity, b.similarity));
+        for (int i = 0; i < touchedCount; i++) {
+            int term = touched[i];
+            if (overlap[term] < needed) {
+                continue;
+            }
+            String token = terms.get(term);
+            double gramSimilarity = (double) overlap[term]
+                    / (queryGramCount + termGrams.get(term).length - overlap[term]);
+            double similarity;
+            if (token.startsWith(word)) {
+                similarity = 0.5 + 0.5 * ((double) word.length() / token.length());
+            } else {
+                int distance = boundedEditDistance(word, token, maxDistance);
+                if (distance > maxDistance) {
+                    continue;
+                }
+                double editSimilarity = 1.0 - (double) distance / Math.max(word.length(), token.length());
+                similarity = 0.5 * gramSimilarity + 0.5 * editSimilarity;
+            }
+            best.add(new Match(token, similarity));
+            if (best.size() > maxMatches) {
+                best.poll();
+            }
+        }
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort((a, b) -> Double.compare(b.similarity, a.similarity));
+        return matches;
+    }
+
+    /**
+     * Levenshtein distance that gives up once it is certain to exceed {@code max}.
+     *
+     * @return The distance, or {@code max + 1} if it is larger than {@code max}
+     */
+    static int boundedEditDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    /**
+     * Returns the distinct grams of a padded token.
+     */
+    static Set<String> gramsOf(String token) {
+        String padded = "$" + token + "$";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        if (grams.isEmpty()) {
+            grams.add(padded);
+        }
+        return grams;
+    }
+
+    /**
+     * Maps the grams of a token to ids. Unknown grams are created when
+     * {@code create} is set and returned as -1 otherwise.
+     */
+    private int[] gramIdsOf(String token, boolean create) {
+        Set<String> grams = gramsOf(token);
+        int[] ids = new int[grams.size()];
+        int i = 0;
+        for (String gram : grams) {
+            Integer id = gramIds.get(gram);
+            if (id == null && create) {
+                id = gramPostings.size();
+                gramIds.put(gram, id);
+                gramPostings.add(new IntList());
+            }
+            ids[i++] = id != null ? id : -1;
+        }
+        return ids;
+    }
+
+    /** Growable int list with unordered removal. */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void remove(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    values[i] = values[--size];
+                    return;
+                }
+            }
+        }
+    }
+}
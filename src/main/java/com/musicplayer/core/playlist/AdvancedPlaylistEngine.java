@@ -6,10 +6,13 @@ import java.util.List;
 import java.util.Random;
 
 import com.musicplayer.data.models.Song;
+import com.musicplayer.data.repositories.SongRegistry;
 
 /**
  * Advanced in-memory implementation of PlaylistEngine.
  * Provides shuffle, repeat modes, queue management, and playback history.
+ * Songs are interned through a {@link SongRegistry} when one is given, so
+ * the playlist holds the library's instances rather than copies.
  */
 public class AdvancedPlaylistEngine implements PlaylistEngine {
     
@@ -24,11 +27,28 @@ public class AdvancedPlaylistEngine implements PlaylistEngine {
     
     private final Random random = new Random();
     private final int maxHistorySize = 100;
+    private final SongRegistry registry;
+    
+    public AdvancedPlaylistEngine() {
+        this(null);
+    }
+    
+    /**
+     * @param registry Registry to resolve songs through, or null to keep them as given
+     */
+    public AdvancedPlaylistEngine(SongRegistry registry) {
+        this.registry = registry;
+    }
+    
+    private Song canonical(Song song) {
+        return registry != null ? registry.intern(song) : song;
+    }
     
     @Override
     public void setPlaylist(List<Song> songs) {
-        this.originalPlaylist = new ArrayList<>(songs);
-        this.currentPlaylist = new ArrayList<>(songs);
+        List<Song> canonical = registry != null ? registry.internAll(songs) : songs;
+        this.originalPlaylist = new ArrayList<>(canonical);
+        this.currentPlaylist = new ArrayList<>(canonical);
         this.currentIndex = -1;
         
         if (shuffle) {
@@ -43,6 +63,7 @@ public class AdvancedPlaylistEngine implements PlaylistEngine {
     
     @Override
     public void addSong(Song song) {
+        song = canonical(song);
         originalPlaylist.add(song);
         currentPlaylist.add(song);
     }
@@ -50,6 +71,7 @@ public class AdvancedPlaylistEngine implements PlaylistEngine {
     @Override
     public void insertSong(int index, Song song) {
         if (index >= 0 && index <= currentPlaylist.size()) {
+            song = canonical(song);
             originalPlaylist.add(index, song);
             currentPlaylist.add(index, song);
             
@@ -296,7 +318,7 @@ public class AdvancedPlaylistEngine implements PlaylistEngine {
     @Override
     public void queueSong(Song song) {
         if (song != null) {
-            queue.add(song);
+            queue.add(canonical(song));
         }
     }
     
@@ -0,0 +1,180 @@
+package com.musicplayer.data.models;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared pool of the artist, album and genre strings of the library.
+ * <p>
+ * Tags repeat across songs: every track of an album names the same artist and
+ * album, but each one read from disk or from songs.json is a separate String.
+ * Songs are passed through {@link #canonicalize(Song)} when they are loaded or
+ * scanned, so that equal values share one instance. The lower-case form used
+ * as an index key is kept next to each value, so it is built once as well.
+ * Values are never dropped; a library has far fewer distinct tag values than
+ * songs, so the pool stays small. Thread-safe.
+ */
+public final class MetadataDictionary {
+
+    private static final MetadataDictionary SHARED = new MetadataDictionary();
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the dictionary shared by the repositories and the library engine.
+     */
+    public static MetadataDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the pooled instance equal to {@code value}, adding it if it is new.
+     */
+    public String canonical(String value) {
+        return value != null ? entryOf(value).value : null;
+    }
+
+    /**
+     * Returns the pooled lower-case form of {@code value}.
+     */
+    public String key(String value) {
+        if (value == null) {
+            return null;
+        }
+        Entry entry = entryOf(value);
+        String key = entry.key;
+        if (key == null) {
+            String lower = value.toLowerCase(Locale.ROOT);
+            key = lower.equals(value) ? entry.value : canonical(lower);
+            entry.key = key;
+        }
+        return key;
+    }
+
+    /**
+     * Replaces the artist, album and genre of a song by their pooled instances.
+     */
+    public void canonicalize(Song song) {
+        if (song == null) return;
+        song.setArtist(canonical(song.getArtist()));
+        song.setAlbum(canonical(song.getAlbum()));
+        song.setGenre(canonical(song.getGenre()));
+    }
+
+    /**
+     * Returns the number of pooled values.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private Entry entryOf(String value) {
+        Entry entry = entries.get(value);
+        if (entry == null) {
+            Entry created = new Entry(value);
+            entry = entries.putIfAbsent(value, created);
+            if (entry == null) {
+                entry = created;
+            }
+        }
+        return entry;
+    }
+
+    private static final class Entry {
+        final String value;
+        volatile String key;
+
+        Entry(String value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * Measures how much heap the artist, album and genre strings of the given
+     * songs retain, and how much they would take if every song had its own
+     * copies, as after a plain JSON load.
+     */
+    public static FootprintReport measure(Collection<Song> songs) {
+        Map<String, Boolean> instances = new IdentityHashMap<>();
+        Set<String> values = new HashSet<>();
+        long references = 0;
+        long retainedBytes = 0;
+        long unsharedBytes = 0;
+        for (Song song : songs) {
+            for (String value : new String[] {song.getArtist(), song.getAlbum(), song.getGenre()}) {
+                if (value == null) continue;
+                references++;
+                long bytes = stringBytes(value);
+                unsharedBytes += bytes;
+                if (instances.put(value, Boolean.TRUE) == null) {
+                    retainedBytes += bytes;
+                }
+                values.add(value);
+            }
+        }
+        return new FootprintReport(references, instances.size(), values.size(), retainedBytes, unsharedBytes);
+    }
+
+    /**
+     * Estimated size of a String on a 64-bit JVM with compressed pointers and
+     * compact strings: the object, its byte array header and the characters.
+     */
+    static long stringBytes(String value) {
+        boolean latin1 = true;
+        for (int i = 0; i < value.length() && latin1; i++) {
+            latin1 = value.charAt(i) < 0x100;
+        }
+        long chars = (long) value.length() * (latin1 ? 1 : 2);
+        return 24 + align(16 + chars);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Heap taken by the tag strings of a set of songs.
+     */
+    public static final class FootprintReport {
+        private final long references;
+        private final long instances;
+        private final long distinctValues;
+        private final long retainedBytes;
+        private final long unsharedBytes;
+
+        FootprintReport(long references, long instances, long distinctValues, long retainedBytes, long unsharedBytes) {
+            this.references = references;
+            this.instances = instances;
+            this.distinctValues = distinctValues;
+            this.retainedBytes = retainedBytes;
+            this.unsharedBytes = unsharedBytes;
+        }
+
+        /** Non-null artist, album and genre fields. */
+        public long getReferences() { return references; }
+
+        /** Distinct String objects behind those fields. */
+        public long getInstances() { return instances; }
+
+        /** Distinct values behind those fields; equal to the instances when fully pooled. */
+        public long getDistinctValues() { return distinctValues; }
+
+        /** Estimated bytes of the String objects actually retained. */
+        public long getRetainedBytes() { return retainedBytes; }
+
+        /** Estimated bytes if every field held its own copy. */
+        public long getUnsharedBytes() { return unsharedBytes; }
+
+        @Override
+        public String toString() {
+            return "Tag strings: " + references + " fields, " + instances + " instances of "
+                    + distinctValues + " values, ~" + retainedBytes / 1024 + " KB retained (~"
+                    + unsharedBytes / 1024 + " KB unshared)";
+        }
+    }
+}
@@ -4,9 +4,21 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  * Represents a user-created playlist.
  * This class contains a list of songs and a name for the playlist.
+ * <p>
+ * Playlists are stored as the IDs and file paths of their songs rather than
+ * copies of them. A loaded playlist keeps those until its songs are first
+ * asked for, and then looks them up with the resolver it was given, so that
+ * it holds the same song instances as the library. The path finds a song
+ * again after a rescan gave it a new ID. Entries that cannot be found are
+ * left out of {@link #getSongs()} but stay in what is stored until the
+ * playlist is edited. Files written before this held whole songs under
+ * {@code "songs"}; those are read as IDs and paths too.
  */
 public class Playlist {
 
@@ -25,6 +37,35 @@ public class Playlist {
      */
     private List<Song> songs;
 
+    /**
+     * IDs of the songs, while they have not been looked up yet.
+     */
+    private long[] pendingSongIds;
+
+    /**
+     * File paths of the pending songs, parallel to the IDs; null if not stored.
+     */
+    private String[] pendingSongPaths;
+
+    /**
+     * Looks up the pending songs; null if there is none.
+     */
+    private SongResolver songResolver;
+
+    /**
+     * The stored entries as loaded, kept while some of them could not be
+     * looked up and the playlist has not been edited since.
+     */
+    private long[] retainedIds;
+    private String[] retainedPaths;
+    private boolean[] retainedFound;
+    private List<Song> resolvedSongs;
+
+    /**
+     * Whether the playlist was read from the old format with embedded songs.
+     */
+    private boolean embeddedSongs;
+
     /**
      * Indicates whether the playlist is in shuffle mode.
      */
@@ -51,6 +92,19 @@ public class Playlist {
         this.isShuffled = false;
     }
 
+    /**
+     * Looks up a stored playlist entry in the library.
+     */
+    @FunctionalInterface
+    public interface SongResolver {
+        /**
+         * @param songId   The stored song ID
+         * @param filePath The stored file path, or null if there is none
+         * @return The song, or null if it is not in the library
+         */
+        Song resolve(long songId, String filePath);
+    }
+
     // Getters and Setters
 
     public long getId() {
@@ -69,12 +123,185 @@ public class Playlist {
         this.name = name;
     }
 
+    @JsonIgnore
     public List<Song> getSongs() {
+        if (pendingSongIds != null) {
+            int count = pendingSongIds.length;
+            List<Song> resolved = new ArrayList<>(count);
+            boolean[] found = new boolean[count];
+            for (int i = 0; i < count; i++) {
+                String path = pendingPath(i);
+                Song song = songResolver != null
+                        ? songResolver.resolve(pendingSongIds[i], path)
+                        : placeholder(pendingSongIds[i], path);
+                if (song != null) {
+                    resolved.add(song);
+                    found[i] = true;
+                }
+            }
+            if (resolved.size() < count) {
+                System.err.println("Playlist '" + name + "': " + (count - resolved.size())
+                        + " songs are not in the library; they are kept until the playlist is edited");
+                retainedIds = pendingSongIds;
+                retainedPaths = pendingSongPaths;
+                retainedFound = found;
+                resolvedSongs = new ArrayList<>(resolved);
+            }
+            songs = resolved;
+            pendingSongIds = null;
+            pendingSongPaths = null;
+        }
         return songs;
     }
 
+    private String pendingPath(int index) {
+        return pendingSongPaths != null && index < pendingSongPaths.length ? pendingSongPaths[index] : null;
+    }
+
+    /**
+     * Stands in for a song when there is no resolver, so that its ID and path are kept.
+     */
+    private static Song placeholder(long songId, String filePath) {
+        Song song = new Song();
+        song.setId(songId);
+        song.setFilePath(filePath);
+        return song;
+    }
+
+    @JsonIgnore
     public void setSongs(List<Song> songs) {
         this.songs = songs;
+        this.pendingSongIds = null;
+        this.pendingSongPaths = null;
+        clearRetained();
+    }
+
+    /**
+     * Checks whether unresolved entries are still kept, dropping them once
+     * the resolved songs were edited.
+     */
+    private boolean keepsUnresolved() {
+        if (retainedIds == null) {
+            return false;
+        }
+        boolean unedited = songs.size() == resolvedSongs.size();
+        for (int i = 0; unedited && i < songs.size(); i++) {
+            unedited = songs.get(i) == resolvedSongs.get(i);
+        }
+        if (!unedited) {
+            clearRetained();
+        }
+        return unedited;
+    }
+
+    private void clearRetained() {
+        retainedIds = null;
+        retainedPaths = null;
+        retainedFound = null;
+        resolvedSongs = null;
+    }
+
+    /**
+     * Returns the IDs of the songs, in playlist order. This is what gets stored.
+     */
+    @JsonProperty("songIds")
+    public long[] getSongIds() {
+        if (pendingSongIds != null) {
+            return pendingSongIds.clone();
+        }
+        if (keepsUnresolved()) {
+            long[] ids = retainedIds.clone();
+            for (int i = 0, next = 0; i < ids.length; i++) {
+                if (retainedFound[i]) {
+                    ids[i] = songs.get(next++).getId();
+                }
+            }
+            return ids;
+        }
+        long[] ids = new long[songs.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = songs.get(i).getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Sets the songs by ID; they are looked up when first asked for.
+     */
+    @JsonProperty("songIds")
+    public void setSongIds(long[] songIds) {
+        this.pendingSongIds = songIds != null ? songIds.clone() : new long[0];
+        this.songs = new ArrayList<>();
+        clearRetained();
+    }
+
+    /**
+     * Returns the file paths of the songs, parallel to {@link #getSongIds()}.
+     */
+    @JsonProperty("songPaths")
+    public String[] getSongPaths() {
+        if (pendingSongIds != null) {
+            String[] paths = new String[pendingSongIds.length];
+            for (int i = 0; i < paths.length; i++) {
+                paths[i] = pendingPath(i);
+            }
+            return paths;
+        }
+        if (keepsUnresolved()) {
+            String[] paths = new String[retainedIds.length];
+            for (int i = 0, next = 0; i < paths.length; i++) {
+                paths[i] = retainedFound[i] ? songs.get(next++).getFilePath()
+                        : retainedPaths != null && i < retainedPaths.length ? retainedPaths[i] : null;
+            }
+            return paths;
+        }
+        String[] paths = new String[songs.size()];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = songs.get(i).getFilePath();
+        }
+        return paths;
+    }
+
+    /**
+     * Sets the file paths that go with the pending song IDs.
+     */
+    @JsonProperty("songPaths")
+    public void setSongPaths(String[] songPaths) {
+        this.pendingSongPaths = songPaths != null ? songPaths.clone() : null;
+    }
+
+    /**
+     * Reads the songs of a playlist stored in the old format, keeping only
+     * their IDs and file paths.
+     */
+    @JsonProperty("songs")
+    private void setEmbeddedSongs(List<Song> embedded) {
+        int count = embedded != null ? embedded.size() : 0;
+        long[] ids = new long[count];
+        String[] paths = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = embedded.get(i).getId();
+            paths[i] = embedded.get(i).getFilePath();
+        }
+        setSongIds(ids);
+        setSongPaths(paths);
+        this.embeddedSongs = true;
+    }
+
+    /**
+     * Returns whether the playlist was read from the old format with embedded songs
+     * and should be saved again in the new one.
+     */
+    @JsonIgnore
+    public boolean hasEmbeddedSongs() {
+        return embeddedSongs;
+    }
+
+    /**
+     * Sets how pending songs are looked up, usually in the song repository.
+     */
+    public void setSongResolver(SongResolver songResolver) {
+        this.songResolver = songResolver;
     }
 
     /**
@@ -83,7 +310,7 @@ public class Playlist {
      * @param song The song to add.
      */
     public void addSong(Song song) {
-        this.songs.add(song);
+        getSongs().add(song);
     }
 
     /**
@@ -92,7 +319,7 @@ public class Playlist {
      * @param song The song to remove.
      */
     public void removeSong(Song song) {
-        this.songs.remove(song);
+        getSongs().remove(song);
     }
 
     public boolean isShuffled() {
@@ -138,7 +365,7 @@ public class Playlist {
         return "Playlist{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
-                ", songCount=" + songs.size() +
+                ", songCount=" + (pendingSongIds != null ? pendingSongIds.length : songs.size()) +
                 '}';
     }
 }
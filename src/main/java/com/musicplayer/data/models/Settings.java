@@ -36,6 +36,7 @@ public class Settings {
     // Library settings
     private String musicRootPath;
     private boolean libraryWatcherEnabled = true;
+    private LibraryStorageFormat libraryStorageFormat = LibraryStorageFormat.JSON;
     
     // Update settings
     private boolean autoCheckForUpdates = true;
@@ -64,6 +65,26 @@ public class Settings {
         }
     }
     
+    /**
+     * On-disk format of the song library. Switching from JSON to binary or
+     * SQL converts the existing library once; there is no conversion back.
+     */
+    public enum LibraryStorageFormat {
+        JSON("JSON"),
+        BINARY("Compact binary"),
+        SQL("Embedded database");
+        
+        private final String displayName;
+        
+        LibraryStorageFormat(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+    
     // Getters and setters
     public boolean isVisualizerEnabled() {
         return visualizerEnabled;
@@ -163,6 +184,14 @@ public class Settings {
         this.libraryWatcherEnabled = libraryWatcherEnabled;
     }
     
+    public LibraryStorageFormat getLibraryStorageFormat() {
+        return libraryStorageFormat;
+    }
+    
+    public void setLibraryStorageFormat(LibraryStorageFormat libraryStorageFormat) {
+        this.libraryStorageFormat = libraryStorageFormat;
+    }
+    
     // Update settings getters and setters
     public boolean isAutoCheckForUpdates() {
         return autoCheckForUpdates;
@@ -1,7 +1,5 @@
 package com.musicplayer.data.models;
 
-import java.util.Objects;
-
 /**
  * Represents a song in the music library.
  * This class contains all the metadata related to a single music track.
@@ -100,6 +98,28 @@ public class Song {
         this.year = year;
     }
 
+    /**
+     * Copies every field of {@code other} into this song, so that holders of
+     * this instance see the other's values.
+     *
+     * @param other The song to copy from.
+     */
+    public void copyFrom(Song other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.artist = other.artist;
+        this.album = other.album;
+        this.genre = other.genre;
+        this.duration = other.duration;
+        this.filePath = other.filePath;
+        this.trackNumber = other.trackNumber;
+        this.year = other.year;
+        this.playCount = other.playCount;
+        this.lastPlayed = other.lastPlayed;
+        this.favorite = other.favorite;
+        this.rating = other.rating;
+    }
+
     // Getters and Setters
 
     public long getId() {
@@ -213,6 +233,9 @@ public class Song {
 
     /**
      * Compares this song to another object for equality.
+     * Songs are identified by their ID, so editing tags or moving the file
+     * keeps a song equal to itself. A song without an ID yet (0) is only
+     * equal to itself.
      *
      * @param o The object to compare with.
      * @return true if the objects are equal, false otherwise.
@@ -222,25 +245,17 @@ public class Song {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Song song = (Song) o;
-        return id == song.id &&
-                duration == song.duration &&
-                trackNumber == song.trackNumber &&
-                year == song.year &&
-                Objects.equals(title, song.title) &&
-                Objects.equals(artist, song.artist) &&
-                Objects.equals(album, song.album) &&
-                Objects.equals(genre, song.genre) &&
-                Objects.equals(filePath, song.filePath);
+        return id != 0 && id == song.id;
     }
 
     /**
-     * Generates a hash code for the song.
+     * Generates a hash code for the song from its ID.
      *
      * @return The hash code.
      */
     @Override
     public int hashCode() {
-        return Objects.hash(id, title, artist, album, genre, duration, filePath, trackNumber, year);
+        return Long.hashCode(id);
     }
 
     /**
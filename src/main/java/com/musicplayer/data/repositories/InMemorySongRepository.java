@@ -1,23 +1,33 @@
 package com.musicplayer.data.repositories;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.musicplayer.data.models.Song;
 
 public class InMemorySongRepository implements SongRepository {
-    private final Map<Long, Song> songs = new HashMap<>();
+    private final LongObjectMap<Song> songs = new LongObjectMap<>();
+    private final SongPathIndex pathIndex = new SongPathIndex();
+    private final SongRegistry registry = new SongRegistry();
     private final AtomicLong idCounter = new AtomicLong();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
 
     @Override
     public void save(Song song) {
         if (song.getId() == 0) {
             song.setId(idCounter.incrementAndGet());
         }
-        songs.put(song.getId(), song);
+        Song previous = songs.put(song.getId(), song);
+        registry.register(song);
+        if (previous != null && previous != song) {
+            pathIndex.remove(previous.getId());
+        }
+        pathIndex.index(song);
+        for (ChangeListener listener : listeners) {
+            listener.songsSaved(List.of(song));
+        }
     }
 
     @Override
@@ -25,13 +35,40 @@ public class InMemorySongRepository implements SongRepository {
         return songs.get(id);
     }
 
+    @Override
+    public Song findByFilePath(String filePath) {
+        return pathIndex.find(filePath);
+    }
+
+    @Override
+    public List<Song> findUnder(String directory) {
+        return pathIndex.findUnder(directory);
+    }
+
+    @Override
+    public SongRegistry getRegistry() {
+        return registry;
+    }
+
     @Override
     public List<Song> findAll() {
-        return new ArrayList<>(songs.values());
+        return songs.values();
     }
 
     @Override
     public void delete(long id) {
-        songs.remove(id);
+        Song removed = songs.remove(id);
+        registry.unregister(id);
+        pathIndex.remove(id);
+        if (removed != null) {
+            for (ChangeListener listener : listeners) {
+                listener.songsDeleted(List.of(removed));
+            }
+        }
+    }
+
+    @Override
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
     }
 }
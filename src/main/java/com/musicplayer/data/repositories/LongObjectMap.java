@@ -0,0 +1,223 @@
+package com.musicplayer.data.repositories;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Map from primitive {@code long} keys to values, used for the ID maps of the
+ * repositories.
+ * <p>
+ * Keys and values sit in two dense arrays in insertion order, and an
+ * open-addressing table of array positions finds them by key. There are no
+ * boxed keys and no entry objects, so a lookup is a hash, a few int reads and
+ * one long compare. Removing an entry moves the last entry into its place, so
+ * iteration follows insertion order only until the first removal. Not
+ * thread-safe.
+ *
+ * @param <V> Value type
+ */
+public final class LongObjectMap<V> {
+
+    private static final int MIN_TABLE_SIZE = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    /** Position in the dense arrays plus one, or 0 for an empty slot. */
+    private int[] table;
+    private int mask;
+
+    public LongObjectMap() {
+        this(8);
+    }
+
+    /**
+     * @param expectedSize Number of entries to make room for
+     */
+    public LongObjectMap(int expectedSize) {
+        int capacity = Math.max(expectedSize, 8);
+        keys = new long[capacity];
+        values = new Object[capacity];
+        allocateTable(tableSizeFor(capacity));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return table[slotOf(key)] != 0;
+    }
+
+    /**
+     * Returns the value of {@code key}, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int entry = table[slotOf(key)];
+        return entry != 0 ? (V) values[entry - 1] : null;
+    }
+
+    /**
+     * Maps {@code key} to {@code value}.
+     *
+     * @return The previous value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int slot = slotOf(key);
+        int entry = table[slot];
+        if (entry != 0) {
+            V previous = (V) values[entry - 1];
+            values[entry - 1] = value;
+            return previous;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            table[slot] = size;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the value of {@code key}.
+     *
+     * @return The removed value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = slotOf(key);
+        int entry = table[slot];
+        if (entry == 0) {
+            return null;
+        }
+        int index = entry - 1;
+        V removed = (V) values[index];
+        deleteSlot(slot);
+        int last = size - 1;
+        if (index != last) {
+            // Move the last entry into the hole and repoint its slot
+            keys[index] = keys[last];
+            values[index] = values[last];
+            table[slotOf(keys[index])] = index + 1;
+        }
+        values[last] = null;
+        size--;
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    /**
+     * Returns the values as a new list.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add((V) values[i]);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept((V) values[i]);
+        }
+    }
+
+    /**
+     * Estimated heap taken by the map's arrays, excluding the values themselves.
+     */
+    public long estimatedBytes() {
+        return 16 + 8L * keys.length + 16 + 4L * values.length + 16 + 4L * table.length;
+    }
+
+    /**
+     * Returns the slot holding {@code key}, or the empty slot where it would go.
+     */
+    private int slotOf(long key) {
+        int slot = hash(key) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0 && keys[entry - 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties a slot, shifting later entries of the same probe run back so
+     * that lookups never stop early at the hole.
+     */
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int entry = table[next];
+            if (entry == 0) {
+                break;
+            }
+            int home = hash(keys[entry - 1]) & mask;
+            // Move the entry back unless its home lies cyclically in (hole, next]
+            boolean stays = hole <= next ? (home > hole && home <= next) : (home > hole || home <= next);
+            if (!stays) {
+                table[hole] = entry;
+                hole = next;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private void rehash(int tableSize) {
+        allocateTable(tableSize);
+        for (int i = 0; i < size; i++) {
+            int slot = hash(keys[i]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    private void allocateTable(int tableSize) {
+        table = new int[tableSize];
+        mask = tableSize - 1;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int size = MIN_TABLE_SIZE;
+        while (size < capacity * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Keeps sequential IDs in neighbouring slots, so that walking the IDs in
+     * order touches memory in order, and folds in the high bits.
+     */
+    private static int hash(long key) {
+        int h = (int) (key ^ (key >>> 32));
+        return h ^ (h >>> 16);
+    }
+}
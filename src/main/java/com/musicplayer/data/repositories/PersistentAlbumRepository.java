@@ -8,24 +8,54 @@ import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.musicplayer.data.models.Album;
+import com.musicplayer.data.models.Song;
 import com.musicplayer.data.storage.LibraryStorage;
 
 /**
  * Persistent repository implementation for albums that uses LibraryStorage
  * to save and load data across application sessions.
+ * <p>
+ * The songs of albums are interned through the song registry whenever an
+ * album is handed out, so an album holds the library's song instances
+ * instead of the copies read from albums.json, including songs the library
+ * only loaded after the albums.
  */
 public class PersistentAlbumRepository implements AlbumRepository {
     
     private final Map<Long, Album> albums = new HashMap<>();
     private final AtomicLong idCounter = new AtomicLong();
     private final LibraryStorage storage;
+    private final SongRegistry songRegistry;
     private boolean isLoaded = false;
     
     public PersistentAlbumRepository(LibraryStorage storage) {
+        this(storage, null);
+    }
+    
+    /**
+     * @param songRegistry Registry to resolve album songs through, or null to keep them as loaded
+     */
+    public PersistentAlbumRepository(LibraryStorage storage, SongRegistry songRegistry) {
         this.storage = storage;
+        this.songRegistry = songRegistry;
         loadFromStorage();
     }
     
+    private Album internSongs(Album album) {
+        if (songRegistry == null || album == null || album.getSongs() == null) {
+            return album;
+        }
+        List<Song> songs = album.getSongs();
+        List<Song> interned = songRegistry.internAll(songs);
+        for (int i = 0; i < songs.size(); i++) {
+            if (songs.get(i) != interned.get(i)) {
+                album.setSongs(interned);
+                break;
+            }
+        }
+        return album;
+    }
+    
     /**
      * Loads albums from persistent storage into memory.
      */
@@ -39,6 +69,7 @@ public class PersistentAlbumRepository implements AlbumRepository {
             long maxId = 0;
             
             for (Album album : savedAlbums) {
+                internSongs(album);
                 albums.put(album.getId(), album);
                 if (album.getId() > maxId) {
                     maxId = album.getId();
@@ -70,6 +101,24 @@ public class PersistentAlbumRepository implements AlbumRepository {
         }
     }
     
+    /**
+     * Persists a single mutation: as a journal record if the storage supports
+     * one, otherwise by saving all albums.
+     */
+    private void saveMutation(Album upsert, Long deletedId) {
+        if (!storage.supportsJournal()) {
+            saveToStorage();
+            return;
+        }
+        try {
+            storage.appendAlbumMutations(
+                    upsert != null ? List.of(upsert) : List.of(),
+                    deletedId != null ? List.of(deletedId) : List.of());
+        } catch (IOException e) {
+            System.err.println("Failed to save albums to storage: " + e.getMessage());
+        }
+    }
+    
     @Override
     public void save(Album album) {
         loadFromStorage(); // Ensure data is loaded
@@ -77,27 +126,32 @@ public class PersistentAlbumRepository implements AlbumRepository {
         if (album.getId() == 0) {
             album.setId(idCounter.incrementAndGet());
         }
+        internSongs(album);
         albums.put(album.getId(), album);
-        saveToStorage();
+        saveMutation(album, null);
     }
     
     @Override
     public Album findById(long id) {
         loadFromStorage(); // Ensure data is loaded
-        return albums.get(id);
+        return internSongs(albums.get(id));
     }
     
     @Override
     public List<Album> findAll() {
         loadFromStorage(); // Ensure data is loaded
-        return new ArrayList<>(albums.values());
+        List<Album> all = new ArrayList<>(albums.values());
+        for (Album album : all) {
+            internSongs(album);
+        }
+        return all;
     }
     
     @Override
     public void delete(long id) {
         loadFromStorage(); // Ensure data is loaded
         if (albums.remove(id) != null) {
-            saveToStorage();
+            saveMutation(null, id);
         }
     }
     
@@ -110,6 +164,7 @@ public class PersistentAlbumRepository implements AlbumRepository {
         return albums.values().stream()
                 .filter(album -> album.getTitle().equals(title))
                 .findFirst()
+                .map(this::internSongs)
                 .orElse(null);
     }
     
@@ -8,21 +8,38 @@ import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.musicplayer.data.models.Playlist;
+import com.musicplayer.data.models.Song;
 import com.musicplayer.data.storage.LibraryStorage;
 
 /**
  * Persistent repository implementation for playlists that uses LibraryStorage
  * to save and load data across application sessions.
+ * <p>
+ * Playlists are stored as song IDs and paths. Loaded playlists look their
+ * songs up in the song repository when they are first opened, so they share
+ * the library's song instances, play counts and favorite flags. A song whose
+ * ID is gone or now names another file is found by its path. Playlists still
+ * in the old format with embedded song copies are rewritten once on load.
  */
 public class PersistentPlaylistRepository implements PlaylistRepository {
     
     private final Map<Long, Playlist> playlists = new HashMap<>();
     private final AtomicLong idCounter = new AtomicLong();
     private final LibraryStorage storage;
+    private final SongRepository songRepository;
     private boolean isLoaded = false;
     
     public PersistentPlaylistRepository(LibraryStorage storage) {
+        this(storage, null);
+    }
+    
+    /**
+     * @param songRepository Repository the playlists' song IDs are looked up in, or null
+     *                       to leave songs as placeholders holding only their ID
+     */
+    public PersistentPlaylistRepository(LibraryStorage storage, SongRepository songRepository) {
         this.storage = storage;
+        this.songRepository = songRepository;
         loadFromStorage();
     }
     
@@ -37,8 +54,15 @@ public class PersistentPlaylistRepository implements PlaylistRepository {
         try {
             List<Playlist> savedPlaylists = storage.loadPlaylists();
             long maxId = 0;
+            int migrated = 0;
             
             for (Playlist playlist : savedPlaylists) {
+                if (songRepository != null) {
+                    playlist.setSongResolver(this::findSong);
+                }
+                if (playlist.hasEmbeddedSongs()) {
+                    migrated++;
+                }
                 playlists.put(playlist.getId(), playlist);
                 if (playlist.getId() > maxId) {
                     maxId = playlist.getId();
@@ -50,6 +74,10 @@ public class PersistentPlaylistRepository implements PlaylistRepository {
             isLoaded = true;
             
             System.out.println("Loaded " + savedPlaylists.size() + " playlists from storage");
+            if (migrated > 0) {
+                saveToStorage();
+                System.out.println("Migrated " + migrated + " playlists to song ID references");
+            }
         } catch (IOException e) {
             System.err.println("Failed to load playlists from storage: " + e.getMessage());
             // Continue with empty repository if loading fails
@@ -57,6 +85,16 @@ public class PersistentPlaylistRepository implements PlaylistRepository {
         }
     }
     
+    private Song findSong(long songId, String filePath) {
+        Song byId = songRepository.findById(songId);
+        if (byId != null && (filePath == null || filePath.equals(byId.getFilePath()))) {
+            return byId;
+        }
+        Song byPath = filePath != null ? songRepository.findByFilePath(filePath) : null;
+        // A song that was moved keeps its ID, so fall back to it
+        return byPath != null ? byPath : byId;
+    }
+    
     /**
      * Saves all playlists to persistent storage.
      */
@@ -68,6 +106,24 @@ public class PersistentPlaylistRepository implements PlaylistRepository {
         }
     }
     
+    /**
+     * Persists a single mutation: as a journal record if the storage supports
+     * one, otherwise by saving all playlists.
+     */
+    private void saveMutation(Playlist upsert, Long deletedId) {
+        if (!storage.supportsJournal()) {
+            saveToStorage();
+            return;
+        }
+        try {
+            storage.appendPlaylistMutations(
+                    upsert != null ? List.of(upsert) : List.of(),
+                    deletedId != null ? List.of(deletedId) : List.of());
+        } catch (IOException e) {
+            System.err.println("Failed to save playlists to storage: " + e.getMessage());
+        }
+    }
+    
     @Override
     public void save(Playlist playlist) {
         loadFromStorage(); // Ensure data is loaded
@@ -76,7 +132,7 @@ public class PersistentPlaylistRepository implements PlaylistRepository {
             playlist.setId(idCounter.incrementAndGet());
         }
         playlists.put(playlist.getId(), playlist);
-        saveToStorage();
+        saveMutation(playlist, null);
     }
     
     @Override
@@ -95,7 +151,7 @@ public class PersistentPlaylistRepository implements PlaylistRepository {
     public void delete(long id) {
         loadFromStorage(); // Ensure data is loaded
         if (playlists.remove(id) != null) {
-            saveToStorage();
+            saveMutation(null, id);
         }
     }
     
@@ -2,83 +2,414 @@ package com.musicplayer.data.repositories;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+import com.musicplayer.data.models.MetadataDictionary;
 import com.musicplayer.data.models.Song;
 import com.musicplayer.data.storage.LibraryStorage;
 
 /**
  * Persistent repository implementation for songs that uses LibraryStorage
  * to save and load data across application sessions.
+ * <p>
+ * Writes are deferred: each mutation only marks the repository dirty, and a
+ * background flusher writes the whole song list once the flush delay has
+ * elapsed or the number of pending mutations reaches a threshold. Any number
+ * of saves and deletes in between are coalesced into that single write.
+ * If the storage supports a journal, only the songs saved or deleted since
+ * the last flush are written, as journal records.
+ * {@link #forceSave()} and {@link #shutdown()} flush synchronously.
+ * <p>
+ * A repository created with deferred loading starts empty and is filled by
+ * {@link #loadInBackground}, which streams the library in chunks. While that
+ * load runs, {@link #findAll()} and {@link #size()} return the songs loaded so
+ * far; lookups by ID or path and all mutations wait until it has finished.
  */
 public class PersistentSongRepository implements SongRepository {
-    
-    private final Map<Long, Song> songs = new HashMap<>();
+
+    /** Default time a mutation may wait before it is written to storage. */
+    public static final long DEFAULT_FLUSH_DELAY_MS = 2000;
+    /** Default number of pending mutations that triggers an immediate write. */
+    public static final int DEFAULT_MAX_PENDING_WRITES = 1000;
+    /** Size of the first chunk handed out by a background load; later chunks grow up to {@link #MAX_LOAD_CHUNK_SIZE}. */
+    public static final int FIRST_LOAD_CHUNK_SIZE = 200;
+    public static final int MAX_LOAD_CHUNK_SIZE = 10_000;
+
+    private final LongObjectMap<Song> songs = new LongObjectMap<>();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final SongPathIndex pathIndex = new SongPathIndex();
+    private final SongRegistry registry = new SongRegistry();
     private final AtomicLong idCounter = new AtomicLong();
     private final LibraryStorage storage;
     private boolean isLoaded = false;
+    private boolean loading = false;
     private final Object lock = new Object();
-    
+
+    // Write-behind state; guarded by lock unless noted
+    private final long flushDelayMillis;
+    private final int maxPendingWrites;
+    private final ScheduledExecutorService flusher;
+    private final Object flushLock = new Object(); // serializes storage writes
+    private ScheduledFuture<?> scheduledFlush;
+    private int pendingWrites;
+    private final Set<Long> dirtyIds = new HashSet<>();
+    private final Set<Long> deletedIds = new HashSet<>();
+    private boolean rewriteAll;
+    private int transactionDepth;
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong coalescedWriteCount = new AtomicLong();
+
     public PersistentSongRepository(LibraryStorage storage) {
+        this(storage, DEFAULT_FLUSH_DELAY_MS, DEFAULT_MAX_PENDING_WRITES, false);
+    }
+
+    /**
+     * @param storage   Storage backend
+     * @param deferLoad Whether to leave loading to {@link #loadInBackground} instead of loading now
+     */
+    public PersistentSongRepository(LibraryStorage storage, boolean deferLoad) {
+        this(storage, DEFAULT_FLUSH_DELAY_MS, DEFAULT_MAX_PENDING_WRITES, deferLoad);
+    }
+
+    /**
+     * @param storage          Storage backend
+     * @param flushDelayMillis Maximum time a mutation waits before being written; 0 writes through
+     * @param maxPendingWrites Number of pending mutations that triggers a write before the delay elapses
+     */
+    public PersistentSongRepository(LibraryStorage storage, long flushDelayMillis, int maxPendingWrites) {
+        this(storage, flushDelayMillis, maxPendingWrites, false);
+    }
+
+    /**
+     * @param storage          Storage backend
+     * @param flushDelayMillis Maximum time a mutation waits before being written; 0 writes through
+     * @param maxPendingWrites Number of pending mutations that triggers a write before the delay elapses
+     * @param deferLoad        Whether to leave loading to {@link #loadInBackground} instead of loading now
+     */
+    public PersistentSongRepository(LibraryStorage storage, long flushDelayMillis, int maxPendingWrites, boolean deferLoad) {
         this.storage = storage;
-        loadFromStorage();
+        this.flushDelayMillis = Math.max(0, flushDelayMillis);
+        this.maxPendingWrites = Math.max(1, maxPendingWrites);
+        if (this.flushDelayMillis > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "SongRepository-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            this.flusher = null;
+        }
+        if (!deferLoad) {
+            synchronized (lock) {
+                loadFromStorage();
+            }
+        }
     }
-    
+
     /**
-     * Loads songs from persistent storage into memory.
+     * Loads songs from persistent storage into memory, or waits for a
+     * background load to finish. Must be called while holding {@code lock}.
      */
     private void loadFromStorage() {
-        synchronized (lock) {
-            if (isLoaded) {
+        while (loading) {
+            try {
+                lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
                 return;
             }
+        }
+        if (isLoaded) {
+            return;
+        }
+        try {
+            List<Song> savedSongs = storage.loadSongs();
+            for (Song song : savedSongs) {
+                addLoadedLocked(song);
+            }
+            System.out.println("Loaded " + savedSongs.size() + " songs from storage");
+            System.out.println(MetadataDictionary.measure(songs.values()));
+        } catch (IOException e) {
+            System.err.println("Failed to load songs from storage: " + e.getMessage());
+        }
+        isLoaded = true;
+    }
+
+    /**
+     * Adds a song read from storage.
+     *
+     * @return The canonical instance that was stored
+     */
+    private Song addLoadedLocked(Song loaded) {
+        MetadataDictionary.shared().canonicalize(loaded);
+        Song song = registry.adopt(loaded);
+        songs.put(song.getId(), song);
+        pathIndex.index(song);
+        if (song.getId() > idCounter.get()) {
+            idCounter.set(song.getId());
+        }
+        return song;
+    }
+
+    /**
+     * Starts streaming the library from storage on a background thread. The
+     * first chunk is small so that it can be shown right away; later chunks
+     * grow to amortize the cost of publishing them.
+     *
+     * @param chunkListener Receives each chunk after it was added to the repository; called on the loader thread
+     * @param onComplete    Runs on the loader thread once all songs are loaded
+     * @return false if the library is already loaded or being loaded
+     */
+    public boolean loadInBackground(Consumer<List<Song>> chunkListener, Runnable onComplete) {
+        synchronized (lock) {
+            if (isLoaded || loading) {
+                return false;
+            }
+            loading = true;
+        }
+        Thread loader = new Thread(() -> {
+            long start = System.currentTimeMillis();
+            int[] loaded = new int[1];
+            List<List<Song>> batch = new ArrayList<>(1);
+            batch.add(new ArrayList<>());
+            int[] target = {FIRST_LOAD_CHUNK_SIZE};
             try {
-                List<Song> savedSongs = storage.loadSongs();
-                long maxId = 0;
-                for (Song song : savedSongs) {
-                    songs.put(song.getId(), song);
-                    if (song.getId() > maxId) {
-                        maxId = song.getId();
+                storage.streamSongs(FIRST_LOAD_CHUNK_SIZE, chunk -> {
+                    synchronized (lock) {
+                        for (Song song : chunk) {
+                            batch.get(0).add(addLoadedLocked(song));
+                        }
                     }
+                    loaded[0] += chunk.size();
+                    if (batch.get(0).size() >= target[0]) {
+                        chunkListener.accept(batch.get(0));
+                        batch.set(0, new ArrayList<>());
+                        target[0] = Math.min(target[0] * 4, MAX_LOAD_CHUNK_SIZE);
+                    }
+                });
+                if (!batch.get(0).isEmpty()) {
+                    chunkListener.accept(batch.get(0));
                 }
-                idCounter.set(maxId);
-                isLoaded = true;
-                System.out.println("Loaded " + savedSongs.size() + " songs from storage");
-            } catch (IOException e) {
+                System.out.println("Loaded " + loaded[0] + " songs from storage in "
+                        + (System.currentTimeMillis() - start) + " ms");
+                synchronized (lock) {
+                    System.out.println(MetadataDictionary.measure(songs.values()));
+                }
+            } catch (IOException | RuntimeException e) {
                 System.err.println("Failed to load songs from storage: " + e.getMessage());
-                isLoaded = true;
+            } finally {
+                synchronized (lock) {
+                    loading = false;
+                    isLoaded = true;
+                    lock.notifyAll();
+                }
             }
-        }
+            if (onComplete != null) {
+                onComplete.run();
+            }
+        }, "SongRepository-loader");
+        loader.setDaemon(true);
+        loader.start();
+        return true;
     }
-    
+
     /**
-     * Saves all songs to persistent storage.
+     * Returns whether all songs have been loaded from storage.
      */
-    private void saveToStorage() {
+    public boolean isLoaded() {
         synchronized (lock) {
+            return isLoaded;
+        }
+    }
+
+    /**
+     * Writes pending mutations to persistent storage (or all songs unconditionally
+     * when {@code force} is set and the storage has no journal).
+     */
+    private void flush(boolean force) {
+        boolean journal = storage.supportsJournal();
+        synchronized (flushLock) {
+            List<Song> snapshot = null;
+            List<Song> upserts = null;
+            List<Long> deletes = null;
+            int flushed;
+            synchronized (lock) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+                if (pendingWrites == 0 && !force) {
+                    return;
+                }
+                flushed = pendingWrites;
+                pendingWrites = 0;
+                if (journal && !rewriteAll) {
+                    // Everything else is already in the journal
+                    upserts = new ArrayList<>(dirtyIds.size());
+                    for (long id : dirtyIds) {
+                        Song song = songs.get(id);
+                        if (song != null) upserts.add(song);
+                    }
+                    deletes = new ArrayList<>(deletedIds);
+                } else {
+                    snapshot = songs.values();
+                }
+                dirtyIds.clear();
+                deletedIds.clear();
+                rewriteAll = false;
+            }
             try {
-                storage.saveSongs(new ArrayList<>(songs.values()));
+                if (snapshot != null) {
+                    storage.saveSongs(snapshot);
+                } else if (!upserts.isEmpty() || !deletes.isEmpty()) {
+                    storage.appendSongMutations(upserts, deletes);
+                } else {
+                    return;
+                }
+                if (flushed > 1) {
+                    coalescedWriteCount.addAndGet(flushed - 1);
+                }
+                flushCount.incrementAndGet();
             } catch (IOException e) {
                 System.err.println("Failed to save songs to storage: " + e.getMessage());
+                synchronized (lock) {
+                    // Keep the mutations pending unless they were superseded meanwhile.
+                    // The flusher retries after the delay; in write-through mode the
+                    // next mutation or forceSave retries.
+                    pendingWrites += flushed;
+                    if (snapshot != null) {
+                        rewriteAll = true;
+                    } else {
+                        for (Song song : upserts) {
+                            if (songs.containsKey(song.getId())) dirtyIds.add(song.getId());
+                        }
+                        for (long id : deletes) {
+                            if (!songs.containsKey(id)) deletedIds.add(id);
+                        }
+                    }
+                    if (flusher != null && !flusher.isShutdown() && scheduledFlush == null) {
+                        try {
+                            scheduledFlush = flusher.schedule(() -> flush(false), flushDelayMillis, TimeUnit.MILLISECONDS);
+                        } catch (RejectedExecutionException ignored) {
+                            // shutting down; forceSave will retry
+                        }
+                    }
+                }
             }
         }
     }
-    
+
+    /**
+     * Records {@code mutations} pending writes and schedules a flush. Must be
+     * called while holding {@code lock}.
+     *
+     * @return true if the caller must flush synchronously after releasing the lock
+     */
+    private boolean markDirty(int mutations) {
+        pendingWrites += mutations;
+        if (transactionDepth > 0 || pendingWrites == 0) {
+            return false;
+        }
+        if (flusher == null || flusher.isShutdown()) {
+            return true;
+        }
+        try {
+            if (pendingWrites >= maxPendingWrites) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                }
+                scheduledFlush = flusher.schedule(() -> flush(false), 0, TimeUnit.MILLISECONDS);
+            } else if (scheduledFlush == null) {
+                scheduledFlush = flusher.schedule(() -> flush(false), flushDelayMillis, TimeUnit.MILLISECONDS);
+            }
+            return false;
+        } catch (RejectedExecutionException e) {
+            return true;
+        }
+    }
+
     @Override
     public void save(Song song) {
+        boolean flushNow;
+        synchronized (lock) {
+            loadFromStorage();
+            putLocked(song);
+            flushNow = markDirty(1);
+        }
+        if (flushNow) {
+            flush(false);
+        }
+        fireSaved(List.of(song));
+    }
+
+    /**
+     * Saves several songs as one batch; they are written with a single storage update.
+     */
+    @Override
+    public void saveAll(Collection<Song> songsToSave) {
+        if (songsToSave.isEmpty()) return;
+        boolean flushNow;
         synchronized (lock) {
             loadFromStorage();
-            if (song.getId() == 0) {
-                song.setId(idCounter.incrementAndGet());
+            for (Song song : songsToSave) {
+                putLocked(song);
             }
-            songs.put(song.getId(), song);
-            saveToStorage();
+            flushNow = markDirty(songsToSave.size());
+        }
+        if (flushNow) {
+            flush(false);
+        }
+        fireSaved(new ArrayList<>(songsToSave));
+    }
+
+    @Override
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    private void fireSaved(List<Song> saved) {
+        for (ChangeListener listener : listeners) {
+            listener.songsSaved(saved);
+        }
+    }
+
+    private void fireDeleted(List<Song> deleted) {
+        if (deleted.isEmpty()) return;
+        for (ChangeListener listener : listeners) {
+            listener.songsDeleted(deleted);
         }
     }
-    
+
+    private void putLocked(Song song) {
+        if (song.getId() == 0) {
+            song.setId(idCounter.incrementAndGet());
+        }
+        MetadataDictionary.shared().canonicalize(song);
+        songs.put(song.getId(), song);
+        registry.register(song);
+        pathIndex.index(song);
+        dirtyIds.add(song.getId());
+        deletedIds.remove(song.getId());
+    }
+
+    private void removeLocked(long id) {
+        registry.unregister(id);
+        pathIndex.remove(id);
+        dirtyIds.remove(id);
+        deletedIds.add(id);
+    }
+
     @Override
     public Song findById(long id) {
         synchronized (lock) {
@@ -86,51 +417,173 @@ public class PersistentSongRepository implements SongRepository {
             return songs.get(id);
         }
     }
-    
+
     @Override
-    public List<Song> findAll() {
+    public Song findByFilePath(String filePath) {
+        synchronized (lock) {
+            loadFromStorage();
+            return pathIndex.find(filePath);
+        }
+    }
+
+    @Override
+    public List<Song> findUnder(String directory) {
         synchronized (lock) {
             loadFromStorage();
-            return new ArrayList<>(songs.values());
+            return pathIndex.findUnder(directory);
+        }
+    }
+
+    @Override
+    public SongRegistry getRegistry() {
+        return registry;
+    }
+
+    @Override
+    public List<Song> findAll() {
+        synchronized (lock) {
+            // During a background load this returns the songs loaded so far
+            return songs.values();
         }
     }
-    
+
     @Override
     public void delete(long id) {
+        boolean flushNow = false;
+        Song removed;
         synchronized (lock) {
             loadFromStorage();
-            if (songs.remove(id) != null) {
-                saveToStorage();
+            removed = songs.remove(id);
+            if (removed != null) {
+                removeLocked(id);
+                flushNow = markDirty(1);
             }
         }
+        if (flushNow) {
+            flush(false);
+        }
+        if (removed != null) {
+            fireDeleted(List.of(removed));
+        }
     }
-    
+
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        boolean flushNow;
+        List<Song> removed = new ArrayList<>();
+        synchronized (lock) {
+            loadFromStorage();
+            for (long id : ids) {
+                Song song = songs.remove(id);
+                if (song != null) {
+                    removeLocked(id);
+                    removed.add(song);
+                }
+            }
+            flushNow = markDirty(removed.size());
+        }
+        if (flushNow) {
+            flush(false);
+        }
+        fireDeleted(removed);
+    }
+
+    /**
+     * Runs {@code work} as a transaction: no write is scheduled until it
+     * completes, after which all of its mutations are flushed as one batch.
+     * Transactions may be nested.
+     *
+     * @param work Operations on this repository
+     */
+    public void inTransaction(Runnable work) {
+        synchronized (lock) {
+            transactionDepth++;
+        }
+        try {
+            work.run();
+        } finally {
+            boolean flushNow;
+            synchronized (lock) {
+                transactionDepth--;
+                flushNow = markDirty(0);
+            }
+            if (flushNow) {
+                flush(false);
+            }
+        }
+    }
+
     /**
      * Clears all songs from the repository and storage.
      */
     public void clear() {
+        boolean flushNow;
+        List<Song> removed;
         synchronized (lock) {
+            loadFromStorage();
+            removed = songs.values();
             songs.clear();
-            saveToStorage();
+            registry.clear();
+            pathIndex.clear();
+            dirtyIds.clear();
+            deletedIds.clear();
+            rewriteAll = true;
+            flushNow = markDirty(1);
+        }
+        if (flushNow) {
+            flush(false);
         }
+        fireDeleted(removed);
     }
-    
+
     /**
      * Forces a save of all current data to storage.
      */
     public void forceSave() {
-        synchronized (lock) {
-            saveToStorage();
+        flush(true);
+    }
+
+    /**
+     * Flushes pending writes and stops the background flusher. Later
+     * mutations are written through synchronously.
+     */
+    public void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
         }
+        flush(false);
     }
-    
+
     /**
      * Returns the number of songs in the repository.
      */
     public int size() {
         synchronized (lock) {
-            loadFromStorage();
             return songs.size();
         }
     }
+
+    /**
+     * Returns the number of mutations not yet written to storage.
+     */
+    public int getPendingWriteCount() {
+        synchronized (lock) {
+            return pendingWrites;
+        }
+    }
+
+    /**
+     * Returns how many storage writes have been performed.
+     */
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * Returns how many mutations were folded into another mutation's write
+     * instead of causing a storage write of their own.
+     */
+    public long getCoalescedWriteCount() {
+        return coalescedWriteCount.get();
+    }
 }
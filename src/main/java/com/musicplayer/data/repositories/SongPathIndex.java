@@ -0,0 +1,101 @@
+package com.musicplayer.data.repositories;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import com.musicplayer.data.models.Song;
+
+/**
+ * Secondary file path to song index shared by the song repositories.
+ * Not thread-safe; callers synchronize as they do for their primary map.
+ * <p>
+ * The index remembers the path each song ID was indexed under, so re-saving
+ * a song whose path was changed in place moves its entry instead of leaving
+ * a stale one behind. The paths are also kept sorted, so the songs below a
+ * directory are found without visiting the rest of the library.
+ */
+final class SongPathIndex {
+
+    private final Map<String, Song> songsByPath = new HashMap<>();
+    private final LongObjectMap<String> pathsById = new LongObjectMap<>();
+    private final NavigableSet<String> sortedPaths = new TreeSet<>();
+
+    /**
+     * Indexes a song under its current file path, replacing any entry it had before.
+     */
+    void index(Song song) {
+        remove(song.getId());
+        String path = song.getFilePath();
+        if (path != null) {
+            songsByPath.put(path, song);
+            pathsById.put(song.getId(), path);
+            sortedPaths.add(path);
+        }
+    }
+
+    /**
+     * Removes the entry of the song with the given ID.
+     */
+    void remove(long id) {
+        String path = pathsById.remove(id);
+        if (path != null) {
+            Song indexed = songsByPath.get(path);
+            if (indexed != null && indexed.getId() == id) {
+                songsByPath.remove(path);
+                sortedPaths.remove(path);
+            }
+        }
+    }
+
+    /**
+     * Looks up the song stored at {@code path}. An entry whose song has since been
+     * given a different path without being saved is re-indexed and not returned.
+     */
+    Song find(String path) {
+        if (path == null) return null;
+        Song song = songsByPath.get(path);
+        if (song != null && !path.equals(song.getFilePath())) {
+            index(song);
+            return null;
+        }
+        return song;
+    }
+
+    /**
+     * Returns the songs whose files are anywhere below {@code directory}.
+     */
+    List<Song> findUnder(String directory) {
+        List<Song> result = new ArrayList<>();
+        if (directory == null) return result;
+        String prefix = directory.endsWith(File.separator) ? directory : directory + File.separator;
+        List<Song> moved = new ArrayList<>();
+        for (String path : sortedPaths.subSet(prefix, true, prefix + Character.MAX_VALUE, false)) {
+            Song song = songsByPath.get(path);
+            if (song == null) continue;
+            if (path.equals(song.getFilePath())) {
+                result.add(song);
+            } else {
+                moved.add(song);
+            }
+        }
+        // Songs given a new path without being saved, as in find
+        for (Song song : moved) {
+            index(song);
+            if (song.getFilePath() != null && song.getFilePath().startsWith(prefix)) {
+                result.add(song);
+            }
+        }
+        return result;
+    }
+
+    void clear() {
+        songsByPath.clear();
+        pathsById.clear();
+        sortedPaths.clear();
+    }
+}
@@ -0,0 +1,99 @@
+package com.musicplayer.data.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.musicplayer.data.models.Song;
+
+/**
+ * The canonical {@link Song} instance of every song ID.
+ * <p>
+ * A song repository registers the instances it stores, and everything else
+ * that holds songs (albums, playlists, the library and playlist engines)
+ * interns the songs it is given, so that one track is one object however
+ * many places refer to it. Only the repository registers; interning never
+ * does, so songs that are not in the library are not kept alive here. Play counts, favorites and tag edits made on that
+ * object are then seen everywhere, and heap use follows the number of songs
+ * rather than the number of references. Thread-safe.
+ */
+public final class SongRegistry {
+
+    private final LongObjectMap<Song> songs = new LongObjectMap<>();
+
+    /**
+     * Makes {@code song} the canonical instance of its ID. Used when a
+     * repository stores a song.
+     */
+    public synchronized void register(Song song) {
+        if (song != null && song.getId() != 0) {
+            songs.put(song.getId(), song);
+        }
+    }
+
+    /**
+     * Makes the values of a song read from storage canonical. If an instance
+     * of the ID is registered already, it is updated and kept.
+     *
+     * @return The canonical instance, to be stored instead of {@code song}
+     */
+    public synchronized Song adopt(Song song) {
+        if (song == null || song.getId() == 0) {
+            return song;
+        }
+        Song existing = songs.get(song.getId());
+        if (existing == null) {
+            songs.put(song.getId(), song);
+            return song;
+        }
+        if (existing != song) {
+            existing.copyFrom(song);
+        }
+        return existing;
+    }
+
+    /**
+     * Returns the canonical instance of the song's ID, or {@code song} itself
+     * if there is none. Does not register {@code song}.
+     */
+    public synchronized Song intern(Song song) {
+        if (song == null || song.getId() == 0) {
+            return song;
+        }
+        Song existing = songs.get(song.getId());
+        return existing != null ? existing : song;
+    }
+
+    /**
+     * Interns every song of a list.
+     *
+     * @return A new list of the canonical instances, in the same order
+     */
+    public List<Song> internAll(List<Song> list) {
+        List<Song> result = new ArrayList<>(list.size());
+        synchronized (this) {
+            for (Song song : list) {
+                result.add(intern(song));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the canonical instance of an ID, or null if there is none.
+     */
+    public synchronized Song find(long id) {
+        return songs.get(id);
+    }
+
+    public synchronized void unregister(long id) {
+        songs.remove(id);
+    }
+
+    public synchronized int size() {
+        return songs.size();
+    }
+
+    public synchronized void clear() {
+        songs.clear();
+    }
+}
@@ -1,5 +1,6 @@
 package com.musicplayer.data.repositories;
 
+import java.util.Collection;
 import java.util.List;
 
 import com.musicplayer.data.models.Song;
@@ -9,4 +10,69 @@ public interface SongRepository {
     Song findById(long id);
     List<Song> findAll();
     void delete(long id);
+
+    /**
+     * Finds the song stored at the given absolute file path in constant time.
+     * The lookup reflects path changes once the song has been saved again.
+     *
+     * @param filePath Absolute path of the audio file
+     * @return The song, or null if no song has that path
+     */
+    Song findByFilePath(String filePath);
+
+    /**
+     * Finds the songs whose files are anywhere below the given directory,
+     * visiting only those songs rather than the whole library.
+     *
+     * @param directory Absolute path of the directory
+     * @return The songs below it, in path order
+     */
+    List<Song> findUnder(String directory);
+
+    /**
+     * Returns the registry of the canonical song instances this repository
+     * stores, for albums, playlists and engines to resolve their songs through.
+     */
+    SongRegistry getRegistry();
+
+    /**
+     * Registers a listener that is told about every song saved to or deleted
+     * from this repository, after the change and on the thread that made it.
+     * Songs loaded from storage are not reported.
+     */
+    void addChangeListener(ChangeListener listener);
+
+    /**
+     * Receives the changes made to a song repository.
+     */
+    interface ChangeListener {
+        /**
+         * @param songs Songs that were added, or saved again with possibly new tags or paths
+         */
+        void songsSaved(List<Song> songs);
+
+        /**
+         * @param songs Songs that were deleted
+         */
+        void songsDeleted(List<Song> songs);
+    }
+
+    /**
+     * Saves several songs as one batch. Persistent implementations write the
+     * batch with a single storage update instead of one per song.
+     */
+    default void saveAll(Collection<Song> songs) {
+        for (Song song : songs) {
+            save(song);
+        }
+    }
+
+    /**
+     * Deletes several songs as one batch.
+     */
+    default void deleteAll(Collection<Long> ids) {
+        for (long id : ids) {
+            delete(id);
+        }
+    }
 }
@@ -0,0 +1,340 @@
+package com.musicplayer.data.storage;
+
+import com.musicplayer.data.models.Album;
+import com.musicplayer.data.models.Artist;
+import com.musicplayer.data.models.Playlist;
+import com.musicplayer.data.models.Song;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Storage implementation that keeps the song table in a compact binary file
+ * (songs.bin) and loads it through a memory-mapped {@link FileChannel}.
+ * Albums, artists and playlists are small and stay in their JSON files.
+ * <p>
+ * Layout of songs.bin (big-endian):
+ * <pre>
+ * header      int magic "SMPB", short version, short flags, int songCount, int dictionarySize
+ * dictionary  dictionarySize strings shared by the artist, album and genre columns
+ * columns     long id, duration, lastPlayed; int artist, album, genre (dictionary indexes),
+ *             trackNumber, year, playCount, rating; byte favorite - each songCount wide
+ * strings     songCount titles, then songCount file paths
+ * trailer     int CRC32 of everything before it
+ * </pre>
+ * Strings are an int byte length (-1 for null) followed by UTF-8 bytes;
+ * a dictionary index of -1 also stands for null.
+ */
+public class BinaryLibraryStorage implements LibraryStorage {
+
+    static final String SONGS_FILE = "songs.bin";
+
+    private static final int MAGIC = 0x534D5042; // "SMPB"
+    private static final short FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int TRAILER_SIZE = 4;
+    /** Size of a file holding no songs. */
+    static final int EMPTY_FILE_SIZE = HEADER_SIZE + TRAILER_SIZE;
+
+    private final Path dataDirectory;
+    private final JsonLibraryStorage jsonStorage;
+    private final boolean memoryMapped;
+
+    public BinaryLibraryStorage() {
+        this(JsonLibraryStorage.defaultDataDirectory());
+    }
+
+    /**
+     * Creates a storage that keeps its files in the given directory.
+     *
+     * @param dataDirectory Directory holding the library data files
+     */
+    public BinaryLibraryStorage(Path dataDirectory) {
+        this.jsonStorage = new JsonLibraryStorage(dataDirectory);
+        this.dataDirectory = dataDirectory;
+        // Windows cannot replace a file while a mapping of it is still alive, and
+        // mappings are only released on GC; read into the heap there instead
+        this.memoryMapped = !System.getProperty("os.name").toLowerCase().contains("win");
+    }
+
+    @Override
+    public void saveSongs(List<Song> songs) throws IOException {
+        Path target = dataDirectory.resolve(SONGS_FILE);
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName().toString() + ".tmp");
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(file, crc));
+            writeSongs(out, songs);
+            out.flush();
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public List<Song> loadSongs() throws IOException {
+        List<Song> songs = new ArrayList<>();
+        readSongs(Integer.MAX_VALUE, songs::addAll);
+        return songs;
+    }
+
+    /**
+     * Streams the songs in chunks. The whole file is mapped and verified before
+     * the first chunk is handed out, so a corrupt file yields no songs at all.
+     */
+    @Override
+    public void streamSongs(int chunkSize, Consumer<List<Song>> chunkConsumer) throws IOException {
+        readSongs(chunkSize, chunkConsumer);
+    }
+
+    private void readSongs(int chunkSize, Consumer<List<Song>> chunkConsumer) {
+        Path file = dataDirectory.resolve(SONGS_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid size " + size);
+            }
+            ByteBuffer buffer;
+            if (memoryMapped) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // keep reading
+                }
+                buffer.flip();
+            }
+            readSongs(buffer, chunkSize, chunkConsumer);
+        } catch (IOException | RuntimeException e) {
+            // A corrupt file loads as an empty library
+            System.err.println("Failed to load songs from storage: " + e.getMessage());
+        }
+    }
+
+    private static void writeSongs(DataOutputStream out, List<Song> songs) throws IOException {
+        int n = songs.size();
+        Map<String, Integer> dictionaryIndex = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int[] artists = new int[n];
+        int[] albums = new int[n];
+        int[] genres = new int[n];
+        for (int i = 0; i < n; i++) {
+            Song song = songs.get(i);
+            artists[i] = intern(song.getArtist(), dictionaryIndex, dictionary);
+            albums[i] = intern(song.getAlbum(), dictionaryIndex, dictionary);
+            genres[i] = intern(song.getGenre(), dictionaryIndex, dictionary);
+        }
+
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        out.writeShort(0);
+        out.writeInt(n);
+        out.writeInt(dictionary.size());
+        for (String value : dictionary) {
+            writeString(out, value);
+        }
+
+        for (Song song : songs) out.writeLong(song.getId());
+        for (Song song : songs) out.writeLong(song.getDuration());
+        for (Song song : songs) out.writeLong(song.getLastPlayed());
+        for (int ref : artists) out.writeInt(ref);
+        for (int ref : albums) out.writeInt(ref);
+        for (int ref : genres) out.writeInt(ref);
+        for (Song song : songs) out.writeInt(song.getTrackNumber());
+        for (Song song : songs) out.writeInt(song.getYear());
+        for (Song song : songs) out.writeInt(song.getPlayCount());
+        for (Song song : songs) out.writeInt(song.getRating());
+        for (Song song : songs) out.writeByte(song.isFavorite() ? 1 : 0);
+
+        for (Song song : songs) writeString(out, song.getTitle());
+        for (Song song : songs) writeString(out, song.getFilePath());
+    }
+
+    private static void readSongs(ByteBuffer buffer, int chunkSize, Consumer<List<Song>> chunkConsumer) throws IOException {
+        int limit = buffer.limit();
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buffer.duplicate();
+        body.limit(limit - TRAILER_SIZE);
+        crc.update(body);
+        if ((int) crc.getValue() != buffer.getInt(limit - TRAILER_SIZE)) {
+            throw new IOException("Checksum mismatch in " + SONGS_FILE);
+        }
+        buffer.limit(limit - TRAILER_SIZE);
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a library file: " + SONGS_FILE);
+        }
+        short version = buffer.getShort();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported library format version " + version);
+        }
+        buffer.getShort(); // flags, unused
+        int n = buffer.getInt();
+        int dictionarySize = buffer.getInt();
+        if (n < 0 || dictionarySize < 0) {
+            throw new IOException("Corrupt header in " + SONGS_FILE);
+        }
+
+        String[] dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            dictionary[i] = readString(buffer);
+        }
+
+        long[] ids = readLongs(buffer, n);
+        long[] durations = readLongs(buffer, n);
+        long[] lastPlayed = readLongs(buffer, n);
+        int[] artists = readInts(buffer, n);
+        int[] albums = readInts(buffer, n);
+        int[] genres = readInts(buffer, n);
+        int[] trackNumbers = readInts(buffer, n);
+        int[] years = readInts(buffer, n);
+        int[] playCounts = readInts(buffer, n);
+        int[] ratings = readInts(buffer, n);
+        byte[] favorites = new byte[n];
+        buffer.get(favorites);
+
+        String[] titles = new String[n];
+        for (int i = 0; i < n; i++) titles[i] = readString(buffer);
+
+        // Decode everything up front so that nothing is handed out from a damaged file
+        String[] paths = new String[n];
+        for (int i = 0; i < n; i++) paths[i] = readString(buffer);
+
+        List<Song> chunk = new ArrayList<>(Math.min(n, chunkSize));
+        for (int i = 0; i < n; i++) {
+            Song song = new Song(ids[i], titles[i], lookup(dictionary, artists[i]), lookup(dictionary, albums[i]),
+                    lookup(dictionary, genres[i]), durations[i], paths[i], trackNumbers[i], years[i]);
+            song.setPlayCount(playCounts[i]);
+            song.setLastPlayed(lastPlayed[i]);
+            song.setRating(ratings[i]);
+            song.setFavorite(favorites[i] != 0);
+            chunk.add(song);
+            if (chunk.size() >= chunkSize) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>(Math.min(n - i - 1, chunkSize));
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+    }
+
+    private static int intern(String value, Map<String, Integer> index, List<String> dictionary) {
+        if (value == null) return -1;
+        Integer ref = index.get(value);
+        if (ref == null) {
+            ref = dictionary.size();
+            dictionary.add(value);
+            index.put(value, ref);
+        }
+        return ref;
+    }
+
+    private static String lookup(String[] dictionary, int ref) throws IOException {
+        if (ref == -1) return null;
+        if (ref < 0 || ref >= dictionary.length) {
+            throw new IOException("Dictionary index out of range: " + ref);
+        }
+        return dictionary[ref];
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length == -1) return null;
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Corrupt string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long[] readLongs(ByteBuffer buffer, int n) {
+        long[] values = new long[n];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + n * Long.BYTES);
+        return values;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int n) {
+        int[] values = new int[n];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + n * Integer.BYTES);
+        return values;
+    }
+
+    @Override
+    public void saveAlbums(List<Album> albums) throws IOException {
+        jsonStorage.saveAlbums(albums);
+    }
+
+    @Override
+    public List<Album> loadAlbums() throws IOException {
+        return jsonStorage.loadAlbums();
+    }
+
+    @Override
+    public void saveArtists(List<Artist> artists) throws IOException {
+        jsonStorage.saveArtists(artists);
+    }
+
+    @Override
+    public List<Artist> loadArtists() throws IOException {
+        return jsonStorage.loadArtists();
+    }
+
+    @Override
+    public void savePlaylists(List<Playlist> playlists) throws IOException {
+        jsonStorage.savePlaylists(playlists);
+    }
+
+    @Override
+    public List<Playlist> loadPlaylists() throws IOException {
+        return jsonStorage.loadPlaylists();
+    }
+
+    @Override
+    public Path getDataDirectory() {
+        return dataDirectory;
+    }
+
+    @Override
+    public boolean hasExistingData() {
+        return Files.exists(dataDirectory.resolve(SONGS_FILE));
+    }
+}
@@ -0,0 +1,169 @@
+package com.musicplayer.data.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Writes small JSON files (settings, favorites, conversion history) off the
+ * calling thread.
+ * <p>
+ * A call to {@link #write} only marks the file dirty and remembers how to
+ * produce its content. The file is written on a background thread after a
+ * short delay, and all changes made during that delay go out in a single
+ * write, so each file is written at most once per delay however often it
+ * changes. Writes go through a temporary file and an atomic move.
+ * <p>
+ * Owners of a file call {@link #flush(Path)} before reading it back, so that
+ * pending content is never missed, and the application calls
+ * {@link #flushAll()} on shutdown. The shared instance also flushes from a
+ * shutdown hook.
+ */
+public final class CoalescingJsonWriter {
+
+    public static final long DEFAULT_DELAY_MILLIS = 500;
+
+    private static CoalescingJsonWriter shared;
+
+    /** Content to write to a file: the writer and a supplier of the value to serialize. */
+    private static final class PendingWrite {
+        final ObjectWriter writer;
+        final Supplier<?> content;
+
+        PendingWrite(ObjectWriter writer, Supplier<?> content) {
+            this.writer = writer;
+            this.content = content;
+        }
+    }
+
+    private final long delayMillis;
+    private final ScheduledExecutorService executor;
+    private final Map<Path, PendingWrite> pending = new ConcurrentHashMap<>();
+    /** Serializes the writes of each file, so an older content never lands after a newer one. */
+    private final Map<Path, Object> fileLocks = new ConcurrentHashMap<>();
+    private final AtomicLong completedWrites = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+
+    /**
+     * @param delayMillis How long changes to a file are gathered before it is written
+     */
+    public CoalescingJsonWriter(long delayMillis) {
+        this.delayMillis = delayMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "json-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Returns the writer shared by the application's JSON stores.
+     */
+    public static synchronized CoalescingJsonWriter shared() {
+        if (shared == null) {
+            CoalescingJsonWriter writer = new CoalescingJsonWriter(DEFAULT_DELAY_MILLIS);
+            Runtime.getRuntime().addShutdownHook(new Thread(writer::flushAll, "json-writer-flush"));
+            shared = writer;
+        }
+        return shared;
+    }
+
+    /**
+     * Marks a file dirty. The content supplier is called on the writer
+     * thread when the file is written, so it must be safe to call from
+     * there; it replaces the supplier of any write still pending for the file.
+     *
+     * @param file File to write
+     * @param writer Writer serializing the content
+     * @param content Supplies the value to write
+     */
+    public void write(Path file, ObjectWriter writer, Supplier<?> content) {
+        Path key = keyOf(file);
+        if (pending.put(key, new PendingWrite(writer, content)) == null) {
+            executor.schedule(() -> flush(key), delayMillis, TimeUnit.MILLISECONDS);
+        } else {
+            coalescedWrites.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes a file now if a write of it is pending, on the calling thread.
+     */
+    public void flush(Path file) {
+        Path key = keyOf(file);
+        synchronized (fileLocks.computeIfAbsent(key, k -> new Object())) {
+            PendingWrite write = pending.remove(key);
+            if (write != null) {
+                writeFile(key, write);
+            }
+        }
+    }
+
+    /**
+     * Writes every pending file now, on the calling thread.
+     */
+    public void flushAll() {
+        for (Path file : new ArrayList<>(pending.keySet())) {
+            flush(file);
+        }
+    }
+
+    /**
+     * Flushes every pending file and stops the writer thread.
+     */
+    public void shutdown() {
+        flushAll();
+        executor.shutdown();
+    }
+
+    /**
+     * Number of files waiting to be written.
+     */
+    public int getPendingWrites() {
+        return pending.size();
+    }
+
+    /**
+     * Number of files written so far.
+     */
+    public long getCompletedWrites() {
+        return completedWrites.get();
+    }
+
+    /**
+     * Number of changes folded into an already pending write.
+     */
+    public long getCoalescedWrites() {
+        return coalescedWrites.get();
+    }
+
+    private void writeFile(Path file, PendingWrite write) {
+        Path temp = file.resolveSibling(file.getFileName().toString() + ".tmp");
+        try {
+            write.writer.writeValue(temp.toFile(), write.content.get());
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            completedWrites.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to write " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static Path keyOf(Path file) {
+        return file.toAbsolutePath().normalize();
+    }
+}
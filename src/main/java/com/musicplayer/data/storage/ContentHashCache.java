@@ -0,0 +1,172 @@
+package com.musicplayer.data.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Persisted table of file path to audio payload hashes, used by the duplicate
+ * finder. An entry is only valid while the file keeps the size and
+ * modification time it had when it was hashed. Hashes are filled in stage by
+ * stage, so most entries only ever get the payload range. The table is stored
+ * next to songs.json.
+ */
+public class ContentHashCache {
+
+    private static final String HASHES_FILE = "content-hashes.json";
+
+    private final Map<String, ContentHash> hashes = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path cacheFile;
+    private volatile boolean dirty;
+
+    /**
+     * Creates a cache that only lives in memory.
+     */
+    public ContentHashCache() {
+        this.cacheFile = null;
+    }
+
+    /**
+     * Creates a cache persisted in the given data directory.
+     *
+     * @param dataDirectory Directory holding the library data files
+     */
+    public ContentHashCache(Path dataDirectory) {
+        this.cacheFile = dataDirectory.resolve(HASHES_FILE);
+        load();
+    }
+
+    /**
+     * Payload range and hashes of a file as of the given size and modification time.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ContentHash {
+        private long size;
+        private long modifiedMillis;
+        private long payloadOffset;
+        private long payloadLength;
+        private String partialHash;
+        private String fullHash;
+
+        public ContentHash() {}
+
+        public ContentHash(long size, long modifiedMillis, long payloadOffset, long payloadLength) {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.payloadOffset = payloadOffset;
+            this.payloadLength = payloadLength;
+        }
+
+        /**
+         * Checks whether this entry still describes a file with the given size and modification time.
+         */
+        public boolean matches(long size, long modifiedMillis) {
+            return this.size == size && this.modifiedMillis == modifiedMillis;
+        }
+
+        public long getSize() { return size; }
+        public void setSize(long size) { this.size = size; }
+
+        public long getModifiedMillis() { return modifiedMillis; }
+        public void setModifiedMillis(long modifiedMillis) { this.modifiedMillis = modifiedMillis; }
+
+        public long getPayloadOffset() { return payloadOffset; }
+        public void setPayloadOffset(long payloadOffset) { this.payloadOffset = payloadOffset; }
+
+        public long getPayloadLength() { return payloadLength; }
+        public void setPayloadLength(long payloadLength) { this.payloadLength = payloadLength; }
+
+        /** Hash of the start and end of the payload, or null if not computed yet. */
+        public String getPartialHash() { return partialHash; }
+        public void setPartialHash(String partialHash) { this.partialHash = partialHash; }
+
+        /** Hash of the whole payload, or null if not computed yet. */
+        public String getFullHash() { return fullHash; }
+        public void setFullHash(String fullHash) { this.fullHash = fullHash; }
+    }
+
+    public ContentHash get(String path) {
+        return path != null ? hashes.get(path) : null;
+    }
+
+    public void put(String path, ContentHash hash) {
+        if (path == null || hash == null) return;
+        hashes.put(path, hash);
+        dirty = true;
+    }
+
+    /**
+     * Marks the table as changed after a stored entry was given another hash.
+     */
+    public void markChanged() {
+        dirty = true;
+    }
+
+    public void remove(String path) {
+        if (path != null && hashes.remove(path) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Drops all entries whose path is not in {@code keep}.
+     */
+    public void retainAll(Set<String> keep) {
+        if (hashes.keySet().retainAll(keep)) {
+            dirty = true;
+        }
+    }
+
+    public int size() {
+        return hashes.size();
+    }
+
+    /**
+     * Writes the table to disk if it changed since the last save.
+     */
+    public synchronized void save() {
+        if (cacheFile == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path temp = cacheFile.resolveSibling(cacheFile.getFileName().toString() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), hashes);
+            try {
+                Files.move(temp, cacheFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            System.err.println("Failed to save content hashes: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        File file = cacheFile.toFile();
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            Map<String, ContentHash> loaded = objectMapper.readValue(file,
+                    new TypeReference<Map<String, ContentHash>>() {});
+            hashes.putAll(loaded);
+            System.out.println("Loaded " + hashes.size() + " content hashes");
+        } catch (IOException e) {
+            // A corrupt cache only costs re-hashing the candidates
+            System.err.println("Failed to load content hashes: " + e.getMessage());
+        }
+    }
+}
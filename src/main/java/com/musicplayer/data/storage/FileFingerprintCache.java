@@ -0,0 +1,237 @@
+package com.musicplayer.data.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Persisted table of file path to (size, modification time, file key) fingerprints.
+ * Used by incremental rescans to skip re-reading tags of files that have not
+ * changed since they were last scanned. The table is stored next to songs.json.
+ */
+public class FileFingerprintCache {
+
+    private static final String FINGERPRINTS_FILE = "fingerprints.json";
+
+    private final Map<String, FileFingerprint> fingerprints = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path cacheFile;
+    private volatile boolean dirty;
+
+    /**
+     * Creates a cache that only lives in memory.
+     */
+    public FileFingerprintCache() {
+        this.cacheFile = null;
+    }
+
+    /**
+     * Creates a cache persisted in the given data directory.
+     *
+     * @param dataDirectory Directory holding the library data files
+     */
+    public FileFingerprintCache(Path dataDirectory) {
+        this.cacheFile = dataDirectory.resolve(FINGERPRINTS_FILE);
+        load();
+    }
+
+    /**
+     * Fingerprint of a file as seen by the last scan. The tags-read flag is
+     * not part of the fingerprint's identity: it records that the full tag
+     * read was attempted on the file in this state.
+     */
+    public static class FileFingerprint {
+        private long size;
+        private long modifiedMillis;
+        private String fileKey;
+        private boolean tagsRead;
+
+        public FileFingerprint() {}
+
+        public FileFingerprint(long size, long modifiedMillis, String fileKey) {
+            this.size = size;
+            this.modifiedMillis = modifiedMillis;
+            this.fileKey = fileKey;
+        }
+
+        /**
+         * Builds a fingerprint from attributes that were already read, e.g. during a tree walk.
+         * The file key is the inode (or equivalent) where the file system provides one.
+         */
+        public static FileFingerprint of(BasicFileAttributes attrs) {
+            Object key = attrs.fileKey();
+            return new FileFingerprint(attrs.size(), attrs.lastModifiedTime().toMillis(),
+                    key != null ? key.toString() : null);
+        }
+
+        public long getSize() { return size; }
+        public void setSize(long size) { this.size = size; }
+
+        public long getModifiedMillis() { return modifiedMillis; }
+        public void setModifiedMillis(long modifiedMillis) { this.modifiedMillis = modifiedMillis; }
+
+        public String getFileKey() { return fileKey; }
+        public void setFileKey(String fileKey) { this.fileKey = fileKey; }
+
+        public boolean isTagsRead() { return tagsRead; }
+        public void setTagsRead(boolean tagsRead) { this.tagsRead = tagsRead; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FileFingerprint that = (FileFingerprint) o;
+            return size == that.size &&
+                    modifiedMillis == that.modifiedMillis &&
+                    Objects.equals(fileKey, that.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, modifiedMillis, fileKey);
+        }
+    }
+
+    public FileFingerprint get(String path) {
+        return path != null ? fingerprints.get(path) : null;
+    }
+
+    /**
+     * Records the fingerprint of a file. If the file is unchanged, the existing
+     * entry is kept along with its tags-read flag.
+     */
+    public void put(String path, FileFingerprint fingerprint) {
+        if (path == null || fingerprint == null) return;
+        FileFingerprint previous = fingerprints.get(path);
+        if (!fingerprint.equals(previous)) {
+            fingerprints.put(path, fingerprint);
+            dirty = true;
+        } else if (fingerprint.isTagsRead() && !previous.isTagsRead()) {
+            previous.setTagsRead(true);
+            dirty = true;
+        }
+    }
+
+    public void putAll(Map<String, FileFingerprint> entries) {
+        for (Map.Entry<String, FileFingerprint> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void remove(String path) {
+        if (path != null && fingerprints.remove(path) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Checks whether a file still matches the fingerprint recorded for it.
+     *
+     * @param path    Absolute file path
+     * @param current Fingerprint of the file as it is now
+     * @return true if a fingerprint was recorded and is identical
+     */
+    public boolean isUnchanged(String path, FileFingerprint current) {
+        return current != null && current.equals(get(path));
+    }
+
+    /**
+     * Records that the full tag read of a file was attempted, whatever its
+     * outcome, while the file had the given fingerprint.
+     *
+     * @param path        Absolute file path
+     * @param fingerprint Fingerprint of the file taken before the read
+     */
+    public void markTagsRead(String path, FileFingerprint fingerprint) {
+        if (path == null || fingerprint == null) return;
+        FileFingerprint read = new FileFingerprint(fingerprint.getSize(), fingerprint.getModifiedMillis(),
+                fingerprint.getFileKey());
+        read.setTagsRead(true);
+        put(path, read);
+    }
+
+    /**
+     * Checks whether the full tag read was attempted on a file that has not
+     * changed since.
+     *
+     * @param path    Absolute file path
+     * @param current Fingerprint of the file as it is now
+     * @return true if the file is unchanged and its tags were read
+     */
+    public boolean wereTagsRead(String path, FileFingerprint current) {
+        FileFingerprint recorded = get(path);
+        return recorded != null && recorded.isTagsRead() && recorded.equals(current);
+    }
+
+    /**
+     * Drops entries below {@code rootPrefix} whose path is not in {@code keep}.
+     *
+     * @param rootPrefix Absolute directory path ending with a separator
+     * @param keep       Paths that still exist under the root
+     */
+    public void retainUnder(String rootPrefix, Set<String> keep) {
+        if (fingerprints.keySet().removeIf(p -> p.startsWith(rootPrefix) && !keep.contains(p))) {
+            dirty = true;
+        }
+    }
+
+    public void clear() {
+        if (!fingerprints.isEmpty()) {
+            fingerprints.clear();
+            dirty = true;
+        }
+    }
+
+    public int size() {
+        return fingerprints.size();
+    }
+
+    /**
+     * Writes the table to disk if it changed since the last save.
+     */
+    public synchronized void save() {
+        if (cacheFile == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Path temp = cacheFile.resolveSibling(cacheFile.getFileName().toString() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), fingerprints);
+            try {
+                Files.move(temp, cacheFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            System.err.println("Failed to save file fingerprints: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        File file = cacheFile.toFile();
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            Map<String, FileFingerprint> loaded = objectMapper.readValue(file,
+                    new TypeReference<Map<String, FileFingerprint>>() {});
+            fingerprints.putAll(loaded);
+            System.out.println("Loaded " + fingerprints.size() + " file fingerprints");
+        } catch (IOException e) {
+            // A corrupt cache only costs a full re-read on the next rescan
+            System.err.println("Failed to load file fingerprints: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.musicplayer.data.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.musicplayer.data.models.Album;
+import com.musicplayer.data.models.Artist;
+import com.musicplayer.data.models.Playlist;
+import com.musicplayer.data.models.Song;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Storage decorator that records song, album and playlist mutations in
+ * append-only journals (songs.journal, albums.journal, playlists.journal)
+ * next to the snapshot files of the wrapped storage.
+ * <p>
+ * A mutation costs one checksummed record instead of a rewrite of the whole
+ * snapshot. Loading replays the journal onto the snapshot. Once a journal
+ * grows past the compaction threshold, a background thread folds it into a
+ * new snapshot. Full-list saves are journaled as a clear followed by the
+ * list, so every change goes through the journal.
+ * Artists are not journaled and go straight to the wrapped storage.
+ */
+public class JournaledLibraryStorage implements LibraryStorage {
+
+    /** Default journal size that triggers a compaction. */
+    public static final long DEFAULT_COMPACTION_THRESHOLD_BYTES = 4L * 1024 * 1024;
+
+    private final LibraryStorage snapshotStorage;
+    private final long compactionThresholdBytes;
+    private final MutationJournal<Song> songJournal;
+    private final MutationJournal<Album> albumJournal;
+    private final MutationJournal<Playlist> playlistJournal;
+    private final ExecutorService compactor;
+    private final Set<MutationJournal<?>> compactionsQueued = ConcurrentHashMap.newKeySet();
+
+    public JournaledLibraryStorage(LibraryStorage snapshotStorage) {
+        this(snapshotStorage, DEFAULT_COMPACTION_THRESHOLD_BYTES);
+    }
+
+    /**
+     * @param snapshotStorage          Storage holding the snapshots
+     * @param compactionThresholdBytes Journal size that triggers folding it into the snapshot
+     */
+    public JournaledLibraryStorage(LibraryStorage snapshotStorage, long compactionThresholdBytes) {
+        this.snapshotStorage = snapshotStorage;
+        this.compactionThresholdBytes = compactionThresholdBytes;
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Path dir = snapshotStorage.getDataDirectory();
+        this.songJournal = new MutationJournal<>(dir.resolve("songs.journal"), Song.class, Song::getId,
+                new MutationJournal.Snapshot<Song>() {
+                    @Override public List<Song> load() throws IOException { return snapshotStorage.loadSongs(); }
+                    @Override public void save(List<Song> songs) throws IOException { snapshotStorage.saveSongs(songs); }
+                    @Override public void stream(int chunkSize, Consumer<List<Song>> chunkConsumer) throws IOException {
+                        snapshotStorage.streamSongs(chunkSize, chunkConsumer);
+                    }
+                }, objectMapper);
+        this.albumJournal = new MutationJournal<>(dir.resolve("albums.journal"), Album.class, Album::getId,
+                new MutationJournal.Snapshot<Album>() {
+                    @Override public List<Album> load() throws IOException { return snapshotStorage.loadAlbums(); }
+                    @Override public void save(List<Album> albums) throws IOException { snapshotStorage.saveAlbums(albums); }
+                }, objectMapper);
+        this.playlistJournal = new MutationJournal<>(dir.resolve("playlists.journal"), Playlist.class, Playlist::getId,
+                new MutationJournal.Snapshot<Playlist>() {
+                    @Override public List<Playlist> load() throws IOException { return snapshotStorage.loadPlaylists(); }
+                    @Override public void save(List<Playlist> playlists) throws IOException { snapshotStorage.savePlaylists(playlists); }
+                }, objectMapper);
+
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "LibraryJournal-compactor");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /**
+     * Returns the storage that holds the snapshots.
+     */
+    public LibraryStorage getSnapshotStorage() {
+        return snapshotStorage;
+    }
+
+    @Override
+    public boolean supportsJournal() {
+        return true;
+    }
+
+    @Override
+    public void appendSongMutations(Collection<Song> upserts, Collection<Long> deletedIds) throws IOException {
+        compactIfNeeded(songJournal, songJournal.append(upserts, deletedIds, false));
+    }
+
+    @Override
+    public void appendAlbumMutations(Collection<Album> upserts, Collection<Long> deletedIds) throws IOException {
+        compactIfNeeded(albumJournal, albumJournal.append(upserts, deletedIds, false));
+    }
+
+    @Override
+    public void appendPlaylistMutations(Collection<Playlist> upserts, Collection<Long> deletedIds) throws IOException {
+        compactIfNeeded(playlistJournal, playlistJournal.append(upserts, deletedIds, false));
+    }
+
+    @Override
+    public void saveSongs(List<Song> songs) throws IOException {
+        compactIfNeeded(songJournal, songJournal.append(songs, Collections.emptyList(), true));
+    }
+
+    @Override
+    public List<Song> loadSongs() throws IOException {
+        List<Song> songs = songJournal.load();
+        compactIfNeeded(songJournal, songJournal.size());
+        return songs;
+    }
+
+    @Override
+    public void streamSongs(int chunkSize, Consumer<List<Song>> chunkConsumer) throws IOException {
+        songJournal.stream(chunkSize, chunkConsumer);
+        compactIfNeeded(songJournal, songJournal.size());
+    }
+
+    @Override
+    public void saveAlbums(List<Album> albums) throws IOException {
+        compactIfNeeded(albumJournal, albumJournal.append(albums, Collections.emptyList(), true));
+    }
+
+    @Override
+    public List<Album> loadAlbums() throws IOException {
+        List<Album> albums = albumJournal.load();
+        compactIfNeeded(albumJournal, albumJournal.size());
+        return albums;
+    }
+
+    @Override
+    public void saveArtists(List<Artist> artists) throws IOException {
+        snapshotStorage.saveArtists(artists);
+    }
+
+    @Override
+    public List<Artist> loadArtists() throws IOException {
+        return snapshotStorage.loadArtists();
+    }
+
+    @Override
+    public void savePlaylists(List<Playlist> playlists) throws IOException {
+        compactIfNeeded(playlistJournal, playlistJournal.append(playlists, Collections.emptyList(), true));
+    }
+
+    @Override
+    public List<Playlist> loadPlaylists() throws IOException {
+        List<Playlist> playlists = playlistJournal.load();
+        compactIfNeeded(playlistJournal, playlistJournal.size());
+        return playlists;
+    }
+
+    @Override
+    public Path getDataDirectory() {
+        return snapshotStorage.getDataDirectory();
+    }
+
+    @Override
+    public boolean hasExistingData() {
+        try {
+            return snapshotStorage.hasExistingData() || songJournal.size() > 0;
+        } catch (IOException e) {
+            return snapshotStorage.hasExistingData();
+        }
+    }
+
+    /**
+     * Folds all journals into their snapshots on the calling thread.
+     */
+    public void compactNow() throws IOException {
+        songJournal.compact();
+        albumJournal.compact();
+        playlistJournal.compact();
+    }
+
+    /**
+     * Stops the compactor and closes the journals. Journals that were not
+     * compacted are replayed on the next load.
+     */
+    @Override
+    public void close() {
+        compactor.shutdownNow();
+        songJournal.close();
+        albumJournal.close();
+        playlistJournal.close();
+    }
+
+    private void compactIfNeeded(MutationJournal<?> journal, long journalSize) {
+        if (journalSize < compactionThresholdBytes || !compactionsQueued.add(journal)) {
+            return;
+        }
+        try {
+            compactor.execute(() -> {
+                compactionsQueued.remove(journal);
+                try {
+                    journal.compact();
+                } catch (IOException e) {
+                    System.err.println("Failed to compact library journal: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            compactionsQueued.remove(journal);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.musicplayer.data.storage;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -16,6 +18,7 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * JSON-based storage implementation for persisting music library data.
@@ -34,10 +37,33 @@ public class JsonLibraryStorage implements LibraryStorage {
     private final Path dataDirectory;
     
     public JsonLibraryStorage() {
+        this(defaultDataDirectory());
+    }
+    
+    /**
+     * Creates a storage that keeps its files in the given directory.
+     *
+     * @param dataDirectory Directory holding the library data files
+     */
+    public JsonLibraryStorage(Path dataDirectory) {
         this.objectMapper = new ObjectMapper();
         this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        this.dataDirectory = dataDirectory;
         
-        // Create data directory in user's AppData/Local or equivalent
+        // Create the directory if it doesn't exist
+        try {
+            Files.createDirectories(dataDirectory);
+        } catch (IOException e) {
+            System.err.println("Failed to create data directory: " + e.getMessage());
+            throw new RuntimeException("Cannot create application data directory", e);
+        }
+    }
+    
+    /**
+     * Returns the platform-specific application data directory
+     * (AppData/Local or equivalent).
+     */
+    public static Path defaultDataDirectory() {
         String userHome = System.getProperty("user.home");
         String osName = System.getProperty("os.name").toLowerCase();
         
@@ -61,15 +87,7 @@ public class JsonLibraryStorage implements LibraryStorage {
             }
         }
         
-        this.dataDirectory = baseDir.resolve(APP_DATA_DIR);
-        
-        // Create the directory if it doesn't exist
-        try {
-            Files.createDirectories(dataDirectory);
-        } catch (IOException e) {
-            System.err.println("Failed to create data directory: " + e.getMessage());
-            throw new RuntimeException("Cannot create application data directory", e);
-        }
+        return baseDir.resolve(APP_DATA_DIR);
     }
     
     @Override
@@ -94,6 +112,37 @@ public class JsonLibraryStorage implements LibraryStorage {
         }
     }
     
+    /**
+     * Reads songs.json with a streaming parser, binding one song object at a
+     * time. If the file is corrupt, the songs before the damaged part are kept.
+     */
+    @Override
+    public void streamSongs(int chunkSize, Consumer<List<Song>> chunkConsumer) throws IOException {
+        File songsFile = dataDirectory.resolve(SONGS_FILE).toFile();
+        if (!songsFile.exists()) {
+            return;
+        }
+        
+        List<Song> chunk = new ArrayList<>(chunkSize);
+        try (JsonParser parser = objectMapper.getFactory().createParser(songsFile)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected an array of songs");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                chunk.add(objectMapper.readValue(parser, Song.class));
+                if (chunk.size() >= chunkSize) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to load songs from storage: " + e.getMessage());
+        }
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+    }
+    
     @Override
     public void saveAlbums(List<Album> albums) throws IOException {
         Path target = dataDirectory.resolve(ALBUMS_FILE);
@@ -2,7 +2,9 @@ package com.musicplayer.data.storage;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.musicplayer.data.models.Album;
 import com.musicplayer.data.models.Artist;
@@ -32,6 +34,22 @@ public interface LibraryStorage {
      */
     List<Song> loadSongs() throws IOException;
     
+    /**
+     * Loads the saved songs and hands them to {@code chunkConsumer} in chunks
+     * of at most {@code chunkSize}, so callers can use the first songs before
+     * the rest has been read. The default implementation loads everything first.
+     * 
+     * @param chunkSize     Maximum number of songs per chunk
+     * @param chunkConsumer Receiver for each chunk, called on the calling thread
+     * @throws IOException If there's an error reading from storage
+     */
+    default void streamSongs(int chunkSize, Consumer<List<Song>> chunkConsumer) throws IOException {
+        List<Song> songs = loadSongs();
+        for (int i = 0; i < songs.size(); i += chunkSize) {
+            chunkConsumer.accept(new java.util.ArrayList<>(songs.subList(i, Math.min(songs.size(), i + chunkSize))));
+        }
+    }
+    
     /**
      * Saves the list of albums to persistent storage.
      * 
@@ -80,6 +98,47 @@ public interface LibraryStorage {
      */
     List<Playlist> loadPlaylists() throws IOException;
     
+    /**
+     * Checks whether this storage can record individual mutations with the
+     * append methods instead of rewriting whole lists.
+     * 
+     * @return true if the append methods are supported
+     */
+    default boolean supportsJournal() {
+        return false;
+    }
+    
+    /**
+     * Records inserted or updated songs and deleted song IDs without rewriting
+     * the other songs.
+     * 
+     * @param upserts    Songs to insert or update
+     * @param deletedIds IDs of songs to delete
+     * @throws IOException If there's an error writing to storage
+     * @throws UnsupportedOperationException If {@link #supportsJournal()} is false
+     */
+    default void appendSongMutations(Collection<Song> upserts, Collection<Long> deletedIds) throws IOException {
+        throw new UnsupportedOperationException("Journal not supported");
+    }
+    
+    /**
+     * Records inserted or updated albums and deleted album IDs.
+     * 
+     * @see #appendSongMutations(Collection, Collection)
+     */
+    default void appendAlbumMutations(Collection<Album> upserts, Collection<Long> deletedIds) throws IOException {
+        throw new UnsupportedOperationException("Journal not supported");
+    }
+    
+    /**
+     * Records inserted or updated playlists and deleted playlist IDs.
+     * 
+     * @see #appendSongMutations(Collection, Collection)
+     */
+    default void appendPlaylistMutations(Collection<Playlist> upserts, Collection<Long> deletedIds) throws IOException {
+        throw new UnsupportedOperationException("Journal not supported");
+    }
+    
     /**
      * Gets the path to the data directory where files are stored.
      * 
@@ -93,4 +152,11 @@ public interface LibraryStorage {
      * @return true if data exists, false otherwise
      */
     boolean hasExistingData();
+    
+    /**
+     * Releases files or connections held by this storage when the
+     * application shuts down. Does nothing by default.
+     */
+    default void close() {
+    }
 }
@@ -0,0 +1,59 @@
+package com.musicplayer.data.storage;
+
+import com.musicplayer.data.models.Settings.LibraryStorageFormat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Creates the {@link LibraryStorage} for the configured storage format.
+ * The JSON and binary snapshot storages are wrapped in a
+ * {@link JournaledLibraryStorage}; the SQL storage updates rows in place.
+ */
+public final class LibraryStorageFactory {
+
+    private LibraryStorageFactory() {}
+
+    /**
+     * Creates a storage in the default application data directory.
+     */
+    public static LibraryStorage create(LibraryStorageFormat format) {
+        return create(format, JsonLibraryStorage.defaultDataDirectory());
+    }
+
+    /**
+     * Creates a storage in the given directory. Selecting the binary format
+     * migrates an existing JSON song library first, and selecting JSON again
+     * migrates it back; selecting the SQL format copies the existing library
+     * into an empty database. If the database cannot be opened, the JSON
+     * storage is used.
+     *
+     * @param format        Storage format, null for the default (JSON)
+     * @param dataDirectory Directory holding the library data files
+     */
+    public static LibraryStorage create(LibraryStorageFormat format, Path dataDirectory) {
+        if (format == LibraryStorageFormat.SQL) {
+            try {
+                SqlLibraryStorage storage = new SqlLibraryStorage(dataDirectory);
+                LibraryStorageMigrator.migrateToSql(dataDirectory, storage);
+                return storage;
+            } catch (IOException e) {
+                System.err.println(e.getMessage() + "; using JSON library storage");
+            }
+        }
+
+        if (format == LibraryStorageFormat.BINARY) {
+            BinaryLibraryStorage storage = new BinaryLibraryStorage(dataDirectory);
+            LibraryStorageMigrator.migrateJsonToBinary(dataDirectory);
+            return new JournaledLibraryStorage(storage);
+        }
+
+        LibraryStorageMigrator.migrateBinaryToJson(dataDirectory);
+        if (format != LibraryStorageFormat.SQL && Files.exists(dataDirectory.resolve(SqlLibraryStorage.DATABASE_FILE))) {
+            System.err.println("Changes made while the embedded database format was selected "
+                    + "are not in the JSON library files");
+        }
+        return new JournaledLibraryStorage(new JsonLibraryStorage(dataDirectory));
+    }
+}
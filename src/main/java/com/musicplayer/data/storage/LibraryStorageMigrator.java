@@ -0,0 +1,179 @@
+package com.musicplayer.data.storage;
+
+import com.musicplayer.data.models.Song;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Conversions of the library between songs.json and songs.bin, in both
+ * directions, and from the JSON or binary files to the embedded SQL database.
+ * The source file is kept as songs.json.bak or songs.bin.bak once the copy
+ * has been written and read back successfully. The SQL conversion leaves the
+ * files in place.
+ */
+public final class LibraryStorageMigrator {
+
+    static final String JSON_SONGS_FILE = "songs.json";
+    static final String JSON_BACKUP_FILE = "songs.json.bak";
+    static final String BINARY_BACKUP_FILE = "songs.bin.bak";
+
+    private LibraryStorageMigrator() {}
+
+    /**
+     * Converts songs.json in {@code dataDirectory} to songs.bin if there is a JSON
+     * library and no binary one yet.
+     *
+     * @param dataDirectory Directory holding the library data files
+     * @return Number of songs migrated, or -1 if nothing was migrated
+     */
+    public static int migrateJsonToBinary(Path dataDirectory) {
+        Path jsonFile = dataDirectory.resolve(JSON_SONGS_FILE);
+        Path binaryFile = dataDirectory.resolve(BinaryLibraryStorage.SONGS_FILE);
+        if (!Files.exists(jsonFile) || Files.exists(binaryFile)) {
+            return -1;
+        }
+
+        try {
+            List<Song> songs = new JsonLibraryStorage(dataDirectory).loadSongs();
+            // loadSongs hides a corrupt file behind an empty list; don't bury such a file in a backup
+            if (songs.isEmpty() && Files.size(jsonFile) > 4) {
+                System.err.println("Skipping library migration: " + jsonFile + " could not be read");
+                return -1;
+            }
+
+            BinaryLibraryStorage binaryStorage = new BinaryLibraryStorage(dataDirectory);
+            binaryStorage.saveSongs(songs);
+            if (binaryStorage.loadSongs().size() != songs.size()) {
+                Files.deleteIfExists(binaryFile);
+                System.err.println("Library migration failed verification; keeping " + jsonFile);
+                return -1;
+            }
+
+            Files.move(jsonFile, dataDirectory.resolve(JSON_BACKUP_FILE), StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Migrated " + songs.size() + " songs to binary library storage");
+            return songs.size();
+        } catch (IOException e) {
+            System.err.println("Failed to migrate library to binary storage: " + e.getMessage());
+            try {
+                Files.deleteIfExists(binaryFile);
+            } catch (IOException ignored) {
+                // the JSON library is untouched either way
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Converts songs.bin in {@code dataDirectory} back to songs.json if there is
+     * a binary library and no JSON one, as after switching back from the binary
+     * format.
+     *
+     * @param dataDirectory Directory holding the library data files
+     * @return Number of songs migrated, or -1 if nothing was migrated
+     */
+    public static int migrateBinaryToJson(Path dataDirectory) {
+        Path binaryFile = dataDirectory.resolve(BinaryLibraryStorage.SONGS_FILE);
+        Path jsonFile = dataDirectory.resolve(JSON_SONGS_FILE);
+        if (!Files.exists(binaryFile) || Files.exists(jsonFile)) {
+            return -1;
+        }
+
+        try {
+            List<Song> songs = new BinaryLibraryStorage(dataDirectory).loadSongs();
+            // loadSongs hides a corrupt file behind an empty list; don't bury such a file in a backup
+            if (songs.isEmpty() && Files.size(binaryFile) > BinaryLibraryStorage.EMPTY_FILE_SIZE) {
+                System.err.println("Skipping library migration: " + binaryFile + " could not be read");
+                return -1;
+            }
+
+            JsonLibraryStorage jsonStorage = new JsonLibraryStorage(dataDirectory);
+            jsonStorage.saveSongs(songs);
+            if (jsonStorage.loadSongs().size() != songs.size()) {
+                Files.deleteIfExists(jsonFile);
+                System.err.println("Library migration failed verification; keeping " + binaryFile);
+                return -1;
+            }
+
+            Files.move(binaryFile, dataDirectory.resolve(BINARY_BACKUP_FILE), StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Migrated " + songs.size() + " songs back to JSON library storage");
+            return songs.size();
+        } catch (IOException e) {
+            System.err.println("Failed to migrate library to JSON storage: " + e.getMessage());
+            try {
+                Files.deleteIfExists(jsonFile);
+            } catch (IOException ignored) {
+                // the binary library is untouched either way
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Copies the library (songs, albums, artists and playlists, with any
+     * journaled changes applied) from the JSON or binary files into
+     * {@code database} if the database is empty and there is a library to copy.
+     *
+     * @param dataDirectory Directory holding the library data files
+     * @param database      Freshly opened SQL storage in that directory
+     * @return Number of songs migrated, or -1 if nothing was migrated
+     */
+    public static int migrateToSql(Path dataDirectory, SqlLibraryStorage database) {
+        boolean binary = !Files.exists(dataDirectory.resolve(JSON_SONGS_FILE))
+                && Files.exists(dataDirectory.resolve(BinaryLibraryStorage.SONGS_FILE));
+        // A library saved only through the journal has no snapshot file yet
+        if (!binary && !Files.exists(dataDirectory.resolve(JSON_SONGS_FILE))
+                && !Files.exists(dataDirectory.resolve("songs.journal"))) {
+            return -1;
+        }
+        if (database.hasExistingData()) {
+            return -1;
+        }
+
+        LibraryStorage snapshot = binary ? new BinaryLibraryStorage(dataDirectory) : new JsonLibraryStorage(dataDirectory);
+        JournaledLibraryStorage source = new JournaledLibraryStorage(snapshot);
+        try {
+            List<Song> songs = source.loadSongs();
+            Path jsonFile = dataDirectory.resolve(JSON_SONGS_FILE);
+            if (songs.isEmpty() && Files.exists(jsonFile) && Files.size(jsonFile) > 4) {
+                System.err.println("Skipping library migration: " + jsonFile + " could not be read");
+                return -1;
+            }
+
+            database.saveSongs(songs);
+            database.saveAlbums(source.loadAlbums());
+            database.saveArtists(source.loadArtists());
+            database.savePlaylists(source.loadPlaylists());
+            if (database.loadSongs().size() != songs.size()) {
+                clear(database);
+                System.err.println("Library migration to the embedded database failed verification");
+                return -1;
+            }
+            System.out.println("Migrated " + songs.size() + " songs to the embedded library database");
+            return songs.size();
+        } catch (IOException e) {
+            System.err.println("Failed to migrate library to the embedded database: " + e.getMessage());
+            clear(database);
+            return -1;
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Empties the database after a failed migration, so the next start tries again.
+     */
+    private static void clear(SqlLibraryStorage database) {
+        try {
+            database.saveSongs(List.of());
+            database.saveAlbums(List.of());
+            database.saveArtists(List.of());
+            database.savePlaylists(List.of());
+        } catch (IOException ignored) {
+            // the files being migrated are untouched either way
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.musicplayer.data.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of upserts and deletes for one entity type, layered on top
+ * of a snapshot (e.g. songs.json).
+ * <p>
+ * Each record is {@code int payloadLength, int crc32, byte type, payload}, where
+ * the checksum covers the type byte and the payload. Upserts carry the entity
+ * as JSON, deletes its ID, and a clear record has no payload. Replay stops at
+ * the first incomplete or corrupt record, so a crash mid-append only loses the
+ * record being written.
+ * <p>
+ * Compaction moves the journal aside to {@code <name>.old}, folds it into the
+ * snapshot and deletes it. Every record holds the full entity state, so
+ * replaying a journal onto a snapshot that already contains it yields the
+ * same result; a crash at any point of a compaction is therefore harmless.
+ */
+final class MutationJournal<T> {
+
+    /** Reads and writes the snapshot the journal is layered on. */
+    interface Snapshot<T> {
+        List<T> load() throws IOException;
+        void save(List<T> entities) throws IOException;
+
+        default void stream(int chunkSize, Consumer<List<T>> chunkConsumer) throws IOException {
+            List<T> entities = load();
+            for (int i = 0; i < entities.size(); i += chunkSize) {
+                chunkConsumer.accept(new ArrayList<>(entities.subList(i, Math.min(entities.size(), i + chunkSize))));
+            }
+        }
+    }
+
+    /** Receives replayed records. */
+    private interface RecordSink<T> {
+        void upsert(long id, T entity);
+        void delete(long id);
+        void clear();
+    }
+
+    static final byte UPSERT = 1;
+    static final byte DELETE = 2;
+    static final byte CLEAR = 3;
+
+    private static final int RECORD_HEADER_SIZE = 9;
+
+    private final Path file;
+    private final Path oldFile;
+    private final Class<T> type;
+    private final ToLongFunction<T> idOf;
+    private final Snapshot<T> snapshot;
+    private final ObjectMapper objectMapper;
+    private final Object compactLock = new Object(); // serializes load and compaction
+
+    // Guarded by this
+    private FileChannel channel;
+    private long size;
+
+    MutationJournal(Path file, Class<T> type, ToLongFunction<T> idOf, Snapshot<T> snapshot, ObjectMapper objectMapper) {
+        this.file = file;
+        this.oldFile = file.resolveSibling(file.getFileName().toString() + ".old");
+        this.type = type;
+        this.idOf = idOf;
+        this.snapshot = snapshot;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Loads the snapshot and replays the journal onto it.
+     */
+    List<T> load() throws IOException {
+        synchronized (compactLock) {
+            Map<Long, T> state = new LinkedHashMap<>();
+            for (T entity : snapshot.load()) {
+                state.put(idOf.applyAsLong(entity), entity);
+            }
+            replayJournals(into(state));
+            return new ArrayList<>(state.values());
+        }
+    }
+
+    /**
+     * Streams the snapshot with the journal applied, in chunks of at most
+     * {@code chunkSize}. The journal is read first and kept in memory as an
+     * overlay; the snapshot itself is never fully materialized here.
+     */
+    void stream(int chunkSize, Consumer<List<T>> chunkConsumer) throws IOException {
+        synchronized (compactLock) {
+            Map<Long, T> upserts = new LinkedHashMap<>();
+            Set<Long> deleted = new HashSet<>();
+            boolean[] cleared = new boolean[1];
+            replayJournals(new RecordSink<T>() {
+                @Override public void upsert(long id, T entity) { upserts.put(id, entity); deleted.remove(id); }
+                @Override public void delete(long id) { upserts.remove(id); deleted.add(id); }
+                @Override public void clear() { upserts.clear(); deleted.clear(); cleared[0] = true; }
+            });
+
+            List<List<T>> pending = new ArrayList<>(1);
+            pending.add(new ArrayList<>(chunkSize));
+            Consumer<T> emit = entity -> {
+                List<T> chunk = pending.get(0);
+                chunk.add(entity);
+                if (chunk.size() >= chunkSize) {
+                    chunkConsumer.accept(chunk);
+                    pending.set(0, new ArrayList<>(chunkSize));
+                }
+            };
+            if (!cleared[0]) {
+                snapshot.stream(chunkSize, chunk -> {
+                    for (T entity : chunk) {
+                        long id = idOf.applyAsLong(entity);
+                        if (deleted.contains(id)) continue;
+                        T updated = upserts.remove(id);
+                        emit.accept(updated != null ? updated : entity);
+                    }
+                });
+            }
+            upserts.values().forEach(emit);
+            if (!pending.get(0).isEmpty()) {
+                chunkConsumer.accept(pending.get(0));
+            }
+        }
+    }
+
+    /**
+     * Replays the journal left over from an interrupted compaction, if any, and
+     * the current journal. A torn record at the end of the current journal is
+     * cut off so later appends follow the last good record.
+     */
+    private void replayJournals(RecordSink<T> sink) throws IOException {
+        if (Files.exists(oldFile)) {
+            replay(oldFile, sink);
+        }
+        synchronized (this) {
+            if (Files.exists(file)) {
+                long good = replay(file, sink);
+                long actual = Files.size(file);
+                if (good < actual) {
+                    System.err.println("Discarding " + (actual - good) + " bytes of incomplete journal records in " + file);
+                    FileChannel ch = openChannel();
+                    ch.truncate(good);
+                    ch.position(good);
+                    size = good;
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends records for the given mutations and forces them to disk.
+     *
+     * @param clear Whether the records start with a clear of all entities
+     * @return Size of the journal in bytes after the append
+     */
+    synchronized long append(Collection<T> upserts, Collection<Long> deletedIds, boolean clear) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (clear) {
+            writeRecord(out, CLEAR, new byte[0]);
+        }
+        for (T entity : upserts) {
+            writeRecord(out, UPSERT, objectMapper.writeValueAsBytes(entity));
+        }
+        for (long id : deletedIds) {
+            writeRecord(out, DELETE, ByteBuffer.allocate(Long.BYTES).putLong(id).array());
+        }
+        if (bytes.size() == 0) {
+            return size;
+        }
+
+        FileChannel ch = openChannel();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        try {
+            while (buffer.hasRemaining()) {
+                ch.write(buffer);
+            }
+            ch.force(false);
+            size = ch.position();
+        } catch (IOException e) {
+            // Cut off the partial write so that later records stay reachable on replay
+            try {
+                ch.truncate(size);
+                ch.position(size);
+            } catch (IOException ignored) {
+                // replay will stop at the torn record instead
+            }
+            throw e;
+        }
+        return size;
+    }
+
+    /**
+     * Folds the journal into the snapshot. Appends made meanwhile go to a fresh journal.
+     */
+    void compact() throws IOException {
+        synchronized (compactLock) {
+            if (Files.exists(oldFile)) {
+                fold(); // left over from an interrupted compaction
+            }
+            synchronized (this) {
+                if (size == 0 && (!Files.exists(file) || Files.size(file) == 0)) {
+                    return;
+                }
+                closeChannel();
+                Files.move(file, oldFile, StandardCopyOption.ATOMIC_MOVE);
+                size = 0;
+                openChannel();
+            }
+            fold();
+        }
+    }
+
+    synchronized long size() throws IOException {
+        if (channel == null) {
+            return Files.exists(file) ? Files.size(file) : 0;
+        }
+        return size;
+    }
+
+    synchronized void close() {
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            System.err.println("Failed to close " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void fold() throws IOException {
+        Map<Long, T> state = new LinkedHashMap<>();
+        for (T entity : snapshot.load()) {
+            state.put(idOf.applyAsLong(entity), entity);
+        }
+        replay(oldFile, into(state));
+        snapshot.save(new ArrayList<>(state.values()));
+        Files.delete(oldFile);
+    }
+
+    /**
+     * Applies the records of {@code journalFile} to {@code state}.
+     *
+     * @return Offset just past the last valid record
+     */
+    private long replay(Path journalFile, RecordSink<T> sink) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journalFile));
+        CRC32 crc = new CRC32();
+        long good = 0;
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            byte recordType = buffer.get();
+            if (length < 0 || length > buffer.remaining()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            crc.reset();
+            crc.update(recordType);
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            try {
+                apply(recordType, payload, sink);
+            } catch (IOException | RuntimeException e) {
+                break;
+            }
+            good = buffer.position();
+        }
+        return good;
+    }
+
+    private void apply(byte recordType, byte[] payload, RecordSink<T> sink) throws IOException {
+        switch (recordType) {
+            case UPSERT:
+                T entity = objectMapper.readValue(payload, type);
+                sink.upsert(idOf.applyAsLong(entity), entity);
+                break;
+            case DELETE:
+                sink.delete(ByteBuffer.wrap(payload).getLong());
+                break;
+            case CLEAR:
+                sink.clear();
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + recordType);
+        }
+    }
+
+    private static <T> RecordSink<T> into(Map<Long, T> state) {
+        return new RecordSink<T>() {
+            @Override public void upsert(long id, T entity) { state.put(id, entity); }
+            @Override public void delete(long id) { state.remove(id); }
+            @Override public void clear() { state.clear(); }
+        };
+    }
+
+    private static void writeRecord(DataOutputStream out, byte recordType, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(recordType);
+        crc.update(payload);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.writeByte(recordType);
+        out.write(payload);
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            Files.createDirectories(file.getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            size = channel.size();
+            channel.position(size);
+        }
+        return channel;
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
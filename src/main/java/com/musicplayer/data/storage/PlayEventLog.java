@@ -0,0 +1,192 @@
+package com.musicplayer.data.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only log of song plays, stored as plays.log next to songs.json.
+ * <p>
+ * Each play is a fixed {@value #RECORD_SIZE}-byte record of
+ * {@code long songId, long timestamp, long listenedMillis}, so recording a
+ * play is one small append instead of a rewrite of the library. A torn record
+ * at the end of the file, left by a crash mid-append, is cut off on load.
+ */
+public class PlayEventLog {
+
+    private static final String LOG_FILE = "plays.log";
+    static final int RECORD_SIZE = 3 * Long.BYTES;
+
+    /**
+     * One play of a song.
+     */
+    public static final class PlayEvent {
+        private final long songId;
+        private final long timestamp;
+        private final long listenedMillis;
+
+        public PlayEvent(long songId, long timestamp, long listenedMillis) {
+            this.songId = songId;
+            this.timestamp = timestamp;
+            this.listenedMillis = listenedMillis;
+        }
+
+        public long getSongId() { return songId; }
+        public long getTimestamp() { return timestamp; }
+        public long getListenedMillis() { return listenedMillis; }
+    }
+
+    private final Path logFile;
+    // Guarded by this; only used when there is no log file
+    private final List<PlayEvent> memoryEvents = new ArrayList<>();
+    private FileChannel channel;
+
+    /**
+     * Creates a log that only lives in memory.
+     */
+    public PlayEventLog() {
+        this.logFile = null;
+    }
+
+    /**
+     * Creates a log persisted in the given data directory.
+     *
+     * @param dataDirectory Directory holding the library data files
+     */
+    public PlayEventLog(Path dataDirectory) {
+        this.logFile = dataDirectory.resolve(LOG_FILE);
+    }
+
+    /**
+     * Appends a play. The record is written but not forced to disk; losing
+     * the last few plays in a power cut is acceptable for statistics.
+     */
+    public synchronized void append(long songId, long timestamp, long listenedMillis) {
+        if (logFile == null) {
+            memoryEvents.add(new PlayEvent(songId, timestamp, listenedMillis));
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        buffer.putLong(songId).putLong(timestamp).putLong(listenedMillis).flip();
+        try {
+            FileChannel ch = openChannel();
+            while (buffer.hasRemaining()) {
+                ch.write(buffer);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to append to play log: " + e.getMessage());
+            closeChannel();
+        }
+    }
+
+    /**
+     * Reads every play in the log, oldest first.
+     */
+    public synchronized List<PlayEvent> readAll() {
+        if (logFile == null) {
+            return new ArrayList<>(memoryEvents);
+        }
+        List<PlayEvent> events = new ArrayList<>();
+        if (!Files.exists(logFile)) {
+            return events;
+        }
+        try {
+            FileChannel ch = openChannel();
+            long good = ch.size();
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(good, 64L * RECORD_SIZE * 1024));
+            long position = 0;
+            while (position < good) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), good - position));
+                while (buffer.hasRemaining()) {
+                    if (ch.read(buffer, position + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    events.add(new PlayEvent(buffer.getLong(), buffer.getLong(), buffer.getLong()));
+                }
+                position += buffer.limit();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read play log: " + e.getMessage());
+            closeChannel();
+        }
+        return events;
+    }
+
+    /**
+     * Drops the plays older than {@code cutoff}, rewriting the log through a
+     * temporary file.
+     *
+     * @return Number of plays dropped
+     */
+    public synchronized int retainSince(long cutoff) {
+        List<PlayEvent> events = readAll();
+        List<PlayEvent> kept = new ArrayList<>(events.size());
+        for (PlayEvent event : events) {
+            if (event.timestamp >= cutoff) {
+                kept.add(event);
+            }
+        }
+        int dropped = events.size() - kept.size();
+        if (dropped == 0) {
+            return 0;
+        }
+        if (logFile == null) {
+            memoryEvents.clear();
+            memoryEvents.addAll(kept);
+            return dropped;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(kept.size() * RECORD_SIZE);
+        for (PlayEvent event : kept) {
+            buffer.putLong(event.songId).putLong(event.timestamp).putLong(event.listenedMillis);
+        }
+        Path tempFile = logFile.resolveSibling(LOG_FILE + ".tmp");
+        try {
+            Files.write(tempFile, buffer.array());
+            closeChannel();
+            Files.move(tempFile, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return dropped;
+        } catch (IOException e) {
+            System.err.println("Failed to compact play log: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    public synchronized void close() {
+        closeChannel();
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            Files.createDirectories(logFile.getParent());
+            channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            long good = size - size % RECORD_SIZE;
+            if (good < size) {
+                System.err.println("Discarding " + (size - good) + " bytes of incomplete play records in " + logFile);
+                channel.truncate(good);
+            }
+            channel.position(good);
+        }
+        return channel;
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            channel = null;
+        }
+    }
+}
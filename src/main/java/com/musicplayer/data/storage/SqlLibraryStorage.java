@@ -0,0 +1,321 @@
+package com.musicplayer.data.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.musicplayer.data.models.Album;
+import com.musicplayer.data.models.Artist;
+import com.musicplayer.data.models.Playlist;
+import com.musicplayer.data.models.Song;
+
+/**
+ * Library storage in an embedded H2 database (library.mv.db in the data
+ * directory), opened in-process with no server.
+ * <p>
+ * Songs are rows with one column per field, keyed by ID. Albums, artists and
+ * playlists are rows holding the entity as JSON. The append methods update single rows in one
+ * transaction, so saving a changed song no longer rewrites the library, and
+ * this storage needs no {@link JournaledLibraryStorage} around it.
+ * Thread-safe; statements run one at a time on a single connection.
+ */
+public class SqlLibraryStorage implements LibraryStorage, AutoCloseable {
+
+    static final String DATABASE_NAME = "library";
+    static final String DATABASE_FILE = DATABASE_NAME + ".mv.db";
+
+    private static final String SONG_COLUMNS = "id, title, artist, album, genre, duration, file_path, "
+            + "track_number, release_year, play_count, last_played, favorite, rating";
+    private static final String SELECT_SONGS = "SELECT " + SONG_COLUMNS + " FROM songs";
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS songs ("
+            + "id BIGINT PRIMARY KEY, title VARCHAR, artist VARCHAR, album VARCHAR, genre VARCHAR, "
+            + "duration BIGINT NOT NULL, file_path VARCHAR, track_number INT NOT NULL, release_year INT NOT NULL, "
+            + "play_count INT NOT NULL, last_played BIGINT NOT NULL, favorite BOOLEAN NOT NULL, rating INT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS albums (id BIGINT PRIMARY KEY, data VARCHAR NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS artists (id BIGINT PRIMARY KEY, data VARCHAR NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS playlists (id BIGINT PRIMARY KEY, data VARCHAR NOT NULL)"
+    };
+
+    private final Path dataDirectory;
+    private final Connection connection;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Opens the database in the given directory, creating it if needed.
+     *
+     * @param dataDirectory Directory holding the library data files
+     * @throws IOException If the database cannot be opened, e.g. because
+     *                     another running instance holds it
+     */
+    public SqlLibraryStorage(Path dataDirectory) throws IOException {
+        this.dataDirectory = dataDirectory;
+        Files.createDirectories(dataDirectory);
+        String url = "jdbc:h2:file:" + dataDirectory.resolve(DATABASE_NAME).toAbsolutePath();
+        try {
+            this.connection = DriverManager.getConnection(url, "sa", "");
+            try (Statement statement = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            }
+            connection.setAutoCommit(false);
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IOException("Cannot open library database: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replaces the stored songs with {@code songs} in one transaction. The
+     * repository only does this after the library was cleared; changes to
+     * single songs go through {@link #appendSongMutations}.
+     */
+    @Override
+    public synchronized void saveSongs(List<Song> songs) throws IOException {
+        transaction(() -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM songs");
+            }
+            upsertSongs(songs);
+        });
+    }
+
+    @Override
+    public List<Song> loadSongs() throws IOException {
+        List<Song> songs = new ArrayList<>();
+        streamSongs(Integer.MAX_VALUE, songs::addAll);
+        return songs;
+    }
+
+    @Override
+    public synchronized void streamSongs(int chunkSize, Consumer<List<Song>> chunkConsumer) throws IOException {
+        try (PreparedStatement select = connection.prepareStatement(SELECT_SONGS + " ORDER BY id")) {
+            select.setFetchSize(Math.min(chunkSize, 1000));
+            List<Song> chunk = new ArrayList<>();
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    chunk.add(readSong(rows));
+                    if (chunk.size() >= chunkSize) {
+                        chunkConsumer.accept(chunk);
+                        chunk = new ArrayList<>();
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to load songs: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean supportsJournal() {
+        return true;
+    }
+
+    @Override
+    public synchronized void appendSongMutations(Collection<Song> upserts, Collection<Long> deletedIds) throws IOException {
+        transaction(() -> {
+            upsertSongs(upserts);
+            deleteRows("songs", deletedIds);
+        });
+    }
+
+    @Override
+    public synchronized void appendAlbumMutations(Collection<Album> upserts, Collection<Long> deletedIds) throws IOException {
+        transaction(() -> {
+            upsertDocuments("albums", upserts, Album::getId);
+            deleteRows("albums", deletedIds);
+        });
+    }
+
+    @Override
+    public synchronized void appendPlaylistMutations(Collection<Playlist> upserts, Collection<Long> deletedIds) throws IOException {
+        transaction(() -> {
+            upsertDocuments("playlists", upserts, Playlist::getId);
+            deleteRows("playlists", deletedIds);
+        });
+    }
+
+    @Override
+    public synchronized void saveAlbums(List<Album> albums) throws IOException {
+        replaceDocuments("albums", albums, Album::getId);
+    }
+
+    @Override
+    public synchronized List<Album> loadAlbums() throws IOException {
+        return loadDocuments("albums", Album.class);
+    }
+
+    @Override
+    public synchronized void saveArtists(List<Artist> artists) throws IOException {
+        replaceDocuments("artists", artists, Artist::getId);
+    }
+
+    @Override
+    public synchronized List<Artist> loadArtists() throws IOException {
+        return loadDocuments("artists", Artist.class);
+    }
+
+    @Override
+    public synchronized void savePlaylists(List<Playlist> playlists) throws IOException {
+        replaceDocuments("playlists", playlists, Playlist::getId);
+    }
+
+    @Override
+    public synchronized List<Playlist> loadPlaylists() throws IOException {
+        return loadDocuments("playlists", Playlist.class);
+    }
+
+    @Override
+    public Path getDataDirectory() {
+        return dataDirectory;
+    }
+
+    @Override
+    public synchronized boolean hasExistingData() {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT (SELECT COUNT(*) FROM songs) "
+                     + "+ (SELECT COUNT(*) FROM albums) + (SELECT COUNT(*) FROM playlists)")) {
+            return rows.next() && rows.getLong(1) > 0;
+        } catch (SQLException e) {
+            System.err.println("Failed to query library database: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Closes the database connection. The storage cannot be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close library database: " + e.getMessage());
+        }
+    }
+
+    /** Body of a transaction. */
+    private interface SqlWork {
+        void run() throws SQLException, IOException;
+    }
+
+    /**
+     * Runs {@code work} and commits it, or rolls everything back if it fails.
+     */
+    private void transaction(SqlWork work) throws IOException {
+        try {
+            work.run();
+            connection.commit();
+        } catch (SQLException | IOException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+                // the original failure is the one worth reporting
+            }
+            throw e instanceof IOException ? (IOException) e
+                    : new IOException("Library database update failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void upsertSongs(Collection<Song> songs) throws SQLException {
+        if (songs.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement merge = connection.prepareStatement("MERGE INTO songs (" + SONG_COLUMNS
+                + ") KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (Song song : songs) {
+                merge.setLong(1, song.getId());
+                merge.setString(2, song.getTitle());
+                merge.setString(3, song.getArtist());
+                merge.setString(4, song.getAlbum());
+                merge.setString(5, song.getGenre());
+                merge.setLong(6, song.getDuration());
+                merge.setString(7, song.getFilePath());
+                merge.setInt(8, song.getTrackNumber());
+                merge.setInt(9, song.getYear());
+                merge.setInt(10, song.getPlayCount());
+                merge.setLong(11, song.getLastPlayed());
+                merge.setBoolean(12, song.isFavorite());
+                merge.setInt(13, song.getRating());
+                merge.addBatch();
+            }
+            merge.executeBatch();
+        }
+    }
+
+    private static Song readSong(ResultSet rows) throws SQLException {
+        Song song = new Song(rows.getLong(1), rows.getString(2), rows.getString(3), rows.getString(4),
+                rows.getString(5), rows.getLong(6), rows.getString(7), rows.getInt(8), rows.getInt(9));
+        song.setPlayCount(rows.getInt(10));
+        song.setLastPlayed(rows.getLong(11));
+        song.setFavorite(rows.getBoolean(12));
+        song.setRating(rows.getInt(13));
+        return song;
+    }
+
+    private <T> void replaceDocuments(String table, List<T> entities, ToLongFunction<T> idOf) throws IOException {
+        transaction(() -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DELETE FROM " + table);
+            }
+            upsertDocuments(table, entities, idOf);
+        });
+    }
+
+    private <T> void upsertDocuments(String table, Collection<T> entities, ToLongFunction<T> idOf) throws SQLException, IOException {
+        if (entities.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement merge = connection.prepareStatement("MERGE INTO " + table + " (id, data) KEY (id) VALUES (?, ?)")) {
+            for (T entity : entities) {
+                merge.setLong(1, idOf.applyAsLong(entity));
+                merge.setString(2, objectMapper.writeValueAsString(entity));
+                merge.addBatch();
+            }
+            merge.executeBatch();
+        }
+    }
+
+    private void deleteRows(String table, Collection<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE id = ?")) {
+            for (long id : ids) {
+                delete.setLong(1, id);
+                delete.addBatch();
+            }
+            delete.executeBatch();
+        }
+    }
+
+    private <T> List<T> loadDocuments(String table, Class<T> type) throws IOException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT data FROM " + table + " ORDER BY id")) {
+            List<T> entities = new ArrayList<>();
+            while (rows.next()) {
+                entities.add(objectMapper.readValue(rows.getString(1), type));
+            }
+            return entities;
+        } catch (SQLException e) {
+            throw new IOException("Failed to load " + table + ": " + e.getMessage(), e);
+        }
+    }
+}
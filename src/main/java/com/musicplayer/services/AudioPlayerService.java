@@ -7,6 +7,7 @@ import com.musicplayer.core.audio.HybridAudioEngine;
 import com.musicplayer.core.playlist.AdvancedPlaylistEngine;
 import com.musicplayer.core.playlist.PlaylistEngine;
 import com.musicplayer.data.models.Song;
+import com.musicplayer.data.repositories.SongRegistry;
 
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
@@ -23,8 +24,15 @@ public class AudioPlayerService {
     private boolean suppressErrorDialogs = false;
     
     public AudioPlayerService() {
+        this(null);
+    }
+    
+    /**
+     * @param songRegistry Registry the play queue resolves songs through, or null
+     */
+    public AudioPlayerService(SongRegistry songRegistry) {
         this.audioEngine = new HybridAudioEngine();
-        this.playlistEngine = new AdvancedPlaylistEngine();
+        this.playlistEngine = new AdvancedPlaylistEngine(songRegistry);
         
         // Set up audio engine callbacks
         audioEngine.setOnSongEnded(this::handleSongEnded);
@@ -10,6 +10,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,6 +19,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.musicplayer.data.models.Song;
+import com.musicplayer.data.storage.CoalescingJsonWriter;
 
 /**
  * Tracks audio conversion history to avoid repeatedly prompting users
@@ -30,13 +32,15 @@ public class ConversionTracker {
     
     private final ObjectMapper objectMapper;
     private final Path historyFilePath;
-    private Map<String, ConversionRecord> conversionHistory;
+    private final CoalescingJsonWriter writer = CoalescingJsonWriter.shared();
+    // Concurrent so the writer thread can serialize it while it changes
+    private volatile Map<String, ConversionRecord> conversionHistory;
     
     public ConversionTracker() {
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
         this.historyFilePath = Paths.get(CONVERSION_HISTORY_FILE);
-        this.conversionHistory = new HashMap<>();
+        this.conversionHistory = new ConcurrentHashMap<>();
         loadConversionHistory();
     }
     
@@ -238,33 +242,28 @@ public class ConversionTracker {
      * Load conversion history from JSON file.
      */
     private void loadConversionHistory() {
+        writer.flush(historyFilePath);
         try {
             if (Files.exists(historyFilePath)) {
                 String json = Files.readString(historyFilePath);
                 TypeReference<Map<String, ConversionRecord>> typeRef = new TypeReference<Map<String, ConversionRecord>>() {};
-                conversionHistory = objectMapper.readValue(json, typeRef);
+                conversionHistory = new ConcurrentHashMap<>(objectMapper.readValue(json, typeRef));
                 LOGGER.info("Loaded " + conversionHistory.size() + " conversion records");
             } else {
-                conversionHistory = new HashMap<>();
+                conversionHistory = new ConcurrentHashMap<>();
                 LOGGER.info("No existing conversion history found, starting fresh");
             }
         } catch (IOException e) {
             LOGGER.log(Level.WARNING, "Failed to load conversion history: " + e.getMessage(), e);
-            conversionHistory = new HashMap<>();
+            conversionHistory = new ConcurrentHashMap<>();
         }
     }
     
     /**
-     * Save conversion history to JSON file.
+     * Save conversion history to JSON file, shortly after and off the calling thread.
      */
     private void saveConversionHistory() {
-        try {
-            String json = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(conversionHistory);
-            Files.writeString(historyFilePath, json);
-            LOGGER.fine("Saved conversion history with " + conversionHistory.size() + " records");
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Failed to save conversion history: " + e.getMessage(), e);
-        }
+        writer.write(historyFilePath, objectMapper.writerWithDefaultPrettyPrinter(), () -> conversionHistory);
     }
     
     /**
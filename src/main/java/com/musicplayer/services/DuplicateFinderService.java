@@ -0,0 +1,318 @@
+package com.musicplayer.services;
+
+import com.musicplayer.data.models.Song;
+import com.musicplayer.data.repositories.SongRepository;
+import com.musicplayer.data.storage.ContentHashCache;
+import com.musicplayer.data.storage.ContentHashCache.ContentHash;
+import com.musicplayer.utils.AudioPayload;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Finds songs whose audio data is identical, whatever their tags, file name
+ * or folder.
+ * <p>
+ * Files are narrowed down in stages and each stage only looks at files that
+ * are still in a group with others: the length of the audio payload (found
+ * from the tag block headers), then a hash of its first and last
+ * {@value #PARTIAL_BYTES} bytes, then a hash of the whole payload. Most files
+ * have a unique payload length and are never hashed. Results of every stage
+ * are kept in a {@link ContentHashCache}, so later runs only look at files
+ * that were added or changed.
+ */
+public class DuplicateFinderService {
+
+    /** Bytes hashed from each end of the payload by the partial hash. */
+    static final int PARTIAL_BYTES = 64 * 1024;
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final AtomicInteger RUN_COUNTER = new AtomicInteger();
+
+    private final SongRepository songRepository;
+    private final ContentHashCache cache;
+    private final int threadCount;
+
+    /**
+     * A set of songs with identical audio.
+     */
+    public static class DuplicateGroup {
+        private final List<Song> songs;
+        private final long payloadLength;
+
+        DuplicateGroup(List<Song> songs, long payloadLength) {
+            this.songs = Collections.unmodifiableList(songs);
+            this.payloadLength = payloadLength;
+        }
+
+        public List<Song> getSongs() { return songs; }
+        public long getPayloadLength() { return payloadLength; }
+
+        /** Bytes that could be freed by keeping only one copy. */
+        public long getWastedBytes() {
+            return payloadLength * (songs.size() - 1);
+        }
+    }
+
+    /**
+     * Creates a finder that hashes with one thread per available core.
+     */
+    public DuplicateFinderService(SongRepository songRepository, ContentHashCache cache) {
+        this(songRepository, cache, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threadCount Number of threads reading files
+     */
+    public DuplicateFinderService(SongRepository songRepository, ContentHashCache cache, int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be at least 1");
+        }
+        this.songRepository = songRepository;
+        this.cache = cache;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Groups the library by audio content. Blocks while files are read, so call
+     * it from a background thread. Files that cannot be read are left out.
+     *
+     * @return Groups of two or more songs, largest waste first
+     */
+    public List<DuplicateGroup> findDuplicates() {
+        long start = System.currentTimeMillis();
+        Map<String, Song> songsByPath = new HashMap<>();
+        for (Song song : songRepository.findAll()) {
+            if (song.getFilePath() != null) {
+                songsByPath.put(song.getFilePath(), song);
+            }
+        }
+        cache.retainAll(songsByPath.keySet());
+
+        int runId = RUN_COUNTER.incrementAndGet();
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread t = new Thread(runnable, "DuplicateFinder-" + runId + "-worker-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        AtomicInteger partialReads = new AtomicInteger();
+        AtomicInteger fullReads = new AtomicInteger();
+        try {
+            // Stage 1: payload length, from the cache or the tag headers
+            Map<String, ContentHash> entries = runAll(pool, songsByPath.keySet(), this::currentEntry);
+            List<List<String>> candidates = groupsOf(entries.keySet(),
+                    path -> entries.get(path).getPayloadLength() > 0 ? entries.get(path).getPayloadLength() : null);
+
+            // Stage 2: start and end of the payload
+            runAll(pool, flatten(candidates), path -> {
+                ContentHash entry = entries.get(path);
+                if (entry.getPartialHash() == null) {
+                    entry.setPartialHash(partialHash(path, entry));
+                    partialReads.incrementAndGet();
+                    cache.markChanged();
+                }
+                return entry;
+            });
+            candidates = regroup(candidates, path -> entries.get(path).getPartialHash());
+
+            // Stage 3: the whole payload
+            runAll(pool, flatten(candidates), path -> {
+                ContentHash entry = entries.get(path);
+                if (entry.getFullHash() == null) {
+                    entry.setFullHash(fullHash(path, entry));
+                    fullReads.incrementAndGet();
+                    cache.markChanged();
+                }
+                return entry;
+            });
+            candidates = regroup(candidates, path -> entries.get(path).getFullHash());
+
+            List<DuplicateGroup> groups = new ArrayList<>(candidates.size());
+            for (List<String> paths : candidates) {
+                List<Song> songs = new ArrayList<>(paths.size());
+                for (String path : paths) {
+                    songs.add(songsByPath.get(path));
+                }
+                songs.sort(Comparator.comparing(Song::getFilePath));
+                groups.add(new DuplicateGroup(songs, entries.get(paths.get(0)).getPayloadLength()));
+            }
+            groups.sort(Comparator.comparingLong(DuplicateGroup::getWastedBytes).reversed());
+            System.out.println("Found " + groups.size() + " duplicate groups among " + songsByPath.size()
+                    + " songs in " + (System.currentTimeMillis() - start) + " ms ("
+                    + partialReads.get() + " partial and " + fullReads.get() + " full hashes computed)");
+            return groups;
+        } finally {
+            pool.shutdownNow();
+            cache.save();
+        }
+    }
+
+    /**
+     * Returns the cached entry of a file if it is still valid, otherwise a new
+     * one with the payload range located. Null if the file cannot be read.
+     */
+    private ContentHash currentEntry(String path) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+            long modified = attrs.lastModifiedTime().toMillis();
+            ContentHash cached = cache.get(path);
+            if (cached != null && cached.matches(attrs.size(), modified)) {
+                return cached;
+            }
+            AudioPayload payload = AudioPayload.locate(Paths.get(path));
+            ContentHash entry = new ContentHash(attrs.size(), modified, payload.getOffset(), payload.getLength());
+            cache.put(path, entry);
+            return entry;
+        } catch (IOException e) {
+            cache.remove(path);
+            return null;
+        }
+    }
+
+    private static String partialHash(String path, ContentHash entry) throws IOException {
+        MessageDigest digest = newDigest();
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            long length = entry.getPayloadLength();
+            if (length <= 2L * PARTIAL_BYTES) {
+                update(digest, file, entry.getPayloadOffset(), length);
+            } else {
+                update(digest, file, entry.getPayloadOffset(), PARTIAL_BYTES);
+                update(digest, file, entry.getPayloadOffset() + length - PARTIAL_BYTES, PARTIAL_BYTES);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String fullHash(String path, ContentHash entry) throws IOException {
+        if (entry.getPayloadLength() <= 2L * PARTIAL_BYTES) {
+            // The partial hash already covered every byte
+            return entry.getPartialHash();
+        }
+        MessageDigest digest = newDigest();
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            update(digest, file, entry.getPayloadOffset(), entry.getPayloadLength());
+        }
+        return toHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, RandomAccessFile file, long offset, long length) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(1, length))];
+        file.seek(offset);
+        long remaining = length;
+        while (remaining > 0) {
+            int n = file.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (n < 0) {
+                throw new IOException("File is shorter than its payload range");
+            }
+            digest.update(buffer, 0, n);
+            remaining -= n;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /** Hashing step that may fail for a single file. */
+    @FunctionalInterface
+    private interface FileStep {
+        ContentHash apply(String path) throws IOException;
+    }
+
+    /**
+     * Runs {@code step} for every path on the pool.
+     *
+     * @return Entries of the paths the step succeeded for
+     */
+    private Map<String, ContentHash> runAll(ExecutorService pool, Iterable<String> paths, FileStep step) {
+        Map<String, Future<ContentHash>> futures = new HashMap<>();
+        for (String path : paths) {
+            futures.put(path, pool.submit(() -> step.apply(path)));
+        }
+        Map<String, ContentHash> results = new HashMap<>();
+        for (Map.Entry<String, Future<ContentHash>> f : futures.entrySet()) {
+            try {
+                ContentHash entry = f.getValue().get();
+                if (entry != null) {
+                    results.put(f.getKey(), entry);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while hashing", e);
+            } catch (Exception e) {
+                System.err.println("Could not hash " + f.getKey() + ": " + e.getMessage());
+                cache.remove(f.getKey());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Groups paths by key and keeps the groups with more than one path. Paths
+     * whose key is null are dropped.
+     */
+    private static List<List<String>> groupsOf(Iterable<String> paths, Function<String, Object> key) {
+        Map<Object, List<String>> groups = new HashMap<>();
+        for (String path : paths) {
+            Object k = key.apply(path);
+            if (k != null) {
+                groups.computeIfAbsent(k, x -> new ArrayList<>()).add(path);
+            }
+        }
+        List<List<String>> result = new ArrayList<>();
+        for (List<String> group : groups.values()) {
+            if (group.size() > 1) {
+                result.add(group);
+            }
+        }
+        return result;
+    }
+
+    private static List<List<String>> regroup(List<List<String>> groups, Function<String, Object> key) {
+        List<List<String>> result = new ArrayList<>();
+        for (List<String> group : groups) {
+            result.addAll(groupsOf(group, key));
+        }
+        return result;
+    }
+
+    private static Set<String> flatten(List<List<String>> groups) {
+        Set<String> paths = new HashSet<>();
+        for (List<String> group : groups) {
+            paths.addAll(group);
+        }
+        return paths;
+    }
+}
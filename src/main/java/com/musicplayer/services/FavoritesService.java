@@ -5,18 +5,20 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.musicplayer.data.models.Song;
+import com.musicplayer.data.storage.CoalescingJsonWriter;
 
 /**
  * Service for managing favorite songs with persistent storage.
- * Stores favorites as a set of song IDs in a JSON file.
+ * Stores favorites as a set of song IDs in a JSON file, written through the
+ * shared {@link CoalescingJsonWriter}.
  */
 public class FavoritesService {
     
@@ -31,9 +33,11 @@ public class FavoritesService {
     private final Set<Long> favoriteSongIds;
     private final ObjectMapper objectMapper;
     private final Path favoritesPath;
+    private final CoalescingJsonWriter writer = CoalescingJsonWriter.shared();
     
     public FavoritesService() {
-        this.favoriteSongIds = new HashSet<>();
+        // Concurrent so the writer thread can serialize it while it changes
+        this.favoriteSongIds = ConcurrentHashMap.newKeySet();
         this.objectMapper = new ObjectMapper();
         
         // Resolve data directory from system property or fallback to default "data"
@@ -46,8 +50,11 @@ public class FavoritesService {
         
         this.favoritesPath = Paths.get(dataDirPath, FAVORITES_FILE);
         
-        // Load existing favorites
+        // Load existing favorites, creating the file on first run
         loadFavorites();
+        if (!Files.exists(favoritesPath)) {
+            forceSave();
+        }
     }
     
     /**
@@ -72,7 +79,6 @@ public class FavoritesService {
             isFavorite = true;
         }
         
-        // Save immediately for persistence
         saveFavorites();
         
         return isFavorite;
@@ -158,6 +164,7 @@ public class FavoritesService {
      * Loads favorites from persistent storage.
      */
     private void loadFavorites() {
+        writer.flush(favoritesPath);
         try {
             if (Files.exists(favoritesPath)) {
                 Set<Long> loaded = objectMapper.readValue(
@@ -174,21 +181,17 @@ public class FavoritesService {
     }
     
     /**
-     * Saves favorites to persistent storage.
+     * Saves favorites to persistent storage, shortly after and off the calling thread.
      */
     private void saveFavorites() {
-        try {
-            objectMapper.writerWithDefaultPrettyPrinter()
-                    .writeValue(favoritesPath.toFile(), favoriteSongIds);
-        } catch (IOException e) {
-            System.err.println("Error saving favorites: " + e.getMessage());
-        }
+        writer.write(favoritesPath, objectMapper.writerWithDefaultPrettyPrinter(), () -> favoriteSongIds);
     }
     
     /**
-     * Forces a save of the current favorites.
+     * Forces a save of the current favorites, on the calling thread.
      */
     public void forceSave() {
         saveFavorites();
+        writer.flush(favoritesPath);
     }
 } 
\ No newline at end of file
@@ -1,8 +1,11 @@
 package com.musicplayer.services;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
+import com.musicplayer.core.library.AlbumSummary;
+import com.musicplayer.core.library.ArtistSummary;
 import com.musicplayer.core.library.InMemoryLibraryEngine;
 import com.musicplayer.core.library.LibraryEngine;
 import com.musicplayer.data.models.Album;
@@ -13,33 +16,71 @@ import com.musicplayer.data.repositories.SongRepository;
 /**
  * Enhanced LibraryService that uses both repository storage and LibraryEngine for advanced operations.
  * Provides a bridge between the core library engine and the data layer.
+ * <p>
+ * The engine follows the repository through its change listener: saved songs
+ * are added or re-indexed and deleted songs removed, so its indexes and album
+ * and artist totals are maintained incrementally rather than rebuilt.
  */
 public class LibraryService {
     private final SongRepository songRepository;
     private final LibraryEngine libraryEngine;
 
     public LibraryService(SongRepository songRepository) {
+        this(songRepository, new InMemoryLibraryEngine(songRepository.getRegistry()));
+    }
+
+    LibraryService(SongRepository songRepository, LibraryEngine libraryEngine) {
         this.songRepository = songRepository;
-        this.libraryEngine = new InMemoryLibraryEngine();
+        this.libraryEngine = libraryEngine;
         
         // Initialize library engine with existing songs
         List<Song> existingSongs = songRepository.findAll();
         if (!existingSongs.isEmpty()) {
             libraryEngine.addSongs(existingSongs);
         }
+        songRepository.addChangeListener(new SongRepository.ChangeListener() {
+            @Override
+            public void songsSaved(List<Song> songs) {
+                applySaved(songs);
+            }
+
+            @Override
+            public void songsDeleted(List<Song> songs) {
+                applyDeleted(songs);
+            }
+        });
+    }
+
+    private void applySaved(List<Song> saved) {
+        List<Song> added = new ArrayList<>();
+        for (Song song : saved) {
+            if (!libraryEngine.updateSong(song)) {
+                added.add(song);
+            }
+        }
+        if (!added.isEmpty()) {
+            libraryEngine.addSongs(added);
+        }
     }
 
-    // Basic CRUD operations
+    private void applyDeleted(List<Song> deleted) {
+        // Emptying the library is cheaper as a clear than one removal per song
+        if (deleted.size() >= libraryEngine.getSongCount() && songRepository.findAll().isEmpty()) {
+            libraryEngine.clearLibrary();
+            return;
+        }
+        for (Song song : deleted) {
+            libraryEngine.removeSong(song);
+        }
+    }
+
+    // Basic CRUD operations; the engine follows through the change listener
     public void addSong(Song song) {
         songRepository.save(song);
-        libraryEngine.addSongs(List.of(song));
     }
     
     public void addSongs(List<Song> songs) {
-        for (Song song : songs) {
-            songRepository.save(song);
-        }
-        libraryEngine.addSongs(songs);
+        songRepository.saveAll(songs);
     }
 
     public List<Song> getAllSongs() {
@@ -51,17 +92,12 @@ public class LibraryService {
     }
 
     public void removeSong(long id) {
-        Song song = songRepository.findById(id);
-        if (song != null) {
-            songRepository.delete(id);
-            libraryEngine.removeSong(song);
-        }
+        songRepository.delete(id);
     }
     
     public void removeSong(Song song) {
         if (song != null) {
             songRepository.delete(song.getId());
-            libraryEngine.removeSong(song);
         }
     }
     
@@ -74,6 +110,14 @@ public class LibraryService {
         return libraryEngine.getAllArtists();
     }
     
+    public List<AlbumSummary> getAlbumSummaries() {
+        return libraryEngine.getAlbumSummaries();
+    }
+    
+    public List<ArtistSummary> getArtistSummaries() {
+        return libraryEngine.getArtistSummaries();
+    }
+    
     public Set<String> getAllGenres() {
         return libraryEngine.getAllGenres();
     }
@@ -91,6 +135,14 @@ public class LibraryService {
         return libraryEngine.searchSongsByAlbum(query);
     }
     
+    public List<Song> search(String query, int limit) {
+        return libraryEngine.search(query, limit);
+    }
+    
+    public List<Song> fuzzySearch(String query, int limit) {
+        return libraryEngine.fuzzySearch(query, limit);
+    }
+    
     public List<Song> getSongsByArtist(Artist artist) {
         return libraryEngine.getSongsByArtist(artist);
     }
@@ -127,8 +179,12 @@ public class LibraryService {
         libraryEngine.rebuildIndexes();
     }
     
+    /**
+     * Rebuilds the engine from the repository. Saves and deletes reach the
+     * engine as they happen, so this is only needed once songs were loaded
+     * from storage, which does not go through the change listener.
+     */
     public void refreshLibrary() {
-        // Reload library from repository
         libraryEngine.clearLibrary();
         List<Song> allSongs = songRepository.findAll();
         if (!allSongs.isEmpty()) {
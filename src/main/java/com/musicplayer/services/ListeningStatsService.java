@@ -1,137 +1,254 @@
 package com.musicplayer.services;
 
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.TreeSet;
 
 import com.musicplayer.data.models.Song;
+import com.musicplayer.data.repositories.LongObjectMap;
 import com.musicplayer.data.repositories.SongRepository;
+import com.musicplayer.data.storage.PlayEventLog;
+import com.musicplayer.data.storage.PlayEventLog.PlayEvent;
 
 /**
  * Service for tracking and managing listening statistics.
  * Tracks play counts, calculates statistics, and manages listening history.
+ * <p>
+ * Plays are appended to a {@link PlayEventLog} rather than saved into the
+ * library, and the statistics are kept up to date as plays come in: a set of
+ * the songs played in the current day, week and month, and the played songs
+ * ordered by play count and by last play. Queries therefore never scan the
+ * library. The structures are built from the library and the log on first
+ * use and again by {@link #rebuild()}, which the application calls once the
+ * library has finished loading.
+ * <p>
+ * The log doubles as the record of plays not yet saved into songs.json. A
+ * song's stored last-played time is the time of the last play included in
+ * its stored play count, so on rebuild only the logged plays after it are
+ * added to the song, and the updated songs are saved in one batch.
  */
 public class ListeningStatsService {
-    
+
+    /** Plays older than this are dropped from the log on rebuild. */
+    private static final long LOG_RETENTION_MILLIS = 62L * 24 * 60 * 60 * 1000;
+
+    /** Orders played songs by a count or time, highest first, then by ID. */
+    private static final Comparator<Ranked> HIGHEST_FIRST =
+            Comparator.comparingLong((Ranked r) -> r.value).reversed().thenComparingLong(r -> r.songId);
+
+    /** Immutable (value, song ID) pair, so the sorted sets never see a key change. */
+    private static final class Ranked {
+        final long value;
+        final long songId;
+
+        Ranked(long value, long songId) {
+            this.value = value;
+            this.songId = songId;
+        }
+    }
+
+    /** Songs played since the start of the current day, week or month. */
+    private static final class PeriodBucket {
+        long start = Long.MIN_VALUE;
+        final Set<Long> songIds = new HashSet<>();
+
+        /** Empties the bucket if a new period has begun. */
+        void rollTo(long periodStart) {
+            if (periodStart != start) {
+                start = periodStart;
+                songIds.clear();
+            }
+        }
+
+        void record(long songId, long timestamp) {
+            if (timestamp >= start) {
+                songIds.add(songId);
+            }
+        }
+    }
+
     private final SongRepository songRepository;
-    
+    private final PlayEventLog playLog;
+    private final Clock clock;
+
+    // Guarded by this
+    private boolean built;
+    private final PeriodBucket day = new PeriodBucket();
+    private final PeriodBucket week = new PeriodBucket();
+    private final PeriodBucket month = new PeriodBucket();
+    private final TreeSet<Ranked> byPlayCount = new TreeSet<>(HIGHEST_FIRST);
+    private final LongObjectMap<Ranked> playCountEntries = new LongObjectMap<>();
+    private final TreeSet<Ranked> byLastPlayed = new TreeSet<>(HIGHEST_FIRST);
+    private final LongObjectMap<Ranked> lastPlayedEntries = new LongObjectMap<>();
+    private long totalPlayCount;
+
     public ListeningStatsService(SongRepository songRepository) {
+        this(songRepository, new PlayEventLog());
+    }
+
+    /**
+     * @param songRepository Library the plays refer to
+     * @param playLog Log the plays are appended to
+     */
+    public ListeningStatsService(SongRepository songRepository, PlayEventLog playLog) {
+        this(songRepository, playLog, Clock.systemDefaultZone());
+    }
+
+    ListeningStatsService(SongRepository songRepository, PlayEventLog playLog, Clock clock) {
         this.songRepository = songRepository;
+        this.playLog = playLog;
+        this.clock = clock;
     }
-    
+
     /**
      * Records that a song has been played.
      * Increments play count and updates last played timestamp.
-     * 
+     *
      * @param song The song that was played
      */
     public void recordPlay(Song song) {
         if (song == null) return;
-        
-        song.incrementPlayCount();
-        songRepository.save(song);
+        recordPlay(song, song.getDuration() * 1000L);
+    }
+
+    /**
+     * Records that a song has been played for the given time. The play is
+     * appended to the log; the library is not saved.
+     *
+     * @param song The song that was played
+     * @param listenedMillis How long the song was listened to
+     */
+    public synchronized void recordPlay(Song song, long listenedMillis) {
+        if (song == null) return;
+
+        song.setPlayCount(song.getPlayCount() + 1);
+        song.setLastPlayed(clock.millis());
+        playLog.append(song.getId(), song.getLastPlayed(), listenedMillis);
+        if (built) {
+            rollPeriods();
+            track(song);
+            totalPlayCount++;
+        }
+    }
+
+    /**
+     * Rebuilds the statistics from the library and the play log. Logged plays
+     * that the library does not include yet are added to their songs, which
+     * are then saved together, and plays past the retention period are
+     * dropped from the log.
+     */
+    public synchronized void rebuild() {
+        LongObjectMap<Song> updated = new LongObjectMap<>();
+        for (PlayEvent event : playLog.readAll()) {
+            Song song = songRepository.findById(event.getSongId());
+            if (song != null && event.getTimestamp() > song.getLastPlayed()) {
+                song.setPlayCount(song.getPlayCount() + 1);
+                song.setLastPlayed(event.getTimestamp());
+                updated.put(song.getId(), song);
+            }
+        }
+        if (!updated.isEmpty()) {
+            songRepository.saveAll(updated.values());
+        }
+        playLog.retainSince(clock.millis() - LOG_RETENTION_MILLIS);
+
+        byPlayCount.clear();
+        playCountEntries.clear();
+        byLastPlayed.clear();
+        lastPlayedEntries.clear();
+        totalPlayCount = 0;
+        day.start = week.start = month.start = Long.MIN_VALUE;
+        rollPeriods();
+        for (Song song : songRepository.findAll()) {
+            track(song);
+            totalPlayCount += song.getPlayCount();
+        }
+        built = true;
     }
-    
+
     /**
      * Gets the total number of songs played today.
-     * 
+     *
      * @return Number of songs played today
      */
-    public int getSongsPlayedToday() {
-        LocalDate today = LocalDate.now();
-        long startOfDay = today.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        
-        return (int) songRepository.findAll().stream()
-            .filter(song -> song.getLastPlayed() >= startOfDay)
-            .count();
-    }
-    
+    public synchronized int getSongsPlayedToday() {
+        ensureBuilt();
+        return day.songIds.size();
+    }
+
     /**
      * Gets the total number of songs played this week.
-     * 
+     *
      * @return Number of songs played this week
      */
-    public int getSongsPlayedThisWeek() {
-        LocalDate today = LocalDate.now();
-        LocalDate weekStart = today.minusDays(today.getDayOfWeek().getValue() - 1);
-        long startOfWeek = weekStart.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        
-        return (int) songRepository.findAll().stream()
-            .filter(song -> song.getLastPlayed() >= startOfWeek)
-            .count();
-    }
-    
+    public synchronized int getSongsPlayedThisWeek() {
+        ensureBuilt();
+        return week.songIds.size();
+    }
+
     /**
      * Gets the total number of songs played this month.
-     * 
+     *
      * @return Number of songs played this month
      */
-    public int getSongsPlayedThisMonth() {
-        LocalDate today = LocalDate.now();
-        LocalDate monthStart = today.withDayOfMonth(1);
-        long startOfMonth = monthStart.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
-        
-        return (int) songRepository.findAll().stream()
-            .filter(song -> song.getLastPlayed() >= startOfMonth)
-            .count();
-    }
-    
+    public synchronized int getSongsPlayedThisMonth() {
+        ensureBuilt();
+        return month.songIds.size();
+    }
+
     /**
      * Gets the most played song.
-     * 
+     *
      * @return The most played song, or null if no songs have been played
      */
     public Song getMostPlayedSong() {
-        return songRepository.findAll().stream()
-            .filter(song -> song.getPlayCount() > 0)
-            .max(Comparator.comparingInt(Song::getPlayCount))
-            .orElse(null);
+        List<Song> top = getTopPlayedSongs(1);
+        return top.isEmpty() ? null : top.get(0);
     }
-    
+
     /**
      * Gets the top N most played songs.
-     * 
+     *
      * @param limit Maximum number of songs to return
      * @return List of most played songs
      */
-    public List<Song> getTopPlayedSongs(int limit) {
-        return songRepository.findAll().stream()
-            .filter(song -> song.getPlayCount() > 0)
-            .sorted(Comparator.comparingInt(Song::getPlayCount).reversed())
-            .limit(limit)
-            .collect(Collectors.toList());
-    }
-    
+    public synchronized List<Song> getTopPlayedSongs(int limit) {
+        ensureBuilt();
+        return resolve(byPlayCount.iterator(), limit);
+    }
+
     /**
      * Gets recently played songs.
-     * 
+     *
      * @param limit Maximum number of songs to return
      * @return List of recently played songs
      */
-    public List<Song> getRecentlyPlayed(int limit) {
-        return songRepository.findAll().stream()
-            .filter(song -> song.getLastPlayed() > 0)
-            .sorted(Comparator.comparingLong(Song::getLastPlayed).reversed())
-            .limit(limit)
-            .collect(Collectors.toList());
-    }
-    
+    public synchronized List<Song> getRecentlyPlayed(int limit) {
+        ensureBuilt();
+        return resolve(byLastPlayed.iterator(), limit);
+    }
+
     /**
      * Gets the total play count across all songs.
-     * 
+     *
      * @return Total number of plays
      */
-    public int getTotalPlayCount() {
-        return songRepository.findAll().stream()
-            .mapToInt(Song::getPlayCount)
-            .sum();
+    public synchronized int getTotalPlayCount() {
+        ensureBuilt();
+        return (int) totalPlayCount;
     }
-    
+
     /**
      * Formats the most played song information for display.
-     * 
+     *
      * @return Formatted string with song info and play count
      */
     public String getMostPlayedSongDisplay() {
@@ -139,9 +256,69 @@ public class ListeningStatsService {
         if (mostPlayed == null) {
             return null;
         }
-        return String.format("%s - %s (%d plays)", 
-            mostPlayed.getArtist(), 
-            mostPlayed.getTitle(), 
+        return String.format("%s - %s (%d plays)",
+            mostPlayed.getArtist(),
+            mostPlayed.getTitle(),
             mostPlayed.getPlayCount());
     }
-} 
\ No newline at end of file
+
+    private void ensureBuilt() {
+        if (!built) {
+            rebuild();
+        } else {
+            rollPeriods();
+        }
+    }
+
+    /**
+     * Moves the day, week and month buckets on to the current periods.
+     */
+    private void rollPeriods() {
+        ZoneId zone = clock.getZone();
+        LocalDate today = LocalDate.ofInstant(Instant.ofEpochMilli(clock.millis()), zone);
+        day.rollTo(today.atStartOfDay(zone).toInstant().toEpochMilli());
+        week.rollTo(today.minusDays(today.getDayOfWeek().getValue() - 1).atStartOfDay(zone).toInstant().toEpochMilli());
+        month.rollTo(today.withDayOfMonth(1).atStartOfDay(zone).toInstant().toEpochMilli());
+    }
+
+    /**
+     * Updates the song's entries in the buckets and sorted sets to its
+     * current play count and last-played time.
+     */
+    private void track(Song song) {
+        long id = song.getId();
+        if (song.getPlayCount() > 0) {
+            replace(byPlayCount, playCountEntries, new Ranked(song.getPlayCount(), id));
+        }
+        long lastPlayed = song.getLastPlayed();
+        if (lastPlayed > 0) {
+            replace(byLastPlayed, lastPlayedEntries, new Ranked(lastPlayed, id));
+            day.record(id, lastPlayed);
+            week.record(id, lastPlayed);
+            month.record(id, lastPlayed);
+        }
+    }
+
+    private static void replace(TreeSet<Ranked> sorted, LongObjectMap<Ranked> entries, Ranked entry) {
+        Ranked previous = entries.put(entry.songId, entry);
+        if (previous != null) {
+            sorted.remove(previous);
+        }
+        sorted.add(entry);
+    }
+
+    /**
+     * Looks up the songs of the first {@code limit} entries, skipping songs
+     * that have left the library.
+     */
+    private List<Song> resolve(Iterator<Ranked> ranked, int limit) {
+        List<Song> result = new ArrayList<>(Math.max(0, Math.min(limit, 128)));
+        while (result.size() < limit && ranked.hasNext()) {
+            Song song = songRepository.findById(ranked.next().songId);
+            if (song != null) {
+                result.add(song);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,222 @@
+package com.musicplayer.services;
+
+import com.musicplayer.data.models.Song;
+import com.musicplayer.data.storage.FileFingerprintCache;
+import com.musicplayer.data.storage.FileFingerprintCache.FileFingerprint;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pairs deleted songs with files created in the same watcher batch so that a
+ * rename or move updates the existing song instead of replacing it.
+ * <p>
+ * A deleted file can no longer be read, so the comparison uses the fingerprint
+ * the last scan recorded for its path: size and modification time, which a
+ * move preserves, and the file key (inode) where the file system has one.
+ * Songs below a deleted directory are first looked up at the same relative
+ * path below each created directory, which handles folder renames of any size
+ * with one stat per song. Everything else is matched against the created
+ * files; ambiguous candidates are settled by file name or left alone.
+ */
+final class MoveDetector {
+
+    /** A song whose file now lives at another path. */
+    static final class Move {
+        private final Song song;
+        private final String from;
+        private final String to;
+        private final FileFingerprint fingerprint;
+
+        Move(Song song, String from, String to, FileFingerprint fingerprint) {
+            this.song = song;
+            this.from = from;
+            this.to = to;
+            this.fingerprint = fingerprint;
+        }
+
+        Song getSong() { return song; }
+        String getFrom() { return from; }
+        String getTo() { return to; }
+        /** Fingerprint of the file at its new path. */
+        FileFingerprint getFingerprint() { return fingerprint; }
+    }
+
+    private final FileFingerprintCache fingerprints;
+
+    MoveDetector(FileFingerprintCache fingerprints) {
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * Finds the moves among a batch of deletes and creates.
+     *
+     * @param deletedSongs Songs whose file was deleted, directly or with a directory
+     * @param deletedDirs  Deleted directories
+     * @param createdFiles Created or modified audio files
+     * @param createdDirs  Created directories
+     * @return One move per paired song; each target path is used at most once
+     */
+    List<Move> detect(List<Song> deletedSongs, List<Path> deletedDirs,
+                      List<Path> createdFiles, List<Path> createdDirs) {
+        if (deletedSongs.isEmpty() || (createdFiles.isEmpty() && createdDirs.isEmpty())) {
+            return Collections.emptyList();
+        }
+        List<Move> moves = new ArrayList<>();
+        Set<String> claimed = new HashSet<>();
+        List<Song> unmatched = new ArrayList<>();
+
+        for (Song song : deletedSongs) {
+            Move move = matchBelowCreatedDir(song, deletedDirs, createdDirs, claimed);
+            if (move != null) {
+                moves.add(move);
+                claimed.add(move.getTo());
+            } else {
+                unmatched.add(song);
+            }
+        }
+        if (unmatched.isEmpty() || createdFiles.isEmpty()) {
+            return moves;
+        }
+
+        Map<String, FileFingerprint> created = new HashMap<>();
+        Map<String, List<String>> byFileKey = new HashMap<>();
+        Map<String, List<String>> bySizeAndTime = new HashMap<>();
+        for (Path file : createdFiles) {
+            String path = file.toAbsolutePath().toString();
+            FileFingerprint fp = stat(file);
+            if (fp == null || claimed.contains(path)) {
+                continue;
+            }
+            created.put(path, fp);
+            if (fp.getFileKey() != null) {
+                byFileKey.computeIfAbsent(fp.getFileKey(), k -> new ArrayList<>()).add(path);
+            }
+            bySizeAndTime.computeIfAbsent(sizeAndTime(fp), k -> new ArrayList<>()).add(path);
+        }
+
+        for (Song song : unmatched) {
+            FileFingerprint recorded = fingerprints.get(song.getFilePath());
+            if (recorded == null) {
+                continue;
+            }
+            String target = null;
+            if (recorded.getFileKey() != null) {
+                target = pick(song, byFileKey.get(recorded.getFileKey()), claimed, created, recorded);
+            }
+            if (target == null) {
+                target = pick(song, bySizeAndTime.get(sizeAndTime(recorded)), claimed, created, recorded);
+            }
+            if (target != null) {
+                claimed.add(target);
+                moves.add(new Move(song, song.getFilePath(), target, created.get(target)));
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Looks for the song at its relative path below a created directory, for a
+     * directory that was renamed or moved into a new one.
+     */
+    private Move matchBelowCreatedDir(Song song, List<Path> deletedDirs, List<Path> createdDirs, Set<String> claimed) {
+        if (createdDirs.isEmpty() || song.getFilePath() == null) {
+            return null;
+        }
+        Path oldPath = Paths.get(song.getFilePath());
+        for (Path deletedDir : deletedDirs) {
+            if (!oldPath.startsWith(deletedDir)) {
+                continue;
+            }
+            Path relative = deletedDir.relativize(oldPath);
+            for (Path createdDir : createdDirs) {
+                Move move = matchAt(song, createdDir.resolve(relative), claimed);
+                if (move == null && deletedDir.getFileName() != null) {
+                    move = matchAt(song, createdDir.resolve(deletedDir.getFileName()).resolve(relative), claimed);
+                }
+                if (move != null) {
+                    return move;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Move matchAt(Song song, Path candidate, Set<String> claimed) {
+        String path = candidate.toAbsolutePath().toString();
+        if (claimed.contains(path)) {
+            return null;
+        }
+        FileFingerprint current = stat(candidate);
+        if (current == null) {
+            return null;
+        }
+        FileFingerprint recorded = fingerprints.get(song.getFilePath());
+        // Same name at the same place in the renamed tree is evidence enough
+        // when the old fingerprint is unknown
+        if (recorded != null && !sameContent(recorded, current)) {
+            return null;
+        }
+        return new Move(song, song.getFilePath(), path, current);
+    }
+
+    private static String pick(Song song, List<String> candidates, Set<String> claimed,
+                               Map<String, FileFingerprint> created, FileFingerprint recorded) {
+        if (candidates == null) {
+            return null;
+        }
+        List<String> open = new ArrayList<>(candidates.size());
+        for (String candidate : candidates) {
+            if (!claimed.contains(candidate) && sameContent(recorded, created.get(candidate))) {
+                open.add(candidate);
+            }
+        }
+        if (open.size() == 1) {
+            return open.get(0);
+        }
+        String name = Paths.get(song.getFilePath()).getFileName().toString();
+        String byName = null;
+        for (String candidate : open) {
+            if (Paths.get(candidate).getFileName().toString().equals(name)) {
+                if (byName != null) {
+                    return null;
+                }
+                byName = candidate;
+            }
+        }
+        return byName;
+    }
+
+    /**
+     * A move keeps size and modification time. The file key is only used to
+     * find candidates: copying between file systems, or a tool that copies and
+     * deletes, gives the file a new one.
+     */
+    private static boolean sameContent(FileFingerprint recorded, FileFingerprint current) {
+        return recorded.getSize() == current.getSize() && recorded.getModifiedMillis() == current.getModifiedMillis();
+    }
+
+    private static String sizeAndTime(FileFingerprint fp) {
+        return fp.getSize() + ":" + fp.getModifiedMillis();
+    }
+
+    private static FileFingerprint stat(Path file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return attrs.isRegularFile() ? FileFingerprint.of(attrs) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -4,22 +4,35 @@ import java.io.File;
 import java.util.List;
 import java.util.function.Consumer;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Deque;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.nio.file.SimpleFileVisitor;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 
 import com.musicplayer.data.models.Song;
 import com.musicplayer.data.repositories.PersistentSongRepository;
 import com.musicplayer.data.repositories.SongRepository;
+import com.musicplayer.data.storage.FileFingerprintCache;
+import com.musicplayer.data.storage.FileFingerprintCache.FileFingerprint;
 import com.musicplayer.utils.MusicScanner;
+import com.musicplayer.utils.ParallelMusicScanner;
 
 /**
  * Service class for managing the music library, including folder scanning and song management.
@@ -29,37 +42,74 @@ import com.musicplayer.utils.MusicScanner;
 public class MusicLibraryManager {
     
     private final SongRepository songRepository;
+    private final FileFingerprintCache fingerprintCache;
     private File currentMusicFolder;
     
     // Callback for notifying when library changes occur
     private Consumer<List<Song>> libraryUpdateCallback;
+    private Consumer<List<Song>> libraryAppendCallback;
+    private Runnable libraryLoadedCallback;
+    private Runnable scanCompleteCallback;
+    private Consumer<List<Song>> songsEnrichedCallback;
+    private final ScanScheduler scanScheduler = new ScanScheduler();
+    // Serializes merges of scan results, which look songs up by path before saving
+    private final Object libraryWriteLock = new Object();
+    private final TagEnrichmentService tagEnrichment = new TagEnrichmentService(
+            this::readForEnrichment, TagEnrichmentService.DEFAULT_BATCH_SIZE, this::applyEnrichedSongs);
+    private final ReadOnlyObjectWrapper<ScanProgress> scanProgress = new ReadOnlyObjectWrapper<>();
     private WatchService watchService;
     private Thread watcherThread;
     private final Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
+    // Directories of watchKeys, for lookups by path
+    private final java.util.Set<Path> watchedDirs = ConcurrentHashMap.newKeySet();
+    private final Deque<Path> registrationQueue = new ConcurrentLinkedDeque<>();
     private volatile boolean watching;
+    private final WatchEventCoalescer watchEvents = new WatchEventCoalescer();
+    private static final long WATCH_POLL_MILLIS = 250;
+    private static final int REGISTRATION_BATCH_SIZE = 256;
     private SettingsService settingsService;
     
     public MusicLibraryManager(SongRepository songRepository) {
+        this(songRepository, new FileFingerprintCache());
+    }
+    
+    /**
+     * @param songRepository   Repository holding the library
+     * @param fingerprintCache Fingerprints used to skip unchanged files on incremental rescans
+     */
+    public MusicLibraryManager(SongRepository songRepository, FileFingerprintCache fingerprintCache) {
         this.songRepository = songRepository;
+        this.fingerprintCache = fingerprintCache;
         
-        // If using persistent storage, log existing data
-        if (songRepository instanceof PersistentSongRepository) {
-            PersistentSongRepository persistentRepo = (PersistentSongRepository) songRepository;
-            if (persistentRepo.size() > 0) {
-                System.out.println("Found existing library with " + persistentRepo.size() + " songs");
-                // Try to restore last music folder from first song's path
-                List<Song> songs = persistentRepo.findAll();
-                if (!songs.isEmpty() && songs.get(0).getFilePath() != null) {
-                    File songFile = new File(songs.get(0).getFilePath());
-                    if (songFile.exists()) {
-                        this.currentMusicFolder = songFile.getParentFile();
-                        while (currentMusicFolder != null && !isMusicFolder(currentMusicFolder)) {
-                            currentMusicFolder = currentMusicFolder.getParentFile();
-                        }
-                        if (this.currentMusicFolder != null) {
-                            restartWatching(this.currentMusicFolder);
-                        }
-                    }
+        // If using persistent storage that is already loaded, log existing data;
+        // a deferred repository does this once initializeLibrary has loaded it
+        if (songRepository instanceof PersistentSongRepository
+                && ((PersistentSongRepository) songRepository).isLoaded()) {
+            restoreMusicFolderFromLibrary();
+        }
+    }
+    
+    /**
+     * Restores the music folder from the first song's path, unless a folder is already known.
+     */
+    private void restoreMusicFolderFromLibrary() {
+        PersistentSongRepository persistentRepo = (PersistentSongRepository) songRepository;
+        if (persistentRepo.size() == 0 || currentMusicFolder != null) {
+            return;
+        }
+        System.out.println("Found existing library with " + persistentRepo.size() + " songs");
+        // Try to restore last music folder from first song's path
+        List<Song> songs = persistentRepo.findAll();
+        if (!songs.isEmpty() && songs.get(0).getFilePath() != null) {
+            File songFile = new File(songs.get(0).getFilePath());
+            if (songFile.exists()) {
+                File folder = songFile.getParentFile();
+                while (folder != null && !isMusicFolder(folder)) {
+                    folder = folder.getParentFile();
+                }
+                if (folder != null) {
+                    this.currentMusicFolder = folder;
+                    restartWatching(folder);
                 }
             }
         }
@@ -84,13 +134,50 @@ public class MusicLibraryManager {
     /**
      * Initializes the library by loading existing data and notifying the callback.
      * Should be called after the UI is ready to receive updates.
+     * <p>
+     * If the repository defers loading, the library is streamed in on a background
+     * thread instead: each chunk goes to the append callback (or, without one, the
+     * update callback receives the whole library at the end), and the loaded
+     * callback runs once everything is in. Callbacks run on the FX thread.
      */
     public void initializeLibrary() {
+        if (songRepository instanceof PersistentSongRepository) {
+            PersistentSongRepository persistentRepo = (PersistentSongRepository) songRepository;
+            if (persistentRepo.loadInBackground(this::publishLoadedChunk, this::onLibraryLoaded)) {
+                System.out.println("Streaming library from storage");
+                return;
+            }
+        }
+        
         List<Song> existingSongs = getAllSongs();
         if (!existingSongs.isEmpty() && libraryUpdateCallback != null) {
             System.out.println("Initializing UI with " + existingSongs.size() + " existing songs");
             libraryUpdateCallback.accept(existingSongs);
         }
+        if (libraryLoadedCallback != null) {
+            libraryLoadedCallback.run();
+        }
+    }
+    
+    private void publishLoadedChunk(List<Song> chunk) {
+        Consumer<List<Song>> callback = libraryAppendCallback;
+        if (callback != null) {
+            javafx.application.Platform.runLater(() -> callback.accept(chunk));
+        }
+    }
+    
+    private void onLibraryLoaded() {
+        restoreMusicFolderFromLibrary();
+        // Finish the full tag read of songs that were only header-read before the last exit
+        enqueueUnreadForEnrichment(getAllSongs());
+        javafx.application.Platform.runLater(() -> {
+            if (libraryAppendCallback == null && libraryUpdateCallback != null) {
+                libraryUpdateCallback.accept(getAllSongs());
+            }
+            if (libraryLoadedCallback != null) {
+                libraryLoadedCallback.run();
+            }
+        });
     }
     
     /**
@@ -101,6 +188,97 @@ public class MusicLibraryManager {
     public void setLibraryUpdateCallback(Consumer<List<Song>> callback) {
         this.libraryUpdateCallback = callback;
     }
+    
+    /**
+     * Sets a callback that receives songs chunk by chunk, to be appended to what
+     * was received before: the library while it streams in from storage, and new
+     * songs while a folder scan is running.
+     * 
+     * @param callback Consumer that receives each chunk of loaded or scanned songs
+     */
+    public void setLibraryAppendCallback(Consumer<List<Song>> callback) {
+        this.libraryAppendCallback = callback;
+    }
+    
+    /**
+     * Sets a callback to be run once the library has been loaded from storage.
+     * 
+     * @param callback Runnable invoked after the last chunk was published
+     */
+    public void setLibraryLoadedCallback(Runnable callback) {
+        this.libraryLoadedCallback = callback;
+    }
+    
+    /**
+     * Sets a callback to be run once a folder scan whose songs were delivered
+     * through the append callback has finished. Scans that updated songs already
+     * in the library end with the update callback instead.
+     * 
+     * @param callback Runnable invoked on the FX thread after the last batch
+     */
+    public void setScanCompleteCallback(Runnable callback) {
+        this.scanCompleteCallback = callback;
+    }
+    
+    /**
+     * Sets a callback that receives songs whose tags were completed by the
+     * background full read after a header-only scan. The songs are the library's
+     * own instances, updated in place.
+     * 
+     * @param callback Consumer invoked on the FX thread with each enriched batch
+     */
+    public void setSongsEnrichedCallback(Consumer<List<Song>> callback) {
+        this.songsEnrichedCallback = callback;
+    }
+    
+    /**
+     * Returns the number of songs still waiting for their full tag read.
+     */
+    public int getPendingEnrichmentCount() {
+        return tagEnrichment.getPendingCount();
+    }
+    
+    /**
+     * Sets a callback that is told whenever a scan job is queued, starts,
+     * finishes or is cancelled.
+     * 
+     * @param callback Consumer invoked on the FX thread with the changed job
+     */
+    public void setScanJobCallback(Consumer<ScanJob> callback) {
+        scanScheduler.setJobListener(callback == null ? null
+                : job -> javafx.application.Platform.runLater(() -> callback.accept(job)));
+    }
+    
+    /**
+     * Returns queued and running scan jobs followed by recently finished ones.
+     */
+    public List<ScanJob> getScanJobs() {
+        return scanScheduler.getJobs();
+    }
+    
+    /**
+     * Checks whether a folder scan or rescan is queued or running.
+     */
+    public boolean isScanning() {
+        return scanScheduler.hasActiveBulkJobs();
+    }
+    
+    /**
+     * Cancels all queued and running folder scans and rescans. Songs found so far
+     * stay in the library; file watcher updates continue.
+     */
+    public void cancelScans() {
+        scanScheduler.cancelBulkJobs();
+    }
+    
+    /**
+     * Progress of the running folder scan, updated on the FX thread a few times
+     * per second. Holds the last scan's final progress once it has finished and
+     * null before the first scan.
+     */
+    public ReadOnlyObjectProperty<ScanProgress> scanProgressProperty() {
+        return scanProgress.getReadOnlyProperty();
+    }
 
     public void setSettingsService(SettingsService settingsService) {
         this.settingsService = settingsService;
@@ -152,65 +330,70 @@ public class MusicLibraryManager {
             restartWatching(folder);
         }
         
-        // Run scanning in a separate thread to avoid blocking the UI
-        Thread scanThread = new Thread(() -> {
-            try {
-                System.out.println("Starting scan of folder: " + folder.getAbsolutePath());
-                
-                // Clear existing songs from repository if requested
-                if (clearExisting) {
-                    clearLibrary();
-                }
-                
-                // Scan the folder for music files
-                List<Song> scannedSongs = MusicScanner.scanDirectory(folder);
-                
-                // Build set of existing file paths to avoid duplicates
-                java.util.Set<String> existing = new java.util.HashSet<>();
-                for (Song s : songRepository.findAll()) {
-                    if (s.getFilePath() != null) existing.add(s.getFilePath());
-                }
-
-                for (Song song : scannedSongs) {
-                    if (song.getFilePath() == null) continue;
-                    if (existing.contains(song.getFilePath())) {
-                        // Update metadata in case tags changed
-                        Song existingSong = songRepository.findAll().stream()
-                                .filter(x -> song.getFilePath().equals(x.getFilePath()))
-                                .findFirst().orElse(null);
-                        if (existingSong != null) {
-                            existingSong.setTitle(song.getTitle());
-                            existingSong.setArtist(song.getArtist());
-                            existingSong.setAlbum(song.getAlbum());
-                            existingSong.setGenre(song.getGenre());
-                            existingSong.setDuration(song.getDuration());
-                            existingSong.setTrackNumber(song.getTrackNumber());
-                            songRepository.save(existingSong);
-                        }
-                        continue;
-                    }
-                    songRepository.save(song);
+        // Run scanning on the scheduler's bulk lane to avoid blocking the UI
+        ScanJob.Kind kind = clearExisting ? ScanJob.Kind.FULL_SCAN : ScanJob.Kind.SCAN;
+        scanScheduler.submit(kind, folder.toPath(), "Scan of " + folder.getAbsolutePath(), job -> {
+            System.out.println("Starting scan of folder: " + folder.getAbsolutePath());
+            
+            // Clear existing songs from repository if requested
+            if (clearExisting) {
+                clearLibrary();
+                fingerprintCache.clear();
+            }
+            
+            // Songs are saved and handed to the UI in batches while the scan runs;
+            // songs already in the library are updated in place
+            Consumer<List<Song>> appendCallback = libraryAppendCallback;
+            AtomicInteger updatedExisting = new AtomicInteger();
+            List<Song> headerOnly = java.util.Collections.synchronizedList(new java.util.ArrayList<>());
+            ScanBatchPublisher publisher = new ScanBatchPublisher(batch -> {
+                batch.sort(java.util.Comparator.comparing(Song::getFilePath));
+                headerOnly.addAll(batch);
+                List<Song> added = applyScanResults(batch);
+                updatedExisting.addAndGet(batch.size() - added.size());
+                if (appendCallback != null && !added.isEmpty()) {
+                    javafx.application.Platform.runLater(() -> appendCallback.accept(added));
                 }
-                
-                System.out.println("Scan complete. Found " + scannedSongs.size() + " songs.");
-                
-                // Notify callback of library update (if set)
-                if (libraryUpdateCallback != null) {
-                    // Run callback on JavaFX Application Thread
-                    javafx.application.Platform.runLater(() -> {
+            }, progress -> javafx.application.Platform.runLater(() -> scanProgress.set(progress)));
+            
+            // Scan the folder for music files, remembering each file's fingerprint
+            // so that later incremental rescans can skip it while it stays unchanged.
+            // Only the tag headers are read here; the full parse follows in the background.
+            Map<String, FileFingerprint> fingerprints = new ConcurrentHashMap<>();
+            ParallelMusicScanner scanner = new ParallelMusicScanner(MusicScanner::extractQuickMetadata);
+            job.onCancel(scanner::cancel);
+            publisher.start("MusicScanner-" + folder.getName() + "-publisher");
+            try {
+                scanner.scan(folder.toPath(), (path, attrs) -> {
+                    fingerprints.put(path.toFile().getAbsolutePath(), FileFingerprint.of(attrs));
+                    publisher.fileFound();
+                    return true;
+                }, song -> {
+                    job.fileProcessed();
+                    publisher.accept(song);
+                });
+            } finally {
+                publisher.finish();
+            }
+            fingerprintCache.putAll(fingerprints);
+            fingerprintCache.save();
+            enqueueForEnrichment(headerOnly);
+            
+            System.out.println((job.isCancelled() ? "Scan cancelled. Found " : "Scan complete. Found ")
+                    + fingerprints.size() + " audio files, " + updatedExisting.get() + " songs already in the library.");
+            
+            // Appended batches only need a final refresh of derived views; songs
+            // updated in place need the whole list redrawn once
+            javafx.application.Platform.runLater(() -> {
+                if (appendCallback == null || updatedExisting.get() > 0) {
+                    if (libraryUpdateCallback != null) {
                         libraryUpdateCallback.accept(getAllSongs());
-                    });
+                    }
+                } else if (scanCompleteCallback != null) {
+                    scanCompleteCallback.run();
                 }
-                
-            } catch (Exception e) {
-                System.err.println("Error during music folder scan: " + e.getMessage());
-                e.printStackTrace();
-            }
+            });
         });
-        
-        scanThread.setDaemon(true);
-        scanThread.setName("MusicScanner-" + folder.getName());
-        scanThread.start();
     }
     
     /**
@@ -274,10 +457,11 @@ public class MusicLibraryManager {
      * Clears all songs from the library.
      */
     public void clearLibrary() {
-        List<Song> allSongs = songRepository.findAll();
-        for (Song song : allSongs) {
-            songRepository.delete(song.getId());
+        List<Long> ids = new java.util.ArrayList<>();
+        for (Song song : songRepository.findAll()) {
+            ids.add(song.getId());
         }
+        songRepository.deleteAll(ids);
         
         // Notify callback if set
         if (libraryUpdateCallback != null) {
@@ -295,9 +479,9 @@ public class MusicLibraryManager {
     }
     
     /**
-     * Rescans the current music folder by performing a complete clear and rescan.
-     * This method uses the same reliable logic as "Clear & Scan New Folder" to ensure
-     * a thorough and consistent library refresh.
+     * Rescans the current music folder incrementally. Only files whose size,
+     * modification time or file key changed since the last scan are re-read;
+     * songs of unchanged and modified files keep their IDs, play counts and ratings.
      */
     public void rescanCurrentFolder() {
         if (currentMusicFolder == null || !currentMusicFolder.exists()) {
@@ -305,16 +489,106 @@ public class MusicLibraryManager {
             return;
         }
         
-        System.out.println("Starting full rescan of current music folder: " + currentMusicFolder.getAbsolutePath());
+        File folder = currentMusicFolder;
+        System.out.println("Starting incremental rescan of current music folder: " + folder.getAbsolutePath());
         
-        // Use the proven scanMusicFolder logic with clearExisting=true
-        // This ensures a complete refresh just like "Clear & Scan New Folder"
-        scanMusicFolder(currentMusicFolder, true);
+        scanScheduler.submit(ScanJob.Kind.RESCAN, folder.toPath(), "Rescan of " + folder.getAbsolutePath(), job -> {
+            boolean changed = incrementalScan(folder, job);
+            if (changed && libraryUpdateCallback != null) {
+                javafx.application.Platform.runLater(() -> libraryUpdateCallback.accept(getAllSongs()));
+            }
+        });
     }
     
-
+    /**
+     * Brings the library in line with the files below {@code folder}, re-reading
+     * tags only for new files and files whose fingerprint changed, and removing
+     * songs whose files no longer exist. Runs on the calling thread.
+     *
+     * @param folder Root of the subtree to rescan
+     * @return true if any song was added, updated or removed
+     */
+    boolean incrementalScan(File folder) {
+        return incrementalScan(folder, null);
+    }
     
-
+    /**
+     * Runs {@link #incrementalScan(File)} as part of {@code job}. If the job is
+     * cancelled, what was read so far is saved, but nothing is removed since the
+     * walk did not see the whole subtree.
+     */
+    private boolean incrementalScan(File folder, ScanJob job) {
+        long start = System.currentTimeMillis();
+        Path root = folder.toPath().toAbsolutePath();
+        String rootPrefix = root.toString().endsWith(File.separator) ? root.toString() : root + File.separator;
+        
+        // Only the songs of this subtree, looked up by path prefix
+        Map<String, Song> songsByPath = new java.util.HashMap<>();
+        for (Song s : songRepository.findUnder(root.toString())) {
+            songsByPath.put(s.getFilePath(), s);
+        }
+        
+        // The filter runs on the walking thread only
+        java.util.Set<String> seen = new java.util.HashSet<>();
+        Map<String, FileFingerprint> changedFingerprints = new java.util.HashMap<>();
+        ConcurrentLinkedQueue<Song> parsed = new ConcurrentLinkedQueue<>();
+        ParallelMusicScanner scanner = new ParallelMusicScanner(MusicScanner::extractQuickMetadata);
+        if (job != null) {
+            job.onCancel(scanner::cancel);
+        }
+        scanner.scan(root, (path, attrs) -> {
+            String p = path.toFile().getAbsolutePath();
+            seen.add(p);
+            FileFingerprint current = FileFingerprint.of(attrs);
+            if (songsByPath.containsKey(p) && fingerprintCache.isUnchanged(p, current)) {
+                return false;
+            }
+            changedFingerprints.put(p, current);
+            return true;
+        }, song -> {
+            parsed.add(song);
+            if (job != null) job.fileProcessed();
+        });
+        boolean complete = !scanner.isCancelled();
+        
+        int added = 0, updated = 0;
+        List<Long> toDelete = new java.util.ArrayList<>();
+        synchronized (libraryWriteLock) {
+            List<Song> toSave = new java.util.ArrayList<>(parsed.size());
+            for (Song song : parsed) {
+                // Looked up again: the file lane may have added it during the walk
+                Song existingSong = songRepository.findByFilePath(song.getFilePath());
+                if (existingSong != null) {
+                    copyMetadata(song, existingSong);
+                    toSave.add(existingSong);
+                    updated++;
+                } else {
+                    toSave.add(song);
+                    added++;
+                }
+            }
+            for (Song song : songsByPath.values()) {
+                String p = song.getFilePath();
+                if (complete && p.startsWith(rootPrefix) && !seen.contains(p) && !new File(p).exists()) {
+                    toDelete.add(song.getId());
+                }
+            }
+            songRepository.saveAll(toSave);
+            songRepository.deleteAll(toDelete);
+        }
+        int removed = toDelete.size();
+        
+        fingerprintCache.putAll(changedFingerprints);
+        if (complete) {
+            fingerprintCache.retainUnder(rootPrefix, seen);
+        }
+        fingerprintCache.save();
+        enqueueForEnrichment(parsed);
+        
+        System.out.println("Incremental rescan of " + root + " finished in " + (System.currentTimeMillis() - start)
+                + " ms: " + seen.size() + " files, " + added + " added, " + updated + " updated, " + removed + " removed");
+        return added + updated + removed > 0;
+    }
     
     /**
      * Gets the total number of songs in the library.
@@ -344,78 +618,47 @@ public class MusicLibraryManager {
         return getSongCount() > 0;
     }
 
-    private void restartWatching(File folder) {
+    void restartWatching(File folder) {
         if (settingsService != null && settingsService.getSettings() != null &&
             !settingsService.getSettings().isLibraryWatcherEnabled()) {
             return;
         }
         stopWatching();
         try {
-            watchService = folder.toPath().getFileSystem().newWatchService();
-            registerAll(folder.toPath());
+            WatchService service = folder.toPath().getFileSystem().newWatchService();
+            watchService = service;
+            // Directories are registered on the watcher thread a batch at a time,
+            // so that startup does not wait for large trees and events from
+            // directories registered so far are handled meanwhile
+            registrationQueue.add(folder.toPath());
+            long registrationStart = System.currentTimeMillis();
             watching = true;
             watcherThread = new Thread(() -> {
                 while (watching) {
                     WatchKey key;
                     try {
-                        key = watchService.take();
-                    } catch (InterruptedException e) {
-                        break;
-                    }
-                    Path dir = watchKeys.get(key);
-                    if (dir == null) {
-                        key.reset();
-                        continue;
-                    }
-                    boolean changed = false;
-                    for (WatchEvent<?> event : key.pollEvents()) {
-                        WatchEvent.Kind<?> kind = event.kind();
-                        if (kind == StandardWatchEventKinds.OVERFLOW) {
-                            continue;
+                        if (registerQueued(service, REGISTRATION_BATCH_SIZE) > 0 && registrationQueue.isEmpty()) {
+                            System.out.println("Watching " + watchKeys.size() + " directories below " + folder
+                                    + " (registered in " + (System.currentTimeMillis() - registrationStart) + " ms)");
                         }
-                        @SuppressWarnings("unchecked")
-                        WatchEvent<Path> ev = (WatchEvent<Path>) event;
-                        Path name = ev.context();
-                        Path child = dir.resolve(name);
-                        File f = child.toFile();
-                        if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
-                            if (f.isDirectory()) {
-                                try { registerAll(child); } catch (Exception ignored) {}
-                                List<Song> songs = MusicScanner.scanDirectory(f);
-                                if (!songs.isEmpty()) {
-                                    applyScanResults(songs);
-                                    changed = true;
-                                }
-                            } else {
-                                Song s = MusicScanner.scanFile(f);
-                                if (s != null) {
-                                    upsertSongByPath(s);
-                                    changed = true;
-                                }
-                            }
-                        } else if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
-                            if (f.isFile()) {
-                                Song s = MusicScanner.scanFile(f);
-                                if (s != null) {
-                                    upsertSongByPath(s);
-                                    changed = true;
-                                }
-                            }
-                        } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
-                            String p = child.toAbsolutePath().toString();
-                            Song existing = findByFilePath(p);
-                            if (existing != null) {
-                                songRepository.delete(existing.getId());
-                                changed = true;
-                            }
+                        long timeout = registrationQueue.isEmpty() ? WATCH_POLL_MILLIS : 0;
+                        key = service.poll(timeout, TimeUnit.MILLISECONDS);
+                        while (key != null) {
+                            collectWatchEvents(key);
+                            key = service.poll();
                         }
+                    } catch (InterruptedException | ClosedWatchServiceException e) {
+                        break;
                     }
-                    boolean valid = key.reset();
-                    if (!valid) {
-                        watchKeys.remove(key);
-                    }
-                    if (changed && libraryUpdateCallback != null) {
-                        javafx.application.Platform.runLater(() -> libraryUpdateCallback.accept(getAllSongs()));
+                    // Apply settled changes as one batch with a single UI refresh
+                    List<WatchEventCoalescer.Change> ready =
+                            submitRescans(watchEvents.drainReady(System.currentTimeMillis()));
+                    if (!ready.isEmpty()) {
+                        scanScheduler.submit(ScanJob.Kind.FILE_CHANGES, null, ready.size() + " file changes", job -> {
+                            if (applyWatchChanges(ready) && libraryUpdateCallback != null) {
+                                javafx.application.Platform.runLater(() -> libraryUpdateCallback.accept(getAllSongs()));
+                            }
+                        });
                     }
                 }
             });
@@ -427,8 +670,231 @@ public class MusicLibraryManager {
         }
     }
 
+    /**
+     * Returns the number of directories registered with the file watcher so far.
+     */
+    public int getWatchedDirectoryCount() {
+        return watchKeys.size();
+    }
+
+    /**
+     * Returns the number of directories found but not yet registered with the
+     * file watcher. Zero once registration of the music folder has finished.
+     */
+    public int getPendingWatchRegistrations() {
+        return registrationQueue.size();
+    }
+
+    /**
+     * Hands the events of a signalled key to the coalescer. New directories are
+     * queued for registration ahead of the initial walk so that files copied
+     * into them are seen. An overflow schedules a rescan of the key's subtree.
+     */
+    private void collectWatchEvents(WatchKey key) {
+        Path dir = watchKeys.get(key);
+        if (dir == null) {
+            key.reset();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            WatchEvent.Kind<?> kind = event.kind();
+            if (kind == StandardWatchEventKinds.OVERFLOW) {
+                System.out.println("File watcher events lost below " + dir + "; scheduling a rescan");
+                watchEvents.recordOverflow(dir, now);
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            WatchEvent<Path> ev = (WatchEvent<Path>) event;
+            Path child = dir.resolve(ev.context());
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                registrationQueue.addFirst(child);
+                watchEvents.record(child, now);
+            } else if (MusicScanner.isSupportedAudioFile(child.getFileName().toString())
+                    || (kind == StandardWatchEventKinds.ENTRY_DELETE && watchedDirs.contains(child))) {
+                watchEvents.record(child, now);
+            }
+        }
+        if (!key.reset()) {
+            watchKeys.remove(key);
+            watchedDirs.remove(dir);
+        }
+    }
+
+    /**
+     * Queues the rescans of a batch of settled watcher changes as RESCAN jobs on
+     * the bulk lane, where a rescan already queued for the subtree absorbs them
+     * and they cannot hold up later single-file batches.
+     *
+     * @return The other changes, for the file lane
+     */
+    List<WatchEventCoalescer.Change> submitRescans(List<WatchEventCoalescer.Change> changes) {
+        List<WatchEventCoalescer.Change> fileChanges = new java.util.ArrayList<>(changes.size());
+        for (WatchEventCoalescer.Change change : changes) {
+            if (change.getType() != WatchEventCoalescer.ChangeType.RESCAN) {
+                fileChanges.add(change);
+                continue;
+            }
+            Path dir = change.getPath();
+            scanScheduler.submit(ScanJob.Kind.RESCAN, dir, "Rescan of " + dir + " after lost watcher events", job -> {
+                if (rescanSubtree(dir, job) && libraryUpdateCallback != null) {
+                    javafx.application.Platform.runLater(() -> libraryUpdateCallback.accept(getAllSongs()));
+                }
+            });
+        }
+        return fileChanges;
+    }
+
+    /**
+     * Brings a subtree whose watcher events were lost up to date and queues it
+     * for registration, since directories created meanwhile are not watched yet.
+     *
+     * @return true if the library changed
+     */
+    boolean rescanSubtree(Path dir, ScanJob job) {
+        boolean changed = incrementalScan(dir.toFile(), job);
+        registrationQueue.addFirst(dir);
+        return changed;
+    }
+
+    /**
+     * Applies a batch of settled watcher changes with one batched save and one
+     * batched delete. Deleted songs that turn up again at a created path are
+     * moved in place first, keeping their ID, statistics and playlist entries.
+     *
+     * @return true if the library changed
+     */
+    boolean applyWatchChanges(List<WatchEventCoalescer.Change> changes) {
+        List<Song> scanned = new java.util.ArrayList<>();
+        List<Long> removed = new java.util.ArrayList<>();
+        java.util.Set<String> movedTo = applyMoves(changes);
+        java.util.Set<String> changedPaths = new java.util.HashSet<>();
+        for (WatchEventCoalescer.Change change : changes) {
+            changedPaths.add(change.getPath().toAbsolutePath().toString());
+        }
+        for (WatchEventCoalescer.Change change : changes) {
+            Path path = change.getPath();
+            String p = path.toAbsolutePath().toString();
+            switch (change.getType()) {
+                case UPSERT:
+                    if (movedTo.contains(p)) {
+                        break;
+                    }
+                    Song song = MusicScanner.scanFile(path.toFile());
+                    if (song != null) {
+                        scanned.add(song);
+                    }
+                    break;
+                case DIRECTORY:
+                    // Files with their own change in this batch or still pending are read by that change
+                    scanned.addAll(new ParallelMusicScanner().scan(path, (file, attrs) -> {
+                        String f = file.toAbsolutePath().toString();
+                        return !changedPaths.contains(f) && !movedTo.contains(f) && !watchEvents.isPending(file);
+                    }));
+                    break;
+                case RESCAN:
+                    // Runs as a bulk job, see submitRescans
+                    break;
+                case DELETE:
+                    Song existing = findByFilePath(p);
+                    if (existing != null) {
+                        removed.add(existing.getId());
+                    } else {
+                        // A deleted directory takes its songs with it
+                        for (Song s : songRepository.findUnder(p)) {
+                            removed.add(s.getId());
+                            fingerprintCache.remove(s.getFilePath());
+                        }
+                    }
+                    fingerprintCache.remove(p);
+                    break;
+            }
+        }
+        // Record what the tags were read from so that a later move can be recognised
+        for (Song song : scanned) {
+            FileFingerprint current = readFingerprint(Paths.get(song.getFilePath()));
+            if (current != null) {
+                fingerprintCache.put(song.getFilePath(), current);
+            } else {
+                fingerprintCache.remove(song.getFilePath());
+            }
+        }
+        applyScanResults(scanned);
+        if (!removed.isEmpty()) {
+            songRepository.deleteAll(removed);
+        }
+        System.out.println("Applied " + changes.size() + " file changes: " + movedTo.size() + " songs moved, "
+                + scanned.size() + " updated, " + removed.size() + " removed");
+        return !movedTo.isEmpty() || !scanned.isEmpty() || !removed.isEmpty();
+    }
+
+    /**
+     * Pairs the deletes of a batch with its creates and gives the paired songs
+     * their new path.
+     *
+     * @return The new paths of the moved songs
+     */
+    private java.util.Set<String> applyMoves(List<WatchEventCoalescer.Change> changes) {
+        List<Song> deletedSongs = new java.util.ArrayList<>();
+        List<Path> deletedDirs = new java.util.ArrayList<>();
+        List<Path> createdFiles = new java.util.ArrayList<>();
+        List<Path> createdDirs = new java.util.ArrayList<>();
+        for (WatchEventCoalescer.Change change : changes) {
+            Path path = change.getPath().toAbsolutePath();
+            switch (change.getType()) {
+                case DELETE:
+                    Song existing = findByFilePath(path.toString());
+                    if (existing != null) {
+                        deletedSongs.add(existing);
+                    } else {
+                        deletedDirs.add(path);
+                        deletedSongs.addAll(songRepository.findUnder(path.toString()));
+                    }
+                    break;
+                case UPSERT:
+                    // A path that still has a song was modified, not moved to
+                    if (findByFilePath(path.toString()) == null) {
+                        createdFiles.add(path);
+                    }
+                    break;
+                case DIRECTORY:
+                    createdDirs.add(path);
+                    break;
+                default:
+                    break;
+            }
+        }
+        List<MoveDetector.Move> moves = new MoveDetector(fingerprintCache)
+                .detect(deletedSongs, deletedDirs, createdFiles, createdDirs);
+        if (moves.isEmpty()) {
+            return java.util.Collections.emptySet();
+        }
+        java.util.Set<String> movedTo = new java.util.HashSet<>();
+        List<Song> moved = new java.util.ArrayList<>(moves.size());
+        synchronized (libraryWriteLock) {
+            for (MoveDetector.Move move : moves) {
+                move.getSong().setFilePath(move.getTo());
+                fingerprintCache.remove(move.getFrom());
+                fingerprintCache.put(move.getTo(), move.getFingerprint());
+                moved.add(move.getSong());
+                movedTo.add(move.getTo());
+            }
+            songRepository.saveAll(moved);
+        }
+        return movedTo;
+    }
+
+    private static FileFingerprint readFingerprint(Path file) {
+        try {
+            return FileFingerprint.of(Files.readAttributes(file, BasicFileAttributes.class));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     private void stopWatching() {
         watching = false;
+        watchEvents.clear();
         if (watcherThread != null) {
             watcherThread.interrupt();
             watcherThread = null;
@@ -438,76 +904,170 @@ public class MusicLibraryManager {
             watchService = null;
         }
         watchKeys.clear();
+        watchedDirs.clear();
+        registrationQueue.clear();
     }
 
-    private void registerAll(Path start) throws IOException {
-        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                register(dir);
-                return FileVisitResult.CONTINUE;
+    /**
+     * Registers up to {@code max} queued directories and queues their subdirectories.
+     *
+     * @return Number of directories taken from the queue
+     */
+    private int registerQueued(WatchService service, int max) {
+        int count = 0;
+        Path dir;
+        while (count < max && (dir = registrationQueue.poll()) != null) {
+            count++;
+            try {
+                register(service, dir);
+                try (DirectoryStream<Path> children = Files.newDirectoryStream(dir,
+                        child -> Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS))) {
+                    for (Path child : children) {
+                        registrationQueue.add(child);
+                    }
+                }
+            } catch (IOException | ClosedWatchServiceException e) {
+                // Removed meanwhile or unreadable; a delete event or rescan covers it
             }
-        });
+        }
+        return count;
     }
 
-    private void register(Path dir) throws IOException {
-        WatchKey key = dir.register(watchService,
+    private void register(WatchService service, Path dir) throws IOException {
+        WatchKey key = dir.register(service,
                 StandardWatchEventKinds.ENTRY_CREATE,
                 StandardWatchEventKinds.ENTRY_MODIFY,
                 StandardWatchEventKinds.ENTRY_DELETE);
         watchKeys.put(key, dir);
+        watchedDirs.add(dir);
     }
 
-    private void applyScanResults(List<Song> scannedSongs) {
-        java.util.Set<String> existing = new java.util.HashSet<>();
-        for (Song s : songRepository.findAll()) {
-            if (s.getFilePath() != null) existing.add(s.getFilePath());
-        }
+    /**
+     * Merges scanned songs into the library with one batched save.
+     *
+     * @return The songs that were not in the library before
+     */
+    private List<Song> applyScanResults(List<Song> scannedSongs) {
+        List<Song> toSave = new java.util.ArrayList<>(scannedSongs.size());
+        List<Song> added = new java.util.ArrayList<>();
+        // The same file can be read twice in one batch; the last read wins
+        Map<String, Song> byPath = new java.util.LinkedHashMap<>();
         for (Song song : scannedSongs) {
-            if (song.getFilePath() == null) continue;
-            if (existing.contains(song.getFilePath())) {
-                Song existingSong = songRepository.findAll().stream()
-                        .filter(x -> song.getFilePath().equals(x.getFilePath()))
-                        .findFirst().orElse(null);
+            if (song.getFilePath() != null) {
+                byPath.put(song.getFilePath(), song);
+            }
+        }
+        synchronized (libraryWriteLock) {
+            for (Song song : byPath.values()) {
+                Song existingSong = songRepository.findByFilePath(song.getFilePath());
                 if (existingSong != null) {
-                    existingSong.setTitle(song.getTitle());
-                    existingSong.setArtist(song.getArtist());
-                    existingSong.setAlbum(song.getAlbum());
-                    existingSong.setGenre(song.getGenre());
-                    existingSong.setDuration(song.getDuration());
-                    existingSong.setTrackNumber(song.getTrackNumber());
-                    existingSong.setYear(song.getYear());
-                    songRepository.save(existingSong);
+                    // Update metadata in case tags changed
+                    copyMetadata(song, existingSong);
+                    toSave.add(existingSong);
+                } else {
+                    toSave.add(song);
+                    added.add(song);
                 }
-            } else {
-                songRepository.save(song);
             }
+            songRepository.saveAll(toSave);
         }
+        return added;
     }
 
-    private void upsertSongByPath(Song song) {
-        if (song == null || song.getFilePath() == null) return;
-        Song existingSong = findByFilePath(song.getFilePath());
-        if (existingSong != null) {
-            existingSong.setTitle(song.getTitle());
-            existingSong.setArtist(song.getArtist());
-            existingSong.setAlbum(song.getAlbum());
-            existingSong.setGenre(song.getGenre());
-            existingSong.setDuration(song.getDuration());
-            existingSong.setTrackNumber(song.getTrackNumber());
-            existingSong.setYear(song.getYear());
-            songRepository.save(existingSong);
-        } else {
-            songRepository.save(song);
+    /**
+     * Queues songs that a header-only read left without a duration for the full
+     * tag read in the background.
+     */
+    private void enqueueForEnrichment(java.util.Collection<Song> songs) {
+        List<String> paths = new java.util.ArrayList<>();
+        synchronized (songs) {
+            for (Song song : songs) {
+                if (song.getDuration() == 0 && song.getFilePath() != null) {
+                    paths.add(song.getFilePath());
+                }
+            }
         }
+        tagEnrichment.enqueue(paths);
     }
 
-    private Song findByFilePath(String path) {
-        if (path == null) return null;
-        for (Song s : songRepository.findAll()) {
-            if (path.equals(s.getFilePath())) return s;
+    /**
+     * Queues songs without a duration whose full tag read was never attempted,
+     * or whose file changed since. Files that the full read could not get a
+     * duration from are not read again on every start.
+     *
+     * @return Number of songs queued
+     */
+    int enqueueUnreadForEnrichment(java.util.Collection<Song> songs) {
+        List<String> paths = new java.util.ArrayList<>();
+        for (Song song : songs) {
+            String path = song.getFilePath();
+            if (song.getDuration() == 0 && path != null) {
+                FileFingerprint current = readFingerprint(Paths.get(path));
+                if (current != null && !fingerprintCache.wereTagsRead(path, current)) {
+                    paths.add(path);
+                }
+            }
         }
-        return null;
+        tagEnrichment.enqueue(paths);
+        return paths.size();
+    }
+
+    /**
+     * Fully reads a file for enrichment and records the attempt against the
+     * file's fingerprint, whether or not the read succeeds.
+     */
+    private Song readForEnrichment(File file) {
+        FileFingerprint before = readFingerprint(file.toPath());
+        try {
+            return MusicScanner.readFullMetadata(file);
+        } finally {
+            fingerprintCache.markTagsRead(file.getPath(), before);
+        }
+    }
+
+    /**
+     * Merges fully read songs into the library, updating only songs that are still in it.
+     */
+    private void applyEnrichedSongs(List<Song> enriched) {
+        List<Song> updated = new java.util.ArrayList<>(enriched.size());
+        synchronized (libraryWriteLock) {
+            for (Song song : enriched) {
+                Song existing = songRepository.findByFilePath(song.getFilePath());
+                if (existing != null) {
+                    copyMetadata(song, existing);
+                    updated.add(existing);
+                }
+            }
+            if (updated.isEmpty()) {
+                return;
+            }
+            songRepository.saveAll(updated);
+        }
+        Consumer<List<Song>> callback = songsEnrichedCallback;
+        if (callback != null) {
+            javafx.application.Platform.runLater(() -> callback.accept(updated));
+        }
+    }
+
+    /**
+     * Copies tag-derived fields from a freshly scanned song onto the library's
+     * existing instance, leaving its ID, play statistics, rating and favorite flag intact.
+     */
+    private static void copyMetadata(Song from, Song to) {
+        to.setTitle(from.getTitle());
+        to.setArtist(from.getArtist());
+        to.setAlbum(from.getAlbum());
+        to.setGenre(from.getGenre());
+        // A header-only read may not know the duration; keep the last known one until the full read
+        if (from.getDuration() > 0) {
+            to.setDuration(from.getDuration());
+        }
+        to.setTrackNumber(from.getTrackNumber());
+        to.setYear(from.getYear());
+    }
+
+    private Song findByFilePath(String path) {
+        return songRepository.findByFilePath(path);
     }
 
     public void refreshWatcherFromSettings() {
@@ -535,5 +1095,12 @@ public class MusicLibraryManager {
 
     public void shutdown() {
         stopWatching();
+        scanScheduler.shutdown();
+        tagEnrichment.shutdown();
+        // Keeps the record of files whose full tag read was attempted
+        fingerprintCache.save();
+        if (songRepository instanceof PersistentSongRepository) {
+            ((PersistentSongRepository) songRepository).shutdown();
+        }
     }
 }
@@ -0,0 +1,139 @@
+package com.musicplayer.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.musicplayer.data.models.Song;
+
+/**
+ * Collects songs from scan workers and hands them on in batches, at most one
+ * batch per interval, together with a {@link ScanProgress} snapshot.
+ * <p>
+ * Workers call {@link #accept(Song)} and the walker calls {@link #fileFound()};
+ * both only touch concurrent counters and a queue. Batches are published from
+ * a single timer thread, so the sinks never run concurrently. A batch holds at
+ * most {@code maxBatchSize} songs; anything beyond that waits for the next tick.
+ */
+public class ScanBatchPublisher implements Consumer<Song> {
+
+    /** Default minimum time between two batches. */
+    public static final long DEFAULT_INTERVAL_MILLIS = 250;
+    /** Default upper bound on the number of songs in one batch. */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 2000;
+
+    private final long intervalMillis;
+    private final int maxBatchSize;
+    private final Consumer<List<Song>> batchSink;
+    private final Consumer<ScanProgress> progressSink;
+    private final ConcurrentLinkedQueue<Song> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger filesFound = new AtomicInteger();
+    private final AtomicInteger filesParsed = new AtomicInteger();
+    private final long startedAt = System.currentTimeMillis();
+    private ScheduledExecutorService timer;
+
+    public ScanBatchPublisher(Consumer<List<Song>> batchSink, Consumer<ScanProgress> progressSink) {
+        this(DEFAULT_INTERVAL_MILLIS, DEFAULT_MAX_BATCH_SIZE, batchSink, progressSink);
+    }
+
+    /**
+     * @param intervalMillis Minimum time between two batches
+     * @param maxBatchSize   Maximum number of songs per batch
+     * @param batchSink      Receives each batch, on the publisher thread
+     * @param progressSink   Receives a progress snapshot after each tick, on the publisher thread
+     */
+    public ScanBatchPublisher(long intervalMillis, int maxBatchSize,
+                              Consumer<List<Song>> batchSink, Consumer<ScanProgress> progressSink) {
+        this.intervalMillis = intervalMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchSink = batchSink;
+        this.progressSink = progressSink;
+    }
+
+    /**
+     * Counts an audio file discovered by the walk.
+     */
+    public void fileFound() {
+        filesFound.incrementAndGet();
+    }
+
+    /**
+     * Queues a parsed song for the next batch. Safe to call from any thread.
+     */
+    @Override
+    public void accept(Song song) {
+        queue.add(song);
+        filesParsed.incrementAndGet();
+    }
+
+    /**
+     * Starts publishing batches on a timer thread.
+     *
+     * @param threadName Name of the timer thread
+     */
+    public synchronized void start(String threadName) {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                publish(false);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to publish scan results: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the timer and publishes everything still queued, followed by a
+     * final progress snapshot. Call once the scan has returned.
+     */
+    public void finish() {
+        ScheduledExecutorService t;
+        synchronized (this) {
+            t = timer;
+            timer = null;
+        }
+        if (t != null) {
+            t.shutdown();
+            try {
+                t.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        publish(true);
+    }
+
+    /**
+     * Publishes one batch, or on the final call all remaining songs in batches.
+     */
+    synchronized void publish(boolean finished) {
+        do {
+            List<Song> batch = new ArrayList<>(Math.min(queue.size(), maxBatchSize));
+            Song song;
+            while (batch.size() < maxBatchSize && (song = queue.poll()) != null) {
+                batch.add(song);
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            batchSink.accept(batch);
+        } while (finished);
+        progressSink.accept(progress(finished));
+    }
+
+    private ScanProgress progress(boolean finished) {
+        return new ScanProgress(filesFound.get(), filesParsed.get(), System.currentTimeMillis() - startedAt, finished);
+    }
+}
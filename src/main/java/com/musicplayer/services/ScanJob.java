@@ -0,0 +1,172 @@
+package com.musicplayer.services;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A unit of scanning work owned by the {@link ScanScheduler}.
+ * <p>
+ * Cancellation is cooperative: {@link #cancel()} marks the job and runs the
+ * registered cancel hooks (e.g. stopping a tree walk); the task checks
+ * {@link #isCancelled()} at convenient points and must not treat an early stop
+ * as a complete result.
+ */
+public final class ScanJob {
+
+    public enum State { QUEUED, RUNNING, CANCELLED, DONE, FAILED }
+
+    /**
+     * What a job does. Bulk kinds are ordered by how much they cover: a queued
+     * job makes a newly submitted job redundant if it covers the same root or an
+     * ancestor and is of the same or a later kind.
+     */
+    public enum Kind {
+        /** Settled watcher changes; runs on the file lane ahead of bulk work. */
+        FILE_CHANGES,
+        /** Incremental rescan that only re-reads changed files. */
+        RESCAN,
+        /** Scan that reads every file and merges it into the library. */
+        SCAN,
+        /** Scan that replaces the library with what it finds. */
+        FULL_SCAN;
+
+        boolean isBulk() {
+            return this != FILE_CHANGES;
+        }
+    }
+
+    /** The work itself. */
+    @FunctionalInterface
+    public interface Task {
+        void run(ScanJob job) throws Exception;
+    }
+
+    private static final AtomicInteger ID_COUNTER = new AtomicInteger();
+
+    private final int id = ID_COUNTER.incrementAndGet();
+    private final Kind kind;
+    private final Path root;
+    private final String description;
+    private final Task task;
+    private final AtomicInteger filesProcessed = new AtomicInteger();
+    private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<>();
+    private volatile State state = State.QUEUED;
+    private volatile boolean cancelled;
+    // System.nanoTime() readings, valid once started/finished is set
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile boolean started;
+    private volatile boolean finished;
+
+    ScanJob(Kind kind, Path root, String description, Task task) {
+        this.kind = kind;
+        this.root = root;
+        this.description = description;
+        this.task = task;
+    }
+
+    public int getId() { return id; }
+    public Kind getKind() { return kind; }
+    /** Root of the scanned subtree, or null for file-lane work. */
+    public Path getRoot() { return root; }
+    public String getDescription() { return description; }
+    public State getState() { return state; }
+    public int getFilesProcessed() { return filesProcessed.get(); }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Whether the job is queued or running. */
+    public boolean isActive() {
+        return state == State.QUEUED || state == State.RUNNING;
+    }
+
+    /**
+     * Counts processed files for the throughput figure.
+     */
+    public void fileProcessed() {
+        filesProcessed.incrementAndGet();
+    }
+
+    /**
+     * Registers an action that is run when the job is cancelled, or right away
+     * if it already was.
+     */
+    public void onCancel(Runnable hook) {
+        cancelHooks.add(hook);
+        if (cancelled) {
+            hook.run();
+        }
+    }
+
+    /**
+     * Requests cancellation. A queued job never starts; a running job stops at
+     * its next check.
+     */
+    public void cancel() {
+        if (cancelled || !isActive()) {
+            return;
+        }
+        cancelled = true;
+        for (Runnable hook : cancelHooks) {
+            try {
+                hook.run();
+            } catch (RuntimeException e) {
+                System.err.println("Cancel hook of " + description + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the files processed per second while running, or over the whole
+     * run once finished.
+     */
+    public double getFilesPerSecond() {
+        if (!started) {
+            return 0;
+        }
+        long start = startedAt;
+        long end = finished ? finishedAt : System.nanoTime();
+        return end > start ? filesProcessed.get() * 1e9 / (end - start) : 0;
+    }
+
+    /**
+     * Checks whether this job makes {@code other} redundant.
+     */
+    boolean covers(ScanJob other) {
+        return kind.isBulk() && other.kind.isBulk()
+                && kind.compareTo(other.kind) >= 0
+                && root != null && other.root != null && other.root.startsWith(root);
+    }
+
+    void run() {
+        startedAt = System.nanoTime();
+        started = true;
+        state = State.RUNNING;
+        try {
+            task.run(this);
+            state = cancelled ? State.CANCELLED : State.DONE;
+        } catch (Exception e) {
+            System.err.println(description + " failed: " + e.getMessage());
+            e.printStackTrace();
+            state = State.FAILED;
+        } finally {
+            finishedAt = System.nanoTime();
+            finished = true;
+        }
+    }
+
+    void markCancelled() {
+        cancelled = true;
+        state = State.CANCELLED;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s [%s, %d files, %.0f files/s]",
+                id, description, state, filesProcessed.get(), getFilesPerSecond());
+    }
+}
@@ -0,0 +1,41 @@
+package com.musicplayer.services;
+
+/**
+ * Snapshot of the progress of a folder scan.
+ */
+public final class ScanProgress {
+
+    private final int filesFound;
+    private final int filesParsed;
+    private final long elapsedMillis;
+    private final boolean finished;
+
+    public ScanProgress(int filesFound, int filesParsed, long elapsedMillis, boolean finished) {
+        this.filesFound = filesFound;
+        this.filesParsed = filesParsed;
+        this.elapsedMillis = elapsedMillis;
+        this.finished = finished;
+    }
+
+    /** Audio files discovered by the tree walk so far. */
+    public int getFilesFound() { return filesFound; }
+
+    /** Audio files whose tags have been read so far. */
+    public int getFilesParsed() { return filesParsed; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public boolean isFinished() { return finished; }
+
+    /**
+     * Returns the average number of files parsed per second since the scan started.
+     */
+    public double getFilesPerSecond() {
+        return elapsedMillis > 0 ? filesParsed * 1000.0 / elapsedMillis : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d found, %d read (%.0f files/s)", filesFound, filesParsed, getFilesPerSecond());
+    }
+}
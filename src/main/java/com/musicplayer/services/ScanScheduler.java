@@ -0,0 +1,220 @@
+package com.musicplayer.services;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Owns all library scanning work and runs it on two single-threaded lanes.
+ * <p>
+ * Bulk scans and rescans share the bulk lane, so they never overlap. Settled
+ * watcher changes run on the file lane, which has its own thread and therefore
+ * never waits behind a long bulk scan. Submitting a bulk job whose root is
+ * already covered by a queued job returns the queued job; a new job that
+ * covers queued jobs replaces them.
+ * <p>
+ * The lane threads are started on first use and are daemons.
+ */
+public class ScanScheduler {
+
+    /** Number of finished jobs kept for {@link #getJobs()}. */
+    private static final int FINISHED_JOBS_KEPT = 20;
+
+    private final Lane fileLane = new Lane("ScanScheduler-files", Thread.NORM_PRIORITY);
+    private final Lane bulkLane = new Lane("ScanScheduler-bulk", Thread.NORM_PRIORITY - 1);
+    private final Deque<ScanJob> finished = new ArrayDeque<>();
+    private volatile Consumer<ScanJob> jobListener;
+    private volatile boolean shutdown;
+
+    /**
+     * Queues a job.
+     *
+     * @param kind        What the job does; decides its lane
+     * @param root        Root of the scanned subtree, or null for file changes
+     * @param description Human readable description for logs and the UI
+     * @param task        The work
+     * @return The queued job, or an already queued job that covers it
+     */
+    public ScanJob submit(ScanJob.Kind kind, Path root, String description, ScanJob.Task task) {
+        ScanJob job = new ScanJob(kind, root != null ? root.toAbsolutePath().normalize() : null, description, task);
+        Lane lane = kind.isBulk() ? bulkLane : fileLane;
+        List<ScanJob> replaced = new ArrayList<>();
+        synchronized (this) {
+            if (shutdown) {
+                job.markCancelled();
+                return job;
+            }
+            for (ScanJob queued : lane.queue) {
+                if (queued.covers(job)) {
+                    return queued;
+                }
+            }
+            for (Iterator<ScanJob> it = lane.queue.iterator(); it.hasNext(); ) {
+                ScanJob queued = it.next();
+                if (job.covers(queued)) {
+                    it.remove();
+                    queued.markCancelled();
+                    rememberFinished(queued);
+                    replaced.add(queued);
+                }
+            }
+            lane.queue.add(job);
+            lane.ensureStarted();
+            notifyAll();
+        }
+        job.onCancel(() -> dequeueCancelled(lane, job));
+        for (ScanJob r : replaced) {
+            System.out.println("Scan job " + r + " superseded by " + description);
+            fireChanged(r);
+        }
+        fireChanged(job);
+        return job;
+    }
+
+    /**
+     * Returns queued and running jobs followed by recently finished ones.
+     */
+    public synchronized List<ScanJob> getJobs() {
+        List<ScanJob> jobs = new ArrayList<>();
+        for (Lane lane : new Lane[] {fileLane, bulkLane}) {
+            if (lane.running != null) jobs.add(lane.running);
+            jobs.addAll(lane.queue);
+        }
+        jobs.addAll(finished);
+        return jobs;
+    }
+
+    /**
+     * Checks whether any bulk job is queued or running.
+     */
+    public synchronized boolean hasActiveBulkJobs() {
+        return bulkLane.running != null || !bulkLane.queue.isEmpty();
+    }
+
+    /**
+     * Cancels all queued and running bulk jobs. File-lane work is left alone.
+     */
+    public void cancelBulkJobs() {
+        List<ScanJob> jobs;
+        synchronized (this) {
+            jobs = new ArrayList<>(bulkLane.queue);
+            if (bulkLane.running != null) jobs.add(bulkLane.running);
+        }
+        for (ScanJob job : jobs) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * Sets a listener that is told about every state change of a job. It is
+     * called from the submitting, cancelling or lane thread.
+     */
+    public void setJobListener(Consumer<ScanJob> listener) {
+        this.jobListener = listener;
+    }
+
+    /**
+     * Cancels everything and stops the lane threads.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+        }
+        cancelBulkJobs();
+        synchronized (this) {
+            for (ScanJob job : fileLane.queue) job.markCancelled();
+            fileLane.queue.clear();
+            if (fileLane.running != null) fileLane.running.cancel();
+            notifyAll();
+        }
+    }
+
+    private void dequeueCancelled(Lane lane, ScanJob job) {
+        boolean removed;
+        synchronized (this) {
+            removed = lane.queue.remove(job);
+            if (removed) {
+                job.markCancelled();
+                rememberFinished(job);
+            }
+        }
+        if (removed) {
+            fireChanged(job);
+        }
+    }
+
+    private void rememberFinished(ScanJob job) {
+        finished.addFirst(job);
+        while (finished.size() > FINISHED_JOBS_KEPT) {
+            finished.removeLast();
+        }
+    }
+
+    private void fireChanged(ScanJob job) {
+        Consumer<ScanJob> listener = jobListener;
+        if (listener != null) {
+            try {
+                listener.accept(job);
+            } catch (RuntimeException e) {
+                System.err.println("Scan job listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /** One queue with its worker thread. */
+    private final class Lane {
+        final Deque<ScanJob> queue = new ArrayDeque<>(); // guarded by the scheduler
+        final String threadName;
+        final int priority;
+        ScanJob running; // guarded by the scheduler
+        Thread thread;
+
+        Lane(String threadName, int priority) {
+            this.threadName = threadName;
+            this.priority = priority;
+        }
+
+        void ensureStarted() {
+            if (thread == null) {
+                thread = new Thread(this::work, threadName);
+                thread.setDaemon(true);
+                thread.setPriority(priority);
+                thread.start();
+            }
+        }
+
+        private void work() {
+            while (true) {
+                ScanJob job;
+                synchronized (ScanScheduler.this) {
+                    while (queue.isEmpty() && !shutdown) {
+                        try {
+                            ScanScheduler.this.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (shutdown && queue.isEmpty()) {
+                        thread = null;
+                        return;
+                    }
+                    job = queue.poll();
+                    running = job;
+                }
+                fireChanged(job);
+                long start = System.currentTimeMillis();
+                job.run();
+                System.out.println("Scan job " + job + " finished in " + (System.currentTimeMillis() - start) + " ms");
+                synchronized (ScanScheduler.this) {
+                    running = null;
+                    rememberFinished(job);
+                }
+                fireChanged(job);
+            }
+        }
+    }
+}
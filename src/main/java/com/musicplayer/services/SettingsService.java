@@ -9,9 +9,12 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.musicplayer.data.models.Settings;
+import com.musicplayer.data.storage.CoalescingJsonWriter;
 
 /**
  * Service for managing application settings.
+ * Saves are handed to the shared {@link CoalescingJsonWriter}, so frequent
+ * changes such as volume or mini player moves end up in one write.
  */
 public class SettingsService {
     
@@ -24,6 +27,7 @@ public class SettingsService {
     /** Settings file resolved at runtime (default: data/settings.json) */
     private final File settingsFile;
     private final ObjectMapper objectMapper;
+    private final CoalescingJsonWriter writer = CoalescingJsonWriter.shared();
     private Settings settings;
     
     public SettingsService() {
@@ -47,6 +51,7 @@ public class SettingsService {
      * Load settings from file or create default settings.
      */
     private void loadSettings() {
+        writer.flush(settingsFile.toPath());
         if (settingsFile.exists()) {
             try {
                 settings = objectMapper.readValue(settingsFile, Settings.class);
@@ -58,6 +63,7 @@ public class SettingsService {
         } else {
             settings = new Settings(); // Use defaults
             saveSettings(); // Save defaults to file
+            writer.flush(settingsFile.toPath());
         }
         
         // Always normalize visualizer color mode after loading (handles both new Settings and loaded ones)
@@ -118,20 +124,15 @@ public class SettingsService {
     }
     
     /**
-     * Save current settings to file.
+     * Save current settings to file. The file is written shortly after, off
+     * the calling thread.
      */
     public void saveSettings() {
         File dataDir = settingsFile.getParentFile();
         if (!dataDir.exists()) {
             dataDir.mkdirs();
         }
-        
-        try {
-            objectMapper.writeValue(settingsFile, settings);
-            System.out.println("Settings saved to file");
-        } catch (IOException e) {
-            System.err.println("Failed to save settings: " + e.getMessage());
-        }
+        writer.write(settingsFile.toPath(), objectMapper.writer(), () -> settings);
     }
     
     /**
@@ -0,0 +1,154 @@
+package com.musicplayer.services;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.musicplayer.data.models.Song;
+import com.musicplayer.utils.MusicScanner;
+
+/**
+ * Second phase of a scan: re-reads files that were registered from their tag
+ * headers only with a full tag parse, on a single low-priority background
+ * thread.
+ * <p>
+ * Paths are queued once even if enqueued repeatedly. Fully read songs are
+ * handed to the result sink in batches, whenever a batch is full or the queue
+ * has run dry; the sink merges them into the library.
+ */
+public class TagEnrichmentService {
+
+    /** Default number of songs handed to the sink at once. */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final Function<File, Song> reader;
+    private final int batchSize;
+    private final Consumer<List<Song>> resultSink;
+    private final LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+    private Thread worker;
+
+    /**
+     * @param resultSink Receives batches of fully read songs on the enrichment thread
+     */
+    public TagEnrichmentService(Consumer<List<Song>> resultSink) {
+        this(MusicScanner::readFullMetadata, DEFAULT_BATCH_SIZE, resultSink);
+    }
+
+    /**
+     * @param reader     Full metadata reader; returns null for files that are gone or unreadable
+     * @param batchSize  Maximum number of songs handed to the sink at once
+     * @param resultSink Receives batches of fully read songs on the enrichment thread
+     */
+    public TagEnrichmentService(Function<File, Song> reader, int batchSize, Consumer<List<Song>> resultSink) {
+        this.reader = reader;
+        this.batchSize = Math.max(1, batchSize);
+        this.resultSink = resultSink;
+    }
+
+    /**
+     * Queues files for a full read. Files already waiting are not queued twice.
+     *
+     * @param filePaths Absolute paths of the files
+     */
+    public void enqueue(Collection<String> filePaths) {
+        if (!running) {
+            return;
+        }
+        int added = 0;
+        for (String path : filePaths) {
+            if (path != null && pending.add(path)) {
+                queue.add(path);
+                added++;
+            }
+        }
+        if (added > 0) {
+            ensureStarted();
+        }
+    }
+
+    /**
+     * Returns the number of files queued or being read whose results have not
+     * reached the sink yet.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops the enrichment thread. Files still queued are dropped.
+     */
+    public synchronized void shutdown() {
+        running = false;
+        queue.clear();
+        pending.clear();
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    private synchronized void ensureStarted() {
+        if (worker != null || !running) {
+            return;
+        }
+        worker = new Thread(this::run, "TagEnricher");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+    }
+
+    private void run() {
+        List<Song> batch = new ArrayList<>(batchSize);
+        List<String> batchPaths = new ArrayList<>(batchSize);
+        long start = 0;
+        int enriched = 0;
+        while (running) {
+            String path;
+            try {
+                path = batchPaths.isEmpty() ? queue.take() : queue.poll();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (path != null) {
+                if (enriched == 0 && batchPaths.isEmpty()) {
+                    start = System.currentTimeMillis();
+                }
+                batchPaths.add(path);
+                try {
+                    Song song = reader.apply(new File(path));
+                    if (song != null) {
+                        batch.add(song);
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to read tags of " + path + ": " + e.getMessage());
+                }
+            }
+            if (path == null || batchPaths.size() >= batchSize) {
+                try {
+                    if (!batch.isEmpty()) {
+                        resultSink.accept(new ArrayList<>(batch));
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Failed to apply enriched tags: " + e.getMessage());
+                }
+                enriched += batch.size();
+                pending.removeAll(batchPaths);
+                batch.clear();
+                batchPaths.clear();
+                if (pending.isEmpty()) {
+                    System.out.println("Tag enrichment finished: " + enriched + " songs in "
+                            + (System.currentTimeMillis() - start) + " ms");
+                    enriched = 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.musicplayer.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects file watcher events per path and releases them as batches of
+ * settled changes.
+ * <p>
+ * Any sequence of create, modify and delete events for a path collapses into a
+ * single pending entry; what happened is decided from the file system once the
+ * path has gone quiet. A file only counts as settled when its size and
+ * modification time are unchanged since its last event, so files that are still
+ * being copied stay pending. Nothing is released while events keep arriving
+ * anywhere, unless the oldest pending change has waited longer than the maximum
+ * batch delay; copying a whole album therefore yields one batch.
+ * <p>
+ * Times are passed in by the caller, which keeps this class free of threads.
+ */
+public class WatchEventCoalescer {
+
+    /** Default time without events after which changes are released. */
+    public static final long DEFAULT_QUIET_MILLIS = 1000;
+    /** Default upper bound on how long a change may be held back by ongoing activity. */
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 15_000;
+
+    /**
+     * What to do with a settled path.
+     */
+    public enum ChangeType {
+        /** The path is a file; (re-)read its tags. */
+        UPSERT,
+        /** The path no longer exists. */
+        DELETE,
+        /** The path is a new directory; scan it. */
+        DIRECTORY,
+        /** Events below the directory were lost; rescan its subtree. */
+        RESCAN
+    }
+
+    /**
+     * A settled change for one path.
+     */
+    public static final class Change {
+        private final Path path;
+        private final ChangeType type;
+
+        Change(Path path, ChangeType type) {
+            this.path = path;
+            this.type = type;
+        }
+
+        public Path getPath() { return path; }
+        public ChangeType getType() { return type; }
+
+        @Override
+        public String toString() {
+            return type + " " + path;
+        }
+    }
+
+    private static final class Pending {
+        long lastEventAt;
+        long size;
+        long modifiedMillis;
+        boolean rescan;
+    }
+
+    private final long quietMillis;
+    private final long maxDelayMillis;
+    private final Map<Path, Pending> pending = new LinkedHashMap<>();
+    private long lastEventAt;
+    private long oldestPendingSince = -1;
+    private long eventCount;
+
+    public WatchEventCoalescer() {
+        this(DEFAULT_QUIET_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * @param quietMillis    Time without events after which changes are released
+     * @param maxDelayMillis Time after which changes are released despite ongoing events
+     */
+    public WatchEventCoalescer(long quietMillis, long maxDelayMillis) {
+        this.quietMillis = quietMillis;
+        this.maxDelayMillis = Math.max(quietMillis, maxDelayMillis);
+    }
+
+    /**
+     * Records an event for {@code path}.
+     *
+     * @param path Absolute path the event refers to
+     * @param now  Current time in milliseconds
+     */
+    public synchronized void record(Path path, long now) {
+        eventCount++;
+        Pending entry = pending.computeIfAbsent(path, p -> new Pending());
+        entry.lastEventAt = now;
+        BasicFileAttributes attrs = stat(path);
+        entry.size = attrs != null ? attrs.size() : -1;
+        entry.modifiedMillis = attrs != null ? attrs.lastModifiedTime().toMillis() : -1;
+        lastEventAt = now;
+        if (oldestPendingSince < 0) {
+            oldestPendingSince = now;
+        }
+    }
+
+    /**
+     * Records that events below directory {@code dir} were lost, e.g. because
+     * the watcher's event queue overflowed. Once quiet, the directory is
+     * released as a {@link ChangeType#RESCAN}.
+     *
+     * @param dir Absolute path of the directory
+     * @param now Current time in milliseconds
+     */
+    public synchronized void recordOverflow(Path dir, long now) {
+        record(dir, now);
+        pending.get(dir).rescan = true;
+    }
+
+    /**
+     * Returns the settled changes and forgets them. Returns an empty list while
+     * events are still arriving, unless the maximum batch delay has passed.
+     *
+     * @param now Current time in milliseconds
+     */
+    public synchronized List<Change> drainReady(long now) {
+        List<Change> ready = new ArrayList<>();
+        if (pending.isEmpty()) {
+            return ready;
+        }
+        boolean quiet = now - lastEventAt >= quietMillis;
+        boolean overdue = now - oldestPendingSince >= maxDelayMillis;
+        if (!quiet && !overdue) {
+            return ready;
+        }
+
+        Iterator<Map.Entry<Path, Pending>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Pending> e = it.next();
+            Pending entry = e.getValue();
+            if (now - entry.lastEventAt < quietMillis) {
+                continue;
+            }
+            BasicFileAttributes attrs = stat(e.getKey());
+            if (attrs == null) {
+                ready.add(new Change(e.getKey(), ChangeType.DELETE));
+            } else if (entry.rescan) {
+                ready.add(new Change(e.getKey(), ChangeType.RESCAN));
+            } else if (attrs.isDirectory()) {
+                ready.add(new Change(e.getKey(), ChangeType.DIRECTORY));
+            } else if (attrs.size() == entry.size && attrs.lastModifiedTime().toMillis() == entry.modifiedMillis) {
+                ready.add(new Change(e.getKey(), ChangeType.UPSERT));
+            } else {
+                // Still being written; give it another quiet window
+                entry.size = attrs.size();
+                entry.modifiedMillis = attrs.lastModifiedTime().toMillis();
+                entry.lastEventAt = now;
+                continue;
+            }
+            it.remove();
+        }
+        oldestPendingSince = pending.isEmpty() ? -1 : now;
+        return ready;
+    }
+
+    /**
+     * Checks whether a change for {@code path} is waiting to settle.
+     */
+    public synchronized boolean isPending(Path path) {
+        return pending.containsKey(path);
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Returns the number of events recorded so far.
+     */
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    public synchronized void clear() {
+        pending.clear();
+        oldestPendingSince = -1;
+    }
+
+    private static BasicFileAttributes stat(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -22,15 +22,21 @@ import com.musicplayer.data.repositories.PersistentPlaylistRepository;
 import com.musicplayer.data.repositories.PersistentSongRepository;
 import com.musicplayer.data.repositories.PlaylistRepository;
 import com.musicplayer.data.repositories.SongRepository;
-import com.musicplayer.data.storage.JsonLibraryStorage;
+import com.musicplayer.data.storage.CoalescingJsonWriter;
+import com.musicplayer.data.storage.ContentHashCache;
+import com.musicplayer.data.storage.FileFingerprintCache;
 import com.musicplayer.data.storage.LibraryStorage;
+import com.musicplayer.data.storage.LibraryStorageFactory;
+import com.musicplayer.data.storage.PlayEventLog;
 import com.musicplayer.services.AudioPlayerService;
+import com.musicplayer.services.DuplicateFinderService;
 import com.musicplayer.services.FavoritesService;
 import com.musicplayer.services.LibraryService;
 import com.musicplayer.services.ListeningStatsService;
 import com.musicplayer.services.MusicLibraryManager;
 import com.musicplayer.services.PlaylistManager;
 import com.musicplayer.services.PlaylistService;
+import com.musicplayer.services.ScanJob;
 import com.musicplayer.services.SettingsService;
 import com.musicplayer.services.UpdateService;
 import com.musicplayer.ui.components.ActivityFeedItem;
@@ -70,6 +76,7 @@ import javafx.scene.control.ButtonType;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.DialogPane;
 import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.MenuItem;
 import javafx.scene.control.RadioMenuItem;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
@@ -79,6 +86,7 @@ import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.image.Image;
@@ -123,6 +131,7 @@ public class MainController implements Initializable, IControllerCommunication {
     @FXML private Slider volumeSlider;
     @FXML private ImageView volumeIcon;
     @FXML private Label volumePercentageLabel;
+    @FXML private Label scanProgressLabel;
     
     // Album art display elements
     @FXML private StackPane albumArtContainer;
@@ -131,6 +140,9 @@ public class MainController implements Initializable, IControllerCommunication {
     @FXML private Label songTitleLabel;
     @FXML private Label songArtistLabel;
     
+    /** Most songs shown by a fuzzy search fallback. */
+    private static final int FUZZY_SEARCH_LIMIT = 200;
+    
     // Icons for play/pause button
     private Image playIcon;
     private Image pauseIcon;
@@ -160,8 +172,10 @@ public class MainController implements Initializable, IControllerCommunication {
     private AudioConversionController audioConversionController;
     
     // Repositories
+    private LibraryStorage libraryStorage;
     private AlbumRepository albumRepository;
     private SongRepository songRepository;
+    private DuplicateFinderService duplicateFinderService;
 
     @FXML private Button playlistSearchButton;
     @FXML private TextField playlistSearchField;
@@ -180,6 +194,7 @@ public class MainController implements Initializable, IControllerCommunication {
     // View -> menu items
     @FXML private CheckMenuItem toggleVisualizerMenuItem;
     @FXML private CheckMenuItem showStatusBarMenuItem;
+    @FXML private MenuItem cancelScanMenuItem;
     @FXML private RadioMenuItem themeLightMenuItem;
     @FXML private RadioMenuItem themeDarkMenuItem;
 
@@ -190,25 +205,34 @@ public class MainController implements Initializable, IControllerCommunication {
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
+        // Initialize settings service first; it selects the library storage format
+        settingsService = new SettingsService();
+        
         // Initialize storage and repositories
-        LibraryStorage storage = new JsonLibraryStorage();
-        songRepository = new PersistentSongRepository(storage);
-        PlaylistRepository playlistRepository = new PersistentPlaylistRepository(storage);
-        albumRepository = new PersistentAlbumRepository(storage);
+        LibraryStorage storage = LibraryStorageFactory.create(settingsService.getSettings().getLibraryStorageFormat());
+        libraryStorage = storage;
+        // The library is streamed in by musicLibraryManager.initializeLibrary() below
+        songRepository = new PersistentSongRepository(storage, true);
+        PlaylistRepository playlistRepository = new PersistentPlaylistRepository(storage, songRepository);
+        albumRepository = new PersistentAlbumRepository(storage, songRepository.getRegistry());
         libraryService = new LibraryService(songRepository);
         playlistService = new PlaylistService(playlistRepository);
         
         // Initialize the music library manager
-        musicLibraryManager = new MusicLibraryManager(songRepository);
+        musicLibraryManager = new MusicLibraryManager(songRepository,
+                new FileFingerprintCache(storage.getDataDirectory()));
+        duplicateFinderService = new DuplicateFinderService(songRepository,
+                new ContentHashCache(storage.getDataDirectory()));
         
         // Initialize the playlist manager
         playlistManager = new PlaylistManager(playlistRepository);
         
         // Initialize audio player service
-        audioPlayerService = new AudioPlayerService();
+        audioPlayerService = new AudioPlayerService(songRepository.getRegistry());
         
         // Initialize listening stats service
-        listeningStatsService = new ListeningStatsService(songRepository);
+        listeningStatsService = new ListeningStatsService(songRepository,
+                new PlayEventLog(storage.getDataDirectory()));
         
         // Initialize the songs and playlists lists BEFORE creating AudioController
         songs = FXCollections.observableArrayList();
@@ -240,8 +264,6 @@ public class MainController implements Initializable, IControllerCommunication {
         // Initialize favorites service
         favoritesService = new FavoritesService();
         
-        // Initialize settings service
-        settingsService = new SettingsService();
         // Bind settings to music library manager so it can persist and watch the music root
         musicLibraryManager.setSettingsService(settingsService);
         
@@ -265,32 +287,40 @@ public class MainController implements Initializable, IControllerCommunication {
             
             songs.clear();
             songs.addAll(updatedSongs);
-            // Update audio player playlist when library changes
-            audioPlayerService.setPlaylist(songs);
-            // Refresh library service to update albums
-            libraryService.refreshLibrary();
-            // Synchronize albums from library engine to the persistent repository so that
-            // newly discovered albums are also persisted and available for editing next session.
-            syncAlbumsWithRepository();
-            // Refresh album view if it exists
-            if (albumGridView != null) {
-                javafx.application.Platform.runLater(() -> {
-                    // Use album repository to retrieve albums so that persisted edits (name, cover art) are reflected
-                    albumGridView.refresh(albumRepository.findAll());
-                });
+            onLibraryContentChanged();
+        });
+        
+        // While the library streams in at startup, append each chunk as it arrives
+        musicLibraryManager.setLibraryAppendCallback(loadedSongs -> {
+            favoritesService.updateFavoriteStatus(loadedSongs);
+            songs.addAll(loadedSongs);
+        });
+        // Songs found by a folder scan arrive the same way; refresh derived views once at the end
+        musicLibraryManager.setScanCompleteCallback(this::onLibraryContentChanged);
+        // Durations and tags completed by the background full read change songs in place
+        musicLibraryManager.setSongsEnrichedCallback(enrichedSongs -> songsTableView.refresh());
+        musicLibraryManager.scanProgressProperty().addListener((obs, oldProgress, progress) -> {
+            if (scanProgressLabel == null || progress == null) return;
+            scanProgressLabel.setText("Scanning: " + progress);
+            scanProgressLabel.setVisible(!progress.isFinished());
+            scanProgressLabel.setManaged(!progress.isFinished());
+        });
+        musicLibraryManager.setScanJobCallback(job -> {
+            if (cancelScanMenuItem != null) {
+                cancelScanMenuItem.setDisable(!musicLibraryManager.isScanning());
             }
-            // Update library stats in pinboard panel
-            if (pinboardPanel != null) {
-                int totalAlbums = albumRepository.findAll().size();
-                File musicFolderFile = musicLibraryManager.getCurrentMusicFolder();
-                String musicFolder = musicFolderFile != null ? musicFolderFile.getAbsolutePath() : null;
-                pinboardPanel.updateLibraryStats(updatedSongs.size(), totalAlbums, musicFolder);
-                pinboardPanel.addActivity(ActivityFeedItem.ActivityType.SCAN_COMPLETE, 
-                    "Library updated: " + updatedSongs.size() + " songs");
+            if (job.getState() == ScanJob.State.CANCELLED && scanProgressLabel != null) {
+                scanProgressLabel.setVisible(false);
+                scanProgressLabel.setManaged(false);
             }
-            
-            // Re-enable error dialogs after library scan completes
-            audioPlayerService.setSuppressErrorDialogs(false);
+        });
+        musicLibraryManager.setLibraryLoadedCallback(() -> {
+            listeningStatsService.rebuild();
+            // Loaded songs bypass the repository's change listener, so index them all once
+            libraryService.refreshLibrary();
+            onLibraryContentChanged();
+            // Attempt to restore last session once the UI has settled and the library is loaded
+            Platform.runLater(this::restoreLastSessionIfEnabled);
         });
         
         // Set up callback to update UI when playlists change
@@ -464,8 +494,6 @@ public class MainController implements Initializable, IControllerCommunication {
             }
         });
 
-        // Attempt to restore last session after UI settles and library is loaded
-        Platform.runLater(this::restoreLastSessionIfEnabled);
     }
 
     // ========================
@@ -487,6 +515,11 @@ public class MainController implements Initializable, IControllerCommunication {
         statusBar.setVisible(show);
     }
 
+    @FXML
+    private void handleCancelScan() {
+        musicLibraryManager.cancelScans();
+    }
+
     @FXML
     private void handleThemeLight() {
         setTheme(com.musicplayer.data.models.Settings.Theme.LIGHT);
@@ -780,6 +813,14 @@ public class MainController implements Initializable, IControllerCommunication {
             updateService.shutdown();
             System.out.println("Update service shutdown");
         }
+
+        // Write out settings and other small JSON stores still pending
+        CoalescingJsonWriter.shared().flushAll();
+
+        // Release the library database or journals once everything is saved
+        if (libraryStorage != null) {
+            libraryStorage.close();
+        }
         
         System.out.println("Application shutdown complete");
     }
@@ -795,6 +836,36 @@ public class MainController implements Initializable, IControllerCommunication {
         }
     }
 
+    /**
+     * Refreshes everything derived from the song list after the library changed.
+     */
+    private void onLibraryContentChanged() {
+        // Update audio player playlist when library changes
+        audioPlayerService.setPlaylist(songs);
+        // Synchronize albums from library engine to the persistent repository so that
+        // newly discovered albums are also persisted and available for editing next session.
+        syncAlbumsWithRepository();
+        // Refresh album view if it exists
+        if (albumGridView != null) {
+            javafx.application.Platform.runLater(() -> {
+                // Use album repository to retrieve albums so that persisted edits (name, cover art) are reflected
+                albumGridView.refresh(albumRepository.findAll());
+            });
+        }
+        // Update library stats in pinboard panel
+        if (pinboardPanel != null) {
+            int totalAlbums = albumRepository.findAll().size();
+            File musicFolderFile = musicLibraryManager.getCurrentMusicFolder();
+            String musicFolder = musicFolderFile != null ? musicFolderFile.getAbsolutePath() : null;
+            pinboardPanel.updateLibraryStats(songs.size(), totalAlbums, musicFolder);
+            pinboardPanel.addActivity(ActivityFeedItem.ActivityType.SCAN_COMPLETE, 
+                "Library updated: " + songs.size() + " songs");
+        }
+        
+        // Re-enable error dialogs after library scan completes
+        audioPlayerService.setSuppressErrorDialogs(false);
+    }
+
     private void restoreLastSessionIfEnabled() {
         if (settingsService == null || !settingsService.isResumeOnStartup()) {
             return;
@@ -1196,6 +1267,45 @@ public class MainController implements Initializable, IControllerCommunication {
         dialog.showAndWait();
     }
     
+    /**
+     * Groups the library by audio content in the background and lists the duplicates.
+     */
+    @FXML
+    private void handleFindDuplicates() {
+        Thread finder = new Thread(() -> {
+            List<DuplicateFinderService.DuplicateGroup> groups = duplicateFinderService.findDuplicates();
+            Platform.runLater(() -> showDuplicates(groups));
+        }, "DuplicateFinder");
+        finder.setDaemon(true);
+        finder.start();
+    }
+
+    private void showDuplicates(List<DuplicateFinderService.DuplicateGroup> groups) {
+        Alert info = new Alert(Alert.AlertType.INFORMATION);
+        info.setTitle("Duplicate Tracks");
+        if (groups.isEmpty()) {
+            info.setHeaderText("No duplicate tracks found");
+            info.showAndWait();
+            return;
+        }
+        long wasted = groups.stream().mapToLong(DuplicateFinderService.DuplicateGroup::getWastedBytes).sum();
+        info.setHeaderText(String.format("%d tracks have duplicates (%.1f MB in extra copies)",
+                groups.size(), wasted / (1024.0 * 1024.0)));
+        StringBuilder details = new StringBuilder();
+        for (DuplicateFinderService.DuplicateGroup group : groups) {
+            for (Song song : group.getSongs()) {
+                details.append(song.getFilePath()).append('\n');
+            }
+            details.append('\n');
+        }
+        TextArea text = new TextArea(details.toString());
+        text.setEditable(false);
+        text.setWrapText(false);
+        info.getDialogPane().setContent(text);
+        info.setResizable(true);
+        info.showAndWait();
+    }
+
     /**
      * Handle the settings button click.
      */
@@ -1580,7 +1690,8 @@ public class MainController implements Initializable, IControllerCommunication {
         }
 
         // Delegate predicate logic to SearchManager
-        SearchManager.bindSongSearch(songSearchField, filteredSongs);
+        SearchManager.bindSongSearch(songSearchField, filteredSongs,
+                query -> libraryService.fuzzySearch(query, FUZZY_SEARCH_LIMIT));
         SearchManager.bindPlaylistSearch(playlistSearchField, filteredPlaylists);
     }
 
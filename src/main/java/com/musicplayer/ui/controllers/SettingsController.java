@@ -50,6 +50,7 @@ public class SettingsController {
     @FXML private javafx.scene.control.TextField musicRootPathField;
     @FXML private Button browseMusicFolderButton;
     @FXML private CheckBox libraryWatcherEnabledCheckBox;
+    @FXML private ChoiceBox<Settings.LibraryStorageFormat> libraryStorageFormatChoiceBox;
 
     // Update settings controls
     @FXML private CheckBox autoCheckUpdatesCheckBox;
@@ -127,6 +128,23 @@ public class SettingsController {
             });
         }
 
+        if (libraryStorageFormatChoiceBox != null) {
+            libraryStorageFormatChoiceBox.getItems().setAll(Settings.LibraryStorageFormat.values());
+            libraryStorageFormatChoiceBox.setConverter(new javafx.util.StringConverter<Settings.LibraryStorageFormat>() {
+                @Override
+                public String toString(Settings.LibraryStorageFormat format) {
+                    return format != null ? format.getDisplayName() : "";
+                }
+                @Override
+                public Settings.LibraryStorageFormat fromString(String string) {
+                    for (Settings.LibraryStorageFormat format : Settings.LibraryStorageFormat.values()) {
+                        if (format.getDisplayName().equals(string)) return format;
+                    }
+                    return Settings.LibraryStorageFormat.JSON;
+                }
+            });
+        }
+
         // Enable/disable color options based on visualizer state
         visualizerEnabledCheckBox.selectedProperty().addListener((obs, oldVal, newVal) -> {
             colorModeSection.setDisable(!newVal);
@@ -283,6 +301,10 @@ public class SettingsController {
         if (libraryWatcherEnabledCheckBox != null) {
             libraryWatcherEnabledCheckBox.setSelected(settings.isLibraryWatcherEnabled());
         }
+        if (libraryStorageFormatChoiceBox != null) {
+            Settings.LibraryStorageFormat format = settings.getLibraryStorageFormat();
+            libraryStorageFormatChoiceBox.setValue(format != null ? format : Settings.LibraryStorageFormat.JSON);
+        }
     }
     
     /**
@@ -335,6 +357,9 @@ public class SettingsController {
         if (libraryWatcherEnabledCheckBox != null) {
             settings.setLibraryWatcherEnabled(libraryWatcherEnabledCheckBox.isSelected());
         }
+        if (libraryStorageFormatChoiceBox != null && libraryStorageFormatChoiceBox.getValue() != null) {
+            settings.setLibraryStorageFormat(libraryStorageFormatChoiceBox.getValue());
+        }
         
         // Save to file
         settingsService.saveSettings();
@@ -3,6 +3,9 @@ package com.musicplayer.ui.util;
 import com.musicplayer.data.models.Playlist;
 import com.musicplayer.data.models.Song;
 
+import java.util.List;
+import java.util.function.Function;
+
 import javafx.collections.transformation.FilteredList;
 import javafx.scene.control.TextField;
 
@@ -15,22 +18,23 @@ public final class SearchManager {
 
     public static void bindSongSearch(TextField searchField,
                                       FilteredList<Song> filteredSongs) {
-        searchField.textProperty().addListener((obs, oldVal, newVal) -> {
-            String filter = newVal == null ? "" : newVal.toLowerCase().trim();
-            filteredSongs.setPredicate(song -> {
-                if (song == null) return false;
-                if (filter.isEmpty()) return true;
-                
-                // Check if the search term matches title, artist, or album
-                String title = song.getTitle() != null ? song.getTitle().toLowerCase() : "";
-                String artist = song.getArtist() != null ? song.getArtist().toLowerCase() : "";
-                String album = song.getAlbum() != null ? song.getAlbum().toLowerCase() : "";
-                
-                return title.contains(filter) ||
-                       artist.contains(filter) ||
-                       album.contains(filter);
-            });
-        });
+        bindSongSearch(searchField, filteredSongs, null);
+    }
+
+    /**
+     * Filters songs by the search field on a background thread, see
+     * {@link SongSearchFilter}. When no song contains the typed text, the
+     * songs returned by {@code fuzzySearch} for it are shown instead, so a
+     * misspelled name still finds something.
+     *
+     * @param fuzzySearch Typo-tolerant search, or null for substring matching only;
+     *                    called from the search thread
+     */
+    public static void bindSongSearch(TextField searchField,
+                                      FilteredList<Song> filteredSongs,
+                                      Function<String, List<Song>> fuzzySearch) {
+        SongSearchFilter filter = new SongSearchFilter(filteredSongs, fuzzySearch);
+        searchField.textProperty().addListener((obs, oldVal, newVal) -> filter.setQuery(newVal));
     }
 
     public static void bindPlaylistSearch(TextField searchField,
@@ -0,0 +1,208 @@
+package com.musicplayer.ui.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import com.musicplayer.data.models.Song;
+
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+
+/**
+ * Filters a song list by a search query without blocking the JavaFX thread.
+ * <p>
+ * Queries are debounced and matched on a background thread against cached
+ * lower-case keys of each song. A newer query supersedes an older one: the
+ * older one stops at its next check and its result is never applied. The
+ * result is applied to the list with a single predicate swap. If nothing
+ * contains the query, an optional fuzzy search is asked instead.
+ * <p>
+ * {@link #setQuery(String)} must be called on the JavaFX thread.
+ */
+public final class SongSearchFilter {
+
+    /** Quiet time after the last keystroke before a query runs. */
+    static final long DEBOUNCE_MILLIS = 150;
+    /** Shortest query that falls back to a fuzzy search. */
+    static final int MIN_FUZZY_QUERY_LENGTH = 3;
+    /** Rows matched between two checks for a newer query. */
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+    private static final ScheduledExecutorService SEARCH_THREAD = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "SongSearch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final FilteredList<Song> filteredSongs;
+    private final Function<String, List<Song>> fuzzySearch;
+    private final ScheduledExecutorService searchExecutor;
+    private final Executor fxExecutor;
+    private final long debounceMillis;
+    private final AtomicLong generation = new AtomicLong();
+    // Only touched by the search thread
+    private final Map<Song, SearchKey> keys = new IdentityHashMap<>();
+
+    // Only touched on the FX thread
+    private String query = "";
+    private List<Song> snapshot;
+    private ScheduledFuture<?> pending;
+
+    /**
+     * @param filteredSongs The list to filter
+     * @param fuzzySearch   Typo-tolerant search used when nothing matches, or null
+     */
+    public SongSearchFilter(FilteredList<Song> filteredSongs, Function<String, List<Song>> fuzzySearch) {
+        this(filteredSongs, fuzzySearch, SEARCH_THREAD, Platform::runLater, DEBOUNCE_MILLIS);
+    }
+
+    SongSearchFilter(FilteredList<Song> filteredSongs, Function<String, List<Song>> fuzzySearch,
+                     ScheduledExecutorService searchExecutor, Executor fxExecutor, long debounceMillis) {
+        this.filteredSongs = filteredSongs;
+        this.fuzzySearch = fuzzySearch;
+        this.searchExecutor = searchExecutor;
+        this.fxExecutor = fxExecutor;
+        this.debounceMillis = debounceMillis;
+        @SuppressWarnings("unchecked")
+        ObservableList<Song> source = (ObservableList<Song>) filteredSongs.getSource();
+        source.addListener((ListChangeListener<Song>) change -> {
+            snapshot = null;
+            // Rows added while a query is active must be matched too
+            if (!query.isEmpty()) {
+                schedule();
+            }
+        });
+    }
+
+    /**
+     * Sets the query. An empty query shows every song right away; anything
+     * else is matched once typing pauses.
+     */
+    public void setQuery(String text) {
+        query = text == null ? "" : text.toLowerCase().trim();
+        if (query.isEmpty()) {
+            generation.incrementAndGet();
+            cancelPending();
+            filteredSongs.setPredicate(null);
+            return;
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        long current = generation.incrementAndGet();
+        cancelPending();
+        if (snapshot == null) {
+            snapshot = new ArrayList<>(filteredSongs.getSource());
+        }
+        List<Song> songs = snapshot;
+        String filter = query;
+        pending = searchExecutor.schedule(() -> run(current, songs, filter), debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    private void run(long current, List<Song> songs, String filter) {
+        try {
+            Set<Song> matches = match(songs, filter, current);
+            if (matches == null) {
+                return;
+            }
+            if (matches.isEmpty() && fuzzySearch != null && filter.length() >= MIN_FUZZY_QUERY_LENGTH) {
+                Set<Long> ids = new java.util.HashSet<>();
+                for (Song song : fuzzySearch.apply(filter)) {
+                    ids.add(song.getId());
+                }
+                for (Song song : songs) {
+                    if (song != null && ids.contains(song.getId())) {
+                        matches.add(song);
+                    }
+                }
+            }
+            fxExecutor.execute(() -> {
+                if (generation.get() == current) {
+                    filteredSongs.setPredicate(matches::contains);
+                }
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Song search failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the songs whose title, artist or album contains {@code filter},
+     * or null if a newer query came in meanwhile.
+     */
+    Set<Song> match(List<Song> songs, String filter, long current) {
+        Set<Song> matches = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<Song, SearchKey> seen = new IdentityHashMap<>(songs.size() * 2);
+        for (int i = 0; i < songs.size(); i++) {
+            if (i % CANCEL_CHECK_INTERVAL == 0 && generation.get() != current) {
+                return null;
+            }
+            Song song = songs.get(i);
+            if (song == null) continue;
+            SearchKey key = keys.get(song);
+            if (key == null || !key.isFor(song)) {
+                key = new SearchKey(song);
+            }
+            seen.put(song, key);
+            if (key.text.contains(filter)) {
+                matches.add(song);
+            }
+        }
+        // Keep the keys of the current rows only
+        keys.clear();
+        keys.putAll(seen);
+        return matches;
+    }
+
+    int getCachedKeyCount() {
+        return keys.size();
+    }
+
+    /**
+     * Lower-case search text of a song, remembering which field values it was
+     * built from so that edited tags are noticed with three reference checks.
+     */
+    private static final class SearchKey {
+        final String title;
+        final String artist;
+        final String album;
+        final String text;
+
+        SearchKey(Song song) {
+            this.title = song.getTitle();
+            this.artist = song.getArtist();
+            this.album = song.getAlbum();
+            // A separator no query contains, so matches cannot span fields
+            this.text = lower(title) + '\u0000' + lower(artist) + '\u0000' + lower(album);
+        }
+
+        boolean isFor(Song song) {
+            return song.getTitle() == title && song.getArtist() == artist && song.getAlbum() == album;
+        }
+
+        private static String lower(String value) {
+            return value != null ? value.toLowerCase() : "";
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.musicplayer.utils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Byte range of the audio data in a file, with tag blocks left out, so that
+ * two copies of a track compare equal after their tags were edited.
+ * <p>
+ * Only block headers are read: ID3v2 at the start and ID3v1 and APEv2 at the
+ * end of MP3 (and any other file that carries them), the metadata blocks in
+ * front of the FLAC frames and the {@code mdat} atom of MP4. Formats that
+ * keep tags inside the stream (Ogg, WAV chunks) use the whole file.
+ */
+public final class AudioPayload {
+
+    private static final int ID3V1_SIZE = 128;
+    private static final int APE_FOOTER_SIZE = 32;
+
+    private final long offset;
+    private final long length;
+
+    public AudioPayload(long offset, long length) {
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /** Position of the first audio byte. */
+    public long getOffset() { return offset; }
+
+    /** Number of audio bytes. */
+    public long getLength() { return length; }
+
+    /**
+     * Locates the audio data of a file.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    public static AudioPayload locate(Path path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "r")) {
+            long end = file.length();
+            long start = skipId3v2(file, 0, end);
+            byte[] magic = new byte[8];
+            if (read(file, start, magic) == magic.length) {
+                if (magic[0] == 'f' && magic[1] == 'L' && magic[2] == 'a' && magic[3] == 'C') {
+                    start = skipFlacMetadata(file, start + 4, end);
+                } else if (magic[4] == 'f' && magic[5] == 't' && magic[6] == 'y' && magic[7] == 'p') {
+                    AudioPayload mdat = findMdat(file, start, end);
+                    if (mdat != null) {
+                        return mdat;
+                    }
+                }
+            }
+            end = trimTrailingTags(file, start, end);
+            return new AudioPayload(start, Math.max(0, end - start));
+        }
+    }
+
+    private static long skipId3v2(RandomAccessFile file, long pos, long end) throws IOException {
+        byte[] header = new byte[10];
+        // Some writers leave several tags in a row
+        while (read(file, pos, header) == header.length
+                && header[0] == 'I' && header[1] == 'D' && header[2] == '3') {
+            long size = ((header[6] & 0x7F) << 21) | ((header[7] & 0x7F) << 14)
+                    | ((header[8] & 0x7F) << 7) | (header[9] & 0x7F);
+            boolean footer = (header[5] & 0x10) != 0;
+            pos += 10 + size + (footer ? 10 : 0);
+            if (pos >= end) {
+                return end;
+            }
+        }
+        return pos;
+    }
+
+    private static long skipFlacMetadata(RandomAccessFile file, long pos, long end) throws IOException {
+        byte[] header = new byte[4];
+        while (pos < end && read(file, pos, header) == header.length) {
+            long size = ((header[1] & 0xFFL) << 16) | ((header[2] & 0xFFL) << 8) | (header[3] & 0xFFL);
+            pos += 4 + size;
+            if ((header[0] & 0x80) != 0) {
+                break;
+            }
+        }
+        return Math.min(pos, end);
+    }
+
+    private static AudioPayload findMdat(RandomAccessFile file, long pos, long end) throws IOException {
+        byte[] header = new byte[16];
+        while (pos + 8 <= end && read(file, pos, header) >= 8) {
+            long size = ((header[0] & 0xFFL) << 24) | ((header[1] & 0xFFL) << 16)
+                    | ((header[2] & 0xFFL) << 8) | (header[3] & 0xFFL);
+            int headerSize = 8;
+            if (size == 1) {
+                size = 0;
+                for (int i = 8; i < 16; i++) {
+                    size = (size << 8) | (header[i] & 0xFFL);
+                }
+                headerSize = 16;
+            } else if (size == 0) {
+                size = end - pos;
+            }
+            if (size < headerSize) {
+                return null;
+            }
+            if (header[4] == 'm' && header[5] == 'd' && header[6] == 'a' && header[7] == 't') {
+                long length = Math.min(size, end - pos) - headerSize;
+                return new AudioPayload(pos + headerSize, Math.max(0, length));
+            }
+            pos += size;
+        }
+        return null;
+    }
+
+    private static long trimTrailingTags(RandomAccessFile file, long start, long end) throws IOException {
+        byte[] id3v1 = new byte[3];
+        if (end - start >= ID3V1_SIZE && read(file, end - ID3V1_SIZE, id3v1) == 3
+                && new String(id3v1, StandardCharsets.ISO_8859_1).equals("TAG")) {
+            end -= ID3V1_SIZE;
+        }
+        byte[] footer = new byte[APE_FOOTER_SIZE];
+        if (end - start >= APE_FOOTER_SIZE && read(file, end - APE_FOOTER_SIZE, footer) == APE_FOOTER_SIZE
+                && new String(footer, 0, 8, StandardCharsets.ISO_8859_1).equals("APETAGEX")) {
+            long size = littleEndianInt(footer, 12);
+            boolean hasHeader = (littleEndianInt(footer, 20) & 0x80000000L) != 0;
+            long tagSize = size + (hasHeader ? APE_FOOTER_SIZE : 0);
+            if (tagSize <= end - start) {
+                end -= tagSize;
+            }
+        }
+        return end;
+    }
+
+    private static long littleEndianInt(byte[] b, int off) {
+        return (b[off] & 0xFFL) | ((b[off + 1] & 0xFFL) << 8) | ((b[off + 2] & 0xFFL) << 16) | ((b[off + 3] & 0xFFL) << 24);
+    }
+
+    private static int read(RandomAccessFile file, long pos, byte[] into) throws IOException {
+        if (pos < 0 || pos >= file.length()) {
+            return 0;
+        }
+        file.seek(pos);
+        int total = 0;
+        while (total < into.length) {
+            int n = file.read(into, total, into.length - total);
+            if (n < 0) break;
+            total += n;
+        }
+        return total;
+    }
+}
@@ -2,7 +2,6 @@ package com.musicplayer.utils;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import org.jaudiotagger.audio.AudioFile;
@@ -24,21 +23,22 @@ public class MusicScanner {
     
     /**
      * Scans a directory recursively for music files and extracts their metadata.
+     * The walk and tag parsing run in parallel through {@link ParallelMusicScanner}.
      * 
      * @param directory The directory to scan
-     * @return List of Song objects with extracted metadata
+     * @return List of Song objects with extracted metadata, ordered by file path
      */
     public static List<Song> scanDirectory(File directory) {
-        List<Song> songs = new ArrayList<>();
-        
         if (directory == null || !directory.exists() || !directory.isDirectory()) {
             System.err.println("Invalid directory provided for scanning: " + directory);
-            return songs;
+            return new ArrayList<>();
         }
         
         System.out.println("Starting recursive scan of: " + directory.getAbsolutePath());
-        scanDirectoryRecursive(directory, songs, 0);
-        System.out.println("Scan completed. Found " + songs.size() + " music files total.");
+        long start = System.currentTimeMillis();
+        List<Song> songs = new ParallelMusicScanner().scan(directory.toPath());
+        System.out.println("Scan completed. Found " + songs.size() + " music files total in "
+                + (System.currentTimeMillis() - start) + " ms.");
         return songs;
     }
     
@@ -52,114 +52,43 @@ public class MusicScanner {
         return extractMetadata(file);
     }
     
-    private static void scanDirectoryRecursive(File directory, List<Song> songs, int depth) {
-        File[] files = directory.listFiles();
-        if (files == null) {
-            System.err.println("Could not read directory: " + directory.getAbsolutePath());
-            return;
-        }
-        
-        String indent = "  ".repeat(depth);
-        System.out.println(indent + "Scanning: " + directory.getName() + " (" + files.length + " items)");
-        
-        for (File file : files) {
-            // Skip hidden files and system directories
-            if (file.isHidden() || file.getName().startsWith(".")) {
-                continue;
-            }
-            
-            if (file.isDirectory()) {
-                // Recursively scan subdirectories
-                System.out.println(indent + "  Entering subdirectory: " + file.getName());
-                scanDirectoryRecursive(file, songs, depth + 1);
-            } else if (file.isFile() && isSupportedAudioFile(file)) {
-                // Extract metadata from audio file
-                System.out.println(indent + "  Found music file: " + file.getName());
-                Song song = extractMetadata(file);
-                if (song != null) {
-                    songs.add(song);
-                } else {
-                    System.err.println(indent + "    Failed to extract metadata from: " + file.getName());
-                }
+    private static boolean isSupportedAudioFile(File file) {
+        return isSupportedAudioFile(file.getName());
+    }
+    
+    /**
+     * Checks whether a file name has one of the supported audio extensions.
+     */
+    public static boolean isSupportedAudioFile(String fileName) {
+        String lowerName = fileName.toLowerCase();
+        for (String extension : SUPPORTED_EXTENSIONS) {
+            if (lowerName.endsWith(extension)) {
+                return true;
             }
         }
+        return false;
     }
     
-    private static boolean isSupportedAudioFile(File file) {
-        String fileName = file.getName().toLowerCase();
-        return Arrays.stream(SUPPORTED_EXTENSIONS)
-                .anyMatch(fileName::endsWith);
+    /**
+     * Reads the complete metadata of a file with a full tag parse.
+     * 
+     * @param file The audio file
+     * @return The song, or null if the file is missing, unsupported or cannot be parsed
+     */
+    public static Song readFullMetadata(File file) {
+        if (file == null || !file.isFile() || !isSupportedAudioFile(file)) {
+            return null;
+        }
+        try {
+            return parseMetadata(file);
+        } catch (Exception e) {
+            return null;
+        }
     }
     
-    private static Song extractMetadata(File file) {
+    static Song extractMetadata(File file) {
         try {
-            AudioFile audioFile = AudioFileIO.read(file);
-            Tag tag = audioFile.getTag();
-            
-            Song song = new Song();
-            song.setFilePath(file.getAbsolutePath());
-            
-            // Extract basic metadata
-            if (tag != null) {
-                song.setTitle(getTagValue(tag, FieldKey.TITLE, file.getName()));
-                song.setArtist(getTagValue(tag, FieldKey.ARTIST, "Unknown Artist"));
-                String albumTag = getTagValue(tag, FieldKey.ALBUM, "Unknown Album");
-                if (albumTag.equals("Unknown Album") || albumTag.isBlank()) {
-                    albumTag = file.getParentFile() != null ? file.getParentFile().getName() : "Unknown Album";
-                }
-                song.setAlbum(albumTag);
-                song.setGenre(getTagValue(tag, FieldKey.GENRE, "Unknown"));
-                
-                String trackStr = tag.getFirst(FieldKey.TRACK);
-                if (!trackStr.isEmpty()) {
-                    try {
-                        String trackNumber = trackStr.split("/")[0];
-                        song.setTrackNumber(Integer.parseInt(trackNumber));
-                    } catch (NumberFormatException e) {
-                        song.setTrackNumber(0);
-                    }
-                }
-                String yearStr = null;
-                try { yearStr = tag.getFirst(FieldKey.YEAR); } catch (Exception ignored) {}
-                if (yearStr != null && !yearStr.isBlank()) {
-                    String y = yearStr.trim();
-                    if (y.length() >= 4) {
-                        String y4 = y.substring(0, 4).replaceAll("[^0-9]", "");
-                        try { song.setYear(Integer.parseInt(y4)); } catch (NumberFormatException ignored) {}
-                    } else {
-                        try { song.setYear(Integer.parseInt(y)); } catch (NumberFormatException ignored) {}
-                    }
-                }
-            } else {
-                // Fallback if no tags are available
-                song.setTitle(getFileNameWithoutExtension(file));
-                song.setArtist("Unknown Artist");
-                song.setAlbum("Unknown Album");
-                song.setGenre("Unknown");
-                song.setTrackNumber(0);
-            }
-            
-            // Get duration from audio file
-            if (audioFile.getAudioHeader() != null) {
-                song.setDuration(audioFile.getAudioHeader().getTrackLength());
-            }
-            if (song.getTrackNumber() == 0) {
-                String n = file.getName();
-                int i = 0; while (i < n.length() && Character.isDigit(n.charAt(i))) i++;
-                if (i > 0) {
-                    try { song.setTrackNumber(Integer.parseInt(n.substring(0, i))); } catch (NumberFormatException ignored) {}
-                }
-            }
-            if (song.getArtist() == null || song.getArtist().isBlank() || "Unknown Artist".equalsIgnoreCase(song.getArtist())) {
-                File p = file.getParentFile();
-                File pp = p != null ? p.getParentFile() : null;
-                if (pp != null) {
-                    song.setArtist(pp.getName());
-                }
-            }
-            
-            return song;
-            
+            return parseMetadata(file);
         } catch (Exception e) {
             System.err.println("Error reading metadata from file: " + file.getAbsolutePath());
             System.err.println("Error: " + e.getMessage());
@@ -178,6 +107,114 @@ public class MusicScanner {
         }
     }
     
+    private static Song parseMetadata(File file) throws Exception {
+        AudioFile audioFile = AudioFileIO.read(file);
+        Tag tag = audioFile.getTag();
+        
+        Song song = new Song();
+        song.setFilePath(file.getAbsolutePath());
+        
+        // Extract basic metadata
+        if (tag != null) {
+            song.setTitle(getTagValue(tag, FieldKey.TITLE, file.getName()));
+            song.setArtist(getTagValue(tag, FieldKey.ARTIST, "Unknown Artist"));
+            String albumTag = getTagValue(tag, FieldKey.ALBUM, "Unknown Album");
+            if (albumTag.equals("Unknown Album") || albumTag.isBlank()) {
+                albumTag = file.getParentFile() != null ? file.getParentFile().getName() : "Unknown Album";
+            }
+            song.setAlbum(albumTag);
+            song.setGenre(getTagValue(tag, FieldKey.GENRE, "Unknown"));
+            
+            String trackStr = tag.getFirst(FieldKey.TRACK);
+            if (!trackStr.isEmpty()) {
+                try {
+                    String trackNumber = trackStr.split("/")[0];
+                    song.setTrackNumber(Integer.parseInt(trackNumber));
+                } catch (NumberFormatException e) {
+                    song.setTrackNumber(0);
+                }
+            }
+            String yearStr = null;
+            try { yearStr = tag.getFirst(FieldKey.YEAR); } catch (Exception ignored) {}
+            if (yearStr != null && !yearStr.isBlank()) {
+                String y = yearStr.trim();
+                if (y.length() >= 4) {
+                    String y4 = y.substring(0, 4).replaceAll("[^0-9]", "");
+                    try { song.setYear(Integer.parseInt(y4)); } catch (NumberFormatException ignored) {}
+                } else {
+                    try { song.setYear(Integer.parseInt(y)); } catch (NumberFormatException ignored) {}
+                }
+            }
+        } else {
+            // Fallback if no tags are available
+            applyUntaggedDefaults(song, file);
+        }
+        
+        // Get duration from audio file
+        if (audioFile.getAudioHeader() != null) {
+            song.setDuration(audioFile.getAudioHeader().getTrackLength());
+        }
+        applyFileNameFallbacks(song, file);
+        
+        return song;
+    }
+    
+    /**
+     * Reads metadata from the tag headers only, without a full parse and without
+     * touching artwork, applying the same fallbacks as {@link #scanFile(File)}.
+     * The duration stays 0 unless the header carries it (FLAC, MP4, ID3 TLEN);
+     * such songs are meant to be completed later with {@link #scanFile(File)}.
+     * 
+     * @param file The audio file
+     * @return Song with the metadata found, never null
+     */
+    public static Song extractQuickMetadata(File file) {
+        Song tags = QuickTagReader.read(file.toPath());
+        Song song = tags != null ? tags : new Song();
+        song.setFilePath(file.getAbsolutePath());
+        if (tags != null) {
+            if (song.getTitle() == null) song.setTitle(file.getName());
+            if (song.getArtist() == null) song.setArtist("Unknown Artist");
+            if (song.getAlbum() == null || song.getAlbum().equals("Unknown Album")) {
+                song.setAlbum(file.getParentFile() != null ? file.getParentFile().getName() : "Unknown Album");
+            }
+            if (song.getGenre() == null) song.setGenre("Unknown");
+        } else {
+            applyUntaggedDefaults(song, file);
+        }
+        applyFileNameFallbacks(song, file);
+        return song;
+    }
+    
+    private static void applyUntaggedDefaults(Song song, File file) {
+        song.setTitle(getFileNameWithoutExtension(file));
+        song.setArtist("Unknown Artist");
+        song.setAlbum("Unknown Album");
+        song.setGenre("Unknown");
+        song.setTrackNumber(0);
+    }
+    
+    /**
+     * Derives the track number from a leading number in the file name and the
+     * artist from the grandparent folder when the tags do not provide them.
+     */
+    private static void applyFileNameFallbacks(Song song, File file) {
+        if (song.getTrackNumber() == 0) {
+            String n = file.getName();
+            int i = 0; while (i < n.length() && Character.isDigit(n.charAt(i))) i++;
+            if (i > 0) {
+                try { song.setTrackNumber(Integer.parseInt(n.substring(0, i))); } catch (NumberFormatException ignored) {}
+            }
+        }
+        if (song.getArtist() == null || song.getArtist().isBlank() || "Unknown Artist".equalsIgnoreCase(song.getArtist())) {
+            File p = file.getParentFile();
+            File pp = p != null ? p.getParentFile() : null;
+            if (pp != null) {
+                song.setArtist(pp.getName());
+            }
+        }
+    }
+    
     private static String getTagValue(Tag tag, FieldKey field, String defaultValue) {
         try {
             String value = tag.getFirst(field);
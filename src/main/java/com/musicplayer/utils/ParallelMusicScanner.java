@@ -0,0 +1,256 @@
+package com.musicplayer.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.musicplayer.data.models.Song;
+
+/**
+ * Scan engine that streams audio file paths from an NIO tree walk into a bounded
+ * pool of metadata-extraction workers.
+ * <p>
+ * The walk runs on the calling thread and hands every supported file to one of
+ * {@code workerCount} tag-reading threads. At most {@code maxInFlight} files are
+ * queued or being parsed at any time, so the walker blocks instead of piling up
+ * tasks (and open file handles) when the disk is faster than the tag parser.
+ * Metadata extraction and all fallbacks are shared with {@link MusicScanner};
+ * by default every file gets a full tag parse, a header-only extractor such as
+ * {@link MusicScanner#extractQuickMetadata(File)} can be passed instead.
+ */
+public class ParallelMusicScanner {
+
+    private static final AtomicInteger SCAN_COUNTER = new AtomicInteger();
+    private static final BiPredicate<Path, BasicFileAttributes> ACCEPT_ALL = (path, attrs) -> true;
+
+    private final int workerCount;
+    private final int maxInFlight;
+    private final Function<File, Song> extractor;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a scanner that uses one worker per available core and allows
+     * four queued files per worker.
+     */
+    public ParallelMusicScanner() {
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Creates a scanner with the default pool size that reads metadata with {@code extractor}.
+     *
+     * @param extractor Reads the song for an audio file; called from worker threads
+     */
+    public ParallelMusicScanner(Function<File, Song> extractor) {
+        this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors() * 4, extractor);
+    }
+
+    /**
+     * @param workerCount Number of metadata-extraction threads
+     * @param maxInFlight Maximum number of files queued or being parsed at once
+     */
+    public ParallelMusicScanner(int workerCount, int maxInFlight) {
+        this(workerCount, maxInFlight, MusicScanner::extractMetadata);
+    }
+
+    /**
+     * @param workerCount Number of metadata-extraction threads
+     * @param maxInFlight Maximum number of files queued or being parsed at once
+     * @param extractor   Reads the song for an audio file; called from worker threads
+     */
+    public ParallelMusicScanner(int workerCount, int maxInFlight, Function<File, Song> extractor) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be at least 1");
+        }
+        this.workerCount = workerCount;
+        this.maxInFlight = Math.max(workerCount, maxInFlight);
+        this.extractor = extractor;
+    }
+
+    /**
+     * Stops the running scan: the walk ends at the next file or directory and
+     * queued files are skipped; files being parsed are finished. Scans started
+     * afterwards on this instance return right away.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Scans a directory tree and returns all songs found, ordered by file path.
+     *
+     * @param root The directory to scan
+     * @return List of Song objects with extracted metadata
+     */
+    public List<Song> scan(Path root) {
+        return scan(root, ACCEPT_ALL);
+    }
+
+    /**
+     * Scans a directory tree and returns the songs for every file accepted by
+     * {@code filter}, ordered by file path.
+     *
+     * @param root   The directory to scan
+     * @param filter Decides per audio file whether its metadata should be extracted
+     * @return List of Song objects with extracted metadata
+     */
+    public List<Song> scan(Path root, BiPredicate<Path, BasicFileAttributes> filter) {
+        ConcurrentLinkedQueue<Song> found = new ConcurrentLinkedQueue<>();
+        scan(root, filter, found::add);
+        List<Song> songs = new ArrayList<>(found);
+        songs.sort(Comparator.comparing(Song::getFilePath));
+        return songs;
+    }
+
+    /**
+     * Scans a directory tree and hands every song to {@code sink} as soon as its
+     * metadata has been extracted. The sink is called from worker threads and
+     * must be thread-safe. This method returns once every file has been processed.
+     *
+     * @param root The directory to scan
+     * @param sink Receiver for extracted songs
+     * @return Number of audio files processed
+     */
+    public int scan(Path root, Consumer<Song> sink) {
+        return scan(root, ACCEPT_ALL, sink);
+    }
+
+    /**
+     * Streams songs like {@link #scan(Path, Consumer)}, but only extracts metadata
+     * for audio files accepted by {@code filter}. The filter runs on the walking
+     * thread with the attributes already read by the walk, so it can compare
+     * fingerprints without touching the file again.
+     *
+     * @param root   The directory to scan
+     * @param filter Decides per audio file whether its metadata should be extracted
+     * @param sink   Receiver for extracted songs
+     * @return Number of audio files processed
+     */
+    public int scan(Path root, BiPredicate<Path, BasicFileAttributes> filter, Consumer<Song> sink) {
+        if (root == null || !Files.isDirectory(root)) {
+            System.err.println("Invalid directory provided for scanning: " + root);
+            return 0;
+        }
+
+        int scanId = SCAN_COUNTER.incrementAndGet();
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, workerThreadFactory(scanId));
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger processed = new AtomicInteger();
+
+        try {
+            Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                    new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (cancelled) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    if (!dir.equals(root) && isHidden(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (cancelled) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    if (!attrs.isRegularFile() || isHidden(file)
+                            || !MusicScanner.isSupportedAudioFile(file.getFileName().toString())) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    if (!filter.test(file, attrs)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    try {
+                        inFlight.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return FileVisitResult.TERMINATE;
+                    }
+                    workers.execute(() -> {
+                        try {
+                            if (cancelled) {
+                                return;
+                            }
+                            Song song = extractor.apply(file.toFile());
+                            if (song != null) {
+                                sink.accept(song);
+                            }
+                            processed.incrementAndGet();
+                        } catch (Exception e) {
+                            System.err.println("Failed to process " + file + ": " + e.getMessage());
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    System.err.println("Could not read " + file + ": " + exc.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error walking " + root + ": " + e.getMessage());
+        } finally {
+            workers.shutdown();
+            try {
+                while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                    // keep waiting for in-flight files
+                }
+            } catch (InterruptedException e) {
+                workers.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        return processed.get();
+    }
+
+    private static boolean isHidden(Path path) {
+        Path name = path.getFileName();
+        if (name != null && name.toString().startsWith(".")) {
+            return true;
+        }
+        try {
+            return Files.isHidden(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static ThreadFactory workerThreadFactory(int scanId) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return runnable -> {
+            Thread t = new Thread(runnable, "MusicScanner-" + scanId + "-worker-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
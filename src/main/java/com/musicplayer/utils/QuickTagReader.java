@@ -0,0 +1,440 @@
+package com.musicplayer.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.jaudiotagger.tag.reference.GenreTypes;
+
+import com.musicplayer.data.models.Song;
+
+/**
+ * Reads the common text tags straight from the file headers, without a full
+ * jaudiotagger parse.
+ * <p>
+ * Understands ID3v2.2-2.4 text frames, FLAC {@code STREAMINFO} and
+ * {@code VORBIS_COMMENT} blocks and MP4 {@code mvhd} and {@code ilst} atoms.
+ * Only the tag area is read; picture frames, picture blocks and media data are
+ * skipped by seeking past them. Duration is only known for FLAC and MP4 files
+ * and for ID3 tags with a {@code TLEN} frame; everything else is left for the
+ * full parse in {@link MusicScanner#scanFile(java.io.File)}.
+ */
+final class QuickTagReader {
+
+    /** Text frames, comments and atoms above this size are treated as corrupt. */
+    private static final int MAX_FIELD_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final Song song = new Song();
+    private boolean found;
+
+    private QuickTagReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Reads the tags of {@code file}.
+     *
+     * @return A song holding the fields found (file path not set), or null if
+     *         the format is not recognized, has no tags or could not be read
+     */
+    static Song read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            QuickTagReader reader = new QuickTagReader(channel);
+            try {
+                return reader.readTags() && reader.found ? reader.song : null;
+            } catch (EOFException e) {
+                // Truncated file; keep what was read before the end
+                return reader.found ? reader.song : null;
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private boolean readTags() throws IOException {
+        if (channel.size() < 12) {
+            return false;
+        }
+        byte[] magic = bytes(0, 12);
+        long offset = 0;
+        if (magic[0] == 'I' && magic[1] == 'D' && magic[2] == '3') {
+            offset = readId3v2();
+            if (channel.size() < offset + 4) {
+                return true;
+            }
+            magic = bytes(offset, 4);
+        }
+        if (magic[0] == 'f' && magic[1] == 'L' && magic[2] == 'a' && magic[3] == 'C') {
+            readFlac(offset + 4);
+            return true;
+        }
+        if (offset == 0 && magic[4] == 'f' && magic[5] == 't' && magic[6] == 'y' && magic[7] == 'p') {
+            readMp4Atoms(0, channel.size(), "");
+            return true;
+        }
+        return offset > 0;
+    }
+
+    // ---- ID3v2 ----
+
+    /**
+     * Reads an ID3v2 tag at the start of the file.
+     *
+     * @return Offset just past the tag
+     */
+    private long readId3v2() throws IOException {
+        byte[] header = bytes(0, 10);
+        int version = header[3];
+        int flags = header[5] & 0xFF;
+        long end = 10 + synchsafe(header, 6);
+        if (version < 2 || version > 4) {
+            return end;
+        }
+        boolean unsynchronised = (flags & 0x80) != 0;
+        long pos = 10;
+        if (version >= 3 && (flags & 0x40) != 0) {
+            byte[] ext = bytes(pos, 4);
+            pos += version == 4 ? synchsafe(ext, 0) : 4 + bigEndian(ext, 0, 4);
+        }
+
+        int headerSize = version == 2 ? 6 : 10;
+        while (pos + headerSize <= end) {
+            byte[] frameHeader = bytes(pos, headerSize);
+            if (frameHeader[0] == 0) {
+                break; // padding
+            }
+            String id;
+            long size;
+            int formatFlags = 0;
+            if (version == 2) {
+                id = new String(frameHeader, 0, 3, StandardCharsets.ISO_8859_1);
+                size = bigEndian(frameHeader, 3, 3);
+            } else {
+                id = new String(frameHeader, 0, 4, StandardCharsets.ISO_8859_1);
+                size = version == 4 ? synchsafe(frameHeader, 4) : bigEndian(frameHeader, 4, 4);
+                formatFlags = frameHeader[9] & 0xFF;
+            }
+            long dataStart = pos + headerSize;
+            pos = dataStart + size;
+            if (size <= 0 || pos > end) {
+                break;
+            }
+            // Compressed or encrypted frames are left to the full parse
+            boolean unreadable = version == 3 ? (formatFlags & 0xC0) != 0 : version == 4 && (formatFlags & 0x0C) != 0;
+            String field = id3Field(id);
+            if (field == null || unreadable || size > MAX_FIELD_SIZE) {
+                continue;
+            }
+            byte[] data = bytes(dataStart, (int) size);
+            if (unsynchronised || (version == 4 && (formatFlags & 0x02) != 0)) {
+                data = removeUnsynchronisation(data);
+            }
+            if (version == 4 && (formatFlags & 0x01) != 0 && data.length > 4) {
+                data = java.util.Arrays.copyOfRange(data, 4, data.length); // data length indicator
+            }
+            setField(field, id3Text(data));
+        }
+        return end;
+    }
+
+    private static String id3Field(String frameId) {
+        switch (frameId) {
+            case "TIT2": case "TT2": return "TITLE";
+            case "TPE1": case "TP1": return "ARTIST";
+            case "TALB": case "TAL": return "ALBUM";
+            case "TCON": case "TCO": return "GENRE";
+            case "TRCK": case "TRK": return "TRACKNUMBER";
+            case "TYER": case "TDRC": case "TYE": return "DATE";
+            case "TLEN": case "TLE": return "LENGTH";
+            default: return null;
+        }
+    }
+
+    private static String id3Text(byte[] data) {
+        if (data.length < 2) {
+            return null;
+        }
+        Charset charset;
+        int start = 1;
+        switch (data[0]) {
+            case 1:
+                if (data.length >= 3 && (data[1] & 0xFF) == 0xFF && (data[2] & 0xFF) == 0xFE) {
+                    charset = StandardCharsets.UTF_16LE;
+                    start = 3;
+                } else {
+                    charset = StandardCharsets.UTF_16;
+                }
+                break;
+            case 2: charset = StandardCharsets.UTF_16BE; break;
+            case 3: charset = StandardCharsets.UTF_8; break;
+            default: charset = StandardCharsets.ISO_8859_1; break;
+        }
+        String text = new String(data, start, data.length - start, charset);
+        int nul = text.indexOf('\0');
+        return nul >= 0 ? text.substring(0, nul) : text; // first of multiple values
+    }
+
+    private static byte[] removeUnsynchronisation(byte[] data) {
+        ByteBuffer out = ByteBuffer.allocate(data.length);
+        for (int i = 0; i < data.length; i++) {
+            out.put(data[i]);
+            if ((data[i] & 0xFF) == 0xFF && i + 1 < data.length && data[i + 1] == 0) {
+                i++;
+            }
+        }
+        return java.util.Arrays.copyOf(out.array(), out.position());
+    }
+
+    // ---- FLAC ----
+
+    private void readFlac(long pos) throws IOException {
+        long size = channel.size();
+        boolean last = false;
+        while (!last && pos + 4 <= size) {
+            byte[] header = bytes(pos, 4);
+            last = (header[0] & 0x80) != 0;
+            int type = header[0] & 0x7F;
+            int length = (int) bigEndian(header, 1, 3);
+            long dataStart = pos + 4;
+            pos = dataStart + length;
+            if (type == 0 && length >= 18) {
+                ByteBuffer info = ByteBuffer.wrap(bytes(dataStart, 18));
+                long packed = info.getLong(10); // sample rate (20), channels (3), bits (5), total samples (36)
+                long sampleRate = packed >>> 44;
+                long totalSamples = packed & 0xFFFFFFFFFL;
+                if (sampleRate > 0 && totalSamples > 0) {
+                    song.setDuration(totalSamples / sampleRate);
+                    found = true;
+                }
+            } else if (type == 4 && length <= 16 * MAX_FIELD_SIZE) {
+                readVorbisComments(ByteBuffer.wrap(bytes(dataStart, length)).order(ByteOrder.LITTLE_ENDIAN));
+            }
+            // Every other block, including PICTURE (6), is skipped
+        }
+    }
+
+    private void readVorbisComments(ByteBuffer buffer) {
+        int vendorLength = buffer.getInt();
+        buffer.position(buffer.position() + vendorLength);
+        long count = buffer.getInt() & 0xFFFFFFFFL;
+        for (long i = 0; i < count && buffer.remaining() >= 4; i++) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                return;
+            }
+            byte[] comment = new byte[length];
+            buffer.get(comment);
+            String text = new String(comment, StandardCharsets.UTF_8);
+            int eq = text.indexOf('=');
+            if (eq > 0) {
+                String key = text.substring(0, eq).toUpperCase(java.util.Locale.ROOT);
+                // Keep the first value of repeated fields, as the full parse does
+                if (isUnset(key)) {
+                    setField(key, text.substring(eq + 1));
+                }
+            }
+        }
+    }
+
+    // ---- MP4 ----
+
+    private void readMp4Atoms(long pos, long end, String parent) throws IOException {
+        while (pos + 8 <= end) {
+            byte[] header = bytes(pos, 8);
+            long size = bigEndian(header, 0, 4);
+            String type = new String(header, 4, 4, StandardCharsets.ISO_8859_1);
+            int headerSize = 8;
+            if (size == 1) {
+                size = ByteBuffer.wrap(bytes(pos + 8, 8)).getLong();
+                headerSize = 16;
+            } else if (size == 0) {
+                size = end - pos;
+            }
+            if (size < headerSize || pos + size > end) {
+                return;
+            }
+            long dataStart = pos + headerSize;
+            long dataEnd = pos + size;
+            switch (type) {
+                case "moov":
+                case "udta":
+                    readMp4Atoms(dataStart, dataEnd, type);
+                    break;
+                case "meta":
+                    readMp4Atoms(dataStart + 4, dataEnd, type); // full atom: version and flags first
+                    break;
+                case "ilst":
+                    readMp4Atoms(dataStart, dataEnd, type);
+                    break;
+                case "mvhd":
+                    readMvhd(dataStart, dataEnd);
+                    break;
+                default:
+                    if ("ilst".equals(parent)) {
+                        readIlstItem(type, dataStart, dataEnd);
+                    }
+                    break; // mdat, covr and everything else are skipped
+            }
+            pos = dataEnd;
+        }
+    }
+
+    private void readMvhd(long start, long end) throws IOException {
+        if (end - start < 32) {
+            return;
+        }
+        ByteBuffer mvhd = ByteBuffer.wrap(bytes(start, 32));
+        int version = mvhd.get(0);
+        long timescale;
+        long duration;
+        if (version == 1) {
+            timescale = mvhd.getInt(20) & 0xFFFFFFFFL;
+            duration = mvhd.getLong(24);
+        } else {
+            timescale = mvhd.getInt(12) & 0xFFFFFFFFL;
+            duration = mvhd.getInt(16) & 0xFFFFFFFFL;
+        }
+        if (timescale > 0 && duration > 0) {
+            song.setDuration(duration / timescale);
+            found = true;
+        }
+    }
+
+    private void readIlstItem(String type, long start, long end) throws IOException {
+        String field = mp4Field(type);
+        // The value sits in a 'data' atom: size, 'data', type (4), locale (4), value
+        if (field == null || end - start < 16 || end - start > MAX_FIELD_SIZE) {
+            return;
+        }
+        ByteBuffer item = ByteBuffer.wrap(bytes(start, (int) (end - start)));
+        int dataSize = item.getInt(0);
+        if (item.getInt(4) != 0x64617461 || dataSize < 16 || dataSize > item.capacity()) {
+            return;
+        }
+        int valueLength = dataSize - 16;
+        switch (type) {
+            case "trkn":
+                if (valueLength >= 4) {
+                    int track = item.getShort(16 + 2) & 0xFFFF;
+                    if (track > 0) {
+                        setField(field, Integer.toString(track));
+                    }
+                }
+                break;
+            case "gnre":
+                if (valueLength >= 2) {
+                    setField(field, "(" + ((item.getShort(16) & 0xFFFF) - 1) + ")");
+                }
+                break;
+            default:
+                setField(field, new String(item.array(), 16, valueLength, StandardCharsets.UTF_8));
+                break;
+        }
+    }
+
+    private static String mp4Field(String atomType) {
+        switch (atomType) {
+            case "\u00A9nam": return "TITLE";
+            case "\u00A9ART": return "ARTIST";
+            case "\u00A9alb": return "ALBUM";
+            case "\u00A9gen": case "gnre": return "GENRE";
+            case "trkn": return "TRACKNUMBER";
+            case "\u00A9day": return "DATE";
+            default: return null;
+        }
+    }
+
+    // ---- Shared ----
+
+    private boolean isUnset(String field) {
+        switch (field) {
+            case "TITLE": return song.getTitle() == null;
+            case "ARTIST": return song.getArtist() == null;
+            case "ALBUM": return song.getAlbum() == null;
+            case "GENRE": return song.getGenre() == null;
+            case "TRACKNUMBER": return song.getTrackNumber() == 0;
+            case "DATE": return song.getYear() == 0;
+            default: return true;
+        }
+    }
+
+    /**
+     * Stores a tag value the way {@code MusicScanner.extractMetadata} interprets it.
+     */
+    private void setField(String field, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return;
+        }
+        String v = value.trim();
+        switch (field) {
+            case "TITLE": song.setTitle(v); break;
+            case "ARTIST": song.setArtist(v); break;
+            case "ALBUM": song.setAlbum(v); break;
+            case "GENRE": song.setGenre(genreName(v)); break;
+            case "TRACKNUMBER":
+                try { song.setTrackNumber(Integer.parseInt(v.split("/")[0].trim())); } catch (NumberFormatException e) { return; }
+                break;
+            case "DATE":
+                String digits = (v.length() >= 4 ? v.substring(0, 4) : v).replaceAll("[^0-9]", "");
+                try { song.setYear(Integer.parseInt(digits)); } catch (NumberFormatException e) { return; }
+                break;
+            case "LENGTH":
+                try { song.setDuration(Long.parseLong(v) / 1000); } catch (NumberFormatException e) { return; }
+                break;
+            default:
+                return;
+        }
+        found = true;
+    }
+
+    /**
+     * Resolves ID3v1 genre references such as {@code (17)}, {@code (17)Rock} or {@code 17}.
+     */
+    private static String genreName(String genre) {
+        String ref = genre;
+        if (ref.startsWith("(") && ref.indexOf(')') > 1) {
+            String rest = ref.substring(ref.indexOf(')') + 1).trim();
+            if (!rest.isEmpty()) {
+                return rest;
+            }
+            ref = ref.substring(1, ref.indexOf(')'));
+        }
+        if (!ref.isEmpty() && ref.chars().allMatch(Character::isDigit) && ref.length() <= 3) {
+            String name = GenreTypes.getInstanceOf().getValueForId(Integer.parseInt(ref));
+            if (name != null) {
+                return name;
+            }
+        }
+        return genre;
+    }
+
+    private byte[] bytes(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        return buffer.array();
+    }
+
+    private static long synchsafe(byte[] b, int offset) {
+        return ((b[offset] & 0x7F) << 21) | ((b[offset + 1] & 0x7F) << 14)
+                | ((b[offset + 2] & 0x7F) << 7) | (b[offset + 3] & 0x7F);
+    }
+
+    private static long bigEndian(byte[] b, int offset, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | (b[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
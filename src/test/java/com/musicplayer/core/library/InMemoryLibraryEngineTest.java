@@ -0,0 +1,272 @@
+package com.musicplayer.core.library;
+
+import com.musicplayer.data.models.Album;
+import com.musicplayer.data.models.Artist;
+import com.musicplayer.data.models.Song;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryLibraryEngineTest {
+
+    private InMemoryLibraryEngine engine;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setup() {
+        engine = new InMemoryLibraryEngine();
+    }
+
+    private Song song(String title, String artist, String album) {
+        Song s = new Song();
+        s.setId(nextId++);
+        s.setTitle(title);
+        s.setArtist(artist);
+        s.setAlbum(album);
+        return s;
+    }
+
+    private static List<String> titles(List<Song> songs) {
+        List<String> titles = new ArrayList<>();
+        for (Song s : songs) titles.add(s.getTitle());
+        return titles;
+    }
+
+    @Test
+    void tokens_are_lower_case_accent_free_words() {
+        assertEquals(List.of("deja", "vu", "beyonce", "2006"), TokenIndex.tokenize("Déjà Vu (Beyoncé, 2006) - vu"));
+        assertTrue(TokenIndex.tokenize("  -- ").isEmpty());
+    }
+
+    @Test
+    void all_words_must_match_and_the_last_may_be_unfinished() {
+        engine.addSongs(List.of(
+                song("Hello World", "Adele", "25"),
+                song("World on Fire", "Sarah", "Shine"),
+                song("Hello", "Adele", "25"),
+                song("Worldwide", "Other", "X")));
+
+        assertEquals(List.of("Hello World", "World on Fire", "Worldwide"), titles(engine.searchSongsByTitle("world")));
+        assertEquals(List.of("Hello World"), titles(engine.searchSongsByTitle("hello wor")));
+        assertEquals(List.of("Hello World", "Hello"), titles(engine.searchSongsByArtist("ade")));
+        assertTrue(engine.searchSongsByTitle("orld").isEmpty(), "words match from their start");
+        assertTrue(engine.searchSongsByTitle(" ").isEmpty());
+    }
+
+    @Test
+    void search_ranks_title_and_whole_word_matches_first() {
+        engine.addSongs(List.of(
+                song("Intro", "Queen", "Greatest Hits"),
+                song("Bohemian Rhapsody", "Queen", "A Night at the Opera"),
+                song("Queens of the Stone Age", "Band", "Album"),
+                song("Killer Queen", "Queen", "Sheer Heart Attack")));
+
+        // Title and artist word > artist word > title prefix
+        List<Song> results = engine.search("queen", 10);
+        assertEquals(List.of("Killer Queen", "Intro", "Bohemian Rhapsody", "Queens of the Stone Age"), titles(results));
+
+        assertEquals(List.of("Killer Queen", "Intro"), titles(engine.search("queen", 2)));
+        assertEquals(List.of("Bohemian Rhapsody"), titles(engine.search("queen opera", 10)));
+    }
+
+    @Test
+    void removed_songs_leave_the_index_and_rebuild_renumbers() {
+        Song a = song("Same Name", "A", "X");
+        Song b = song("Same Name", "B", "Y");
+        engine.addSongs(List.of(a, b));
+
+        assertTrue(engine.removeSong(a));
+        assertFalse(engine.removeSong(a));
+        assertEquals(List.of(b), engine.searchSongsByTitle("same"));
+        assertEquals(List.of(b), engine.search("name", 5));
+
+        engine.rebuildIndexes();
+        assertEquals(List.of(b), engine.searchSongsByTitle("same name"));
+        assertEquals(1, engine.getSongCount());
+    }
+
+    @Test
+    void multi_word_queries_intersect_and_rank_title_matches_first() {
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            songs.add(song("Track " + i + " of " + (i % 100), "Artist " + (i % 100), "Album " + (i % 500)));
+        }
+        engine.addSongs(songs);
+
+        List<Song> results = engine.search("track 123", 50);
+
+        // Titles 123 and 1230-1239, plus albums 623, 1123 and 1623
+        assertEquals(14, results.size());
+        assertEquals("Track 123 of 23", results.get(0).getTitle());
+        for (Song s : results) {
+            assertTrue(s.getTitle().startsWith("Track 123") || s.getAlbum().equals("Album 123"));
+        }
+        // Artists 7 and 70-79 with 20 songs each
+        assertEquals(220, engine.searchSongsByArtist("artist 7").size());
+        assertEquals(20, engine.searchSongsByArtist("artist 7").stream()
+                .filter(s -> s.getArtist().equals("Artist 7")).count());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void ranked_search_over_100k_songs() {
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            songs.add(song("Track " + i + " of " + (i % 100), "Artist " + (i % 1000), "Album " + (i % 5000)));
+        }
+        engine.addSongs(songs);
+
+        List<Song> results = null;
+        long fastest = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            results = engine.search("track 1234", 50);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        System.out.println("Ranked search over 100k songs took " + fastest / 1000 + " us");
+        assertEquals(30, results.size());
+    }
+
+    @Test
+    void fuzzy_search_tolerates_typos() {
+        engine.addSongs(List.of(
+                song("Halo", "Beyoncé", "I Am... Sasha Fierce"),
+                song("Creep", "Radiohead", "Pablo Honey"),
+                song("Karma Police", "Radiohead", "OK Computer"),
+                song("Bones", "Radio Band", "Other")));
+
+        assertEquals(List.of("Halo"), titles(engine.fuzzySearch("Beyonse", 10)));
+        assertEquals(List.of("Creep", "Karma Police"), titles(engine.fuzzySearch("radiohaed", 10)));
+        assertEquals(List.of("Karma Police"), titles(engine.fuzzySearch("radiohaed karma polise", 10)));
+        assertEquals(List.of("Creep"), titles(engine.fuzzySearch("radiohaed", 1)));
+        assertTrue(engine.fuzzySearch("qwzx", 10).isEmpty());
+    }
+
+    @Test
+    void fuzzy_search_limits_results_to_the_best_matches() {
+        List<Song> songs = new ArrayList<>();
+        String[] artists = {"Radiohead", "Beyonce", "Metallica", "Coldplay", "Nirvana"};
+        for (int i = 0; i < 3_000; i++) {
+            songs.add(song("Song " + i, artists[i % artists.length] + " " + (i % 200), "Album " + (i % 500)));
+        }
+        engine.addSongs(songs);
+
+        List<Song> results = engine.fuzzySearch("metalica", 50);
+
+        assertEquals(50, results.size());
+        assertTrue(results.stream().allMatch(s -> s.getArtist().startsWith("Metallica")));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void fuzzy_search_over_300k_songs() {
+        List<Song> songs = new ArrayList<>();
+        String[] artists = {"Radiohead", "Beyonce", "Metallica", "Coldplay", "Nirvana"};
+        for (int i = 0; i < 300_000; i++) {
+            songs.add(song("Song " + i, artists[i % artists.length] + " " + (i % 2000), "Album " + (i % 20_000)));
+        }
+        engine.addSongs(songs);
+
+        List<Song> results = null;
+        long fastest = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            results = engine.fuzzySearch("metalica", 50);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        System.out.println("Fuzzy search over 300k songs took " + fastest / 1_000_000 + " ms");
+        assertEquals(50, results.size());
+    }
+
+    @Test
+    void album_and_artist_totals_follow_adds_and_removes() {
+        Song a = song("One", "Metallica", "...And Justice for All");
+        a.setDuration(446);
+        a.setYear(1988);
+        Song b = song("Blackened", "metallica", "...and justice for all");
+        b.setDuration(401);
+        b.setYear(1988);
+        Song c = song("Enter Sandman", "Metallica", "Metallica");
+        c.setDuration(331);
+        c.setYear(1991);
+        Song d = song("Halo", "Beyoncé", "I Am... Sasha Fierce");
+        engine.addSongs(List.of(a, b, c, d));
+
+        assertEquals(3, engine.getAlbumCount());
+        assertEquals(2, engine.getArtistCount());
+        AlbumSummary justice = engine.getAlbumSummaries().get(0);
+        assertEquals("...And Justice for All", justice.getTitle());
+        assertEquals(2, justice.getTrackCount());
+        assertEquals(847, justice.getTotalDuration());
+        ArtistSummary metallica = engine.getArtistSummaries().get(0);
+        assertEquals(3, metallica.getTrackCount());
+        assertEquals(2, metallica.getAlbumCount());
+        assertEquals(1988, metallica.getMinYear());
+        assertEquals(1991, metallica.getMaxYear());
+
+        assertTrue(engine.removeSong(c));
+        metallica = engine.getArtistSummaries().get(0);
+        assertEquals(2, engine.getAlbumCount());
+        assertEquals(1, metallica.getAlbumCount());
+        assertEquals(1988, metallica.getMaxYear());
+        assertEquals(847, metallica.getTotalDuration());
+
+        engine.removeSong(d);
+        assertEquals(1, engine.getArtistCount());
+        List<Album> albums = engine.getAllAlbums();
+        assertEquals(1, albums.size());
+        assertEquals(1988, albums.get(0).getReleaseYear());
+        assertEquals(List.of("One", "Blackened"), titles(albums.get(0).getSongs()));
+    }
+
+    @Test
+    void listed_albums_own_their_track_lists() {
+        engine.addSongs(List.of(song("One", "Metallica", "Justice")));
+        engine.getAllAlbums().get(0).addSong(song("Extra", "Metallica", "Justice"));
+        assertEquals(1, engine.getAllAlbums().get(0).getSongs().size());
+        assertEquals(1, engine.getAlbumSummaries().get(0).getTrackCount());
+    }
+
+    @Test
+    void songs_edited_in_place_can_still_be_found_and_removed() {
+        Song a = song("Creep", "Radiohead", "Pablo Honey");
+        a.setGenre("Rock");
+        engine.addSongs(List.of(a));
+
+        a.setTitle("Creep (Acoustic)");
+        a.setArtist("Thom Yorke");
+        a.setGenre("Acoustic");
+        // Same ID, so adding it again is a no-op rather than a second copy
+        engine.addSongs(List.of(a));
+        assertEquals(1, engine.getSongCount());
+
+        assertTrue(engine.removeSong(a));
+        assertEquals(0, engine.getSongCount());
+        assertTrue(engine.searchSongsByTitle("creep").isEmpty());
+        assertTrue(engine.getAllGenres().isEmpty());
+        assertEquals(0, engine.getArtistCount());
+        assertEquals(0, engine.getAlbumCount());
+    }
+
+    @Test
+    void exact_name_lookups_ignore_case() {
+        Song a = song("One", "Metallica", "Justice");
+        a.setGenre("Metal");
+        Song b = song("Two", "metallica", "Other");
+        engine.addSongs(List.of(a, b));
+
+        Artist artist = new Artist();
+        artist.setName("METALLICA");
+        assertEquals(List.of("One", "Two"), titles(engine.getSongsByArtist(artist)));
+        assertEquals(List.of("One"), titles(engine.getSongsByGenre("metal")));
+        assertEquals(Set.of("Metal"), engine.getAllGenres());
+        engine.removeSong(a);
+        assertEquals(List.of("Two"), titles(engine.getSongsByArtist(artist)));
+    }
+}
@@ -0,0 +1,65 @@
+package com.musicplayer.core.library;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrigramIndexTest {
+
+    private static List<String> tokens(List<TrigramIndex.Match> matches) {
+        List<String> tokens = new ArrayList<>();
+        for (TrigramIndex.Match m : matches) tokens.add(m.token);
+        return tokens;
+    }
+
+    @Test
+    void finds_misspelled_words() {
+        TrigramIndex index = new TrigramIndex();
+        for (String t : List.of("beyonce", "radiohead", "radio", "head", "queen", "beyond")) {
+            index.addToken(t);
+        }
+
+        assertEquals("beyonce", tokens(index.similarTokens("beyonse", 5)).get(0));
+        assertEquals("radiohead", tokens(index.similarTokens("radiohaed", 5)).get(0));
+        assertEquals("queen", tokens(index.similarTokens("qeen", 5)).get(0));
+        assertTrue(index.similarTokens("zzzzzz", 5).isEmpty());
+    }
+
+    @Test
+    void unfinished_words_match_as_prefixes() {
+        TrigramIndex index = new TrigramIndex();
+        index.addToken("radiohead");
+        index.addToken("radical");
+        List<String> matches = tokens(index.similarTokens("radioh", 5));
+        assertEquals("radiohead", matches.get(0));
+    }
+
+    @Test
+    void tokens_are_reference_counted() {
+        TrigramIndex index = new TrigramIndex();
+        index.addToken("queen");
+        index.addToken("queen");
+        index.removeToken("queen");
+        assertEquals(1, index.getTokenCount());
+        assertFalse(index.similarTokens("qeen", 5).isEmpty());
+
+        index.removeToken("queen");
+        assertEquals(0, index.getTokenCount());
+        assertTrue(index.similarTokens("qeen", 5).isEmpty());
+
+        index.addToken("queens");
+        assertEquals("queens", tokens(index.similarTokens("queen", 5)).get(0));
+    }
+
+    @Test
+    void edit_distance_is_bounded() {
+        assertEquals(0, TrigramIndex.boundedEditDistance("abc", "abc", 2));
+        assertEquals(1, TrigramIndex.boundedEditDistance("beyonse", "beyonce", 2));
+        assertEquals(2, TrigramIndex.boundedEditDistance("radiohaed", "radiohead", 2));
+        assertEquals(3, TrigramIndex.boundedEditDistance("abcdef", "uvwxyz", 2));
+        assertEquals(3, TrigramIndex.boundedEditDistance("a", "abcdefg", 2));
+    }
+}
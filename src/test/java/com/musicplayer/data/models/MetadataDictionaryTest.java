@@ -0,0 +1,54 @@
+package com.musicplayer.data.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetadataDictionaryTest {
+
+    @Test
+    void equal_values_share_one_instance_and_one_key() {
+        MetadataDictionary dictionary = new MetadataDictionary();
+        String a = dictionary.canonical(new String("Metallica"));
+        String b = dictionary.canonical(new String("Metallica"));
+        assertSame(a, b);
+        assertNull(dictionary.canonical(null));
+
+        String key = dictionary.key(new String("Metallica"));
+        assertEquals("metallica", key);
+        assertSame(key, dictionary.key("Metallica"));
+        // The lower-case spelling of a value is pooled too
+        assertSame(key, dictionary.canonical(new String("metallica")));
+        assertSame(dictionary.canonical("lowercase"), dictionary.key("lowercase"));
+    }
+
+    @Test
+    void canonicalized_songs_cut_the_retained_tag_strings() {
+        List<Song> songs = new ArrayList<>();
+        for (int album = 0; album < 200; album++) {
+            for (int track = 0; track < 15; track++) {
+                Song song = new Song();
+                // Fresh copies, like a JSON load
+                song.setArtist(new String("Artist " + album / 10));
+                song.setAlbum(new String("Album number " + album));
+                song.setGenre(new String("Progressive Rock"));
+                songs.add(song);
+            }
+        }
+        MetadataDictionary.FootprintReport before = MetadataDictionary.measure(songs);
+        assertEquals(9000, before.getReferences());
+        assertEquals(9000, before.getInstances());
+        assertEquals(221, before.getDistinctValues());
+
+        MetadataDictionary dictionary = new MetadataDictionary();
+        songs.forEach(dictionary::canonicalize);
+        MetadataDictionary.FootprintReport after = MetadataDictionary.measure(songs);
+        assertEquals(221, after.getInstances());
+        assertEquals(before.getUnsharedBytes(), after.getUnsharedBytes());
+        assertTrue(after.getRetainedBytes() * 20 < before.getRetainedBytes(),
+                "retained " + after.getRetainedBytes() + " of " + before.getRetainedBytes() + " bytes");
+    }
+}
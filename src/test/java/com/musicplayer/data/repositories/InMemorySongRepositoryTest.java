@@ -0,0 +1,87 @@
+package com.musicplayer.data.repositories;
+
+import com.musicplayer.data.models.Song;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemorySongRepositoryTest {
+
+    private static Song song(String path) {
+        Song s = new Song();
+        s.setTitle(path);
+        s.setFilePath(path);
+        return s;
+    }
+
+    @Test
+    void find_by_file_path_returns_saved_song() {
+        InMemorySongRepository repo = new InMemorySongRepository();
+        Song a = song("/music/a.mp3");
+        repo.save(a);
+        repo.save(song("/music/b.mp3"));
+
+        assertSame(a, repo.findByFilePath("/music/a.mp3"));
+        assertNull(repo.findByFilePath("/music/c.mp3"));
+        assertNull(repo.findByFilePath(null));
+    }
+
+    @Test
+    void path_change_is_reindexed_on_save() {
+        InMemorySongRepository repo = new InMemorySongRepository();
+        Song a = song("/music/a.mp3");
+        repo.save(a);
+
+        a.setFilePath("/music/renamed/a.mp3");
+        // Stale entry is not returned even before the song is saved again
+        assertNull(repo.findByFilePath("/music/a.mp3"));
+        repo.save(a);
+        assertSame(a, repo.findByFilePath("/music/renamed/a.mp3"));
+    }
+
+    @Test
+    void saving_a_copy_with_the_same_id_replaces_the_old_path() {
+        InMemorySongRepository repo = new InMemorySongRepository();
+        Song a = song("/music/a.mp3");
+        repo.save(a);
+
+        Song copy = song("/music/moved.mp3");
+        copy.setId(a.getId());
+        repo.save(copy);
+
+        assertNull(repo.findByFilePath("/music/a.mp3"));
+        assertSame(copy, repo.findByFilePath("/music/moved.mp3"));
+    }
+
+    @Test
+    void find_under_returns_only_songs_below_the_directory() {
+        InMemorySongRepository repo = new InMemorySongRepository();
+        Song a = song("/music/A/1.mp3");
+        Song nested = song("/music/A/CD2/2.mp3");
+        repo.save(song("/music/AB/3.mp3"));
+        repo.save(nested);
+        repo.save(a);
+        repo.save(song("/music/B/4.mp3"));
+
+        assertEquals(List.of(a, nested), repo.findUnder("/music/A"));
+        assertEquals(List.of(a, nested), repo.findUnder("/music/A/"));
+        assertTrue(repo.findUnder("/music/C").isEmpty());
+
+        nested.setFilePath("/music/B/2.mp3");
+        assertEquals(List.of(a), repo.findUnder("/music/A"));
+        repo.delete(a.getId());
+        assertTrue(repo.findUnder("/music/A").isEmpty());
+    }
+
+    @Test
+    void delete_removes_path_entry() {
+        InMemorySongRepository repo = new InMemorySongRepository();
+        Song a = song("/music/a.mp3");
+        repo.save(a);
+        repo.delete(a.getId());
+
+        assertNull(repo.findByFilePath("/music/a.mp3"));
+    }
+}
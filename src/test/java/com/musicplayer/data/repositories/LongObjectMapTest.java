@@ -0,0 +1,110 @@
+package com.musicplayer.data.repositories;
+
+import com.musicplayer.data.models.Song;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongObjectMapTest {
+
+    @Test
+    void random_puts_and_removes_match_a_hash_map() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Small key range so that probe runs collide and get shifted back on removal
+            long key = random.nextInt(5000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = -100; key < 4900; key++) {
+            assertEquals(expected.get(key), map.get(key), "key " + key);
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+    }
+
+    @Test
+    void values_keep_insertion_order_until_a_removal() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(30, "c");
+        map.put(10, "a");
+        map.put(20, "b");
+        assertEquals(List.of("c", "a", "b"), map.values());
+        map.remove(30);
+        assertEquals(List.of("b", "a"), map.values());
+    }
+
+    @Test
+    void map_overhead_is_well_below_a_boxed_hash_map() {
+        int n = 10_000;
+        LongObjectMap<Song> map = new LongObjectMap<>();
+        for (long id = 1; id <= n; id++) {
+            Song song = new Song();
+            song.setId(id);
+            map.put(id, song);
+        }
+        for (long id = 1; id <= n; id++) {
+            assertEquals(id, map.get(id).getId());
+        }
+        assertTrue(map.estimatedBytes() * 3 < boxedHashMapBytes(n) * 2,
+                map.estimatedBytes() + " vs " + boxedHashMapBytes(n) + " bytes");
+    }
+
+    @Test
+    @Tag("benchmark")
+    void id_lookups_against_a_boxed_hash_map() {
+        int n = 300_000;
+        LongObjectMap<Song> primitive = new LongObjectMap<>();
+        Map<Long, Song> boxed = new HashMap<>();
+        for (long id = 1; id <= n; id++) {
+            Song song = new Song();
+            song.setId(id);
+            primitive.put(id, song);
+            boxed.put(id, song);
+        }
+
+        long primitiveNanos = Long.MAX_VALUE;
+        long boxedNanos = Long.MAX_VALUE;
+        long checksum = 0;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            for (long id = 1; id <= n; id++) {
+                checksum += primitive.get(id).getId();
+            }
+            primitiveNanos = Math.min(primitiveNanos, System.nanoTime() - start);
+            start = System.nanoTime();
+            for (long id = 1; id <= n; id++) {
+                checksum -= boxed.get(id).getId();
+            }
+            boxedNanos = Math.min(boxedNanos, System.nanoTime() - start);
+        }
+        assertEquals(0, checksum);
+        System.out.println("300k ID lookups: LongObjectMap " + primitiveNanos / 1000 + " us, HashMap<Long, Song> "
+                + boxedNanos / 1000 + " us; map overhead ~" + primitive.estimatedBytes() / 1024 + " KB vs ~"
+                + boxedHashMapBytes(n) / 1024 + " KB");
+    }
+
+    // HashMap: a 32-byte node and a 16-byte Long per entry, plus the table
+    private static long boxedHashMapBytes(int n) {
+        int table = Integer.highestOneBit(n * 4 / 3) * 2;
+        return 16 + 4L * table + 48L * n;
+    }
+}
@@ -0,0 +1,141 @@
+package com.musicplayer.data.repositories;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.musicplayer.data.models.Playlist;
+import com.musicplayer.data.models.Song;
+import com.musicplayer.data.storage.JsonLibraryStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentPlaylistRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Song song(long id, String title) {
+        return new Song(id, title, "Artist", "Album", "Genre", 180, "/music/" + title + ".mp3", 1, 2020);
+    }
+
+    private JsonNode storedPlaylist() throws IOException {
+        return new ObjectMapper().readTree(tempDir.resolve("playlists.json").toFile()).get(0);
+    }
+
+    private InMemorySongRepository library(Song... songs) {
+        InMemorySongRepository repo = new InMemorySongRepository();
+        for (Song s : songs) repo.save(s);
+        return repo;
+    }
+
+    @Test
+    void playlists_are_stored_as_song_ids_and_share_library_songs() throws IOException {
+        Song a = song(1, "a");
+        Song b = song(2, "b");
+        InMemorySongRepository songs = library(a, b);
+        JsonLibraryStorage storage = new JsonLibraryStorage(tempDir);
+
+        PersistentPlaylistRepository repo = new PersistentPlaylistRepository(storage, songs);
+        Playlist playlist = new Playlist(0, "Mix");
+        playlist.addSong(b);
+        playlist.addSong(a);
+        repo.save(playlist);
+
+        JsonNode stored = storedPlaylist();
+        assertEquals("[2,1]", stored.get("songIds").toString());
+        assertFalse(stored.has("songs"));
+
+        // A play counted on the library's song shows in the reloaded playlist
+        a.setPlayCount(7);
+        Playlist loaded = new PersistentPlaylistRepository(storage, songs).findById(playlist.getId());
+        assertSame(b, loaded.getSongs().get(0));
+        assertSame(a, loaded.getSongs().get(1));
+        assertEquals(7, loaded.getSongs().get(1).getPlayCount());
+    }
+
+    @Test
+    void embedded_song_copies_are_migrated_and_missing_songs_kept_in_storage() throws IOException {
+        Files.writeString(tempDir.resolve("playlists.json"), "[{\"id\":3,\"name\":\"Old\",\"shuffled\":false,"
+                + "\"songs\":[{\"id\":2,\"title\":\"b\",\"playCount\":1},"
+                + "{\"id\":9,\"title\":\"deleted\"},{\"id\":1,\"title\":\"a\"}]}]");
+        Song a = song(1, "a");
+        Song b = song(2, "b");
+        b.setFavorite(true);
+        JsonLibraryStorage storage = new JsonLibraryStorage(tempDir);
+
+        Playlist loaded = new PersistentPlaylistRepository(storage, library(a, b)).findById(3);
+        assertEquals(List.of(b, a), loaded.getSongs());
+        assertTrue(loaded.getSongs().get(0).isFavorite());
+
+        JsonNode stored = storedPlaylist();
+        assertEquals("[2,9,1]", stored.get("songIds").toString());
+        assertFalse(stored.has("songs"));
+
+        // Saving without an edit keeps the song that was not found
+        PersistentPlaylistRepository repo = new PersistentPlaylistRepository(storage, library(a, b));
+        Playlist reopened = repo.findById(3);
+        assertEquals(List.of(b, a), reopened.getSongs());
+        repo.save(reopened);
+        assertEquals("[2,9,1]", storedPlaylist().get("songIds").toString());
+
+        // An edit drops it
+        reopened.removeSong(a);
+        repo.save(reopened);
+        assertEquals("[2]", storedPlaylist().get("songIds").toString());
+    }
+
+    @Test
+    void legacy_songs_with_stale_ids_are_found_by_path() throws IOException {
+        Files.writeString(tempDir.resolve("playlists.json"), "[{\"id\":3,\"name\":\"Old\",\"shuffled\":false,"
+                + "\"songs\":[{\"id\":40,\"title\":\"b\",\"filePath\":\"/music/b.mp3\"},"
+                + "{\"id\":2,\"title\":\"a\",\"filePath\":\"/music/a.mp3\"}]}]");
+        // The library was rebuilt: b has a new ID and a's old ID now belongs to b
+        Song a = song(1, "a");
+        Song b = song(2, "b");
+        JsonLibraryStorage storage = new JsonLibraryStorage(tempDir);
+
+        Playlist loaded = new PersistentPlaylistRepository(storage, library(a, b)).findById(3);
+        assertEquals(List.of(b, a), loaded.getSongs());
+        assertEquals("[40,2]", storedPlaylist().get("songIds").toString());
+        assertEquals("[\"/music/b.mp3\",\"/music/a.mp3\"]", storedPlaylist().get("songPaths").toString());
+    }
+
+    @Test
+    void migrated_playlists_survive_a_rescan_that_reassigns_ids() throws IOException {
+        Song a = song(1, "a");
+        Song b = song(2, "b");
+        JsonLibraryStorage storage = new JsonLibraryStorage(tempDir);
+        PersistentPlaylistRepository repo = new PersistentPlaylistRepository(storage, library(a, b));
+        Playlist playlist = new Playlist(0, "Mix");
+        playlist.addSong(a);
+        playlist.addSong(b);
+        repo.save(playlist);
+
+        // Clear & Scan reads the same files into songs with new IDs
+        Song newA = song(11, "a");
+        Song newB = song(12, "b");
+        PersistentPlaylistRepository rescanned = new PersistentPlaylistRepository(storage, library(newB, newA));
+        Playlist loaded = rescanned.findById(playlist.getId());
+        assertEquals(List.of(newA, newB), loaded.getSongs());
+        rescanned.save(loaded);
+        assertEquals("[11,12]", storedPlaylist().get("songIds").toString());
+    }
+
+    @Test
+    void playlists_loaded_without_a_song_repository_keep_their_ids() throws IOException {
+        JsonLibraryStorage storage = new JsonLibraryStorage(tempDir);
+        Playlist playlist = new Playlist(0, "Ids");
+        playlist.setSongIds(new long[] {5, 4});
+        storage.savePlaylists(List.of(playlist));
+
+        Playlist loaded = new PersistentPlaylistRepository(storage).findAll().get(0);
+        loaded.addSong(song(6, "c"));
+        assertArrayEquals(new long[] {5, 4, 6}, loaded.getSongIds());
+    }
+}
@@ -0,0 +1,199 @@
+package com.musicplayer.data.repositories;
+
+import com.musicplayer.data.models.Album;
+import com.musicplayer.data.models.Artist;
+import com.musicplayer.data.models.Playlist;
+import com.musicplayer.data.models.Song;
+import com.musicplayer.data.storage.LibraryStorage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentSongRepositoryTest {
+
+    /** Storage stub that counts snapshot writes of the song list. */
+    static class CountingStorage implements LibraryStorage {
+        final AtomicInteger songWrites = new AtomicInteger();
+        volatile List<Song> lastSongs = new ArrayList<>();
+
+        @Override public void saveSongs(List<Song> songs) { lastSongs = new ArrayList<>(songs); songWrites.incrementAndGet(); }
+        @Override public List<Song> loadSongs() { return new ArrayList<>(lastSongs); }
+        @Override public void saveAlbums(List<Album> albums) {}
+        @Override public List<Album> loadAlbums() { return new ArrayList<>(); }
+        @Override public void saveArtists(List<Artist> artists) {}
+        @Override public List<Artist> loadArtists() { return new ArrayList<>(); }
+        @Override public void savePlaylists(List<Playlist> playlists) {}
+        @Override public List<Playlist> loadPlaylists() { return new ArrayList<>(); }
+        @Override public Path getDataDirectory() { return Path.of("."); }
+        @Override public boolean hasExistingData() { return !lastSongs.isEmpty(); }
+    }
+
+    private static Song song(String title) {
+        Song s = new Song();
+        s.setTitle(title);
+        s.setFilePath("/music/" + title + ".mp3");
+        return s;
+    }
+
+    private static List<Song> songs(int count) {
+        List<Song> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) list.add(song("s" + i));
+        return list;
+    }
+
+    private static void awaitWrites(CountingStorage storage, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (storage.songWrites.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitFlushes(PersistentSongRepository repo, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (repo.getFlushCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void zero_delay_writes_through_on_every_mutation() {
+        CountingStorage storage = new CountingStorage();
+        PersistentSongRepository repo = new PersistentSongRepository(storage, 0, 1000);
+
+        Song a = song("a");
+        repo.save(a);
+        repo.save(song("b"));
+        repo.delete(a.getId());
+
+        assertEquals(3, storage.songWrites.get());
+        assertEquals(1, storage.lastSongs.size());
+        assertEquals(0, repo.getCoalescedWriteCount());
+    }
+
+    @Test
+    void saveAll_is_coalesced_until_forceSave() {
+        CountingStorage storage = new CountingStorage();
+        PersistentSongRepository repo = new PersistentSongRepository(storage, 60_000, 100_000);
+
+        repo.saveAll(songs(500));
+        assertEquals(0, storage.songWrites.get());
+        assertEquals(500, repo.getPendingWriteCount());
+
+        repo.forceSave();
+        assertEquals(1, storage.songWrites.get());
+        assertEquals(500, storage.lastSongs.size());
+        assertEquals(499, repo.getCoalescedWriteCount());
+        assertEquals(0, repo.getPendingWriteCount());
+    }
+
+    @Test
+    void individual_saves_flush_after_delay_as_one_write() throws InterruptedException {
+        CountingStorage storage = new CountingStorage();
+        PersistentSongRepository repo = new PersistentSongRepository(storage, 50, 100_000);
+
+        for (Song s : songs(20)) {
+            repo.save(s);
+        }
+        awaitFlushes(repo, 1);
+
+        assertEquals(1, storage.songWrites.get());
+        assertEquals(20, storage.lastSongs.size());
+        assertEquals(19, repo.getCoalescedWriteCount());
+    }
+
+    @Test
+    void reaching_pending_threshold_flushes_before_delay() throws InterruptedException {
+        CountingStorage storage = new CountingStorage();
+        PersistentSongRepository repo = new PersistentSongRepository(storage, 60_000, 10);
+
+        for (Song s : songs(10)) {
+            repo.save(s);
+        }
+        awaitWrites(storage, 1);
+
+        assertEquals(1, storage.songWrites.get());
+        assertEquals(10, storage.lastSongs.size());
+    }
+
+    @Test
+    void transaction_defers_writes_until_it_completes() {
+        CountingStorage storage = new CountingStorage();
+        PersistentSongRepository repo = new PersistentSongRepository(storage, 0, 1000);
+
+        repo.inTransaction(() -> {
+            for (Song s : songs(5)) {
+                repo.save(s);
+            }
+            assertEquals(0, storage.songWrites.get());
+        });
+
+        assertEquals(1, storage.songWrites.get());
+        assertEquals(5, storage.lastSongs.size());
+        assertEquals(4, repo.getCoalescedWriteCount());
+    }
+
+    @Test
+    void shutdown_flushes_pending_and_later_writes_go_through() {
+        CountingStorage storage = new CountingStorage();
+        PersistentSongRepository repo = new PersistentSongRepository(storage, 60_000, 100_000);
+
+        repo.save(song("a"));
+        repo.shutdown();
+        assertEquals(1, storage.songWrites.get());
+
+        repo.save(song("b"));
+        assertEquals(2, storage.songWrites.get());
+        assertEquals(2, new PersistentSongRepository(storage).size());
+    }
+
+    @Test
+    void path_index_survives_reload_and_follows_deletes() {
+        CountingStorage storage = new CountingStorage();
+        PersistentSongRepository repo = new PersistentSongRepository(storage, 0, 1000);
+        repo.saveAll(songs(3));
+
+        PersistentSongRepository reloaded = new PersistentSongRepository(storage, 0, 1000);
+        Song s1 = reloaded.findByFilePath("/music/s1.mp3");
+        assertNotNull(s1);
+        assertEquals("s1", s1.getTitle());
+
+        reloaded.deleteAll(List.of(s1.getId()));
+        assertNull(reloaded.findByFilePath("/music/s1.mp3"));
+        assertNotNull(reloaded.findByFilePath("/music/s2.mp3"));
+
+        reloaded.clear();
+        assertNull(reloaded.findByFilePath("/music/s2.mp3"));
+    }
+
+    @Test
+    void deferred_repository_streams_small_first_chunk_and_waits_before_writes() throws InterruptedException {
+        CountingStorage storage = new CountingStorage();
+        new PersistentSongRepository(storage, 0, 1000).saveAll(songs(1000));
+
+        PersistentSongRepository repo = new PersistentSongRepository(storage, 0, 1000, true);
+        assertFalse(repo.isLoaded());
+        assertEquals(0, repo.size());
+
+        List<Integer> chunkSizes = new java.util.concurrent.CopyOnWriteArrayList<>();
+        java.util.concurrent.CountDownLatch done = new java.util.concurrent.CountDownLatch(1);
+        assertTrue(repo.loadInBackground(chunk -> chunkSizes.add(chunk.size()), done::countDown));
+        assertFalse(repo.loadInBackground(chunk -> {}, null));
+
+        // A write waits for the load, so the new song gets an ID after the loaded ones
+        Song added = song("added");
+        repo.save(added);
+        assertEquals(1001, added.getId());
+
+        assertTrue(done.await(5, java.util.concurrent.TimeUnit.SECONDS));
+        assertTrue(repo.isLoaded());
+        assertEquals(1001, repo.size());
+        assertEquals(PersistentSongRepository.FIRST_LOAD_CHUNK_SIZE, chunkSizes.get(0));
+        assertEquals(1000, chunkSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+}
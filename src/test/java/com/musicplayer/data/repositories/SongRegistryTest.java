@@ -0,0 +1,81 @@
+package com.musicplayer.data.repositories;
+
+import com.musicplayer.core.library.InMemoryLibraryEngine;
+import com.musicplayer.data.models.Album;
+import com.musicplayer.data.models.Song;
+import com.musicplayer.data.storage.JsonLibraryStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SongRegistryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Song song(long id, String title) {
+        return new Song(id, title, "Artist", "Album", "Genre", 180, "/music/" + title + ".mp3", 1, 2020);
+    }
+
+    @Test
+    void intern_returns_the_registered_instance_and_adopt_updates_it() {
+        SongRegistry registry = new SongRegistry();
+        Song transientCopy = song(1, "lookup");
+        assertSame(transientCopy, registry.intern(transientCopy));
+        assertEquals(0, registry.size(), "interning does not register");
+
+        Song first = song(1, "old title");
+        registry.register(first);
+        assertSame(first, registry.intern(song(1, "copy")));
+
+        Song loaded = song(1, "new title");
+        loaded.setPlayCount(4);
+        assertSame(first, registry.adopt(loaded));
+        assertEquals("new title", first.getTitle());
+        assertEquals(4, first.getPlayCount());
+
+        Song saved = song(1, "saved");
+        registry.register(saved);
+        assertSame(saved, registry.find(1));
+
+        Song unsaved = song(0, "no id");
+        assertSame(unsaved, registry.intern(unsaved));
+        assertEquals(1, registry.size());
+        registry.unregister(1);
+        assertNull(registry.find(1));
+    }
+
+    @Test
+    void albums_loaded_before_the_library_share_its_songs() throws IOException {
+        JsonLibraryStorage storage = new JsonLibraryStorage(tempDir);
+        Album album = new Album();
+        album.setId(1);
+        album.setTitle("Album");
+        album.setSongs(List.of(song(1, "a"), song(2, "b")));
+        storage.saveAlbums(List.of(album));
+        Song fresh = song(1, "a");
+        fresh.setPlayCount(12);
+        storage.saveSongs(List.of(fresh, song(2, "b")));
+
+        PersistentSongRepository songs = new PersistentSongRepository(storage, true);
+        try {
+            // Albums are read first, as at startup, while the library is still to be loaded
+            PersistentAlbumRepository albums = new PersistentAlbumRepository(storage, songs.getRegistry());
+            Song fromLibrary = songs.findById(1);
+            Song fromAlbum = albums.findById(1).getSongs().get(0);
+            assertSame(fromLibrary, fromAlbum);
+            assertEquals(12, fromAlbum.getPlayCount());
+
+            InMemoryLibraryEngine engine = new InMemoryLibraryEngine(songs.getRegistry());
+            engine.addSongs(List.of(song(2, "b")));
+            assertSame(songs.findById(2), engine.getAllSongs().get(0));
+        } finally {
+            songs.shutdown();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.musicplayer.data.storage;
+
+import com.musicplayer.data.models.Settings;
+import com.musicplayer.data.models.Song;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryLibraryStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<Song> sampleSongs() {
+        List<Song> songs = new ArrayList<>();
+        Song a = new Song(1, "Ænima", "Tool", "Ænima", "Rock", 400, "/music/Tool/Ænima.flac", 15, 1996);
+        a.setPlayCount(12);
+        a.setLastPlayed(1_700_000_000_000L);
+        a.setFavorite(true);
+        a.setRating(5);
+        songs.add(a);
+        songs.add(new Song(2, "Stinkfist", "Tool", "Ænima", "Rock", 311, "/music/Tool/Stinkfist.mp3", 1, 1996));
+        songs.add(new Song(7, null, null, null, null, 0, "/music/unknown.mp3", 0, 0));
+        return songs;
+    }
+
+    @Test
+    void round_trips_all_song_fields() throws IOException {
+        BinaryLibraryStorage storage = new BinaryLibraryStorage(tempDir);
+        List<Song> songs = sampleSongs();
+        storage.saveSongs(songs);
+
+        assertTrue(storage.hasExistingData());
+        // Song.equals compares every field
+        assertEquals(songs, new BinaryLibraryStorage(tempDir).loadSongs());
+    }
+
+    @Test
+    void missing_or_corrupt_file_loads_empty() throws IOException {
+        BinaryLibraryStorage storage = new BinaryLibraryStorage(tempDir);
+        assertTrue(storage.loadSongs().isEmpty());
+
+        storage.saveSongs(sampleSongs());
+        Path file = tempDir.resolve(BinaryLibraryStorage.SONGS_FILE);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(file, bytes);
+
+        assertTrue(storage.loadSongs().isEmpty());
+    }
+
+    @Test
+    void binary_format_migrates_json_library_once() throws IOException {
+        List<Song> songs = sampleSongs();
+        new JsonLibraryStorage(tempDir).saveSongs(songs);
+
+        LibraryStorage storage = LibraryStorageFactory.create(Settings.LibraryStorageFormat.BINARY, tempDir);
+
+        assertTrue(((JournaledLibraryStorage) storage).getSnapshotStorage() instanceof BinaryLibraryStorage);
+        assertEquals(songs, storage.loadSongs());
+        assertFalse(Files.exists(tempDir.resolve("songs.json")));
+        assertTrue(Files.exists(tempDir.resolve("songs.json.bak")));
+        // Nothing left to migrate on the next start
+        assertEquals(-1, LibraryStorageMigrator.migrateJsonToBinary(tempDir));
+    }
+
+    @Test
+    void switching_back_to_json_migrates_the_binary_library() throws IOException {
+        List<Song> songs = sampleSongs();
+        new JsonLibraryStorage(tempDir).saveSongs(songs);
+        LibraryStorageFactory.create(Settings.LibraryStorageFormat.BINARY, tempDir);
+
+        LibraryStorage storage = LibraryStorageFactory.create(Settings.LibraryStorageFormat.JSON, tempDir);
+
+        assertTrue(((JournaledLibraryStorage) storage).getSnapshotStorage() instanceof JsonLibraryStorage);
+        assertEquals(songs, storage.loadSongs());
+        assertFalse(Files.exists(tempDir.resolve("songs.bin")));
+        assertTrue(Files.exists(tempDir.resolve("songs.bin.bak")));
+        assertEquals(-1, LibraryStorageMigrator.migrateBinaryToJson(tempDir));
+
+        // And forward again
+        storage = LibraryStorageFactory.create(Settings.LibraryStorageFormat.BINARY, tempDir);
+        assertEquals(songs, storage.loadSongs());
+        assertFalse(Files.exists(tempDir.resolve("songs.json")));
+    }
+
+    @Test
+    void json_format_is_the_default() {
+        LibraryStorage storage = LibraryStorageFactory.create(null, tempDir);
+        assertTrue(((JournaledLibraryStorage) storage).getSnapshotStorage() instanceof JsonLibraryStorage);
+    }
+
+    @Test
+    void json_and_binary_stream_songs_in_chunks() throws IOException {
+        List<Song> songs = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            songs.add(new Song(i, "t" + i, "a", "b", "g", 60, "/music/" + i + ".mp3", i, 2000));
+        }
+        for (LibraryStorage storage : List.of(new JsonLibraryStorage(tempDir), new BinaryLibraryStorage(tempDir))) {
+            storage.saveSongs(songs);
+            List<List<Song>> chunks = new ArrayList<>();
+            storage.streamSongs(3, chunks::add);
+            assertEquals(List.of(3, 3, 1), chunks.stream().map(List::size).toList());
+            assertEquals(songs, chunks.stream().flatMap(List::stream).toList());
+        }
+    }
+}
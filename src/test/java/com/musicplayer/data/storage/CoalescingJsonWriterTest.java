@@ -0,0 +1,70 @@
+package com.musicplayer.data.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoalescingJsonWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void changes_within_the_delay_become_one_write_of_the_latest_content() throws IOException {
+        CoalescingJsonWriter writer = new CoalescingJsonWriter(60_000);
+        Path file = tempDir.resolve("volume.json");
+        AtomicInteger serialized = new AtomicInteger();
+        try {
+            for (int volume = 1; volume <= 50; volume++) {
+                int value = volume;
+                writer.write(file, mapper.writer(), () -> {
+                    serialized.incrementAndGet();
+                    return List.of(value);
+                });
+            }
+            writer.write(tempDir.resolve("other.json"), mapper.writer(), () -> "x");
+            assertFalse(Files.exists(file));
+            assertEquals(2, writer.getPendingWrites());
+            assertEquals(49, writer.getCoalescedWrites());
+
+            writer.flush(file);
+            assertEquals("[50]", Files.readString(file));
+            assertEquals(1, serialized.get());
+            assertEquals(1, writer.getPendingWrites());
+
+            writer.flush(file); // nothing pending for it any more
+            assertEquals(1, writer.getCompletedWrites());
+        } finally {
+            writer.shutdown();
+        }
+        assertEquals(0, writer.getPendingWrites());
+        assertEquals("\"x\"", Files.readString(tempDir.resolve("other.json")));
+        assertFalse(Files.exists(tempDir.resolve("volume.json.tmp")));
+    }
+
+    @Test
+    void pending_writes_go_out_on_the_writer_thread_after_the_delay() throws Exception {
+        CoalescingJsonWriter writer = new CoalescingJsonWriter(10);
+        Path file = tempDir.resolve("favorites.json");
+        try {
+            writer.write(file, mapper.writer(), () -> List.of(1L, 2L));
+            for (int i = 0; i < 500 && writer.getCompletedWrites() == 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals("[1,2]", Files.readString(file));
+            assertEquals(0, writer.getPendingWrites());
+        } finally {
+            writer.shutdown();
+        }
+    }
+}
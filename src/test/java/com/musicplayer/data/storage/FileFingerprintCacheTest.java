@@ -0,0 +1,82 @@
+package com.musicplayer.data.storage;
+
+import com.musicplayer.data.storage.FileFingerprintCache.FileFingerprint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileFingerprintCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void fingerprints_persist_across_instances() {
+        FileFingerprintCache cache = new FileFingerprintCache(tempDir);
+        cache.put("/music/a.mp3", new FileFingerprint(100, 1_000, "(dev=1,ino=2)"));
+        cache.put("/music/b.mp3", new FileFingerprint(200, 2_000, null));
+        cache.save();
+
+        FileFingerprintCache reloaded = new FileFingerprintCache(tempDir);
+        assertEquals(2, reloaded.size());
+        assertTrue(reloaded.isUnchanged("/music/a.mp3", new FileFingerprint(100, 1_000, "(dev=1,ino=2)")));
+        assertTrue(reloaded.isUnchanged("/music/b.mp3", new FileFingerprint(200, 2_000, null)));
+    }
+
+    @Test
+    void any_changed_component_is_detected() {
+        FileFingerprintCache cache = new FileFingerprintCache();
+        cache.put("/music/a.mp3", new FileFingerprint(100, 1_000, "k1"));
+
+        assertFalse(cache.isUnchanged("/music/a.mp3", new FileFingerprint(101, 1_000, "k1")));
+        assertFalse(cache.isUnchanged("/music/a.mp3", new FileFingerprint(100, 1_001, "k1")));
+        assertFalse(cache.isUnchanged("/music/a.mp3", new FileFingerprint(100, 1_000, "k2")));
+        assertFalse(cache.isUnchanged("/music/unknown.mp3", new FileFingerprint(100, 1_000, "k1")));
+    }
+
+    @Test
+    void tags_read_flag_lasts_until_the_file_changes() {
+        FileFingerprintCache cache = new FileFingerprintCache(tempDir);
+        FileFingerprint original = new FileFingerprint(100, 1_000, "k1");
+        cache.put("/music/a.mp3", original);
+        assertFalse(cache.wereTagsRead("/music/a.mp3", original));
+
+        cache.markTagsRead("/music/a.mp3", original);
+        // A rescan of the unchanged file records an equal fingerprint
+        cache.put("/music/a.mp3", new FileFingerprint(100, 1_000, "k1"));
+        cache.save();
+
+        FileFingerprintCache reloaded = new FileFingerprintCache(tempDir);
+        assertTrue(reloaded.wereTagsRead("/music/a.mp3", original));
+        assertFalse(reloaded.wereTagsRead("/music/a.mp3", new FileFingerprint(100, 2_000, "k1")));
+
+        reloaded.put("/music/a.mp3", new FileFingerprint(100, 2_000, "k1"));
+        assertFalse(reloaded.wereTagsRead("/music/a.mp3", new FileFingerprint(100, 2_000, "k1")));
+    }
+
+    @Test
+    void retainUnder_only_prunes_inside_root() {
+        FileFingerprintCache cache = new FileFingerprintCache();
+        cache.put("/music/a.mp3", new FileFingerprint(1, 1, null));
+        cache.put("/music/gone.mp3", new FileFingerprint(1, 1, null));
+        cache.put("/other/x.mp3", new FileFingerprint(1, 1, null));
+
+        cache.retainUnder("/music/", Set.of("/music/a.mp3"));
+
+        assertNotNull(cache.get("/music/a.mp3"));
+        assertNull(cache.get("/music/gone.mp3"));
+        assertNotNull(cache.get("/other/x.mp3"));
+    }
+
+    @Test
+    void corrupt_file_starts_empty() throws IOException {
+        Files.writeString(tempDir.resolve("fingerprints.json"), "{ not json");
+        assertEquals(0, new FileFingerprintCache(tempDir).size());
+    }
+}
@@ -0,0 +1,156 @@
+package com.musicplayer.data.storage;
+
+import com.musicplayer.data.models.Playlist;
+import com.musicplayer.data.models.Song;
+import com.musicplayer.data.repositories.PersistentSongRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournaledLibraryStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JournaledLibraryStorage storage;
+
+    @AfterEach
+    void tearDown() {
+        if (storage != null) storage.close();
+    }
+
+    private JournaledLibraryStorage open() {
+        if (storage != null) storage.close();
+        storage = new JournaledLibraryStorage(new JsonLibraryStorage(tempDir), Long.MAX_VALUE);
+        return storage;
+    }
+
+    private static Song song(long id, String title) {
+        return new Song(id, title, "Artist", "Album", "Genre", 180, "/music/" + title + ".mp3", 1, 2020);
+    }
+
+    private static List<String> titles(List<Song> songs) {
+        return songs.stream().map(Song::getTitle).sorted().toList();
+    }
+
+    @Test
+    void replays_upserts_and_deletes_onto_snapshot() throws IOException {
+        new JsonLibraryStorage(tempDir).saveSongs(List.of(song(1, "a"), song(2, "b")));
+
+        open().appendSongMutations(List.of(song(2, "b2"), song(3, "c")), List.of(1L));
+
+        List<Song> loaded = open().loadSongs();
+        assertEquals(List.of("b2", "c"), titles(loaded));
+        // The snapshot itself was not rewritten
+        assertEquals(List.of("a", "b"), titles(new JsonLibraryStorage(tempDir).loadSongs()));
+    }
+
+    @Test
+    void torn_last_record_is_discarded_and_later_appends_survive() throws IOException {
+        open().appendSongMutations(List.of(song(1, "a"), song(2, "b")), List.of());
+        Path journal = tempDir.resolve("songs.journal");
+        byte[] bytes = Files.readAllBytes(journal);
+        storage.close();
+        Files.write(journal, Arrays.copyOf(bytes, bytes.length - 5));
+
+        assertEquals(List.of("a"), titles(open().loadSongs()));
+        storage.appendSongMutations(List.of(song(3, "c")), List.of());
+        assertEquals(List.of("a", "c"), titles(open().loadSongs()));
+    }
+
+    @Test
+    void corrupt_record_stops_replay() throws IOException {
+        open().appendSongMutations(List.of(song(1, "a")), List.of());
+        long firstRecordEnd = Files.size(tempDir.resolve("songs.journal"));
+        storage.appendSongMutations(List.of(song(2, "b")), List.of());
+        storage.close();
+        byte[] bytes = Files.readAllBytes(tempDir.resolve("songs.journal"));
+        bytes[(int) firstRecordEnd + 20] ^= 0x01;
+        Files.write(tempDir.resolve("songs.journal"), bytes);
+
+        assertEquals(List.of("a"), titles(open().loadSongs()));
+    }
+
+    @Test
+    void compaction_folds_journal_into_snapshot() throws IOException {
+        open().appendSongMutations(List.of(song(1, "a"), song(2, "b")), List.of());
+        storage.appendSongMutations(List.of(), List.of(2L));
+        storage.compactNow();
+
+        assertEquals(0, Files.size(tempDir.resolve("songs.journal")));
+        assertFalse(Files.exists(tempDir.resolve("songs.journal.old")));
+        assertEquals(List.of("a"), titles(new JsonLibraryStorage(tempDir).loadSongs()));
+        assertEquals(List.of("a"), titles(open().loadSongs()));
+    }
+
+    @Test
+    void replaying_a_journal_left_by_an_interrupted_compaction_is_harmless() throws IOException {
+        open().appendSongMutations(List.of(song(1, "a"), song(2, "b")), List.of());
+        byte[] folded = Files.readAllBytes(tempDir.resolve("songs.journal"));
+        storage.compactNow();
+        storage.appendSongMutations(List.of(song(1, "a2")), List.of());
+        storage.close();
+        // Crash after the snapshot was written but before the old journal was deleted
+        Files.write(tempDir.resolve("songs.journal.old"), folded);
+
+        assertEquals(List.of("a2", "b"), titles(open().loadSongs()));
+        storage.compactNow();
+        assertEquals(List.of("a2", "b"), titles(new JsonLibraryStorage(tempDir).loadSongs()));
+    }
+
+    @Test
+    void full_save_replaces_previous_entries() throws IOException {
+        Playlist first = new Playlist();
+        first.setId(1);
+        first.setName("first");
+        open().appendPlaylistMutations(List.of(first), List.of());
+        Playlist second = new Playlist();
+        second.setId(2);
+        second.setName("second");
+        storage.savePlaylists(List.of(second));
+
+        List<Playlist> loaded = open().loadPlaylists();
+        assertEquals(1, loaded.size());
+        assertEquals("second", loaded.get(0).getName());
+    }
+
+    @Test
+    void song_repository_appends_only_changed_songs() throws IOException {
+        PersistentSongRepository repo = new PersistentSongRepository(open(), 0, 1000);
+        for (int i = 0; i < 50; i++) repo.save(song(0, "s" + i));
+        storage.compactNow();
+
+        Song changed = repo.findByFilePath("/music/s7.mp3");
+        changed.setPlayCount(3);
+        repo.save(changed);
+        long journalSize = Files.size(tempDir.resolve("songs.journal"));
+        assertTrue(journalSize > 0 && journalSize < 1024, "one record, was " + journalSize);
+
+        PersistentSongRepository reloaded = new PersistentSongRepository(open(), 0, 1000);
+        assertEquals(50, reloaded.size());
+        assertEquals(3, reloaded.findByFilePath("/music/s7.mp3").getPlayCount());
+    }
+
+    @Test
+    void streaming_applies_journal_like_a_full_load() throws IOException {
+        List<Song> base = new java.util.ArrayList<>();
+        for (int i = 1; i <= 25; i++) base.add(song(i, "s" + i));
+        new JsonLibraryStorage(tempDir).saveSongs(base);
+        open().appendSongMutations(List.of(song(3, "s3-edited"), song(40, "new")), List.of(5L, 6L));
+
+        List<List<Song>> chunks = new java.util.ArrayList<>();
+        open().streamSongs(10, chunks::add);
+
+        List<Song> streamed = chunks.stream().flatMap(List::stream).toList();
+        assertEquals(storage.loadSongs(), streamed);
+        assertEquals(List.of(10, 10, 4), chunks.stream().map(List::size).toList());
+    }
+}
@@ -0,0 +1,57 @@
+package com.musicplayer.data.storage;
+
+import com.musicplayer.data.storage.PlayEventLog.PlayEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlayEventLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void plays_survive_reopening_and_a_torn_record_is_cut_off() throws IOException {
+        PlayEventLog log = new PlayEventLog(tempDir);
+        log.append(1, 1000, 180_000);
+        log.append(2, 2000, 30_000);
+        log.close();
+        assertEquals(2L * PlayEventLog.RECORD_SIZE, Files.size(tempDir.resolve("plays.log")));
+
+        // A crash mid-append leaves part of a record behind
+        Files.write(tempDir.resolve("plays.log"), new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+
+        PlayEventLog reopened = new PlayEventLog(tempDir);
+        List<PlayEvent> events = reopened.readAll();
+        assertEquals(2, events.size());
+        assertEquals(2, events.get(1).getSongId());
+        assertEquals(2000, events.get(1).getTimestamp());
+        assertEquals(30_000, events.get(1).getListenedMillis());
+
+        reopened.append(3, 3000, 0);
+        assertEquals(3, reopened.readAll().size());
+        assertEquals(3, reopened.readAll().get(2).getSongId());
+        reopened.close();
+    }
+
+    @Test
+    void retainSince_drops_older_plays() {
+        PlayEventLog log = new PlayEventLog(tempDir);
+        log.append(1, 1000, 0);
+        log.append(2, 2000, 0);
+        log.append(3, 3000, 0);
+
+        assertEquals(1, log.retainSince(2000));
+        log.append(4, 4000, 0);
+        List<PlayEvent> events = log.readAll();
+        assertEquals(List.of(2L, 3L, 4L), events.stream().map(PlayEvent::getSongId).toList());
+        log.close();
+    }
+}
@@ -0,0 +1,209 @@
+package com.musicplayer.data.storage;
+
+import com.musicplayer.data.models.Album;
+import com.musicplayer.data.models.Playlist;
+import com.musicplayer.data.models.Settings;
+import com.musicplayer.data.models.Song;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlLibraryStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<Song> sampleSongs() {
+        List<Song> songs = new ArrayList<>();
+        Song a = new Song(1, "Ænima", "Tool", "Ænima", "Rock", 400, "/music/Tool/Ænima.flac", 15, 1996);
+        a.setPlayCount(12);
+        a.setLastPlayed(1_700_000_000_000L);
+        a.setFavorite(true);
+        a.setRating(5);
+        songs.add(a);
+        songs.add(new Song(2, "Stinkfist", "Tool", "Ænima", "Rock", 311, "/music/Tool/Stinkfist.mp3", 1, 1996));
+        songs.add(new Song(7, null, null, null, null, 0, "/music/unknown.mp3", 0, 0));
+        return songs;
+    }
+
+    private static void assertSameSongs(List<Song> expected, List<Song> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Song e = expected.get(i);
+            Song a = actual.get(i);
+            assertEquals(e.getId(), a.getId());
+            assertEquals(e.getTitle(), a.getTitle());
+            assertEquals(e.getArtist(), a.getArtist());
+            assertEquals(e.getAlbum(), a.getAlbum());
+            assertEquals(e.getGenre(), a.getGenre());
+            assertEquals(e.getDuration(), a.getDuration());
+            assertEquals(e.getFilePath(), a.getFilePath());
+            assertEquals(e.getTrackNumber(), a.getTrackNumber());
+            assertEquals(e.getYear(), a.getYear());
+            assertEquals(e.getPlayCount(), a.getPlayCount());
+            assertEquals(e.getLastPlayed(), a.getLastPlayed());
+            assertEquals(e.isFavorite(), a.isFavorite());
+            assertEquals(e.getRating(), a.getRating());
+        }
+    }
+
+    @Test
+    void round_trips_songs_albums_and_playlists() throws IOException {
+        List<Song> songs = sampleSongs();
+        Album album = new Album(3, "Ænima", "Tool", 1996, null);
+        album.setSongs(songs.subList(0, 2));
+        Playlist playlist = new Playlist(4, "Heavy");
+        playlist.setSongIds(new long[] {2, 1});
+
+        try (SqlLibraryStorage storage = new SqlLibraryStorage(tempDir)) {
+            assertFalse(storage.hasExistingData());
+            storage.saveSongs(songs);
+            storage.saveAlbums(List.of(album));
+            storage.savePlaylists(List.of(playlist));
+            assertTrue(storage.hasExistingData());
+        }
+
+        try (SqlLibraryStorage reopened = new SqlLibraryStorage(tempDir)) {
+            assertSameSongs(songs, reopened.loadSongs());
+            Album loadedAlbum = reopened.loadAlbums().get(0);
+            assertEquals("Ænima", loadedAlbum.getTitle());
+            assertEquals(2, loadedAlbum.getSongs().size());
+            assertArrayEquals(new long[] {2, 1}, reopened.loadPlaylists().get(0).getSongIds());
+
+            List<List<Song>> chunks = new ArrayList<>();
+            reopened.streamSongs(2, chunks::add);
+            assertEquals(List.of(2, 1), chunks.stream().map(List::size).toList());
+        }
+    }
+
+    @Test
+    void mutations_update_single_rows_and_full_saves_replace_the_table() throws IOException {
+        try (SqlLibraryStorage storage = new SqlLibraryStorage(tempDir)) {
+            storage.saveSongs(sampleSongs());
+
+            Song edited = new Song(2, "Stinkfist", "TOOL", "Ænima", "Metal", 311, "/music/Tool/Stinkfist.mp3", 1, 1996);
+            edited.setPlayCount(3);
+            Song added = new Song(9, "Sober", "Tool", "Undertow", "Metal", 306, "/music/Tool/Sober.mp3", 4, 1993);
+            storage.appendSongMutations(List.of(edited, added), List.of(7L));
+
+            List<Song> loaded = storage.loadSongs();
+            assertEquals(List.of(1L, 2L, 9L), loaded.stream().map(Song::getId).toList());
+            assertEquals(3, loaded.get(1).getPlayCount());
+
+            assertEquals("TOOL", loaded.get(1).getArtist());
+
+            storage.saveSongs(List.of(added, sampleSongs().get(0)));
+            assertEquals(List.of(1L, 9L), storage.loadSongs().stream().map(Song::getId).toList());
+
+            Playlist playlist = new Playlist(1, "Mix");
+            storage.appendPlaylistMutations(List.of(playlist), List.of());
+            playlist.setName("Renamed");
+            storage.appendPlaylistMutations(List.of(playlist), List.of());
+            assertEquals("Renamed", storage.loadPlaylists().get(0).getName());
+            storage.appendPlaylistMutations(List.of(), List.of(1L));
+            assertTrue(storage.loadPlaylists().isEmpty());
+        }
+    }
+
+    @Test
+    void sql_format_migrates_the_journaled_json_library_once() throws IOException {
+        List<Song> songs = sampleSongs();
+        JournaledLibraryStorage json = new JournaledLibraryStorage(new JsonLibraryStorage(tempDir));
+        json.getSnapshotStorage().saveSongs(songs);
+        Song replayed = new Song(8, "Journaled", "Tool", "Lateralus", "Rock", 500, "/music/Tool/8.mp3", 8, 2001);
+        json.appendSongMutations(List.of(replayed), List.of());
+        Playlist playlist = new Playlist(5, "Kept");
+        json.savePlaylists(List.of(playlist));
+        json.close();
+
+        LibraryStorage storage = LibraryStorageFactory.create(Settings.LibraryStorageFormat.SQL, tempDir);
+        try {
+            assertTrue(storage instanceof SqlLibraryStorage);
+            List<Song> expected = new ArrayList<>(songs);
+            expected.add(replayed);
+            assertSameSongs(expected, storage.loadSongs());
+            assertEquals("Kept", storage.loadPlaylists().get(0).getName());
+            assertTrue(Files.exists(tempDir.resolve("songs.json")));
+            assertEquals(-1, LibraryStorageMigrator.migrateToSql(tempDir, (SqlLibraryStorage) storage));
+        } finally {
+            ((SqlLibraryStorage) storage).close();
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void startup_scan_ingest_and_single_update_against_json() throws IOException {
+        int n = 20_000;
+        int batch = 1_000;
+        List<Song> songs = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            songs.add(new Song(i, "Title " + i, "Artist " + i % 500, "Album " + i % 2000, "Genre " + i % 20,
+                    200 + i % 100, "/music/library/" + i + ".mp3", i % 12 + 1, 1990 + i % 30));
+        }
+        Song changed = songs.get(n / 2);
+
+        // A scan saves the library after each batch of new songs
+        Path jsonDir = Files.createDirectories(tempDir.resolve("json"));
+        JsonLibraryStorage json = new JsonLibraryStorage(jsonDir);
+        long jsonIngest = time(() -> {
+            for (int i = batch; i <= n; i += batch) {
+                json.saveSongs(songs.subList(0, i));
+            }
+        });
+        long jsonStartup = time(() -> assertEquals(n, new JsonLibraryStorage(jsonDir).loadSongs().size()));
+        long jsonUpdate = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            changed.setPlayCount(run);
+            jsonUpdate = Math.min(jsonUpdate, time(() -> json.saveSongs(songs)));
+        }
+
+        Path sqlDir = Files.createDirectories(tempDir.resolve("sql"));
+        long sqlIngest;
+        long sqlUpdate = Long.MAX_VALUE;
+        long sqlFullSave;
+        try (SqlLibraryStorage sql = new SqlLibraryStorage(sqlDir)) {
+            sqlIngest = time(() -> {
+                for (int i = batch; i <= n; i += batch) {
+                    sql.appendSongMutations(songs.subList(i - batch, i), List.of());
+                }
+            });
+            for (int run = 0; run < 3; run++) {
+                changed.setPlayCount(10 + run);
+                sqlUpdate = Math.min(sqlUpdate, time(() -> sql.appendSongMutations(List.of(changed), List.of())));
+            }
+            changed.setPlayCount(20);
+            sqlFullSave = time(() -> sql.saveSongs(songs));
+        }
+        long sqlStartup = time(() -> {
+            try (SqlLibraryStorage reopened = new SqlLibraryStorage(sqlDir)) {
+                List<Song> loaded = reopened.loadSongs();
+                assertEquals(n, loaded.size());
+                assertEquals(20, loaded.get(n / 2).getPlayCount());
+            }
+        });
+
+        System.out.printf("20k songs, ms (JSON / SQL): scan ingest %d / %d, startup %d / %d, "
+                        + "single update %.2f / %.2f, full save of one change %d / %d%n",
+                jsonIngest / 1_000_000, sqlIngest / 1_000_000, jsonStartup / 1_000_000, sqlStartup / 1_000_000,
+                jsonUpdate / 1e6, sqlUpdate / 1e6, jsonUpdate / 1_000_000, sqlFullSave / 1_000_000);
+        assertTrue(sqlUpdate < jsonUpdate, "single-row update " + sqlUpdate + " ns vs rewrite " + jsonUpdate + " ns");
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private static long time(IoAction action) throws IOException {
+        long start = System.nanoTime();
+        action.run();
+        return System.nanoTime() - start;
+    }
+}
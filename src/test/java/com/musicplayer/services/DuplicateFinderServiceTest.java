@@ -0,0 +1,104 @@
+package com.musicplayer.services;
+
+import com.musicplayer.data.models.Song;
+import com.musicplayer.data.repositories.InMemorySongRepository;
+import com.musicplayer.data.repositories.SongRepository;
+import com.musicplayer.data.storage.ContentHashCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DuplicateFinderServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SongRepository repo;
+    private byte[] audio;
+
+    @BeforeEach
+    void setup() {
+        repo = new InMemorySongRepository();
+        audio = new byte[300_000];
+        new Random(42).nextBytes(audio);
+    }
+
+    /** Writes an MP3 with an ID3v2 tag of the given size in front of the audio. */
+    private Path mp3(String relative, int tagSize, byte[] body) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] tag = new byte[10 + tagSize];
+        tag[0] = 'I'; tag[1] = 'D'; tag[2] = '3'; tag[3] = 3;
+        tag[7] = (byte) ((tagSize >> 14) & 0x7F);
+        tag[8] = (byte) ((tagSize >> 7) & 0x7F);
+        tag[9] = (byte) (tagSize & 0x7F);
+        content.write(tag);
+        content.write(body);
+        Path file = tempDir.resolve("music").resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.toByteArray());
+        Song song = new Song();
+        song.setFilePath(file.toAbsolutePath().toString());
+        repo.save(song);
+        return file;
+    }
+
+    @Test
+    void groups_identical_audio_whatever_the_tags() throws IOException {
+        mp3("Album/01.mp3", 100, audio);
+        mp3("Copies/01 (copy).mp3", 5000, audio);
+        mp3("Other/01.mp3", 100, audio.clone());
+        byte[] sameStartAndEnd = audio.clone();
+        sameStartAndEnd[150_000] ^= 1;
+        mp3("Edited/01.mp3", 100, sameStartAndEnd);
+        mp3("Short/01.mp3", 100, new byte[1000]);
+
+        ContentHashCache cache = new ContentHashCache(tempDir.resolve("data"));
+        List<DuplicateFinderService.DuplicateGroup> groups = new DuplicateFinderService(repo, cache, 2).findDuplicates();
+
+        assertEquals(1, groups.size());
+        DuplicateFinderService.DuplicateGroup group = groups.get(0);
+        assertEquals(3, group.getSongs().size());
+        assertEquals(300_000, group.getPayloadLength());
+        assertEquals(600_000, group.getWastedBytes());
+        assertTrue(group.getSongs().stream().noneMatch(s -> s.getFilePath().contains("Edited")));
+
+        ContentHashCache reloaded = new ContentHashCache(tempDir.resolve("data"));
+        String shortPath = tempDir.resolve("music/Short/01.mp3").toAbsolutePath().toString();
+        assertNull(reloaded.get(shortPath).getPartialHash(), "a unique length is never hashed");
+        String editedPath = tempDir.resolve("music/Edited/01.mp3").toAbsolutePath().toString();
+        assertNotNull(reloaded.get(editedPath).getFullHash());
+    }
+
+    @Test
+    void later_runs_reuse_cached_hashes_and_pick_up_changes() throws IOException {
+        mp3("a.mp3", 100, audio);
+        Path b = mp3("b.mp3", 200, audio);
+        ContentHashCache cache = new ContentHashCache();
+        DuplicateFinderService finder = new DuplicateFinderService(repo, cache, 2);
+        assertEquals(1, finder.findDuplicates().size());
+
+        String bPath = b.toAbsolutePath().toString();
+        ContentHashCache.ContentHash before = cache.get(bPath);
+        assertEquals(1, finder.findDuplicates().size());
+        assertSame(before, cache.get(bPath), "an unchanged file is not looked at again");
+
+        byte[] changed = audio.clone();
+        changed[0] ^= 1;
+        Files.delete(b);
+        repo.deleteAll(List.of(repo.findByFilePath(bPath).getId()));
+        Path rewritten = mp3("b.mp3", 200, changed);
+        Files.setLastModifiedTime(rewritten, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        assertTrue(finder.findDuplicates().isEmpty());
+        assertNotSame(before, cache.get(bPath));
+    }
+}
@@ -1,5 +1,7 @@
 package com.musicplayer.services;
 
+import com.musicplayer.core.library.AlbumSummary;
+import com.musicplayer.core.library.InMemoryLibraryEngine;
 import com.musicplayer.core.library.LibraryEngine;
 import com.musicplayer.data.models.Album;
 import com.musicplayer.data.models.Artist;
@@ -12,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -114,6 +117,47 @@ public class LibraryServiceTest {
         assertEquals(0, svc.getSongCount());
     }
 
+    @Test
+    void repository_changes_update_the_engine_without_a_rebuild() {
+        AtomicInteger clears = new AtomicInteger();
+        svc = new LibraryService(repo, new InMemoryLibraryEngine() {
+            @Override
+            public synchronized void clearLibrary() {
+                clears.incrementAndGet();
+                super.clearLibrary();
+            }
+        });
+        Song a = song(1, "One", "ArtistA", "Alb1", "Rock");
+        a.setDuration(100);
+        Song b = song(2, "Two", "ArtistA", "Alb1", "Rock");
+        b.setDuration(200);
+        Song c = song(3, "Three", "ArtistB", "Alb2", "Pop");
+        repo.saveAll(List.of(a, b, c));
+
+        AlbumSummary alb1 = svc.getAlbumSummaries().get(0);
+        assertEquals(2, alb1.getTrackCount());
+        assertEquals(300, alb1.getTotalDuration());
+
+        // A tag edit saved in place moves the song to another album and artist
+        b.setAlbum("Alb3");
+        b.setArtist("ArtistC");
+        repo.save(b);
+        assertEquals(List.of(a), svc.searchSongsByAlbum("alb1"));
+        assertEquals(List.of(b), svc.searchSongsByAlbum("alb3"));
+        assertEquals(List.of(b), svc.searchSongsByArtist("artistc"));
+        assertEquals(100, svc.getAlbumSummaries().stream()
+                .filter(s -> s.getTitle().equals("Alb1")).findFirst().orElseThrow().getTotalDuration());
+        assertEquals(3, svc.getAlbumCount());
+        assertEquals(3, svc.getArtistCount());
+
+        repo.delete(c.getId());
+        assertTrue(svc.searchSongsByTitle("three").isEmpty());
+        assertEquals(2, svc.getAlbumCount());
+        assertEquals(Set.of("Rock"), svc.getAllGenres());
+        assertEquals(2, svc.getSongCount());
+        assertEquals(0, clears.get());
+    }
+
     @Test
     void refreshLibrary_rebuilds_from_repo() {
         svc.addSongs(Arrays.asList(
@@ -6,9 +6,15 @@ import com.musicplayer.data.repositories.SongRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.musicplayer.data.storage.PlayEventLog;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -108,4 +114,74 @@ public class ListeningStatsServiceTest {
         // ensure old is excluded from month
         assertTrue(svc.getSongsPlayedThisMonth() <= 3);
     }
+
+    @Test
+    void plays_update_stats_without_rescanning_and_roll_into_a_new_day(@TempDir Path dataDir) {
+        ZoneId zone = ZoneOffset.UTC;
+        // Wednesday 2025-01-15, 23:00
+        Instant wednesdayNight = Instant.parse("2025-01-15T23:00:00Z");
+        MutableClock clock = new MutableClock(wednesdayNight, zone);
+        PlayEventLog log = new PlayEventLog(dataDir);
+        svc = new ListeningStatsService(repo, log, clock);
+        Song a = song(1, "A", "T1");
+        Song b = song(2, "B", "T2");
+        repo.save(a); repo.save(b);
+
+        assertEquals(0, svc.getSongsPlayedToday());
+        svc.recordPlay(a);
+        clock.now = clock.now.plusSeconds(60);
+        svc.recordPlay(b);
+        svc.recordPlay(b);
+        assertEquals(2, svc.getSongsPlayedToday());
+        assertEquals(3, svc.getTotalPlayCount());
+        assertEquals(b, svc.getMostPlayedSong());
+        assertEquals(List.of(b, a), svc.getRecentlyPlayed(10));
+
+        // Past midnight only the day bucket starts over
+        clock.now = wednesdayNight.plusSeconds(2 * 3600);
+        assertEquals(2, svc.getSongsPlayedThisMonth());
+        assertEquals(0, svc.getSongsPlayedToday());
+        assertEquals(2, svc.getSongsPlayedThisWeek());
+        svc.recordPlay(a);
+        assertEquals(1, svc.getSongsPlayedToday());
+        assertEquals(List.of(a, b), svc.getRecentlyPlayed(10));
+        assertEquals(List.of(a, b), svc.getTopPlayedSongs(10));
+    }
+
+    @Test
+    void logged_plays_missing_from_the_library_are_applied_once(@TempDir Path dataDir) {
+        Song stored = song(1, "A", "T1");
+        stored.setPlayCount(3);
+        stored.setLastPlayed(1000);
+        repo.save(stored);
+        PlayEventLog log = new PlayEventLog(dataDir);
+        long now = System.currentTimeMillis();
+        log.append(1, 1000, 0);      // already counted in the stored play count
+        log.append(1, now - 2000, 0);
+        log.append(1, now - 1000, 0);
+        log.append(9, now - 1000, 0); // song no longer in the library
+        log.close();
+
+        ListeningStatsService restarted = new ListeningStatsService(repo, new PlayEventLog(dataDir));
+        assertEquals(5, restarted.getTotalPlayCount());
+        assertEquals(5, repo.findById(1).getPlayCount());
+        assertEquals(now - 1000, repo.findById(1).getLastPlayed());
+
+        restarted.rebuild();
+        assertEquals(5, repo.findById(1).getPlayCount());
+    }
+
+    private static final class MutableClock extends Clock {
+        Instant now;
+        private final ZoneId zone;
+
+        MutableClock(Instant now, ZoneId zone) {
+            this.now = now;
+            this.zone = zone;
+        }
+
+        @Override public ZoneId getZone() { return zone; }
+        @Override public Clock withZone(ZoneId zone) { return new MutableClock(now, zone); }
+        @Override public Instant instant() { return now; }
+    }
 }
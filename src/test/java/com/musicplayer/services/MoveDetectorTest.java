@@ -0,0 +1,117 @@
+package com.musicplayer.services;
+
+import com.musicplayer.data.models.Song;
+import com.musicplayer.data.storage.FileFingerprintCache;
+import com.musicplayer.data.storage.FileFingerprintCache.FileFingerprint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoveDetectorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final FileFingerprintCache cache = new FileFingerprintCache();
+    private final MoveDetector detector = new MoveDetector(cache);
+    private long nextId = 1;
+
+    /** Creates a file, records it as scanned and returns its song. */
+    private Song scanned(String relative, int size, long modified) throws IOException {
+        Path file = tempDir.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[size]);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+        cache.put(file.toString(), FileFingerprint.of(Files.readAttributes(file, BasicFileAttributes.class)));
+        Song song = new Song();
+        song.setId(nextId++);
+        song.setFilePath(file.toString());
+        return song;
+    }
+
+    private Path move(Song song, String relative) throws IOException {
+        Path target = tempDir.resolve(relative);
+        Files.createDirectories(target.getParent());
+        return Files.move(Path.of(song.getFilePath()), target);
+    }
+
+    @Test
+    void pairs_moved_files_by_fingerprint() throws IOException {
+        Song a = scanned("a/one.mp3", 100, 1_000_000);
+        Song b = scanned("a/two.mp3", 200, 1_000_000);
+        Path movedA = move(a, "b/renamed.mp3");
+        Path movedB = move(b, "c/two.mp3");
+
+        List<MoveDetector.Move> moves = detector.detect(List.of(a, b), List.of(),
+                List.of(movedA, movedB), List.of());
+
+        assertEquals(2, moves.size());
+        assertEquals(movedA.toString(), moves.get(0).getTo());
+        assertEquals(movedB.toString(), moves.get(1).getTo());
+        assertEquals(100, moves.get(0).getFingerprint().getSize());
+    }
+
+    @Test
+    void changed_content_is_not_a_move() throws IOException {
+        Song a = scanned("a/one.mp3", 100, 1_000_000);
+        Files.delete(Path.of(a.getFilePath()));
+        Path other = tempDir.resolve("b/one.mp3");
+        Files.createDirectories(other.getParent());
+        Files.write(other, new byte[101]);
+
+        assertTrue(detector.detect(List.of(a), List.of(), List.of(other), List.of()).isEmpty());
+    }
+
+    @Test
+    void identical_candidates_are_settled_by_name_or_left_alone() throws IOException {
+        Song a = scanned("a/intro.mp3", 100, 1_000_000);
+        Song b = scanned("b/intro.mp3", 100, 1_000_000);
+        Song c = scanned("c/outro.mp3", 100, 1_000_000);
+        // Copies rather than renames, so file keys do not help
+        Path intro = tempDir.resolve("d/intro.mp3");
+        Path other = tempDir.resolve("d/other.mp3");
+        for (Path p : List.of(intro, other)) {
+            Files.createDirectories(p.getParent());
+            Files.write(p, new byte[100]);
+            Files.setLastModifiedTime(p, FileTime.fromMillis(1_000_000));
+        }
+        for (Song s : List.of(a, b, c)) {
+            Files.delete(Path.of(s.getFilePath()));
+        }
+
+        List<MoveDetector.Move> moves = detector.detect(List.of(a, b, c), List.of(),
+                List.of(intro, other), List.of());
+
+        // a and b both match intro.mp3 by name: a claims it first, b is left
+        // with other.mp3 as its only open candidate, c finds nothing left
+        assertEquals(2, moves.size());
+        assertSame(a, moves.get(0).getSong());
+        assertEquals(intro.toString(), moves.get(0).getTo());
+        assertSame(b, moves.get(1).getSong());
+        assertEquals(other.toString(), moves.get(1).getTo());
+    }
+
+    @Test
+    void folder_moved_into_a_new_folder_keeps_relative_paths() throws IOException {
+        Song a = scanned("Album/CD1/01.mp3", 10, 1_000_000);
+        Song b = scanned("Album/CD2/01.mp3", 10, 1_000_000);
+        Path oldDir = tempDir.resolve("Album");
+        Path parent = Files.createDirectories(tempDir.resolve("Artist"));
+        Files.move(oldDir, parent.resolve("Album"));
+
+        List<MoveDetector.Move> moves = detector.detect(List.of(a, b), List.of(oldDir),
+                List.of(), List.of(parent));
+
+        assertEquals(2, moves.size());
+        assertEquals(parent.resolve("Album/CD1/01.mp3").toString(), moves.get(0).getTo());
+        assertEquals(parent.resolve("Album/CD2/01.mp3").toString(), moves.get(1).getTo());
+    }
+}
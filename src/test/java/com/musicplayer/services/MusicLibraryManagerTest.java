@@ -0,0 +1,278 @@
+package com.musicplayer.services;
+
+import com.musicplayer.data.models.Song;
+import com.musicplayer.data.repositories.InMemorySongRepository;
+import com.musicplayer.data.repositories.SongRepository;
+import com.musicplayer.data.storage.FileFingerprintCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MusicLibraryManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SongRepository repo;
+    private FileFingerprintCache cache;
+    private MusicLibraryManager manager;
+
+    @BeforeEach
+    void setup() {
+        repo = new InMemorySongRepository();
+        cache = new FileFingerprintCache(tempDir.resolve("data"));
+        manager = new MusicLibraryManager(repo, cache);
+    }
+
+    private Path audio(String relative, int size) throws IOException {
+        Path file = tempDir.resolve("music").resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[size]);
+        return file;
+    }
+
+    private Song byPath(Path file) {
+        return repo.findAll().stream()
+                .filter(s -> file.toAbsolutePath().toString().equals(s.getFilePath()))
+                .findFirst().orElse(null);
+    }
+
+    @Test
+    void incremental_rescan_only_rereads_changed_files_and_keeps_identity() throws IOException {
+        Path keep = audio("Album/01 Keep.mp3", 10);
+        Path modify = audio("Album/02 Modify.mp3", 10);
+        Path delete = audio("Album/03 Delete.mp3", 10);
+        File music = tempDir.resolve("music").toFile();
+
+        assertTrue(manager.incrementalScan(music));
+        assertEquals(3, repo.findAll().size());
+
+        Song kept = byPath(keep);
+        Song modified = byPath(modify);
+        kept.setPlayCount(7);
+        kept.setRating(4);
+        // Simulate tag data that a re-read would overwrite with the filename fallback
+        kept.setTitle("Tagged Title");
+        modified.setPlayCount(3);
+        long keptId = kept.getId();
+        long modifiedId = modified.getId();
+
+        Files.write(modify, new byte[20]);
+        Files.setLastModifiedTime(modify, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        Files.delete(delete);
+        Path added = audio("Album/04 New.mp3", 10);
+
+        assertTrue(manager.incrementalScan(music));
+
+        assertEquals(3, repo.findAll().size());
+        assertNull(byPath(delete));
+        assertNotNull(byPath(added));
+
+        Song keptAfter = byPath(keep);
+        assertEquals(keptId, keptAfter.getId());
+        assertEquals(7, keptAfter.getPlayCount());
+        assertEquals(4, keptAfter.getRating());
+        assertEquals("Tagged Title", keptAfter.getTitle(), "unchanged file must not be re-read");
+
+        Song modifiedAfter = byPath(modify);
+        assertEquals(modifiedId, modifiedAfter.getId());
+        assertEquals(3, modifiedAfter.getPlayCount());
+    }
+
+    @Test
+    void unchanged_library_reports_no_changes_and_persists_fingerprints() throws IOException {
+        audio("a.mp3", 10);
+        audio("b.mp3", 10);
+        File music = tempDir.resolve("music").toFile();
+
+        assertTrue(manager.incrementalScan(music));
+        assertFalse(manager.incrementalScan(music));
+
+        assertEquals(2, new FileFingerprintCache(tempDir.resolve("data")).size());
+    }
+
+    @Test
+    void files_without_a_duration_are_not_reread_on_every_start() throws Exception {
+        Path unreadable = audio("broken.mp3", 10);
+        File music = tempDir.resolve("music").toFile();
+        assertTrue(manager.incrementalScan(music));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (manager.getPendingEnrichmentCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, manager.getPendingEnrichmentCount());
+        assertEquals(0, byPath(unreadable).getDuration());
+        manager.shutdown();
+
+        // Next start: the failed full read is remembered
+        MusicLibraryManager restarted = new MusicLibraryManager(repo, new FileFingerprintCache(tempDir.resolve("data")));
+        assertEquals(0, restarted.enqueueUnreadForEnrichment(repo.findAll()));
+
+        Files.write(unreadable, new byte[20]);
+        Files.setLastModifiedTime(unreadable, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        assertEquals(1, restarted.enqueueUnreadForEnrichment(repo.findAll()));
+        restarted.shutdown();
+    }
+
+    @Test
+    void watcher_batch_applies_new_directory_and_deleted_directory() throws IOException {
+        Path old = audio("Old Album/01 Old.mp3", 10);
+        audio("Old Album/02 Old.mp3", 10);
+        assertTrue(manager.incrementalScan(tempDir.resolve("music").toFile()));
+        assertEquals(2, repo.findAll().size());
+
+        audio("New Album/01 New.mp3", 10);
+        audio("New Album/02 New.mp3", 10);
+        Files.delete(old);
+        Files.delete(old.resolveSibling("02 Old.mp3"));
+        Files.delete(old.getParent());
+
+        List<WatchEventCoalescer.Change> changes = List.of(
+                new WatchEventCoalescer.Change(tempDir.resolve("music/New Album"), WatchEventCoalescer.ChangeType.DIRECTORY),
+                new WatchEventCoalescer.Change(old.getParent(), WatchEventCoalescer.ChangeType.DELETE));
+        assertTrue(manager.applyWatchChanges(changes));
+
+        assertEquals(2, repo.findAll().size());
+        assertTrue(repo.findAll().stream().allMatch(s -> s.getFilePath().contains("New Album")));
+    }
+
+    @Test
+    void new_directory_with_its_own_file_changes_adds_each_file_once() throws IOException {
+        Path first = audio("New Album/01 New.mp3", 10);
+        Path second = audio("New Album/02 New.mp3", 10);
+
+        List<WatchEventCoalescer.Change> changes = List.of(
+                new WatchEventCoalescer.Change(first.getParent(), WatchEventCoalescer.ChangeType.DIRECTORY),
+                new WatchEventCoalescer.Change(first, WatchEventCoalescer.ChangeType.UPSERT),
+                new WatchEventCoalescer.Change(second, WatchEventCoalescer.ChangeType.UPSERT));
+        assertTrue(manager.applyWatchChanges(changes));
+
+        assertEquals(2, repo.findAll().size());
+        assertEquals(2, repo.findAll().stream().map(s -> s.getFilePath()).distinct().count());
+    }
+
+    @Test
+    void watch_registration_runs_in_background_and_covers_whole_tree() throws Exception {
+        Path music = Files.createDirectories(tempDir.resolve("music"));
+        int dirs = 1;
+        for (int a = 0; a < 20; a++) {
+            for (int b = 0; b < 30; b++) {
+                Files.createDirectories(music.resolve("artist" + a).resolve("album" + b));
+            }
+            dirs += 31;
+        }
+
+        manager.restartWatching(music.toFile());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (manager.getPendingWatchRegistrations() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // The last batch may still be registering its children
+        while (manager.getWatchedDirectoryCount() < dirs && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(dirs, manager.getWatchedDirectoryCount());
+        manager.shutdown();
+        assertEquals(0, manager.getWatchedDirectoryCount());
+    }
+
+    @Test
+    void rescan_change_brings_only_that_subtree_up_to_date() throws IOException {
+        audio("A/01.mp3", 10);
+        audio("B/01.mp3", 10);
+        assertTrue(manager.incrementalScan(tempDir.resolve("music").toFile()));
+
+        Path lostA = audio("A/02 Missed.mp3", 10);
+        Path lostB = audio("B/02 Elsewhere.mp3", 10);
+        Files.delete(tempDir.resolve("music/A/01.mp3"));
+
+        assertTrue(manager.rescanSubtree(tempDir.resolve("music/A"), null));
+
+        assertNotNull(byPath(lostA));
+        assertNull(byPath(tempDir.resolve("music/A/01.mp3")));
+        assertNull(byPath(lostB), "other subtrees are not rescanned");
+        assertEquals(2, repo.findAll().size());
+    }
+
+    @Test
+    void rescan_changes_run_as_bulk_jobs_and_leave_file_changes_to_the_file_lane() throws Exception {
+        Path lost = audio("A/01 Missed.mp3", 10);
+        Path single = audio("B/01 Single.mp3", 10);
+        WatchEventCoalescer.Change upsert = new WatchEventCoalescer.Change(single, WatchEventCoalescer.ChangeType.UPSERT);
+
+        List<WatchEventCoalescer.Change> fileChanges = manager.submitRescans(List.of(
+                new WatchEventCoalescer.Change(tempDir.resolve("music/A"), WatchEventCoalescer.ChangeType.RESCAN),
+                upsert));
+
+        assertEquals(List.of(upsert), fileChanges);
+        assertTrue(manager.getScanJobs().stream().anyMatch(job -> job.getKind() == ScanJob.Kind.RESCAN
+                && job.getRoot().equals(tempDir.resolve("music/A").toAbsolutePath().normalize())));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (manager.isScanning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(byPath(lost));
+        assertNull(byPath(single), "file changes are not part of the rescan");
+        manager.shutdown();
+    }
+
+    @Test
+    void renamed_file_keeps_its_song() throws IOException {
+        Path before = audio("Album/01 Typo.mp3", 10);
+        assertTrue(manager.incrementalScan(tempDir.resolve("music").toFile()));
+        Song song = byPath(before);
+        song.setPlayCount(12);
+        song.setFavorite(true);
+
+        Path after = Files.move(before, before.resolveSibling("01 Fixed.mp3"));
+        List<WatchEventCoalescer.Change> changes = List.of(
+                new WatchEventCoalescer.Change(before, WatchEventCoalescer.ChangeType.DELETE),
+                new WatchEventCoalescer.Change(after, WatchEventCoalescer.ChangeType.UPSERT));
+        assertTrue(manager.applyWatchChanges(changes));
+
+        assertEquals(1, repo.findAll().size());
+        Song moved = byPath(after);
+        assertNotNull(moved);
+        assertEquals(song.getId(), moved.getId());
+        assertEquals(12, moved.getPlayCount());
+        assertTrue(moved.isFavorite());
+        assertNotNull(cache.get(after.toAbsolutePath().toString()));
+        assertNull(cache.get(before.toAbsolutePath().toString()));
+    }
+
+    @Test
+    void renamed_folder_moves_all_of_its_songs_in_place() throws IOException {
+        int count = 2000;
+        for (int i = 0; i < count; i++) {
+            audio("Old Name/CD" + (i % 2) + "/" + i + ".mp3", 10 + i % 7);
+        }
+        assertTrue(manager.incrementalScan(tempDir.resolve("music").toFile()));
+        java.util.Map<String, Long> idsByName = new java.util.HashMap<>();
+        for (Song s : repo.findAll()) {
+            idsByName.put(Path.of(s.getFilePath()).getFileName().toString(), s.getId());
+        }
+
+        Path oldDir = tempDir.resolve("music/Old Name");
+        Path newDir = Files.move(oldDir, tempDir.resolve("music/New Name"));
+        List<WatchEventCoalescer.Change> changes = List.of(
+                new WatchEventCoalescer.Change(oldDir, WatchEventCoalescer.ChangeType.DELETE),
+                new WatchEventCoalescer.Change(newDir, WatchEventCoalescer.ChangeType.DIRECTORY));
+        assertTrue(manager.applyWatchChanges(changes));
+
+        assertEquals(count, repo.findAll().size());
+        for (Song s : repo.findAll()) {
+            assertTrue(s.getFilePath().startsWith(newDir.toAbsolutePath().toString()));
+            assertEquals(idsByName.get(Path.of(s.getFilePath()).getFileName().toString()), s.getId());
+        }
+        assertNotNull(repo.findByFilePath(newDir.resolve("CD1/1.mp3").toAbsolutePath().toString()));
+    }
+}
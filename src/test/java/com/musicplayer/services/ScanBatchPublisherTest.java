@@ -0,0 +1,63 @@
+package com.musicplayer.services;
+
+import com.musicplayer.data.models.Song;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScanBatchPublisherTest {
+
+    private static Song song(int i) {
+        return new Song(i, "Song " + i, "Artist", "Album", "Genre", 180, "/music/" + i + ".mp3", 0, 0);
+    }
+
+    @Test
+    void batches_are_bounded_and_final_publish_drains_everything() {
+        List<List<Song>> batches = new ArrayList<>();
+        List<ScanProgress> progress = new ArrayList<>();
+        ScanBatchPublisher publisher = new ScanBatchPublisher(1000, 100, batches::add, progress::add);
+
+        for (int i = 0; i < 250; i++) {
+            publisher.fileFound();
+            publisher.accept(song(i));
+        }
+        publisher.fileFound(); // found but not yet parsed
+
+        publisher.publish(false);
+        assertEquals(1, batches.size());
+        assertEquals(100, batches.get(0).size());
+        assertFalse(progress.get(0).isFinished());
+        assertEquals(251, progress.get(0).getFilesFound());
+        assertEquals(250, progress.get(0).getFilesParsed());
+
+        publisher.finish();
+        assertEquals(3, batches.size());
+        assertEquals(250, batches.stream().mapToInt(List::size).sum());
+        assertTrue(progress.get(progress.size() - 1).isFinished());
+    }
+
+    @Test
+    void timer_publishes_while_songs_arrive() throws InterruptedException {
+        List<List<Song>> batches = new CopyOnWriteArrayList<>();
+        ScanBatchPublisher publisher = new ScanBatchPublisher(20, 1000, batches::add, p -> {});
+        publisher.start("test-publisher");
+        for (int i = 0; i < 5; i++) {
+            publisher.accept(song(i));
+            Thread.sleep(60);
+        }
+        assertFalse(batches.isEmpty(), "batches must be published before the scan finishes");
+        publisher.finish();
+        assertEquals(5, batches.stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    void files_per_second_uses_elapsed_time() {
+        ScanProgress progress = new ScanProgress(100, 50, 2000, false);
+        assertEquals(25.0, progress.getFilesPerSecond(), 0.001);
+        assertEquals(0.0, new ScanProgress(0, 0, 0, true).getFilesPerSecond(), 0.001);
+    }
+}
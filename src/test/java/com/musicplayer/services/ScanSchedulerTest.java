@@ -0,0 +1,122 @@
+package com.musicplayer.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScanSchedulerTest {
+
+    private final ScanScheduler scheduler = new ScanScheduler();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        scheduler.shutdown();
+    }
+
+    private static Path root(String path) {
+        return Paths.get(path).toAbsolutePath();
+    }
+
+    /** Occupies the bulk lane until {@link #release} is counted down. */
+    private ScanJob blockBulkLane(CountDownLatch started) {
+        return scheduler.submit(ScanJob.Kind.SCAN, root("blocker"), "blocker", job -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+        });
+    }
+
+    private static void awaitState(ScanJob job, ScanJob.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (job.getState() != state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(state, job.getState());
+    }
+
+    @Test
+    void overlapping_roots_are_deduplicated_and_stronger_jobs_replace_weaker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        blockBulkLane(started);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        ScanJob scan = scheduler.submit(ScanJob.Kind.SCAN, root("music"), "scan", job -> {});
+        ScanJob subRescan = scheduler.submit(ScanJob.Kind.RESCAN, root("music/Artist"), "rescan", job -> {});
+        assertSame(scan, subRescan, "a queued scan of an ancestor covers the rescan");
+
+        ScanJob full = scheduler.submit(ScanJob.Kind.FULL_SCAN, root("music"), "full", job -> {});
+        assertNotSame(scan, full);
+        assertEquals(ScanJob.State.CANCELLED, scan.getState(), "the weaker queued job is superseded");
+
+        ScanJob other = scheduler.submit(ScanJob.Kind.RESCAN, root("other"), "other", job -> {});
+        assertNotSame(full, other);
+
+        release.countDown();
+        awaitState(full, ScanJob.State.DONE);
+        awaitState(other, ScanJob.State.DONE);
+    }
+
+    @Test
+    void file_changes_run_while_a_bulk_scan_is_busy() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        ScanJob blocker = blockBulkLane(started);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        ScanJob files = scheduler.submit(ScanJob.Kind.FILE_CHANGES, null, "changes", job -> job.fileProcessed());
+        awaitState(files, ScanJob.State.DONE);
+        assertEquals(1, files.getFilesProcessed());
+        assertEquals(ScanJob.State.RUNNING, blocker.getState());
+        assertTrue(scheduler.hasActiveBulkJobs());
+    }
+
+    @Test
+    void cancelling_stops_running_and_queued_jobs() throws InterruptedException {
+        AtomicBoolean hookRan = new AtomicBoolean();
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(1);
+        ScanJob running = scheduler.submit(ScanJob.Kind.SCAN, root("a"), "running", job -> {
+            job.onCancel(() -> hookRan.set(true));
+            job.fileProcessed();
+            started.countDown();
+            while (!job.isCancelled()) {
+                job.fileProcessed();
+                Thread.sleep(1);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        ScanJob queued = scheduler.submit(ScanJob.Kind.SCAN, root("b"), "queued", job -> queuedRan.set(true));
+
+        scheduler.cancelBulkJobs();
+
+        awaitState(running, ScanJob.State.CANCELLED);
+        assertEquals(ScanJob.State.CANCELLED, queued.getState());
+        assertTrue(hookRan.get());
+        assertFalse(queuedRan.get());
+        assertTrue(running.getFilesProcessed() > 0);
+        assertTrue(running.getFilesPerSecond() > 0);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.hasActiveBulkJobs() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(scheduler.hasActiveBulkJobs());
+    }
+
+    @Test
+    void failing_job_does_not_stop_the_lane() throws InterruptedException {
+        ScanJob failing = scheduler.submit(ScanJob.Kind.SCAN, root("x"), "failing", job -> {
+            throw new IllegalStateException("boom");
+        });
+        ScanJob next = scheduler.submit(ScanJob.Kind.SCAN, root("y"), "next", job -> {});
+        awaitState(next, ScanJob.State.DONE);
+        assertEquals(ScanJob.State.FAILED, failing.getState());
+        assertTrue(scheduler.getJobs().contains(failing));
+    }
+}
@@ -0,0 +1,76 @@
+package com.musicplayer.services;
+
+import com.musicplayer.data.models.Song;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TagEnrichmentServiceTest {
+
+    private static Song fullRead(File file) {
+        if (file.getName().startsWith("missing")) {
+            return null;
+        }
+        Song song = new Song();
+        song.setFilePath(file.getPath());
+        song.setDuration(200);
+        return song;
+    }
+
+    @Test
+    void reads_queued_files_in_batches_and_skips_unreadable() throws InterruptedException {
+        List<List<Song>> batches = new CopyOnWriteArrayList<>();
+        AtomicInteger reads = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        CountDownLatch queued = new CountDownLatch(1);
+        TagEnrichmentService service = new TagEnrichmentService(file -> {
+            try {
+                // Hold the first read until the duplicates are queued too
+                queued.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            reads.incrementAndGet();
+            return fullRead(file);
+        }, 10, batch -> {
+            batches.add(batch);
+            if (batches.stream().mapToInt(List::size).sum() == 24) done.countDown();
+        });
+
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            paths.add(i == 7 ? "/music/missing.mp3" : "/music/" + i + ".mp3");
+        }
+        service.enqueue(paths);
+        service.enqueue(paths.subList(0, 5)); // already queued
+        queued.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(batches.stream().allMatch(b -> b.size() <= 10));
+        assertTrue(batches.stream().flatMap(List::stream).allMatch(s -> s.getDuration() == 200));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, service.getPendingCount());
+        assertEquals(25, reads.get(), "duplicates must not be read twice");
+        service.shutdown();
+    }
+
+    @Test
+    void shutdown_drops_queued_files() {
+        TagEnrichmentService service = new TagEnrichmentService(TagEnrichmentServiceTest::fullRead, 10, batch -> {});
+        service.shutdown();
+        service.enqueue(List.of("/music/a.mp3"));
+        assertEquals(0, service.getPendingCount());
+    }
+}
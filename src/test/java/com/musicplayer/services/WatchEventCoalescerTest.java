@@ -0,0 +1,120 @@
+package com.musicplayer.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WatchEventCoalescerTest {
+
+    @TempDir
+    Path temp;
+
+    @Test
+    void burst_of_events_is_released_as_one_batch_once_quiet() throws IOException {
+        WatchEventCoalescer coalescer = new WatchEventCoalescer(1000, 15_000);
+        for (int i = 0; i < 100; i++) {
+            Files.write(temp.resolve("track" + i + ".mp3"), new byte[]{1, 2, 3});
+        }
+        // create + modify + modify per file, 10ms apart
+        long now = 0;
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) {
+                coalescer.record(temp.resolve("track" + i + ".mp3"), now);
+                now += 10;
+                assertTrue(coalescer.drainReady(now).isEmpty());
+            }
+        }
+        assertEquals(300, coalescer.getEventCount());
+        assertEquals(100, coalescer.getPendingCount());
+
+        List<WatchEventCoalescer.Change> batch = coalescer.drainReady(now + 1000);
+        assertEquals(100, batch.size());
+        assertTrue(batch.stream().allMatch(c -> c.getType() == WatchEventCoalescer.ChangeType.UPSERT));
+        assertEquals(0, coalescer.getPendingCount());
+        assertTrue(coalescer.drainReady(now + 5000).isEmpty());
+    }
+
+    @Test
+    void create_then_delete_settles_as_delete() throws IOException {
+        WatchEventCoalescer coalescer = new WatchEventCoalescer(1000, 15_000);
+        Path file = temp.resolve("temp.mp3");
+        Files.write(file, new byte[]{1});
+        coalescer.record(file, 0);
+        Files.delete(file);
+        coalescer.record(file, 50);
+
+        List<WatchEventCoalescer.Change> batch = coalescer.drainReady(2000);
+        assertEquals(1, batch.size());
+        assertEquals(WatchEventCoalescer.ChangeType.DELETE, batch.get(0).getType());
+        assertEquals(file, batch.get(0).getPath());
+    }
+
+    @Test
+    void file_still_growing_stays_pending() throws IOException {
+        WatchEventCoalescer coalescer = new WatchEventCoalescer(1000, 15_000);
+        Path file = temp.resolve("copying.flac");
+        Files.write(file, new byte[]{1});
+        coalescer.record(file, 0);
+        // Written to without a further event reaching us yet
+        Files.write(file, new byte[]{1, 2, 3, 4});
+
+        assertTrue(coalescer.drainReady(1500).isEmpty());
+        assertTrue(coalescer.isPending(file));
+
+        List<WatchEventCoalescer.Change> batch = coalescer.drainReady(2500);
+        assertEquals(1, batch.size());
+        assertEquals(WatchEventCoalescer.ChangeType.UPSERT, batch.get(0).getType());
+    }
+
+    @Test
+    void new_directory_settles_as_directory() throws IOException {
+        WatchEventCoalescer coalescer = new WatchEventCoalescer(1000, 15_000);
+        Path dir = Files.createDirectories(temp.resolve("New Album"));
+        coalescer.record(dir, 0);
+
+        List<WatchEventCoalescer.Change> batch = coalescer.drainReady(1000);
+        assertEquals(1, batch.size());
+        assertEquals(WatchEventCoalescer.ChangeType.DIRECTORY, batch.get(0).getType());
+    }
+
+    @Test
+    void max_delay_releases_settled_paths_despite_ongoing_activity() throws IOException {
+        WatchEventCoalescer coalescer = new WatchEventCoalescer(1000, 5000);
+        Path first = temp.resolve("first.mp3");
+        Path busy = temp.resolve("busy.mp3");
+        Files.write(first, new byte[]{1});
+        Files.write(busy, new byte[]{1});
+        coalescer.record(first, 0);
+
+        long now = 0;
+        for (; now < 5000; now += 100) {
+            coalescer.record(busy, now);
+            assertTrue(coalescer.drainReady(now).isEmpty());
+        }
+        List<WatchEventCoalescer.Change> batch = coalescer.drainReady(now);
+        assertEquals(1, batch.size());
+        assertEquals(first, batch.get(0).getPath());
+        assertTrue(coalescer.isPending(busy));
+    }
+
+    @Test
+    void overflow_settles_as_rescan_of_the_directory() throws IOException {
+        WatchEventCoalescer coalescer = new WatchEventCoalescer(1000, 15_000);
+        Path dir = Files.createDirectories(temp.resolve("Artist"));
+        coalescer.record(dir.resolve("a.mp3"), 0);
+        coalescer.recordOverflow(dir, 10);
+        coalescer.record(dir, 20);
+
+        List<WatchEventCoalescer.Change> batch = coalescer.drainReady(2000);
+        assertEquals(2, batch.size());
+        assertEquals(WatchEventCoalescer.ChangeType.DELETE, batch.get(0).getType());
+        assertEquals(WatchEventCoalescer.ChangeType.RESCAN, batch.get(1).getType());
+        assertEquals(dir, batch.get(1).getPath());
+    }
+}
@@ -0,0 +1,135 @@
+package com.musicplayer.ui.util;
+
+import com.musicplayer.data.models.Song;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SongSearchFilterTest {
+
+    private final ScheduledExecutorService searchThread = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicInteger applied = new AtomicInteger();
+    private ObservableList<Song> songs;
+    private FilteredList<Song> filtered;
+
+    @BeforeEach
+    void setup() {
+        songs = FXCollections.observableArrayList(
+                song(1, "Hello World", "Adele", "25"),
+                song(2, "Halo", "Beyoncé", "I Am"),
+                song(3, "Creep", "Radiohead", "Pablo Honey"));
+        filtered = new FilteredList<>(songs, s -> true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        searchThread.shutdownNow();
+    }
+
+    private static Song song(long id, String title, String artist, String album) {
+        Song s = new Song();
+        s.setId(id);
+        s.setTitle(title);
+        s.setArtist(artist);
+        s.setAlbum(album);
+        return s;
+    }
+
+    /** The FX thread stand-in runs swaps synchronously and counts them. */
+    private SongSearchFilter filter(java.util.function.Function<String, List<Song>> fuzzy) {
+        return new SongSearchFilter(filtered, fuzzy, searchThread, r -> {
+            synchronized (this) {
+                r.run();
+                applied.incrementAndGet();
+                notifyAll();
+            }
+        }, 20);
+    }
+
+    private synchronized void awaitApplied(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (applied.get() < count && System.currentTimeMillis() < deadline) {
+            wait(50);
+        }
+        assertEquals(count, applied.get());
+    }
+
+    private synchronized List<String> titles() {
+        List<String> titles = new ArrayList<>();
+        for (Song s : filtered) titles.add(s.getTitle());
+        return titles;
+    }
+
+    @Test
+    void matches_title_artist_and_album_in_one_swap() throws InterruptedException {
+        SongSearchFilter filter = filter(null);
+        synchronized (this) {
+            filter.setQuery("  RADIO ");
+        }
+        awaitApplied(1);
+        assertEquals(List.of("Creep"), titles());
+
+        synchronized (this) {
+            filter.setQuery("");
+        }
+        assertEquals(3, filtered.size(), "clearing the query shows everything right away");
+    }
+
+    @Test
+    void superseded_queries_are_never_applied() throws InterruptedException {
+        SongSearchFilter filter = filter(null);
+        synchronized (this) {
+            for (String q : List.of("h", "ha", "hal", "halo")) {
+                filter.setQuery(q);
+            }
+        }
+        awaitApplied(1);
+        Thread.sleep(100);
+        assertEquals(1, applied.get());
+        assertEquals(List.of("Halo"), titles());
+    }
+
+    @Test
+    void falls_back_to_fuzzy_search_when_nothing_contains_the_query() throws InterruptedException {
+        List<String> asked = new ArrayList<>();
+        SongSearchFilter filter = filter(q -> {
+            asked.add(q);
+            return List.of(songs.get(1));
+        });
+        synchronized (this) {
+            filter.setQuery("beyonse");
+        }
+        awaitApplied(1);
+        assertEquals(List.of("beyonse"), asked);
+        assertEquals(List.of("Halo"), titles());
+    }
+
+    @Test
+    void added_rows_and_edited_tags_are_matched() throws InterruptedException {
+        SongSearchFilter filter = filter(null);
+        synchronized (this) {
+            filter.setQuery("live");
+        }
+        awaitApplied(1);
+        assertTrue(titles().isEmpty());
+
+        synchronized (this) {
+            songs.get(0).setTitle("Hello World (Live)");
+            songs.add(song(4, "Live Forever", "Oasis", "Definitely Maybe"));
+        }
+        awaitApplied(2);
+        assertEquals(List.of("Hello World (Live)", "Live Forever"), titles());
+        assertEquals(4, filter.getCachedKeyCount());
+    }
+}
@@ -0,0 +1,86 @@
+package com.musicplayer.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AudioPayloadTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path write(String name, byte[]... parts) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (byte[] part : parts) content.write(part);
+        Path file = tempDir.resolve(name);
+        Files.write(file, content.toByteArray());
+        return file;
+    }
+
+    private static byte[] id3v2(int bodySize) {
+        byte[] tag = new byte[10 + bodySize];
+        tag[0] = 'I'; tag[1] = 'D'; tag[2] = '3'; tag[3] = 3;
+        tag[8] = (byte) ((bodySize >> 7) & 0x7F);
+        tag[9] = (byte) (bodySize & 0x7F);
+        return tag;
+    }
+
+    @Test
+    void mp3_payload_excludes_id3v2_ape_and_id3v1_tags() throws IOException {
+        byte[] audio = new byte[5000];
+        ByteBuffer apeFooter = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+        apeFooter.put("APETAGEX".getBytes(StandardCharsets.US_ASCII)).putInt(2000).putInt(100).putInt(0).putInt(0);
+        byte[] ape = new byte[100];
+        System.arraycopy(apeFooter.array(), 0, ape, 68, 32);
+        byte[] id3v1 = new byte[128];
+        id3v1[0] = 'T'; id3v1[1] = 'A'; id3v1[2] = 'G';
+
+        Path file = write("a.mp3", id3v2(300), audio, ape, id3v1);
+        AudioPayload payload = AudioPayload.locate(file);
+        assertEquals(310, payload.getOffset());
+        assertEquals(5000, payload.getLength());
+    }
+
+    @Test
+    void flac_payload_starts_after_the_last_metadata_block() throws IOException {
+        byte[] streamInfo = new byte[4 + 34];
+        streamInfo[3] = 34;
+        byte[] comments = new byte[4 + 50];
+        comments[0] = (byte) 0x84;
+        comments[3] = 50;
+
+        Path file = write("a.flac", "fLaC".getBytes(StandardCharsets.US_ASCII), streamInfo, comments, new byte[777]);
+        AudioPayload payload = AudioPayload.locate(file);
+        assertEquals(4 + 38 + 54, payload.getOffset());
+        assertEquals(777, payload.getLength());
+    }
+
+    @Test
+    void mp4_payload_is_the_mdat_atom() throws IOException {
+        ByteBuffer ftyp = ByteBuffer.allocate(16).putInt(16).put("ftypM4A ".getBytes(StandardCharsets.US_ASCII));
+        ByteBuffer mdat = ByteBuffer.allocate(8 + 400).putInt(408).put("mdat".getBytes(StandardCharsets.US_ASCII));
+        ByteBuffer moov = ByteBuffer.allocate(60).putInt(60).put("moov".getBytes(StandardCharsets.US_ASCII));
+
+        Path file = write("a.m4a", ftyp.array(), mdat.array(), moov.array());
+        AudioPayload payload = AudioPayload.locate(file);
+        assertEquals(24, payload.getOffset());
+        assertEquals(400, payload.getLength());
+    }
+
+    @Test
+    void untagged_files_use_every_byte() throws IOException {
+        Path file = write("a.ogg", new byte[1234]);
+        AudioPayload payload = AudioPayload.locate(file);
+        assertEquals(0, payload.getOffset());
+        assertEquals(1234, payload.getLength());
+    }
+}
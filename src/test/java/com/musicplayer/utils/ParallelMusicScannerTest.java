@@ -0,0 +1,82 @@
+package com.musicplayer.utils;
+
+import com.musicplayer.data.models.Song;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelMusicScannerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path touch(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[] {1, 2, 3, 4});
+        return file;
+    }
+
+    @Test
+    void finds_supported_files_in_nested_folders_and_skips_hidden() throws IOException {
+        touch(tempDir.resolve("Artist/Album/01 First.mp3"));
+        touch(tempDir.resolve("Artist/Album/02 Second.FLAC"));
+        touch(tempDir.resolve("Other/track.m4a"));
+        touch(tempDir.resolve("Other/cover.jpg"));
+        touch(tempDir.resolve(".hidden/secret.mp3"));
+        touch(tempDir.resolve("Other/.ignored.mp3"));
+
+        List<Song> songs = new ParallelMusicScanner(2, 2).scan(tempDir);
+
+        assertEquals(3, songs.size());
+        // Results are ordered by path regardless of worker completion order
+        assertTrue(songs.get(0).getFilePath().endsWith("01 First.mp3"));
+        assertTrue(songs.get(1).getFilePath().endsWith("02 Second.FLAC"));
+        assertTrue(songs.get(2).getFilePath().endsWith("track.m4a"));
+        // Unreadable tags fall back to the file name
+        assertEquals("01 First", songs.get(0).getTitle());
+    }
+
+    @Test
+    void streams_every_file_to_sink_with_a_single_worker() throws IOException {
+        for (int i = 0; i < 25; i++) {
+            touch(tempDir.resolve("dir" + (i % 5) + "/song" + i + ".mp3"));
+        }
+
+        AtomicInteger received = new AtomicInteger();
+        int processed = new ParallelMusicScanner(1, 1).scan(tempDir, song -> received.incrementAndGet());
+
+        assertEquals(25, processed);
+        assertEquals(25, received.get());
+    }
+
+    @Test
+    void invalid_root_returns_empty() {
+        assertTrue(new ParallelMusicScanner().scan(tempDir.resolve("missing")).isEmpty());
+    }
+
+    @Test
+    void cancel_stops_the_walk() throws IOException {
+        for (int i = 0; i < 50; i++) {
+            touch(tempDir.resolve("dir" + (i % 5) + "/song" + i + ".mp3"));
+        }
+
+        ParallelMusicScanner scanner = new ParallelMusicScanner(1, 1);
+        AtomicInteger received = new AtomicInteger();
+        scanner.scan(tempDir, song -> {
+            if (received.incrementAndGet() == 3) {
+                scanner.cancel();
+            }
+        });
+
+        assertTrue(scanner.isCancelled());
+        assertTrue(received.get() < 50, "walk must stop after cancel, got " + received.get());
+        assertEquals(0, scanner.scan(tempDir).size());
+    }
+}
@@ -0,0 +1,211 @@
+package com.musicplayer.utils;
+
+import com.musicplayer.data.models.Song;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuickTagReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    // ---- ID3v2.3 ----
+
+    private static byte[] id3Frame(String id, byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBytes(id);
+        out.writeInt(data.length);
+        out.writeShort(0);
+        out.write(data);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] id3Text(String id, String text) throws IOException {
+        byte[] value = text.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] data = new byte[value.length + 1];
+        System.arraycopy(value, 0, data, 1, value.length);
+        return id3Frame(id, data);
+    }
+
+    private static byte[] id3Tag(byte[]... frames) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] frame : frames) body.write(frame);
+        body.write(new byte[64]); // padding
+        int size = body.size();
+        ByteArrayOutputStream tag = new ByteArrayOutputStream();
+        tag.write(new byte[] {'I', 'D', '3', 3, 0, 0,
+                (byte) ((size >> 21) & 0x7F), (byte) ((size >> 14) & 0x7F), (byte) ((size >> 7) & 0x7F), (byte) (size & 0x7F)});
+        tag.write(body.toByteArray());
+        return tag.toByteArray();
+    }
+
+    @Test
+    void reads_id3v2_text_frames_and_skips_artwork() throws IOException {
+        byte[] picture = new byte[200_000];
+        byte[] utf16Title = "Café".getBytes(StandardCharsets.UTF_16);
+        byte[] titleData = new byte[utf16Title.length + 1];
+        titleData[0] = 1;
+        System.arraycopy(utf16Title, 0, titleData, 1, utf16Title.length);
+
+        Path file = tempDir.resolve("song.mp3");
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(id3Tag(
+                id3Frame("APIC", picture),
+                id3Frame("TIT2", titleData),
+                id3Text("TPE1", "The Artist"),
+                id3Text("TALB", "The Album"),
+                id3Text("TCON", "(17)"),
+                id3Text("TRCK", "4/12"),
+                id3Text("TYER", "1999"),
+                id3Text("TLEN", "215000")));
+        content.write(new byte[] {(byte) 0xFF, (byte) 0xFB, 0, 0}); // audio would follow
+        Files.write(file, content.toByteArray());
+
+        Song song = QuickTagReader.read(file);
+        assertNotNull(song);
+        assertEquals("Café", song.getTitle());
+        assertEquals("The Artist", song.getArtist());
+        assertEquals("The Album", song.getAlbum());
+        assertEquals("Rock", song.getGenre());
+        assertEquals(4, song.getTrackNumber());
+        assertEquals(1999, song.getYear());
+        assertEquals(215, song.getDuration());
+    }
+
+    // ---- FLAC ----
+
+    private static byte[] flacBlock(int type, boolean last, byte[] data) {
+        ByteBuffer block = ByteBuffer.allocate(4 + data.length);
+        block.put((byte) ((last ? 0x80 : 0) | type));
+        block.put((byte) (data.length >> 16)).put((byte) (data.length >> 8)).put((byte) data.length);
+        block.put(data);
+        return block.array();
+    }
+
+    @Test
+    void reads_flac_streaminfo_and_vorbis_comments() throws IOException {
+        ByteBuffer streamInfo = ByteBuffer.allocate(34);
+        long sampleRate = 44_100;
+        long totalSamples = 44_100L * 300;
+        streamInfo.putLong(10, (sampleRate << 44) | (1L << 41) | (15L << 36) | totalSamples);
+
+        String[] comments = {"TITLE=Flac Title", "ARTIST=Flac Artist", "ALBUM=Flac Album",
+                "TRACKNUMBER=7", "DATE=2004-05-01", "GENRE=Jazz"};
+        ByteArrayOutputStream vorbis = new ByteArrayOutputStream();
+        ByteBuffer le = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        vorbis.write(le.putInt(0, 3).array());
+        vorbis.write("lib".getBytes(StandardCharsets.UTF_8));
+        vorbis.write(le.putInt(0, comments.length).array());
+        for (String c : comments) {
+            byte[] b = c.getBytes(StandardCharsets.UTF_8);
+            vorbis.write(le.putInt(0, b.length).array());
+            vorbis.write(b);
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write("fLaC".getBytes(StandardCharsets.US_ASCII));
+        content.write(flacBlock(0, false, streamInfo.array()));
+        content.write(flacBlock(6, false, new byte[100_000])); // PICTURE
+        content.write(flacBlock(4, true, vorbis.toByteArray()));
+        Path file = tempDir.resolve("song.flac");
+        Files.write(file, content.toByteArray());
+
+        Song song = QuickTagReader.read(file);
+        assertNotNull(song);
+        assertEquals("Flac Title", song.getTitle());
+        assertEquals("Flac Artist", song.getArtist());
+        assertEquals("Flac Album", song.getAlbum());
+        assertEquals(7, song.getTrackNumber());
+        assertEquals(2004, song.getYear());
+        assertEquals("Jazz", song.getGenre());
+        assertEquals(300, song.getDuration());
+    }
+
+    // ---- MP4 ----
+
+    private static byte[] atom(String type, byte[]... children) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] child : children) body.write(child);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(8 + body.size());
+        out.write(type.getBytes(StandardCharsets.ISO_8859_1));
+        out.write(body.toByteArray());
+        return bytes.toByteArray();
+    }
+
+    private static byte[] dataAtom(int dataType, byte[] value) throws IOException {
+        ByteBuffer prefix = ByteBuffer.allocate(8).putInt(dataType).putInt(0);
+        return atom("data", prefix.array(), value);
+    }
+
+    @Test
+    void reads_mp4_ilst_atoms_and_mvhd_duration() throws IOException {
+        ByteBuffer mvhd = ByteBuffer.allocate(100);
+        mvhd.putInt(12, 1000).putInt(16, 183_000);
+
+        byte[] ilst = atom("ilst",
+                atom("©nam", dataAtom(1, "M4A Title".getBytes(StandardCharsets.UTF_8))),
+                atom("©ART", dataAtom(1, "M4A Artist".getBytes(StandardCharsets.UTF_8))),
+                atom("©alb", dataAtom(1, "M4A Album".getBytes(StandardCharsets.UTF_8))),
+                atom("trkn", dataAtom(0, new byte[] {0, 0, 0, 9, 0, 12, 0, 0})),
+                atom("©day", dataAtom(1, "2011".getBytes(StandardCharsets.UTF_8))),
+                atom("covr", dataAtom(13, new byte[50_000])));
+        byte[] meta = atom("meta", new byte[4], atom("hdlr", new byte[25]), ilst);
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        content.write(atom("ftyp", "M4A ".getBytes(StandardCharsets.US_ASCII), new byte[4]));
+        content.write(atom("mdat", new byte[300_000]));
+        content.write(atom("moov", atom("mvhd", mvhd.array()), atom("udta", meta)));
+        Path file = tempDir.resolve("song.m4a");
+        Files.write(file, content.toByteArray());
+
+        Song song = QuickTagReader.read(file);
+        assertNotNull(song);
+        assertEquals("M4A Title", song.getTitle());
+        assertEquals("M4A Artist", song.getArtist());
+        assertEquals("M4A Album", song.getAlbum());
+        assertEquals(9, song.getTrackNumber());
+        assertEquals(2011, song.getYear());
+        assertEquals(183, song.getDuration());
+    }
+
+    @Test
+    void unknown_formats_fall_back_to_file_name_fields() throws IOException {
+        Path file = tempDir.resolve("Some Artist/Some Album/03 Untagged.ogg");
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[64]);
+
+        assertNull(QuickTagReader.read(file));
+
+        Song song = MusicScanner.extractQuickMetadata(file.toFile());
+        assertEquals("03 Untagged", song.getTitle());
+        assertEquals("Some Artist", song.getArtist());
+        assertEquals(3, song.getTrackNumber());
+        assertEquals(0, song.getDuration());
+        assertEquals(file.toAbsolutePath().toString(), song.getFilePath());
+    }
+
+    @Test
+    void truncated_tag_does_not_throw() throws IOException {
+        byte[] tag = id3Tag(id3Text("TIT2", "Cut Off"), id3Frame("APIC", new byte[10_000]));
+        Path file = tempDir.resolve("cut.mp3");
+        Files.write(file, java.util.Arrays.copyOf(tag, 40));
+
+        Song song = QuickTagReader.read(file);
+        assertNotNull(song);
+        assertEquals("Cut Off", song.getTitle());
+    }
+}